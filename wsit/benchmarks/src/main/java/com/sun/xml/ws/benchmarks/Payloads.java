@@ -0,0 +1,106 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.benchmarks;
+
+import com.sun.xml.stream.buffer.XMLStreamBuffer;
+import com.sun.xml.ws.api.SOAPVersion;
+import com.sun.xml.ws.api.message.Message;
+import com.sun.xml.ws.api.message.Messages;
+import com.sun.xml.ws.api.message.Packet;
+
+import java.io.StringReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Test documents shared by the benchmarks. The payload is an order with the requested number
+ * of line items, so that message size can be varied through a single {@code @Param}.
+ */
+public final class Payloads {
+
+    public static final String NAMESPACE = "http://metro.java.net/benchmarks";
+
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    private Payloads() {
+    }
+
+    /**
+     * Returns an order document with {@code items} line items.
+     */
+    public static String payload(int items) {
+        final StringBuilder sb = new StringBuilder(64 + items * 160);
+        sb.append("<b:order xmlns:b=\"").append(NAMESPACE).append("\" b:id=\"order-").append(items).append("\">");
+        for (int i = 0; i < items; i++) {
+            sb.append("<b:item b:sku=\"SKU-").append(i).append("\">")
+                    .append("<b:name>Item number ").append(i).append(" &amp; its description</b:name>")
+                    .append("<b:quantity>").append(i % 7 + 1).append("</b:quantity>")
+                    .append("<b:price currency=\"EUR\">").append(i).append(".99</b:price>")
+                    .append("</b:item>");
+        }
+        return sb.append("</b:order>").toString();
+    }
+
+    /**
+     * Returns a SOAP envelope of the given version carrying {@link #payload(int)}.
+     */
+    public static String envelope(SOAPVersion version, int items) {
+        return "<S:Envelope xmlns:S=\"" + version.nsUri + "\"><S:Header/><S:Body>"
+                + payload(items)
+                + "</S:Body></S:Envelope>";
+    }
+
+    /**
+     * Parses {@code xml} into a buffer that can be replayed any number of times.
+     */
+    public static XMLStreamBuffer buffer(String xml) throws XMLStreamException {
+        return XMLStreamBuffer.createNewBufferFromXMLStreamReader(INPUT_FACTORY.createXMLStreamReader(new StringReader(xml)));
+    }
+
+    /**
+     * Returns a new, not yet consumed packet whose message is read from the envelope buffer.
+     */
+    public static Packet packet(XMLStreamBuffer envelope) {
+        final Message message = Messages.create(envelope);
+        return new Packet(message);
+    }
+}
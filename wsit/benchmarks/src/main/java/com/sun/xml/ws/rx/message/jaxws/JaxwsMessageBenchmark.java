@@ -0,0 +1,106 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.rx.message.jaxws;
+
+import com.sun.xml.ws.api.SOAPVersion;
+import com.sun.xml.ws.benchmarks.Payloads;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of {@link JaxwsMessage}s, which persistent reliable messaging performs for
+ * every stored message and reverses on recovery and resend.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JaxwsMessageBenchmark {
+
+    private static final String WSA_ACTION = "http://metro.java.net/benchmarks/order";
+
+    @Param({"1", "100"})
+    public int items;
+
+    @Param({"xml", "fastinfoset"})
+    public String codec;
+
+    private JaxwsMessage message;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        MessageCodecs.setDefaultCodec("xml".equals(codec) ? MessageCodecs.XML : MessageCodecs.FAST_INFOSET);
+        message = new JaxwsMessage(Payloads.packet(Payloads.buffer(Payloads.envelope(SOAPVersion.SOAP_12, items))), "benchmark");
+        serialized = message.toBytes();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        MessageCodecs.setDefaultCodec(MessageCodecs.XML);
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return message.toBytes();
+    }
+
+    @Benchmark
+    public String newInstance() {
+        return JaxwsMessage.newInstance(new ByteArrayInputStream(serialized), "benchmark", WSA_ACTION).getJaxwsMessage().getPayloadLocalPart();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.rx.rm.runtime.sequence;
+
+import com.sun.xml.ws.api.SOAPVersion;
+import com.sun.xml.ws.api.addressing.AddressingVersion;
+import com.sun.xml.ws.api.server.Container;
+import com.sun.xml.ws.rx.message.RxMessage;
+import com.sun.xml.ws.rx.rm.api.ReliableMessagingFeature;
+import com.sun.xml.ws.rx.rm.api.ReliableMessagingFeatureBuilder;
+import com.sun.xml.ws.rx.rm.api.RmProtocolVersion;
+import com.sun.xml.ws.rx.rm.runtime.ApplicationMessage;
+import com.sun.xml.ws.rx.rm.runtime.ApplicationMessageBase;
+import com.sun.xml.ws.rx.rm.runtime.RmConfiguration;
+import com.sun.xml.ws.rx.rm.runtime.RmRuntimeVersion;
+import com.sun.xml.ws.rx.rm.runtime.RuntimeContext;
+import com.sun.xml.ws.rx.rm.runtime.delivery.DeliveryQueueBuilder;
+import com.sun.xml.ws.rx.rm.runtime.delivery.Postman;
+import com.sun.xml.ws.rx.rm.runtime.delivery.PostmanPool;
+import org.glassfish.gmbal.ManagedObjectManager;
+
+/**
+ * In-VM reliable messaging runtime used by the sequence benchmarks: a WS-RM 1.1 configuration
+ * without monitoring and delivery queues whose messages are dropped on delivery.
+ */
+final class RmBenchmarkSupport {
+
+    static final RmConfiguration CONFIGURATION = createConfiguration();
+
+    private RmBenchmarkSupport() {
+    }
+
+    static SequenceManager createSequenceManager(String uniqueEndpointId) {
+        return SequenceManagerFactory.INSTANCE.createSequenceManager(
+                false,
+                uniqueEndpointId,
+                createDeliveryQueueBuilder(),
+                createDeliveryQueueBuilder(),
+                CONFIGURATION,
+                Container.NONE,
+                null);
+    }
+
+    static void dispose(SequenceManager sequenceManager) {
+        SequenceManagerFactory.INSTANCE.dispose(sequenceManager, CONFIGURATION);
+    }
+
+    private static DeliveryQueueBuilder createDeliveryQueueBuilder() {
+        return DeliveryQueueBuilder.getBuilder(CONFIGURATION, PostmanPool.INSTANCE.getPostman(), new Postman.Callback() {
+
+            public void deliver(ApplicationMessage message) {
+            }
+
+            public RuntimeContext getRuntimeContext() {
+                return null;
+            }
+        });
+    }
+
+    private static RmConfiguration createConfiguration() {
+        final ReliableMessagingFeature rmFeature = new ReliableMessagingFeatureBuilder(RmProtocolVersion.WSRM200702).build();
+
+        return new RmConfiguration() {
+
+            public boolean isReliableMessagingEnabled() {
+                return true;
+            }
+
+            public boolean isMakeConnectionSupportEnabled() {
+                return false;
+            }
+
+            public SOAPVersion getSoapVersion() {
+                return SOAPVersion.SOAP_12;
+            }
+
+            public AddressingVersion getAddressingVersion() {
+                return AddressingVersion.W3C;
+            }
+
+            public boolean requestResponseOperationsDetected() {
+                return false;
+            }
+
+            public ReliableMessagingFeature getRmFeature() {
+                return rmFeature;
+            }
+
+            public ManagedObjectManager getManagedObjectManager() {
+                return null;
+            }
+
+            public RmRuntimeVersion getRuntimeVersion() {
+                return RmRuntimeVersion.WSRM200702;
+            }
+
+            public com.oracle.webservices.oracle_internal_api.rm.ReliableMessagingFeature getInternalRmFeature() {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Application message without content; the sequences only look at its sequence data.
+     */
+    static final class BenchmarkMessage extends ApplicationMessageBase {
+
+        BenchmarkMessage(String correlationId) {
+            super(correlationId);
+        }
+
+        BenchmarkMessage(String correlationId, String sequenceId, long messageNumber) {
+            super(correlationId, sequenceId, messageNumber, null);
+        }
+
+        public State getState() {
+            return new BenchmarkMessageState(getCorrelationId(), getSequenceId(), getMessageNumber());
+        }
+    }
+
+    /**
+     * Serializable state of a {@link BenchmarkMessage}.
+     */
+    static final class BenchmarkMessageState implements RxMessage.State {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String correlationId;
+        private final String sequenceId;
+        private final long messageNumber;
+
+        BenchmarkMessageState(String correlationId, String sequenceId, long messageNumber) {
+            this.correlationId = correlationId;
+            this.sequenceId = sequenceId;
+            this.messageNumber = messageNumber;
+        }
+
+        public RxMessage toMessage() {
+            return new BenchmarkMessage(correlationId, sequenceId, messageNumber);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.rx.rm.runtime.sequence;
+
+import com.sun.xml.ws.rx.rm.runtime.sequence.RmBenchmarkSupport.BenchmarkMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Acknowledgement bookkeeping of {@link AbstractSequence} implementations: registering a window
+ * of messages and acknowledging it with gaps, the way SequenceAcknowledgement headers and
+ * out-of-order deliveries drive a sequence.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SequenceAcknowledgementBenchmark {
+
+    @Param({"16", "256"})
+    public int window;
+
+    private SequenceManager sequenceManager;
+    private Sequence outbound;
+    private Sequence inbound;
+    private long lastInboundMessageNumber;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        sequenceManager = RmBenchmarkSupport.createSequenceManager("ack-benchmark");
+        outbound = sequenceManager.createOutboundSequence(sequenceManager.generateSequenceUID(), null, Sequence.NO_EXPIRY);
+        inbound = sequenceManager.createInboundSequence(sequenceManager.generateSequenceUID(), null, Sequence.NO_EXPIRY);
+        lastInboundMessageNumber = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        RmBenchmarkSupport.dispose(sequenceManager);
+    }
+
+    /**
+     * Sends a window of messages, receives an acknowledgement of every other message number
+     * and then one covering the whole window.
+     */
+    @Benchmark
+    public List<Sequence.AckRange> outboundSelectiveAcknowledgement() throws Exception {
+        final long first = outbound.getLastMessageNumber() + 1;
+        for (int i = 0; i < window; i++) {
+            outbound.registerMessage(new BenchmarkMessage("outbound"), false);
+        }
+        final long last = outbound.getLastMessageNumber();
+
+        final List<Sequence.AckRange> selective = new ArrayList<Sequence.AckRange>(window / 2 + 1);
+        for (long number = first; number <= last; number += 2) {
+            selective.add(new Sequence.AckRange(number, number));
+        }
+        outbound.acknowledgeMessageNumbers(selective);
+        final List<Sequence.AckRange> acknowledged = outbound.getAcknowledgedMessageNumbers();
+
+        final List<Sequence.AckRange> complete = new ArrayList<Sequence.AckRange>(1);
+        complete.add(new Sequence.AckRange(first, last));
+        outbound.acknowledgeMessageNumbers(complete);
+        return acknowledged;
+    }
+
+    /**
+     * Receives a window of messages with the odd message numbers arriving first, computes the
+     * acknowledgement ranges while the gaps are open and then receives the rest.
+     */
+    @Benchmark
+    public List<Sequence.AckRange> inboundOutOfOrderDelivery() throws Exception {
+        final long first = lastInboundMessageNumber + 1;
+        lastInboundMessageNumber += window;
+
+        receive(first);
+        final List<Sequence.AckRange> acknowledged = inbound.getAcknowledgedMessageNumbers();
+        receive(first + 1);
+        return acknowledged;
+    }
+
+    private void receive(long first) throws Exception {
+        for (long number = first; number <= lastInboundMessageNumber; number += 2) {
+            inbound.registerMessage(new BenchmarkMessage("inbound", inbound.getId(), number), false);
+            inbound.acknowledgeMessageNumber(number);
+        }
+    }
+}
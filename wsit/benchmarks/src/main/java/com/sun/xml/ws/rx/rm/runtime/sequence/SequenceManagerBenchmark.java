@@ -0,0 +1,105 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.rx.rm.runtime.sequence;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sequence life cycle in the in-VM sequence manager: creating, closing and terminating a
+ * sequence and the maintenance pass that removes it, next to a population of open sequences.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SequenceManagerBenchmark {
+
+    /**
+     * Number of sequences that stay open for the whole trial.
+     */
+    @Param({"10", "1000"})
+    public int openSequences;
+
+    private SequenceManager sequenceManager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        sequenceManager = RmBenchmarkSupport.createSequenceManager("sequence-manager-benchmark");
+        for (int i = 0; i < openSequences; i++) {
+            sequenceManager.createOutboundSequence(sequenceManager.generateSequenceUID(), null, Sequence.NO_EXPIRY);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        RmBenchmarkSupport.dispose(sequenceManager);
+    }
+
+    @Benchmark
+    public Sequence createCloseTerminate() throws Exception {
+        final Sequence sequence = sequenceManager.createOutboundSequence(sequenceManager.generateSequenceUID(), null, Sequence.NO_EXPIRY);
+        sequenceManager.closeSequence(sequence.getId());
+        sequenceManager.terminateSequence(sequence.getId());
+        sequenceManager.onMaintenance();
+        return sequence;
+    }
+
+    @Benchmark
+    public boolean maintenance() {
+        return sequenceManager.onMaintenance();
+    }
+}
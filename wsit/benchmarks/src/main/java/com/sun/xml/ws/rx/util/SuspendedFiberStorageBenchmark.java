@@ -0,0 +1,149 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.rx.util;
+
+import com.sun.xml.ws.api.pipe.Engine;
+import com.sun.xml.ws.api.pipe.Fiber;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Request-response correlation in a {@link SuspendedFiberStorage} shared by many threads, with
+ * a population of fibers that stay suspended, alone and next to the expiry sweep of the
+ * MakeConnection sender task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SuspendedFiberStorageBenchmark {
+
+    /**
+     * Number of fibers suspended for the whole trial.
+     */
+    @Param({"100", "10000"})
+    public int suspendedFibers;
+
+    private SuspendedFiberStorage storage;
+    private Fiber fiber;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        storage = new SuspendedFiberStorage();
+        fiber = new Engine("suspended-fiber-benchmark").createFiber();
+        for (int i = 0; i < suspendedFibers; i++) {
+            storage.register("suspended-" + i, fiber);
+        }
+    }
+
+    /**
+     * Correlation identifiers unique to a benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class CorrelationIds {
+        private static int threads;
+
+        private final String prefix;
+        private long counter;
+
+        public CorrelationIds() {
+            synchronized (CorrelationIds.class) {
+                prefix = "correlation-" + threads++ + '-';
+            }
+        }
+
+        String next() {
+            return prefix + counter++;
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Fiber correlate(CorrelationIds ids) {
+        return suspendAndResume(ids.next());
+    }
+
+    @Benchmark
+    @Group("expiry")
+    @GroupThreads(7)
+    public Fiber correlateDuringExpiry(CorrelationIds ids) {
+        return suspendAndResume(ids.next());
+    }
+
+    /**
+     * Expires the oldest fiber and suspends a new one, keeping the population constant.
+     */
+    @Benchmark
+    @Group("expiry")
+    @GroupThreads(1)
+    public Fiber expire() {
+        storage.register(fiber);
+        try {
+            storage.getOldestRegistrationTimestamp();
+            return storage.removeOldest();
+        } catch (NoSuchElementException emptied) {
+            return null;
+        }
+    }
+
+    private Fiber suspendAndResume(String correlationId) {
+        storage.register(correlationId, fiber);
+        return storage.remove(correlationId);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.security.opt;
+
+import com.sun.xml.stream.buffer.XMLStreamBuffer;
+import com.sun.xml.ws.benchmarks.Payloads;
+import com.sun.xml.ws.security.opt.crypto.StreamWriterData;
+import com.sun.xml.ws.security.opt.crypto.dsig.Exc14nCanonicalizer;
+import com.sun.xml.ws.security.opt.crypto.dsig.internal.DigesterOutputStream;
+import com.sun.xml.ws.security.opt.impl.enc.CryptoProcessor;
+import com.sun.xml.ws.security.opt.impl.util.NamespaceContextEx;
+import com.sun.xml.wss.impl.MessageConstants;
+import com.sun.xml.wss.impl.misc.Base64;
+import com.sun.xml.wss.impl.misc.UnsyncByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.apache.xml.security.utils.UnsyncBufferedOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Streaming sign/verify and encrypt/decrypt of a SOAP body as done by the optimized security
+ * stack below {@code SecurityTubeBase}: exclusive canonicalization straight into the digest,
+ * RSA-SHA256 over the SignedInfo and AES-128-CBC over the serialized body.
+ * <p>
+ * The tubes themselves need a WSDL with security policy and key stores, so the benchmark
+ * drives the same components they delegate to with keys generated in memory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingSecurityBenchmark {
+
+    private static final String SIGNED_INFO_START = "<ds:SignedInfo xmlns:ds=\"http://www.w3.org/2000/09/xmldsig#\">"
+            + "<ds:CanonicalizationMethod Algorithm=\"" + MessageConstants.TRANSFORM_C14N_EXCL_OMIT_COMMENTS + "\"></ds:CanonicalizationMethod>"
+            + "<ds:SignatureMethod Algorithm=\"" + MessageConstants.RSA_SHA256_SIGMETHOD + "\"></ds:SignatureMethod>"
+            + "<ds:Reference URI=\"#body\"><ds:DigestMethod Algorithm=\"" + MessageConstants.SHA256 + "\"></ds:DigestMethod>"
+            + "<ds:DigestValue>";
+    private static final String SIGNED_INFO_END = "</ds:DigestValue></ds:Reference></ds:SignedInfo>";
+
+    @Param({"1", "100"})
+    public int items;
+
+    private final Exc14nCanonicalizer canonicalizer = new Exc14nCanonicalizer();
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private final UnsyncByteArrayOutputStream buffer = new UnsyncByteArrayOutputStream();
+    private XMLStreamBuffer body;
+    private StreamWriterData bodyData;
+    private KeyPair signingKeys;
+    private SecretKey dataKey;
+    private byte[] digestValue;
+    private byte[] signatureValue;
+    private byte[] cipherValue;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        org.apache.xml.security.Init.init();
+
+        body = Payloads.buffer(Payloads.payload(items));
+        bodyData = new StreamWriterData() {
+            private final NamespaceContextEx namespaceContext = new NamespaceContextEx(true);
+
+            public org.jvnet.staxex.NamespaceContextEx getNamespaceContext() {
+                return namespaceContext;
+            }
+
+            public void write(XMLStreamWriter writer) throws XMLStreamException {
+                body.writeToXMLStreamWriter(writer);
+            }
+        };
+
+        final KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        signingKeys = keyPairGenerator.generateKeyPair();
+        final KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(128);
+        dataKey = keyGenerator.generateKey();
+
+        digestValue = digest();
+        signatureValue = sign();
+        cipherValue = encrypt();
+    }
+
+    @Benchmark
+    public byte[] sign() throws Exception {
+        final Signature signature = Signature.getInstance(MessageConstants.RSA_SHA256);
+        signature.initSign(signingKeys.getPrivate());
+        signature.update(signedInfo(digest()));
+        return signature.sign();
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        final byte[] calculated = digest();
+        if (!Arrays.equals(digestValue, calculated)) {
+            return false;
+        }
+        final Signature signature = Signature.getInstance(MessageConstants.RSA_SHA256);
+        signature.initVerify(signingKeys.getPublic());
+        signature.update(signedInfo(calculated));
+        return signature.verify(signatureValue);
+    }
+
+    @Benchmark
+    public byte[] encrypt() throws Exception {
+        buffer.reset();
+        final XMLStreamWriter writer = outputFactory.createXMLStreamWriter(buffer, "UTF-8");
+        body.writeToXMLStreamWriter(writer);
+        writer.close();
+        return new CryptoProcessor(Cipher.ENCRYPT_MODE, MessageConstants.AES_BLOCK_ENCRYPTION_128, dataKey).encryptData(buffer.toByteArray());
+    }
+
+    @Benchmark
+    public byte[] decrypt() throws Exception {
+        return new CryptoProcessor(Cipher.DECRYPT_MODE, MessageConstants.AES_BLOCK_ENCRYPTION_128, dataKey).decryptData(cipherValue);
+    }
+
+    private byte[] digest() throws Exception {
+        final DigesterOutputStream digester = new DigesterOutputStream(MessageDigest.getInstance("SHA-256"));
+        final OutputStream out = new UnsyncBufferedOutputStream(digester);
+        canonicalizer.transform(bodyData, null, out);
+        out.flush();
+        return digester.getDigestValue();
+    }
+
+    private static byte[] signedInfo(byte[] digest) {
+        return (SIGNED_INFO_START + Base64.encode(digest) + SIGNED_INFO_END).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.sun.xml.ws.security.trust.sts;
+
+import com.sun.xml.stream.buffer.XMLStreamBuffer;
+import com.sun.xml.ws.api.SOAPVersion;
+import com.sun.xml.ws.api.message.Messages;
+import com.sun.xml.ws.benchmarks.Payloads;
+import com.sun.xml.ws.security.trust.GenericToken;
+import com.sun.xml.ws.security.trust.WSTrustConstants;
+import com.sun.xml.ws.security.trust.WSTrustElementFactory;
+import com.sun.xml.ws.security.trust.WSTrustVersion;
+import com.sun.xml.ws.security.trust.elements.RequestSecurityToken;
+import com.sun.xml.ws.security.trust.elements.RequestedSecurityToken;
+import com.sun.xml.ws.security.trust.util.WSTrustUtil;
+import com.sun.xml.wss.impl.misc.UnsyncByteArrayOutputStream;
+import java.io.StringReader;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+/**
+ * Message handling of a WS-Trust 1.3 Issue request for a SAML 2.0 token as done by
+ * {@link BaseSTSImpl}: the RST is unmarshalled from the payload source of the incoming message
+ * and searched for a SAML assertion, and the RSTR collection carrying the issued assertion is
+ * written out through the message the runtime creates for the returned source.
+ * <p>
+ * With {@code onBehalfOf} the request carries a SAML 2.0 assertion in its {@code OnBehalfOf}
+ * element; without it the whole request is searched for one. Creating and signing the issued
+ * assertion is left to the token contract, which needs a configured STS key store, so the
+ * benchmark issues an unsigned assertion built up front.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class STSIssueBenchmark {
+
+    private static final String SERVICE_ADDRESS = "http://localhost:8080/service";
+
+    @Param({"false", "true"})
+    public boolean onBehalfOf;
+
+    private final WSTrustVersion wstVer = WSTrustVersion.WS_TRUST_13;
+    private final WSTrustElementFactory eleFac = WSTrustElementFactory.newInstance(wstVer);
+    private final Map<String, Object> otherOptions = new HashMap<String, Object>();
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private final UnsyncByteArrayOutputStream buffer = new UnsyncByteArrayOutputStream();
+    private XMLStreamBuffer request;
+    private Element issuedAssertion;
+    private URI tokenType;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        tokenType = new URI(WSTrustConstants.SAML20_ASSERTION_TOKEN_TYPE);
+        request = Payloads.buffer("<S:Envelope xmlns:S=\"" + SOAPVersion.SOAP_12.nsUri + "\"><S:Header/><S:Body>"
+                + issueRequest(onBehalfOf ? assertion("requester") : null)
+                + "</S:Body></S:Envelope>");
+
+        final DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        issuedAssertion = dbf.newDocumentBuilder().parse(new InputSource(new StringReader(assertion("issued")))).getDocumentElement();
+    }
+
+    @Benchmark
+    public RequestSecurityToken parseRequest() throws Exception {
+        otherOptions.clear();
+        return BaseSTSImpl.parseRST(Payloads.packet(request).getMessage().readPayloadAsSource(), wstVer, otherOptions);
+    }
+
+    @Benchmark
+    public int writeResponse() throws Exception {
+        final RequestedSecurityToken requestedToken = eleFac.createRequestedSecurityToken();
+        requestedToken.setToken(new GenericToken(issuedAssertion));
+
+        buffer.reset();
+        final XMLStreamWriter writer = outputFactory.createXMLStreamWriter(buffer, "UTF-8");
+        Messages.createUsingPayload(
+                eleFac.toSource(eleFac.createRSTRCollectionForIssue(tokenType, null, requestedToken, null, null, null, null, null,
+                        WSTrustUtil.createLifetime(System.currentTimeMillis(), 300000, wstVer))),
+                SOAPVersion.SOAP_12).writeTo(writer);
+        writer.close();
+        return buffer.size();
+    }
+
+    private String issueRequest(String onBehalfOfAssertion) {
+        return "<wst:RequestSecurityToken xmlns:wst=\"" + wstVer.getNamespaceURI() + "\">"
+                + "<wst:TokenType>" + WSTrustConstants.SAML20_ASSERTION_TOKEN_TYPE + "</wst:TokenType>"
+                + "<wst:RequestType>" + wstVer.getIssueRequestTypeURI() + "</wst:RequestType>"
+                + "<wsp:AppliesTo xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2004/09/policy\">"
+                + "<wsa:EndpointReference xmlns:wsa=\"http://www.w3.org/2005/08/addressing\">"
+                + "<wsa:Address>" + SERVICE_ADDRESS + "</wsa:Address></wsa:EndpointReference></wsp:AppliesTo>"
+                + ((onBehalfOfAssertion != null) ? "<wst:OnBehalfOf>" + onBehalfOfAssertion + "</wst:OnBehalfOf>" : "")
+                + "<wst:KeyType>" + wstVer.getBearerKeyTypeURI() + "</wst:KeyType>"
+                + "</wst:RequestSecurityToken>";
+    }
+
+    private static String assertion(String subject) {
+        return "<saml2:Assertion xmlns:saml2=\"urn:oasis:names:tc:SAML:2.0:assertion\" ID=\"uuid-" + subject + "\""
+                + " IssueInstant=\"2026-01-01T00:00:00Z\" Version=\"2.0\">"
+                + "<saml2:Issuer>SampleSTS</saml2:Issuer>"
+                + "<saml2:Subject><saml2:NameID>" + subject + "</saml2:NameID>"
+                + "<saml2:SubjectConfirmation Method=\"urn:oasis:names:tc:SAML:2.0:cm:bearer\"/></saml2:Subject>"
+                + "<saml2:Conditions NotBefore=\"2026-01-01T00:00:00Z\" NotOnOrAfter=\"2026-01-01T00:05:00Z\">"
+                + "<saml2:AudienceRestriction><saml2:Audience>" + SERVICE_ADDRESS + "</saml2:Audience></saml2:AudienceRestriction>"
+                + "</saml2:Conditions>"
+                + "<saml2:AttributeStatement><saml2:Attribute Name=\"role\"><saml2:AttributeValue>user</saml2:AttributeValue>"
+                + "</saml2:Attribute></saml2:AttributeStatement>"
+                + "</saml2:Assertion>";
+    }
+}
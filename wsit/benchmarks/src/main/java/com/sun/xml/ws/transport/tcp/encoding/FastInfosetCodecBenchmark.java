@@ -0,0 +1,132 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.transport.tcp.encoding;
+
+import com.sun.xml.stream.buffer.XMLStreamBuffer;
+import com.sun.xml.ws.api.SOAPVersion;
+import com.sun.xml.ws.api.message.Packet;
+import com.sun.xml.ws.api.pipe.Codecs;
+import com.sun.xml.ws.benchmarks.Payloads;
+import com.sun.xml.ws.transport.tcp.encoding.WSTCPFastInfosetStreamReaderRecyclable.RecycleAwareListener;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLStreamReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encoding and decoding of SOAP 1.2 messages by the SOAP/TCP Fast Infoset codec.
+ * <p>
+ * Encoding is measured with and without retained vocabulary. Decoding uses the stateless codec,
+ * as a stateful decoder would have to see the documents in the order they were encoded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastInfosetCodecBenchmark {
+
+    private static final RecycleAwareListener NO_RECYCLE_LISTENER = new RecycleAwareListener() {
+        public void onRecycled() {
+        }
+    };
+
+    @Param({"1", "100"})
+    public int items;
+
+    @Param({"false", "true"})
+    public boolean retainState;
+
+    private XMLStreamBuffer envelope;
+    private WSTCPFastInfosetStreamCodec encoder;
+    private WSTCPFastInfosetStreamCodec decoder;
+    private byte[] encoded;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        envelope = Payloads.buffer(Payloads.envelope(SOAPVersion.SOAP_12, items));
+        encoder = create(retainState);
+        decoder = create(false);
+
+        create(false).encode(Payloads.packet(envelope), out);
+        encoded = out.toByteArray();
+    }
+
+    private static WSTCPFastInfosetStreamCodec create(boolean retainState) {
+        return WSTCPFastInfosetStreamCodec.create(
+                Codecs.createSOAPEnvelopeXmlCodec(SOAPVersion.SOAP_12), SOAPVersion.SOAP_12, NO_RECYCLE_LISTENER, retainState);
+    }
+
+    @Benchmark
+    public int encode() {
+        out.reset();
+        encoder.encode(Payloads.packet(envelope), out);
+        return out.size();
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) throws Exception {
+        final Packet packet = new Packet();
+        decoder.decode(new ByteArrayInputStream(encoded), decoder.getMimeType(), packet);
+
+        final XMLStreamReader payload = packet.getMessage().readPayload();
+        while (payload.hasNext()) {
+            blackhole.consume(payload.next());
+        }
+        payload.close();
+    }
+}
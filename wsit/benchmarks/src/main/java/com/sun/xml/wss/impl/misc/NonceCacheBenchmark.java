@@ -0,0 +1,128 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.wss.impl.misc;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validation of fresh nonces against a {@link NonceCache} shared by all benchmark threads,
+ * as a service validating UsernameToken nonces does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NonceCacheBenchmark {
+
+    /**
+     * Validations between two expiration runs; the cache timer would rotate the cache
+     * after its maximum nonce age, which keeps it from growing without bounds.
+     */
+    private static final int VALIDATIONS_PER_EXPIRATION = 1 << 16;
+
+    private static final String CREATED = "2017-06-01T12:00:00.000Z";
+
+    private NonceCache nonceCache;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        nonceCache = new NonceCache();
+    }
+
+    /**
+     * Source of nonces unique to a benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Nonces {
+        private static int threads;
+
+        private final String prefix;
+        private int counter;
+
+        public Nonces() {
+            synchronized (Nonces.class) {
+                prefix = "nonce-" + threads++ + '-';
+            }
+        }
+
+        String next() {
+            return prefix + counter++;
+        }
+
+        boolean expirationDue() {
+            return (counter & (VALIDATIONS_PER_EXPIRATION - 1)) == 0;
+        }
+    }
+
+    @Benchmark
+    public boolean validate(Nonces nonces) throws Exception {
+        return validateAndExpire(nonces);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean validateContended(Nonces nonces) throws Exception {
+        return validateAndExpire(nonces);
+    }
+
+    private boolean validateAndExpire(Nonces nonces) throws Exception {
+        final boolean valid = nonceCache.validateAndCacheNonce(nonces.next(), CREATED);
+        if (nonces.expirationDue()) {
+            nonceCache.removeExpired();
+        }
+        return valid;
+    }
+}
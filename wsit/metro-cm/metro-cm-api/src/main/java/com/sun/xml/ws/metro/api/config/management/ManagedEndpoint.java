@@ -60,6 +60,7 @@ import com.sun.xml.ws.api.server.ServiceDefinition;
 import com.sun.xml.ws.api.server.WSEndpoint;
 import com.sun.xml.ws.api.server.WSEndpoint.CompletionCallback;
 import com.sun.xml.ws.api.server.WSEndpoint.PipeHead;
+import com.sun.xml.ws.commons.SharedScheduler;
 import com.sun.xml.ws.config.management.ManagementMessages;
 import com.sun.xml.ws.policy.PolicyMap;
 import com.sun.xml.ws.wsdl.OperationDispatcher;
@@ -69,7 +70,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -332,7 +332,8 @@ public class ManagedEndpoint<T> extends WSEndpoint<T>{
     }
     
     /**
-     * Return the appropriate ScheduledExecutorService - on initial access, check for container.getSPI
+     * Return the appropriate ScheduledExecutorService - on initial access, check for container.getSPI.
+     * If the container does not provide one, register with the process-wide {@link SharedScheduler}.
      * NOTE - THIS METHOD IS A COPY OF {@link com.sun.xml.ws.commons.AbstractTaskManager#getExecutorService() AbstractTaskManager.getExecutorService() } IN metro-commons!!!
      * IF A SUITABLE COMMON LOCATION CAN BE FOUND IT MUST BE REMOVED FROM HERE!
      * @return
@@ -347,8 +348,8 @@ public class ManagedEndpoint<T> extends WSEndpoint<T>{
                     }
                     if (executorService == null) {
                         //container did not return an SPI - create our own thread pool
-                        LOGGER.finer("Container did not return SPI for ScheduledExecutorService - creating thread pool for dispose");
-                        executorService = Executors.newScheduledThreadPool(getThreadPoolSize());
+                        LOGGER.finer("Container did not return SPI for ScheduledExecutorService - using shared scheduler for dispose");
+                        executorService = SharedScheduler.getInstance().register("ManagedEndpoint", getThreadPoolSize());
                         useContainerSpi = false;
                     } else {
                         LOGGER.finer("Using Container SPI for ScheduledExecutorService for dispose");
@@ -40,9 +40,7 @@
 
 package com.sun.xml.ws.commons;
 
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
 import com.sun.istack.logging.Logger;
 
@@ -60,7 +58,9 @@ public abstract class AbstractTaskManager {
     
     protected abstract Component getComponent();
     protected abstract String getThreadPoolName();
-    protected abstract ThreadFactory createThreadFactory();
+    /**
+     * @return maximum number of tasks of this manager that may run at the same time
+     */
     protected abstract int getThreadPoolSize();
     protected abstract Logger getLogger();
     
@@ -69,7 +69,8 @@ public abstract class AbstractTaskManager {
     }
     
     /**
-     * shutdown the ScheduledExecutorService if we created it.
+     * shutdown the ScheduledExecutorService if we registered with the {@link SharedScheduler}.
+     * Only tasks of this manager are affected.
      * @param force - if true, wait for time given by delayMillis, then force shutdown if needed
      * @param delayMillis
      */
@@ -94,7 +95,7 @@ public abstract class AbstractTaskManager {
     }
     
     /**
-     * shutdown the ScheduledExecutorService if we created it.
+     * shutdown the ScheduledExecutorService if we registered with the {@link SharedScheduler}.
      */
     public void close() {
         close(false, 0);
@@ -106,7 +107,9 @@ public abstract class AbstractTaskManager {
     }
     
     /**
-     * Return the appropriate ScheduledExecutorService - on initial access, check for container.getSPI
+     * Return the appropriate ScheduledExecutorService - on initial access, check for container.getSPI.
+     * If the container does not provide one, register with the process-wide {@link SharedScheduler}
+     * instead of creating a thread pool for every manager.
      * NOTE - A COPY OF THIS METHOD CAN BE FOUND AT {@link com.sun.xml.ws.metro.api.config.management.ManagedEndpoint#getExecutorService() ManagedEndpoint.getExecutorService() } IN metro-cm-api
      * IF A SUITABLE COMMON LOCATION CAN BE FOUND BOTH COPIES MUST BE MOVED
      * @return
@@ -119,14 +122,9 @@ public abstract class AbstractTaskManager {
                         executorService = getComponent().getSPI(ScheduledExecutorService.class);
                     }
                     if (executorService == null) {
-                        //container did not return an SPI - create our own thread pool
-                        getLogger().finer("Container did not return SPI for ScheduledExecutorService - creating thread pool for " + getThreadPoolName());
-                        ThreadFactory threadFactory = createThreadFactory();
-                        if (threadFactory == null) {
-                            executorService = Executors.newScheduledThreadPool(getThreadPoolSize());
-                        } else {
-                            executorService = Executors.newScheduledThreadPool(getThreadPoolSize(), threadFactory);
-                        }
+                        //container did not return an SPI - use the shared scheduler
+                        getLogger().finer("Container did not return SPI for ScheduledExecutorService - using shared scheduler for " + getThreadPoolName());
+                        executorService = SharedScheduler.getInstance().register(getThreadPoolName(), getThreadPoolSize());
                         useContainerSpi = false;
                     } else {
                         getLogger().finer("Using Container SPI for ScheduledExecutorService for " + getThreadPoolName());
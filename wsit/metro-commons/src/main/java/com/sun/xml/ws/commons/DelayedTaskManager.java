@@ -43,7 +43,6 @@ package com.sun.xml.ws.commons;
 import com.sun.istack.NotNull;
 import com.sun.istack.logging.Logger;
 import com.sun.xml.ws.api.Component;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
@@ -68,10 +67,6 @@ public final class DelayedTaskManager extends AbstractTaskManager {
         return new DelayedTaskManager(name, coreThreadPoolSize, component);
     }
 
-    private static final ThreadFactory createThreadFactory(String name) {
-        return new NamedThreadFactory(name);
-    }
-
     private class Worker implements Runnable {
 
         public final DelayedTask task;
@@ -133,11 +128,6 @@ public final class DelayedTaskManager extends AbstractTaskManager {
         return threadPoolName;
     }
 
-    @Override
-    protected ThreadFactory createThreadFactory() {
-        return createThreadFactory(threadPoolName);
-    }
-
     @Override
     protected int getThreadPoolSize() {
         return coreThreadPoolSize;
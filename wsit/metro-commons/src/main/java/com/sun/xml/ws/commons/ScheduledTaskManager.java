@@ -42,10 +42,7 @@ package com.sun.xml.ws.commons;
 
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import com.sun.istack.logging.Logger;
@@ -131,11 +128,6 @@ public final class ScheduledTaskManager extends AbstractTaskManager {
         return startTask(task, DELAY, PERIOD);
     }
     
-    @Override
-    protected ThreadFactory createThreadFactory() {
-        return new NamedThreadFactory(threadNamePrefix);
-    }
-    
     @Override
     protected String getThreadPoolName() {
         return threadNamePrefix;
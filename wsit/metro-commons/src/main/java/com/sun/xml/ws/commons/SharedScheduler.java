@@ -0,0 +1,451 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.commons;
+
+import com.sun.istack.NotNull;
+import com.sun.istack.logging.Logger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Process-wide timer service shared by all task managers that do not get a
+ * {@link ScheduledExecutorService} from their container.
+ * <p>
+ * Every task manager registers as an owner and receives its own {@link ScheduledExecutorService}
+ * view of the service, while the tasks of all owners run on a single bounded pool of timer threads.
+ * The number of threads thus does not grow with the number of endpoints and client proxies, and
+ * idle timer threads are released after a while.
+ * <p>
+ * Shutting an owner view down cancels only the tasks of that owner. Each owner may run a limited
+ * number of tasks at a time; when a task of an owner that has reached its limit becomes due, it
+ * is put aside until one of its owner's running tasks completes and then queued behind the tasks
+ * of other owners that are due at that moment, so that a busy owner cannot occupy all timer threads.
+ * <p>
+ * The size of the pool is controlled by the {@value #POOL_SIZE_PROPERTY} system property. Task
+ * bodies such as acknowledgement requests and resends may block on the network, so by default the
+ * pool has {@value #DEFAULT_POOL_SIZE} threads or twice the number of processors, whichever is
+ * larger; raise it when many endpoints run such tasks at the same time. When
+ * the {@value #VIRTUAL_THREADS_PROPERTY} system property is set to {@code true} and the JDK
+ * supports virtual threads, the timer threads are virtual threads, so that blocking task bodies
+ * do not hold on to platform threads.
+ *
+ * <b>
+ * WARNING: This class is a private utility class used by WSIT implementation. Any usage outside
+ * the intended scope is strongly discouraged. The API exposed by this class may be changed, replaced
+ * or removed without any advance notice.
+ * </b>
+ */
+public final class SharedScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(SharedScheduler.class);
+
+    public static final String POOL_SIZE_PROPERTY = "com.sun.xml.ws.commons.scheduler.poolSize";
+    public static final String VIRTUAL_THREADS_PROPERTY = "com.sun.xml.ws.commons.scheduler.virtualThreads";
+
+    private static final String THREAD_NAME_PREFIX = "metro-scheduler";
+    private static final int DEFAULT_POOL_SIZE = 16;
+    private static final int DEFAULT_VIRTUAL_POOL_SIZE = 64;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static final class InstanceHolder {
+
+        private static final SharedScheduler INSTANCE = createDefault();
+    }
+
+    private final ScheduledThreadPoolExecutor timer;
+    private final boolean virtualThreads;
+
+    SharedScheduler(int poolSize, ThreadFactory virtualThreadFactory) {
+        this.virtualThreads = virtualThreadFactory != null;
+
+        ThreadFactory threadFactory = virtualThreads ? virtualThreadFactory : new NamedThreadFactory(THREAD_NAME_PREFIX);
+        this.timer = new ScheduledThreadPoolExecutor(Math.max(1, poolSize), threadFactory);
+        this.timer.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+        this.timer.allowCoreThreadTimeOut(true);
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @return the process-wide scheduler instance
+     */
+    public static SharedScheduler getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Registers a new owner with the scheduler.
+     *
+     * @param ownerName name of the owner, used for logging purposes
+     * @param maxConcurrentTasks maximum number of tasks of the owner that may run at the same time
+     * @return executor service that schedules tasks of the owner on the shared timer threads;
+     *         shutting it down does not affect other owners
+     */
+    public ScheduledExecutorService register(@NotNull String ownerName, int maxConcurrentTasks) {
+        if (LOGGER.isLoggable(Level.FINER)) {
+            LOGGER.finer(String.format("Registering [ %s ] with the shared scheduler", ownerName));
+        }
+        return new Owner(ownerName, Math.max(1, maxConcurrentTasks));
+    }
+
+    /**
+     * @return maximum number of timer threads
+     */
+    public int getPoolSize() {
+        return timer.getCorePoolSize();
+    }
+
+    /**
+     * @return {@code true} if the tasks run on virtual threads
+     */
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    private static SharedScheduler createDefault() {
+        ThreadFactory virtualThreadFactory = Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY) ? createVirtualThreadFactory() : null;
+        int defaultPoolSize = (virtualThreadFactory != null)
+                ? DEFAULT_VIRTUAL_POOL_SIZE
+                : Math.max(DEFAULT_POOL_SIZE, 2 * Runtime.getRuntime().availableProcessors());
+
+        return new SharedScheduler(Integer.getInteger(POOL_SIZE_PROPERTY, defaultPoolSize), virtualThreadFactory);
+    }
+
+    /**
+     * Creates a factory of virtual threads using reflection, so that the code still runs on JDKs
+     * without virtual thread support.
+     *
+     * @return virtual thread factory or {@code null} if the JDK does not support virtual threads
+     */
+    static ThreadFactory createVirtualThreadFactory() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, THREAD_NAME_PREFIX + "-virtual-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception ex) {
+            LOGGER.config("Virtual threads are not supported by the JDK, the shared scheduler is going to use platform threads");
+            return null;
+        }
+    }
+
+    /**
+     * Scheduled executor service view of the shared scheduler for a single owner.
+     */
+    private final class Owner extends AbstractExecutorService implements ScheduledExecutorService {
+
+        private final String name;
+        private final Semaphore permits;
+        private final Queue<ScheduledTask<?>> deferredTasks;
+        private final Set<ScheduledTask<?>> tasks;
+        private final Object terminationLock = new Object();
+        private volatile boolean shutdown;
+
+        Owner(String name, int maxConcurrentTasks) {
+            this.name = name;
+            this.permits = new Semaphore(maxConcurrentTasks);
+            this.deferredTasks = new ConcurrentLinkedQueue<ScheduledTask<?>>();
+            this.tasks = Collections.newSetFromMap(new ConcurrentHashMap<ScheduledTask<?>, Boolean>());
+        }
+
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            if (command == null || unit == null) {
+                throw new NullPointerException();
+            }
+            return submit(new ScheduledTask<Object>(this, command, unit.toNanos(delay), 0));
+        }
+
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            if (callable == null || unit == null) {
+                throw new NullPointerException();
+            }
+            return submit(new ScheduledTask<V>(this, callable, unit.toNanos(delay)));
+        }
+
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+            if (command == null || unit == null) {
+                throw new NullPointerException();
+            }
+            if (period <= 0) {
+                throw new IllegalArgumentException();
+            }
+            return submit(new ScheduledTask<Object>(this, command, unit.toNanos(initialDelay), unit.toNanos(period)));
+        }
+
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+            if (command == null || unit == null) {
+                throw new NullPointerException();
+            }
+            if (delay <= 0) {
+                throw new IllegalArgumentException();
+            }
+            return submit(new ScheduledTask<Object>(this, command, unit.toNanos(initialDelay), -unit.toNanos(delay)));
+        }
+
+        public void execute(Runnable command) {
+            schedule(command, 0, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Rejects new tasks and cancels periodic tasks of this owner. Pending delayed tasks are
+         * still executed, as with {@link ScheduledThreadPoolExecutor#shutdown()}.
+         */
+        public void shutdown() {
+            shutdown = true;
+            for (ScheduledTask<?> task : tasks) {
+                if (task.isPeriodic()) {
+                    task.cancel(false);
+                }
+            }
+            signalIfTerminated();
+        }
+
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            List<Runnable> cancelledTasks = new ArrayList<Runnable>();
+            for (ScheduledTask<?> task : tasks) {
+                if (task.cancel(true)) {
+                    cancelledTasks.add(task);
+                }
+            }
+            deferredTasks.clear();
+            signalIfTerminated();
+            return cancelledTasks;
+        }
+
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        public boolean isTerminated() {
+            return shutdown && tasks.isEmpty();
+        }
+
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (terminationLock) {
+                while (!isTerminated()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(terminationLock, remaining);
+                }
+                return true;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "SharedScheduler.Owner [ " + name + " ]";
+        }
+
+        private <V> ScheduledTask<V> submit(ScheduledTask<V> task) {
+            if (shutdown) {
+                throw new RejectedExecutionException(String.format("Owner [ %s ] of the shared scheduler has been shut down", name));
+            }
+            tasks.add(task);
+            task.scheduleNext();
+            return task;
+        }
+
+        /**
+         * Called on a timer thread when a task becomes due.
+         */
+        void dispatch(ScheduledTask<?> task) {
+            if (task.isDone()) {
+                return;
+            }
+            if (deferredTasks.isEmpty() && permits.tryAcquire()) {
+                task.runAcquired();
+            } else {
+                deferredTasks.offer(task);
+                drain();
+            }
+        }
+
+        void release() {
+            permits.release();
+            drain();
+        }
+
+        /**
+         * Hands deferred tasks back to the timer threads for as long as there are free permits.
+         */
+        private void drain() {
+            while (!deferredTasks.isEmpty() && permits.tryAcquire()) {
+                ScheduledTask<?> task = deferredTasks.poll();
+                if (task == null || task.isDone()) {
+                    permits.release();
+                } else {
+                    timer.execute(task.acquiredRunner);
+                }
+            }
+        }
+
+        void taskDone(ScheduledTask<?> task) {
+            tasks.remove(task);
+            signalIfTerminated();
+        }
+
+        private void signalIfTerminated() {
+            if (isTerminated()) {
+                synchronized (terminationLock) {
+                    terminationLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Task of an owner. The future represents the task itself, while the underlying trigger
+     * scheduled on the timer only dispatches it when it becomes due.
+     */
+    private final class ScheduledTask<V> extends FutureTask<V> implements ScheduledFuture<V> {
+
+        private final Owner owner;
+        /**
+         * Period in nanoseconds: positive for fixed-rate, negative for fixed-delay and zero for one-shot tasks
+         */
+        private final long period;
+        private volatile long time;
+        private volatile Future<?> trigger;
+        private final Runnable dispatcher = new Runnable() {
+
+            public void run() {
+                owner.dispatch(ScheduledTask.this);
+            }
+        };
+        final Runnable acquiredRunner = new Runnable() {
+
+            public void run() {
+                runAcquired();
+            }
+        };
+
+        ScheduledTask(Owner owner, Runnable command, long delay, long period) {
+            super(command, null);
+            this.owner = owner;
+            this.period = period;
+            this.time = System.nanoTime() + delay;
+        }
+
+        ScheduledTask(Owner owner, Callable<V> callable, long delay) {
+            super(callable);
+            this.owner = owner;
+            this.period = 0;
+            this.time = System.nanoTime() + delay;
+        }
+
+        boolean isPeriodic() {
+            return period != 0;
+        }
+
+        void scheduleNext() {
+            trigger = timer.schedule(dispatcher, time - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Runs the task body; the caller holds one of the owner's permits.
+         */
+        void runAcquired() {
+            try {
+                if (!isPeriodic()) {
+                    run();
+                } else if (runAndReset()) {
+                    if (owner.isShutdown()) {
+                        cancel(false);
+                    } else {
+                        time = (period > 0) ? time + period : System.nanoTime() - period;
+                        scheduleNext();
+                    }
+                }
+            } finally {
+                owner.release();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Future<?> currentTrigger = trigger;
+            if (cancelled && currentTrigger != null) {
+                currentTrigger.cancel(false);
+            }
+            return cancelled;
+        }
+
+        @Override
+        protected void done() {
+            owner.taskDone(this);
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+            return (diff < 0) ? -1 : ((diff > 0) ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.commons;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/**
+ * Tests that task managers share the bounded pool of {@link SharedScheduler} threads and that
+ * owners of the scheduler are cancelled and scheduled independently of each other.
+ */
+public class SharedSchedulerTest extends TestCase {
+
+    public SharedSchedulerTest(String testName) {
+        super(testName);
+    }
+
+    public void testThreadCountStaysConstantAsEndpointsGrow() throws Exception {
+        int poolSize = SharedScheduler.getInstance().getPoolSize();
+        int initialThreadCount = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        List<ScheduledTaskManager> managers = new ArrayList<ScheduledTaskManager>();
+        try {
+            startEndpoints(managers, 10);
+            int fewEndpointsThreadCount = ManagementFactory.getThreadMXBean().getThreadCount();
+
+            startEndpoints(managers, 500);
+            int manyEndpointsThreadCount = ManagementFactory.getThreadMXBean().getThreadCount();
+
+            assertTrue(fewEndpointsThreadCount - initialThreadCount <= poolSize);
+            assertTrue(manyEndpointsThreadCount - initialThreadCount <= poolSize);
+        } finally {
+            for (ScheduledTaskManager manager : managers) {
+                manager.shutdown();
+            }
+        }
+    }
+
+    public void testShutdownCancelsOnlyTasksOfTheOwner() throws Exception {
+        SharedScheduler scheduler = new SharedScheduler(2, null);
+        ScheduledExecutorService first = scheduler.register("first", 1);
+        ScheduledExecutorService second = scheduler.register("second", 1);
+
+        final AtomicInteger firstRuns = new AtomicInteger();
+        final AtomicInteger secondRuns = new AtomicInteger();
+        first.scheduleAtFixedRate(counter(firstRuns), 0, 5, TimeUnit.MILLISECONDS);
+        second.scheduleAtFixedRate(counter(secondRuns), 0, 5, TimeUnit.MILLISECONDS);
+        first.schedule(counter(firstRuns), 1, TimeUnit.HOURS);
+
+        first.shutdownNow();
+        assertTrue(first.awaitTermination(5, TimeUnit.SECONDS));
+        int firstRunsAfterShutdown = firstRuns.get();
+
+        int secondRunsBefore = secondRuns.get();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (secondRuns.get() < secondRunsBefore + 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertTrue(secondRuns.get() >= secondRunsBefore + 3);
+        assertEquals(firstRunsAfterShutdown, firstRuns.get());
+        assertFalse(second.isShutdown());
+        try {
+            first.execute(counter(firstRuns));
+            fail("Task accepted after shutdown");
+        } catch (RejectedExecutionException expected) {
+            // ok
+        }
+
+        second.shutdownNow();
+    }
+
+    public void testOwnerAtConcurrencyLimitDoesNotStarveOtherOwners() throws Exception {
+        SharedScheduler scheduler = new SharedScheduler(2, null);
+        ScheduledExecutorService busy = scheduler.register("busy", 1);
+        ScheduledExecutorService other = scheduler.register("other", 1);
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch busyTasksDone = new CountDownLatch(5);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            busy.execute(new Runnable() {
+
+                public void run() {
+                    int current = running.incrementAndGet();
+                    while (true) {
+                        int max = maxRunning.get();
+                        if (current <= max || maxRunning.compareAndSet(max, current)) {
+                            break;
+                        }
+                    }
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        running.decrementAndGet();
+                        busyTasksDone.countDown();
+                    }
+                }
+            });
+        }
+
+        final CountDownLatch otherTaskDone = new CountDownLatch(1);
+        other.schedule(new Runnable() {
+
+            public void run() {
+                otherTaskDone.countDown();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+
+        try {
+            assertTrue(otherTaskDone.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+        assertTrue(busyTasksDone.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+
+        busy.shutdown();
+        other.shutdown();
+        assertTrue(busy.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(other.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    public void testTasksRunOnVirtualThreadsWhenSupported() throws Exception {
+        if (SharedScheduler.createVirtualThreadFactory() == null) {
+            return; // JDK without virtual threads
+        }
+
+        SharedScheduler scheduler = new SharedScheduler(2, SharedScheduler.createVirtualThreadFactory());
+        ScheduledExecutorService owner = scheduler.register("virtual", 1);
+        final AtomicBoolean virtual = new AtomicBoolean();
+        owner.schedule(new Runnable() {
+
+            public void run() {
+                try {
+                    virtual.set((Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()));
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        }, 0, TimeUnit.MILLISECONDS).get(5, TimeUnit.SECONDS);
+
+        assertTrue(scheduler.isUsingVirtualThreads());
+        assertTrue(virtual.get());
+        owner.shutdown();
+    }
+
+    private static void startEndpoints(List<ScheduledTaskManager> managers, int count) throws InterruptedException {
+        final CountDownLatch executed = new CountDownLatch(2 * count);
+        for (int i = 0; i < count; i++) {
+            ScheduledTaskManager manager = new ScheduledTaskManager("Endpoint " + managers.size(), null);
+            managers.add(manager);
+            manager.startTask(new Runnable() {
+
+                private final AtomicBoolean counted = new AtomicBoolean();
+
+                public void run() {
+                    if (counted.compareAndSet(false, true)) {
+                        executed.countDown();
+                    }
+                }
+            }, 0, 50);
+
+            DelayedTaskManager.createManager("endpoint-delayed-" + i, 5, null).register(new DelayedTaskManager.DelayedTask() {
+
+                public String getName() {
+                    return "delayed task";
+                }
+
+                public void run(DelayedTaskManager manager) {
+                    executed.countDown();
+                    manager.close();
+                }
+            }, 10, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(executed.await(10, TimeUnit.SECONDS));
+    }
+
+    private static Runnable counter(final AtomicInteger counter) {
+        return new Runnable() {
+
+            public void run() {
+                counter.incrementAndGet();
+            }
+        };
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.ws.policy.parser;
+
+import com.sun.istack.logging.Logger;
+import com.sun.xml.ws.api.model.wsdl.WSDLModel;
+import com.sun.xml.ws.api.server.Container;
+import com.sun.xml.ws.policy.PolicyConstants;
+import com.sun.xml.ws.policy.PolicyException;
+import com.sun.xml.ws.policy.PolicyMap;
+import com.sun.xml.ws.policy.localization.LocalizationMessages;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+
+/**
+ * Caches the parsed WSIT client configuration ({@code wsit-client.xml}) so that
+ * the file is parsed only once and not for every client proxy or dispatch created.
+ * <p/>
+ * Parsed configurations are keyed by the URL of the configuration file and by the
+ * context class loader used to parse it. For each parsed configuration the policy
+ * maps which had the configuration merged in are remembered, so that the merge and
+ * the alternative selection run only once per WSDL model.
+ * <p/>
+ * The configuration file is not expected to change at runtime. Setting the
+ * {@value #HOT_RELOAD_PROPERTY} system property to {@code true} makes the cache
+ * compare the last modification time of the file on each lookup and reparse it
+ * when it changed. Policy maps which already had a previous version of the file
+ * merged in get the new version merged in addition, as they did before caching.
+ */
+final class ClientConfigCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ClientConfigCache.class);
+
+    static final String HOT_RELOAD_PROPERTY = "com.sun.xml.ws.policy.parser.ClientConfigCache.hotReload";
+
+    private static final ClientConfigCache INSTANCE = new ClientConfigCache(Boolean.getBoolean(HOT_RELOAD_PROPERTY));
+
+    private final boolean hotReload;
+    // context class loader -> configuration file URL -> parsed configuration, guarded by itself
+    private final Map<ClassLoader, ConcurrentMap<String, Entry>> entries =
+            new WeakHashMap<ClassLoader, ConcurrentMap<String, Entry>>();
+
+    ClientConfigCache(final boolean hotReload) {
+        this.hotReload = hotReload;
+    }
+
+    static ClientConfigCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Locates the WSIT client configuration file and returns its parsed form.
+     *
+     * @param container the container of the client, may be {@code null}
+     * @return the parsed client configuration or {@code null} if there is no client configuration file
+     * @throws PolicyException if the configuration file could not be located or parsed
+     */
+    Entry get(final Container container) throws PolicyException {
+        final URL configFileUrl = PolicyConfigParser.findConfigFile(PolicyConstants.CLIENT_CONFIGURATION_IDENTIFIER, container);
+        if (configFileUrl == null) {
+            return null;
+        }
+        return get(configFileUrl);
+    }
+
+    /**
+     * Returns the parsed form of the WSIT client configuration file at the given URL,
+     * parsing it if it is not cached yet, or if hot reload is enabled and the file
+     * has been modified since it was parsed.
+     *
+     * @param configFileUrl URL of the client configuration file. Must not be {@code null}.
+     * @return the parsed client configuration
+     * @throws PolicyException if the configuration file could not be parsed
+     */
+    Entry get(final URL configFileUrl) throws PolicyException {
+        final String key = configFileUrl.toExternalForm();
+        final ConcurrentMap<String, Entry> loaderEntries = getEntries(Thread.currentThread().getContextClassLoader());
+
+        Entry entry = loaderEntries.get(key);
+        if (entry != null && entry.isValid()) {
+            return entry;
+        }
+        synchronized (loaderEntries) {
+            entry = loaderEntries.get(key);
+            if (entry != null && entry.isValid()) {
+                return entry;
+            }
+            if (entry != null) {
+                LOGGER.info(LocalizationMessages.WSP_5025_RELOADING_MODIFIED_WSIT_CFG_FILE(key));
+            }
+            final long lastModified = hotReload ? getLastModified(configFileUrl) : 0L;
+            final WSDLModel model = PolicyConfigParser.parseModel(configFileUrl, true);
+            LOGGER.info(LocalizationMessages.WSP_5018_LOADED_WSIT_CFG_FILE(key));
+            entry = new Entry(configFileUrl, lastModified, model);
+            loaderEntries.put(key, entry);
+            return entry;
+        }
+    }
+
+    /**
+     * Drops all cached configurations.
+     */
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Returns the configurations parsed with the given context class loader. The
+     * loader is held weakly, so the configurations of an undeployed application
+     * go away with its class loader.
+     */
+    private ConcurrentMap<String, Entry> getEntries(final ClassLoader classLoader) {
+        synchronized (entries) {
+            ConcurrentMap<String, Entry> loaderEntries = entries.get(classLoader);
+            if (loaderEntries == null) {
+                loaderEntries = new ConcurrentHashMap<String, Entry>();
+                entries.put(classLoader, loaderEntries);
+            }
+            return loaderEntries;
+        }
+    }
+
+    private static long getLastModified(final URL url) {
+        try {
+            final URLConnection connection = url.openConnection();
+            try {
+                return connection.getLastModified();
+            } finally {
+                // the last modification time is read from the headers, the content is not needed
+                connection.getInputStream().close();
+            }
+        } catch (IOException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Unable to read last modification time of " + url, e);
+            }
+            return 0L;
+        }
+    }
+
+    /**
+     * Parsed WSIT client configuration file.
+     */
+    final class Entry {
+
+        private final URL url;
+        private final long lastModified;
+        private final WSDLModel model;
+        // guarded by this
+        private final Map<PolicyMap, Boolean> mergedPolicyMaps = new WeakHashMap<PolicyMap, Boolean>();
+        // guarded by this
+        private PolicyMap standalonePolicyMap;
+
+        private Entry(final URL url, final long lastModified, final WSDLModel model) {
+            this.url = url;
+            this.lastModified = lastModified;
+            this.model = model;
+        }
+
+        private boolean isValid() {
+            return !hotReload || getLastModified(url) == lastModified;
+        }
+
+        /**
+         * @return the policy map of the client configuration. It is shared and must not be modified.
+         */
+        PolicyMap getPolicyMap() {
+            return model.getPolicyMap();
+        }
+
+        /**
+         * Returns the effective client policy map for the given WSDL policy map: the
+         * client configuration merged into it and the best alternative selected in each
+         * scope. The work is done only the first time a given WSDL policy map is seen.
+         *
+         * @param wsdlPolicyMap the policy map of the WSDL model of the client, may be {@code null}
+         * @return the effective policy map
+         * @throws PolicyException if the merge failed
+         */
+        synchronized PolicyMap getEffectivePolicyMap(final PolicyMap wsdlPolicyMap) throws PolicyException {
+            if (wsdlPolicyMap == null) {
+                if (standalonePolicyMap == null) {
+                    // the alternative selection modifies the map, so work on a private copy
+                    // and keep the shared configuration map intact for the merges
+                    standalonePolicyMap = WsitPolicyResolver.doAlternativeSelection(
+                            PolicyConfigParser.parseModel(url, true).getPolicyMap());
+                }
+                return standalonePolicyMap;
+            }
+            if (!mergedPolicyMaps.containsKey(wsdlPolicyMap)) {
+                WsitPolicyResolver.doAlternativeSelection(WsitPolicyResolver.mergePolicyMap(wsdlPolicyMap, getPolicyMap()));
+                mergedPolicyMaps.put(wsdlPolicyMap, Boolean.TRUE);
+            }
+            return wsdlPolicyMap;
+        }
+    }
+}
@@ -117,14 +117,14 @@ public class WsitPolicyResolver implements PolicyResolver {
     public PolicyMap resolve(ClientContext context) {
         PolicyMap effectivePolicyMap;
         try {
-            final PolicyMap clientConfigPolicyMap = PolicyConfigParser.parse(
-                    PolicyConstants.CLIENT_CONFIGURATION_IDENTIFIER, context.getContainer());
-            if (clientConfigPolicyMap == null) {
+            final ClientConfigCache.Entry clientConfig = ClientConfigCache.getInstance().get(context.getContainer());
+            if (clientConfig == null) {
                 LOGGER.config(LocalizationMessages.WSP_5014_CLIENT_CONFIG_PROCESSING_SKIPPED());
                 effectivePolicyMap = context.getPolicyMap();
             } else {
-                //Merge Policy Configuration from WSDL and configuration file.
-                effectivePolicyMap = mergePolicyMap(context.getPolicyMap(), clientConfigPolicyMap);
+                //Merge Policy Configuration from WSDL and configuration file and choose best alternatives,
+                //done once per WSDL model.
+                return clientConfig.getEffectivePolicyMap(context.getPolicyMap());
             }
         } catch (PolicyException e) {
             throw LOGGER.logSevereException(new WebServiceException(
@@ -173,7 +173,7 @@ public class WsitPolicyResolver implements PolicyResolver {
      * @param policyMap
      * @return
      */
-    private static PolicyMap doAlternativeSelection(PolicyMap policyMap) {
+    static PolicyMap doAlternativeSelection(PolicyMap policyMap) {
         final EffectivePolicyModifier modifier = EffectivePolicyModifier.createEffectivePolicyModifier();
         modifier.connect(policyMap);
         try {
@@ -194,7 +194,7 @@ public class WsitPolicyResolver implements PolicyResolver {
      * @return merged PolicyMap
      * @throws PolicyException If merge failed.
      */
-    private static PolicyMap mergePolicyMap(PolicyMap policyMap, PolicyMap clientPolicyMap) throws PolicyException {
+    static PolicyMap mergePolicyMap(PolicyMap policyMap, PolicyMap clientPolicyMap) throws PolicyException {
         final PolicyMapExtender mapExtender = PolicyMapExtender.createPolicyMapExtender();
         final String clientWsitConfigId = PolicyConstants.CLIENT_CONFIGURATION_IDENTIFIER;
         if (policyMap != null) {
@@ -0,0 +1,164 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.ws.policy.parser;
+
+import com.sun.xml.ws.policy.PolicyMap;
+import com.sun.xml.ws.policy.testutils.PolicyResourceLoader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import junit.framework.TestCase;
+
+public class ClientConfigCacheTest extends TestCase {
+
+    private static final String CLIENT_CONFIG_RESOURCE = "parser/wsit-client.xml";
+
+    public ClientConfigCacheTest(String testName) {
+        super(testName);
+    }
+
+    public void testParsedConfigIsReused() throws Exception {
+        final ClientConfigCache cache = new ClientConfigCache(false);
+        final URL configFileUrl = PolicyResourceLoader.getResourceUrl(CLIENT_CONFIG_RESOURCE);
+
+        final ClientConfigCache.Entry first = cache.get(configFileUrl);
+        final ClientConfigCache.Entry second = cache.get(configFileUrl);
+        assertSame(first, second);
+        assertNotNull(first.getPolicyMap());
+        assertSame(first.getPolicyMap(), second.getPolicyMap());
+    }
+
+    public void testConfigIsCachedPerContextClassLoader() throws Exception {
+        final ClientConfigCache cache = new ClientConfigCache(false);
+        final URL configFileUrl = PolicyResourceLoader.getResourceUrl(CLIENT_CONFIG_RESOURCE);
+        final Thread thread = Thread.currentThread();
+        final ClassLoader original = thread.getContextClassLoader();
+
+        final ClientConfigCache.Entry first = cache.get(configFileUrl);
+        final ClientConfigCache.Entry other;
+        thread.setContextClassLoader(new URLClassLoader(new URL[0], original));
+        try {
+            other = cache.get(configFileUrl);
+            assertNotSame(first, other);
+            assertSame(other, cache.get(configFileUrl));
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+        assertSame(first, cache.get(configFileUrl));
+    }
+
+    public void testStandaloneEffectivePolicyMapIsShared() throws Exception {
+        final ClientConfigCache cache = new ClientConfigCache(false);
+        final ClientConfigCache.Entry entry = cache.get(PolicyResourceLoader.getResourceUrl(CLIENT_CONFIG_RESOURCE));
+
+        final PolicyMap effective = entry.getEffectivePolicyMap(null);
+        assertNotNull(effective);
+        assertSame(effective, entry.getEffectivePolicyMap(null));
+        // alternative selection must not touch the map used for merges
+        assertNotSame(entry.getPolicyMap(), effective);
+    }
+
+    public void testWsdlPolicyMapIsReturned() throws Exception {
+        final ClientConfigCache cache = new ClientConfigCache(false);
+        final URL configFileUrl = PolicyResourceLoader.getResourceUrl(CLIENT_CONFIG_RESOURCE);
+        final ClientConfigCache.Entry entry = cache.get(configFileUrl);
+        final PolicyMap wsdlPolicyMap = PolicyConfigParser.parse(configFileUrl, true);
+
+        assertSame(wsdlPolicyMap, entry.getEffectivePolicyMap(wsdlPolicyMap));
+        assertSame(wsdlPolicyMap, entry.getEffectivePolicyMap(wsdlPolicyMap));
+    }
+
+    public void testHotReloadOfModifiedConfig() throws Exception {
+        final File configFile = File.createTempFile("wsit-client", ".xml");
+        try {
+            copy(PolicyResourceLoader.getResourceUrl(CLIENT_CONFIG_RESOURCE), configFile);
+            final URL configFileUrl = configFile.toURI().toURL();
+            final ClientConfigCache cache = new ClientConfigCache(true);
+
+            final ClientConfigCache.Entry first = cache.get(configFileUrl);
+            assertSame(first, cache.get(configFileUrl));
+
+            assertTrue(configFile.setLastModified(configFile.lastModified() + 10000L));
+            final ClientConfigCache.Entry reloaded = cache.get(configFileUrl);
+            assertNotSame(first, reloaded);
+            assertSame(reloaded, cache.get(configFileUrl));
+        } finally {
+            configFile.delete();
+        }
+    }
+
+    public void testModifiedConfigIgnoredWithoutHotReload() throws Exception {
+        final File configFile = File.createTempFile("wsit-client", ".xml");
+        try {
+            copy(PolicyResourceLoader.getResourceUrl(CLIENT_CONFIG_RESOURCE), configFile);
+            final URL configFileUrl = configFile.toURI().toURL();
+            final ClientConfigCache cache = new ClientConfigCache(false);
+
+            final ClientConfigCache.Entry first = cache.get(configFileUrl);
+            assertTrue(configFile.setLastModified(configFile.lastModified() + 10000L));
+            assertSame(first, cache.get(configFileUrl));
+        } finally {
+            configFile.delete();
+        }
+    }
+
+    private static void copy(URL source, File destination) throws Exception {
+        final InputStream in = source.openStream();
+        try {
+            final OutputStream out = new FileOutputStream(destination);
+            try {
+                final byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
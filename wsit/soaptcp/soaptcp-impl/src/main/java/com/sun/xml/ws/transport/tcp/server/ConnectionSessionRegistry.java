@@ -0,0 +1,142 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.transport.tcp.server;
+
+import com.sun.istack.NotNull;
+import com.sun.istack.Nullable;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe registry of the sessions of the SOAP/TCP connections accepted by the server.
+ *
+ * Sessions are removed explicitly, when the NIO framework or the connection cache closes the
+ * connection. Sessions whose channel got closed without any notification are evicted by
+ * {@link #evictClosed(long)}, at most once per eviction interval.
+ */
+final class ConnectionSessionRegistry<S> {
+    private final ConcurrentMap<SocketChannel, S> sessions = new ConcurrentHashMap<SocketChannel, S>();
+    
+    private final long evictionInterval;
+    private final AtomicLong lastEviction;
+    
+    private final AtomicLong registeredCount = new AtomicLong();
+    private final AtomicLong removedCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    
+    ConnectionSessionRegistry(final long evictionInterval) {
+        this.evictionInterval = evictionInterval;
+        this.lastEviction = new AtomicLong(System.currentTimeMillis());
+    }
+    
+    @Nullable S get(@NotNull final SocketChannel socketChannel) {
+        return sessions.get(socketChannel);
+    }
+    
+    void register(@NotNull final SocketChannel socketChannel, @NotNull final S session) {
+        if (sessions.put(socketChannel, session) == null) {
+            registeredCount.incrementAndGet();
+        }
+    }
+    
+    @Nullable S remove(@Nullable final SocketChannel socketChannel) {
+        if (socketChannel == null) {
+            return null;
+        }
+        
+        final S session = sessions.remove(socketChannel);
+        if (session != null) {
+            removedCount.incrementAndGet();
+        }
+        return session;
+    }
+    
+    /**
+     * Removes the sessions of the channels, which were closed, if the eviction interval elapsed
+     * since the last eviction.
+     *
+     * @return evicted sessions
+     */
+    @NotNull List<S> evictClosed(final long now) {
+        final long last = lastEviction.get();
+        if (now - last < evictionInterval || !lastEviction.compareAndSet(last, now)) {
+            return Collections.<S>emptyList();
+        }
+        
+        List<S> evicted = null;
+        for (Iterator<Map.Entry<SocketChannel, S>> it = sessions.entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<SocketChannel, S> entry = it.next();
+            if (!entry.getKey().isOpen() && sessions.remove(entry.getKey(), entry.getValue())) {
+                if (evicted == null) {
+                    evicted = new ArrayList<S>();
+                }
+                evicted.add(entry.getValue());
+                evictedCount.incrementAndGet();
+            }
+        }
+        
+        return evicted != null ? evicted : Collections.<S>emptyList();
+    }
+    
+    int size() {
+        return sessions.size();
+    }
+    
+    long getRegisteredCount() {
+        return registeredCount.get();
+    }
+    
+    long getRemovedCount() {
+        return removedCount.get();
+    }
+    
+    long getEvictedCount() {
+        return evictedCount.get();
+    }
+}
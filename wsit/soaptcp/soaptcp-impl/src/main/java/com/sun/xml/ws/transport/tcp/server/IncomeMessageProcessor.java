@@ -63,9 +63,9 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.WeakHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -77,6 +77,9 @@ public final class IncomeMessageProcessor implements SessionCloseListener {
     private static final Logger logger = Logger.getLogger(
             com.sun.xml.ws.transport.tcp.util.TCPConstants.LoggingDomain + ".server");
     
+    // How often sessions of connections closed without notification are looked up
+    private static final long SESSION_EVICTION_INTERVAL = 60000;
+    
     private final TCPMessageListener listener;
     
     // Properties passed to IncomeMessageProcessor by SOAP/TCP launcher
@@ -129,6 +132,7 @@ public final class IncomeMessageProcessor implements SessionCloseListener {
             if (logger.isLoggable(Level.FINE)) {
                 logger.log(Level.FINE, MessagesMessages.WSTCP_1081_INCOME_MSG_CREATE_NEW_SESSION());
             }
+            evictClosedConnectionSessions();
             connectionSession = createConnectionSession(socketChannel, messageBuffer);
             if (connectionSession != null) {
                 // Connection is opened. Magic and version are compatible
@@ -170,37 +174,62 @@ public final class IncomeMessageProcessor implements SessionCloseListener {
     }
     
     /**
-     *  associative map for SocketChannel and correspondent ConnectionContext
-     *  in future probably should be replaced, as could be handled by
-     *  nio framework
+     *  registry of SocketChannels and correspondent ConnectionSessions.
+     *  Grizzly uses the SelectionKey attachment itself, so sessions
+     *  are kept here and removed, when the connection gets closed
      */
-    private final Map<SocketChannel, ServerConnectionSession> connectionSessionMap =
-            new WeakHashMap<SocketChannel, ServerConnectionSession>();
+    private final ConnectionSessionRegistry<ServerConnectionSession> connectionSessions =
+            new ConnectionSessionRegistry<ServerConnectionSession>(SESSION_EVICTION_INTERVAL);
+    
     private @Nullable ServerConnectionSession getConnectionSession(
             @NotNull final SocketChannel socketChannel) {
+        return connectionSessions.get(socketChannel);
+    }
+    
+    private void offerConnectionSession(@NotNull final ServerConnectionSession connectionSession) {
+        // socketChannel stays set in the connection, it is needed to remove the session on close
+        connectionSessions.register(connectionSession.getConnection().getSocketChannel(), connectionSession);
+    }
+    
+    /**
+     * Remove session entry from session registry
+     */
+    private void removeConnectionSessionBySocketChannel(@Nullable final SocketChannel socketChannel) {
+        connectionSessions.remove(socketChannel);
+    }
+    
+    /**
+     * Close sessions of connections, which were closed without notification
+     */
+    private void evictClosedConnectionSessions() {
+        final List<ServerConnectionSession> evicted = connectionSessions.evictClosed(System.currentTimeMillis());
+        if (evicted.isEmpty()) {
+            return;
+        }
         
-        final ServerConnectionSession connectionSession = connectionSessionMap.get(socketChannel);
-        if (connectionSession == null) {
-            return null;
+        for (ServerConnectionSession connectionSession : evicted) {
+            connectionCache.close(connectionSession);
         }
         
-        // Restore socketChannel in connection
-        connectionSession.getConnection().setSocketChannel(socketChannel);
-        return connectionSession;
+        if (logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE, MessagesMessages.WSTCP_1085_INCOME_MSG_EVICTED_SESSIONS(evicted.size(),
+                    connectionSessions.size(), connectionSessions.getRegisteredCount(),
+                    connectionSessions.getRemovedCount(), connectionSessions.getEvictedCount()));
+        }
     }
     
-    private void offerConnectionSession(@NotNull final ServerConnectionSession connectionSession) {
-        connectionSessionMap.put(connectionSession.getConnection().getSocketChannel(), connectionSession);
-        
-        // to let WeakHashMap clean socketChannel if not use
-        connectionSession.getConnection().setSocketChannel(null);
+    /**
+     * @return number of currently opened SOAP/TCP sessions
+     */
+    public int getConnectionSessionCount() {
+        return connectionSessions.size();
     }
     
     /**
-     * Remove session entry from session map
+     * @return number of sessions, which were evicted as their connection got closed without notification
      */
-    private void removeConnectionSessionBySocketChannel(@NotNull final SocketChannel socketChannel) {
-        connectionSessionMap.remove(socketChannel);
+    public long getEvictedConnectionSessionCount() {
+        return connectionSessions.getEvictedCount();
     }
     
     /**
@@ -273,9 +302,11 @@ public final class IncomeMessageProcessor implements SessionCloseListener {
      * Will be called by NIO framework, when it will decide to close connection
      */
     public void notifyClosed(@NotNull final SocketChannel socketChannel) {
-        if (connectionCache != null) {
-            connectionCache.close(getConnectionSession(socketChannel));
+        final ServerConnectionSession connectionSession = getConnectionSession(socketChannel);
+        if (connectionSession != null && connectionCache != null) {
+            connectionCache.close(connectionSession);
         }
+        removeConnectionSessionBySocketChannel(socketChannel);
     }
     
     /**
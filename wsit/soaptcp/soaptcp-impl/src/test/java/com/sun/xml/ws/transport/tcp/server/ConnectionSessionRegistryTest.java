@@ -0,0 +1,179 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.transport.tcp.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.TestCase;
+
+public class ConnectionSessionRegistryTest extends TestCase {
+    private static final int THREADS = 8;
+    private static final int CONNECTIONS_PER_THREAD = 200;
+    
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    
+    public ConnectionSessionRegistryTest(String testName) {
+        super(testName);
+    }
+    
+    @Override
+    protected void setUp() throws Exception {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        acceptor = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (true) {
+                        serverChannel.accept().close();
+                    }
+                } catch (IOException e) {
+                    // server channel closed
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+    
+    @Override
+    protected void tearDown() throws Exception {
+        serverChannel.close();
+        acceptor.join(5000);
+    }
+    
+    public void testConcurrentOpenAndClose() throws Exception {
+        final ConnectionSessionRegistry<Object> registry = new ConnectionSessionRegistry<Object>(0);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        for (int j = 0; j < CONNECTIONS_PER_THREAD; j++) {
+                            final SocketChannel channel = connect();
+                            final Object session = new Object();
+                            registry.register(channel, session);
+                            // same session is found on the next message
+                            registry.register(channel, session);
+                            assertSame(session, registry.get(channel));
+                            channel.close();
+                            assertSame(session, registry.remove(channel));
+                            assertNull(registry.get(channel));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        
+        assertEquals(0, registry.size());
+        assertEquals(THREADS * CONNECTIONS_PER_THREAD, registry.getRegisteredCount());
+        assertEquals(THREADS * CONNECTIONS_PER_THREAD, registry.getRemovedCount());
+        assertEquals(0, registry.getEvictedCount());
+    }
+    
+    public void testClosedConnectionsAreEvicted() throws Exception {
+        final ConnectionSessionRegistry<Object> registry = new ConnectionSessionRegistry<Object>(0);
+        final List<SocketChannel> channels = new ArrayList<SocketChannel>();
+        for (int i = 0; i < 20; i++) {
+            final SocketChannel channel = connect();
+            channels.add(channel);
+            registry.register(channel, Integer.valueOf(i));
+        }
+        for (int i = 0; i < 10; i++) {
+            channels.get(i).close();
+        }
+        
+        final List<Object> evicted = registry.evictClosed(System.currentTimeMillis() + 1);
+        assertEquals(10, evicted.size());
+        assertEquals(10, registry.size());
+        assertEquals(10, registry.getEvictedCount());
+        assertEquals(0, registry.getRemovedCount());
+        for (int i = 10; i < 20; i++) {
+            assertEquals(Integer.valueOf(i), registry.get(channels.get(i)));
+            channels.get(i).close();
+        }
+    }
+    
+    public void testEvictionInterval() throws Exception {
+        final ConnectionSessionRegistry<Object> registry = new ConnectionSessionRegistry<Object>(60000);
+        final SocketChannel channel = connect();
+        registry.register(channel, new Object());
+        channel.close();
+        
+        assertTrue(registry.evictClosed(System.currentTimeMillis()).isEmpty());
+        assertEquals(1, registry.size());
+        assertEquals(1, registry.evictClosed(System.currentTimeMillis() + 60000).size());
+        assertEquals(0, registry.size());
+    }
+    
+    public void testRemoveUnknownChannel() throws Exception {
+        final ConnectionSessionRegistry<Object> registry = new ConnectionSessionRegistry<Object>(0);
+        assertNull(registry.remove(null));
+        final SocketChannel channel = connect();
+        try {
+            assertNull(registry.remove(channel));
+        } finally {
+            channel.close();
+        }
+        assertEquals(0, registry.getRemovedCount());
+    }
+    
+    private SocketChannel connect() throws IOException {
+        return SocketChannel.open(serverChannel.socket().getLocalSocketAddress());
+    }
+}
@@ -79,8 +79,24 @@ public class HttpPoster {
     InputStream post(final String request, final String address,
         final String contentType) throws IOException {
         
+        return post(request, address, contentType, null);
+    }
+
+    /**
+     * Makes the request to the service, handing the connection to
+     * the holder so that the request can be aborted by another thread.
+     *
+     * @see #post(String, String, String)
+     */
+    InputStream post(final String request, final String address,
+        final String contentType, final ConnectionHolder holder)
+        throws IOException {
+        
         final URL url = new URL(address);
         final HttpURLConnection conn = createConnection(url);
+        if (holder != null) {
+            holder.set(conn);
+        }
         conn.setDoOutput(true);
         conn.setDoInput(true);
         conn.setRequestMethod("POST");
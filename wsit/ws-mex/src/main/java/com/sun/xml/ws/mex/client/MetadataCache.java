@@ -0,0 +1,156 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.mex.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.xml.ws.mex.client.MetadataClient.Protocol;
+
+/**
+ * Keeps the raw responses of successful metadata requests so that
+ * clients created for the same endpoint don't have to query it again.
+ * The response is stored rather than the unmarshalled Metadata object
+ * because the latter is modified by its consumers (see
+ * ServiceDescriptorImpl).
+ * <p>
+ * Entries are fresh for a limited time. An expired entry is still
+ * returned by {@link #getExpired(String)} so that the client can
+ * revalidate it with the request that succeeded last time before
+ * probing the endpoint again. A cache with a timeout of zero or less
+ * keeps nothing.
+ */
+final class MetadataCache {
+
+    static final long DEFAULT_TIMEOUT = 5 * 60 * 1000L;
+    static final int DEFAULT_MAX_ENTRIES = 128;
+
+    private final long timeout;
+    private final int maxEntries;
+
+    // guarded by this; access ordered, the eldest entry is the least recently used one
+    private final Map<String, Entry> entries;
+
+    MetadataCache(final long timeout, final int maxEntries) {
+        this.timeout = timeout;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                final Map.Entry<String, Entry> eldest) {
+                
+                return size() > MetadataCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the entry for the address if it is still fresh, null otherwise.
+     */
+    synchronized Entry get(final String address, final long now) {
+        final Entry entry = entries.get(address);
+        if (entry == null || now - entry.getTimestamp() > timeout) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the entry for the address regardless of its age.
+     */
+    synchronized Entry getExpired(final String address) {
+        return entries.get(address);
+    }
+
+    synchronized void put(final String address, final Entry entry) {
+        if (timeout > 0) {
+            entries.put(address, entry);
+        }
+    }
+
+    synchronized void remove(final String address) {
+        entries.remove(address);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * A successful response along with the request that produced it.
+     */
+    static final class Entry {
+        private final byte [] response;
+        private final String requestAddress;
+        private final Protocol protocol;
+        private final long timestamp;
+
+        Entry(final byte [] response, final String requestAddress,
+            final Protocol protocol, final long timestamp) {
+            
+            this.response = response;
+            this.requestAddress = requestAddress;
+            this.protocol = protocol;
+            this.timestamp = timestamp;
+        }
+
+        byte [] getResponse() {
+            return response;
+        }
+
+        String getRequestAddress() {
+            return requestAddress;
+        }
+
+        Protocol getProtocol() {
+            return protocol;
+        }
+
+        long getTimestamp() {
+            return timestamp;
+        }
+    }
+}
@@ -40,10 +40,24 @@
 
 package com.sun.xml.ws.mex.client;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -85,9 +99,34 @@ public class MetadataClient {
     
     enum Protocol { SOAP_1_2, SOAP_1_1 };
     
-    private final String [] suffixes = { "" , "/mex" };
+    /**
+     * System property with the number of milliseconds for which a
+     * metadata response is reused. A value of zero or less disables
+     * the cache.
+     */
+    public static final String CACHE_TIMEOUT_PROPERTY =
+        "com.sun.xml.ws.mex.client.cacheTimeout";
+    
+    private static final String [] suffixes = { "" , "/mex" };
+    private static final int MAX_PROBE_THREADS = 16;
+    private static final int MAX_PREFETCH_THREADS = 4;
     private final MetadataUtil mexUtil;
     private static final JAXBContext jaxbContext;
+
+    // shared by all clients so that metadata is fetched once per endpoint
+    private static final MetadataCache cache = new MetadataCache(
+        Long.getLong(CACHE_TIMEOUT_PROPERTY, MetadataCache.DEFAULT_TIMEOUT),
+        MetadataCache.DEFAULT_MAX_ENTRIES);
+    private static final ConcurrentMap<String, FutureTask<Response>>
+        pendingRequests = new ConcurrentHashMap<String, FutureTask<Response>>();
+
+    // runs the single requests of a probe, which never wait for other tasks
+    private static final ExecutorService probeExecutor =
+        createExecutor("MetadataClient", MAX_PROBE_THREADS);
+
+    // prefetches wait for their probes, so they don't share the probe threads
+    private static final ExecutorService prefetchExecutor =
+        createExecutor("MetadataClient-prefetch", MAX_PREFETCH_THREADS);
     
     private static final Logger logger =
         Logger.getLogger(MetadataClient.class.getName());
@@ -105,13 +144,25 @@ public class MetadataClient {
      * Default constructor.
      */
     public MetadataClient() {
-        mexUtil = new MetadataUtil();
+        this(new MetadataUtil());
+    }
+
+    MetadataClient(final MetadataUtil mexUtil) {
+        this.mexUtil = mexUtil;
     }
     
     /**
-     * Method used to load the metadata from the endpoint. First
-     * soap 1.2 is used, then 1.1. If both attempts fail, the
-     * client will try again adding "/mex" to the address.
+     * Method used to load the metadata from the endpoint. Soap 1.2
+     * and 1.1 requests are made to the address and to the address
+     * with "/mex" added, all at the same time. The response of the
+     * first request in this order that succeeds is used.
+     * <P>
+     * Successful responses are cached for all clients. A cached
+     * response is reused for a few minutes, after which the request
+     * that succeeded last time is made again before the endpoint
+     * is probed anew. The time can be set with the
+     * {@value #CACHE_TIMEOUT_PROPERTY} system property, and cached
+     * responses can be dropped with {@link #invalidateMetadata(String)}.
      * <P>
      * If any wsdl or schema import elements are found with
      * empty location attributes, these attributes are removed.
@@ -125,30 +176,227 @@ public class MetadataClient {
      *     be obtained from the service
      */
     public Metadata retrieveMetadata(@NotNull final String address) {
+        MetadataCache.Entry entry =
+            cache.get(address, System.currentTimeMillis());
+        if (entry == null) {
+            final Response response = fetchMetadata(address);
+            if (response != null) {
+                final Metadata metadata = response.takeMetadata();
+                if (metadata != null) {
+                    return metadata;
+                }
+                entry = response.getEntry();
+            }
+        }
+        if (entry != null) {
+            try {
+                return createMetadata(
+                    new ByteArrayInputStream(entry.getResponse()));
+            } catch (Exception e) {
+                cache.remove(address);
+                logger.log(Level.WARNING,
+                    MessagesMessages.MEX_0008_PARSING_MDATA_FAILURE(
+                        entry.getProtocol(), entry.getRequestAddress()));
+            }
+        }
+        logger.log(ERROR_LOG_LEVEL,
+            MessagesMessages.MEX_0007_RETURNING_NULL_MDATA());
+        return null;
+    }
+
+    /**
+     * Starts retrieving the metadata of the given endpoints in the
+     * background, so that later calls to {@link #retrieveMetadata(String)}
+     * for these addresses don't have to wait for the endpoints.
+     *
+     * @param addresses The addresses used to query for Metadata
+     */
+    public void prefetchMetadata(@NotNull final List<String> addresses) {
+        for (final String address : addresses) {
+            prefetchExecutor.execute(new Runnable() {
+                public void run() {
+                    if (cache.get(address, System.currentTimeMillis()) == null) {
+                        fetchMetadata(address);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops the cached metadata of the endpoint, so that the next
+     * call to {@link #retrieveMetadata(String)} queries the endpoint.
+     *
+     * @param address The address used to query for Metadata
+     */
+    public static void invalidateMetadata(@NotNull final String address) {
+        cache.remove(address);
+    }
+
+    /**
+     * Drops the cached metadata of all endpoints.
+     */
+    public static void invalidateAllMetadata() {
+        cache.clear();
+    }
+
+    /*
+     * Only one request per address is made at a time, concurrent
+     * callers wait for the result of the request in progress.
+     */
+    private Response fetchMetadata(final String address) {
+        final FutureTask<Response> task = new FutureTask<Response>(
+            new Callable<Response>() {
+                public Response call() {
+                    final Response response = probe(address);
+                    if (response != null) {
+                        cache.put(address, response.getEntry());
+                    }
+                    return response;
+                }
+            });
+        FutureTask<Response> pending =
+            pendingRequests.putIfAbsent(address, task);
+        if (pending == null) {
+            pending = task;
+            try {
+                task.run();
+            } finally {
+                pendingRequests.remove(address, task);
+            }
+        }
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING,
+                MessagesMessages.MEX_0007_RETURNING_NULL_MDATA(), e.getCause());
+            return null;
+        }
+    }
+
+    /*
+     * All requests are made at the same time, but their responses are
+     * considered in the order of preference, so the result does not
+     * depend on which endpoint answers first. Requests that are no
+     * longer needed are aborted.
+     */
+    private Response probe(final String address) {
+        final MetadataCache.Entry expired = cache.getExpired(address);
+        if (expired != null) {
+            final Response response = request(expired.getRequestAddress(),
+                expired.getProtocol(), null);
+            if (response != null) {
+                return response;
+            }
+        }
+
+        final List<Future<Response>> attempts =
+            new ArrayList<Future<Response>>();
+        final List<ConnectionHolder> connections =
+            new ArrayList<ConnectionHolder>();
         for (String suffix : suffixes) {
             final String newAddress = address.concat(suffix);
-            for (Protocol p : Protocol.values()) {
-                InputStream responseStream = null;
+            for (final Protocol p : Protocol.values()) {
+                final ConnectionHolder connection = new ConnectionHolder();
+                connections.add(connection);
+                attempts.add(probeExecutor.submit(new Callable<Response>() {
+                    public Response call() {
+                        return request(newAddress, p, connection);
+                    }
+                }));
+            }
+        }
+        try {
+            for (Future<Response> attempt : attempts) {
+                final Response response = attempt.get();
+                if (response != null) {
+                    return response;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING,
+                MessagesMessages.MEX_0007_RETURNING_NULL_MDATA(), e.getCause());
+        } finally {
+            for (int i = 0; i < attempts.size(); i++) {
+                if (!attempts.get(i).isDone()) {
+                    attempts.get(i).cancel(true);
+                    connections.get(i).abort();
+                }
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Makes a single metadata request. The response is only accepted
+     * if it can be parsed.
+     */
+    private Response request(final String address, final Protocol p,
+        final ConnectionHolder connection) {
+        
+        InputStream responseStream = null;
+        try {
+            responseStream = mexUtil.getMetadata(address, p, connection);
+            final byte [] response = readResponse(responseStream);
+            final Metadata metadata =
+                createMetadata(new ByteArrayInputStream(response));
+            return new Response(new MetadataCache.Entry(response, address,
+                p, System.currentTimeMillis()), metadata);
+        } catch (IOException e) {
+            if (connection == null || !connection.isAborted()) {
+                logger.log(ERROR_LOG_LEVEL,
+                    MessagesMessages.MEX_0006_RETRIEVING_MDATA_FAILURE(
+                        p, address));
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING,
+                MessagesMessages.MEX_0008_PARSING_MDATA_FAILURE(
+                    p, address));
+        } finally {
+            if (responseStream != null) {
                 try {
-                    responseStream = mexUtil.getMetadata(newAddress, p);
-                    return createMetadata(responseStream);
+                    responseStream.close();
                 } catch (IOException e) {
-                    logger.log(ERROR_LOG_LEVEL,
-                        MessagesMessages.MEX_0006_RETRIEVING_MDATA_FAILURE(
-                            p, newAddress));
-                    continue;
-                } catch (Exception e) {
-                    logger.log(Level.WARNING,
-                        MessagesMessages.MEX_0008_PARSING_MDATA_FAILURE(
-                            p, newAddress));
-                    continue;
+                    // nothing left to read from it
                 }
             }
         }
-        logger.log(ERROR_LOG_LEVEL,
-            MessagesMessages.MEX_0007_RETURNING_NULL_MDATA());
         return null;
     }
+
+    private static ExecutorService createExecutor(final String name,
+        final int maxThreads) {
+        
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            maxThreads, maxThreads, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, name);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static byte [] readResponse(final InputStream stream)
+        throws IOException {
+        
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte [] buffer = new byte[8192];
+        int read = stream.read(buffer);
+        while (read != -1) {
+            out.write(buffer, 0, read);
+            read = stream.read(buffer);
+        }
+        return out.toByteArray();
+    }
     
     /**
      * Currently only supports Get requests (not Get Metadata),
@@ -359,4 +607,27 @@ public class MetadataClient {
         }
     }
     
+
+    /*
+     * A successful response. The metadata parsed from it goes to the
+     * first caller only, because consumers modify it. Other callers
+     * waiting for the same request parse their own copy.
+     */
+    private static final class Response {
+        private final MetadataCache.Entry entry;
+        private final AtomicReference<Metadata> metadata;
+
+        Response(final MetadataCache.Entry entry, final Metadata metadata) {
+            this.entry = entry;
+            this.metadata = new AtomicReference<Metadata>(metadata);
+        }
+
+        MetadataCache.Entry getEntry() {
+            return entry;
+        }
+
+        Metadata takeMetadata() {
+            return metadata.getAndSet(null);
+        }
+    }
 }
@@ -80,6 +80,19 @@ public class MetadataUtil {
     InputStream getMetadata(final String address,
         final Protocol protocol) throws IOException {
         
+        return getMetadata(address, protocol, null);
+    }
+
+    /**
+     * Make a mex/wxf request to a server that can be aborted through
+     * the connection holder.
+     *
+     * @see #getMetadata(String, Protocol)
+     */
+    InputStream getMetadata(final String address,
+        final Protocol protocol, final ConnectionHolder holder)
+        throws IOException {
+        
         final String request = getMexWsdlRequest(address, protocol);
         if (logger.isLoggable(Level.FINE)) {
             logger.fine("Request message:\n" + request + "\n");
@@ -88,7 +101,7 @@ public class MetadataUtil {
         if (protocol == Protocol.SOAP_1_1) {
             contentType = "text/xml; charset=\"utf-8\"";
         }
-        return postClient.post(request, address, contentType);
+        return postClient.post(request, address, contentType, holder);
     }
     
     private String getMexWsdlRequest(final String address,
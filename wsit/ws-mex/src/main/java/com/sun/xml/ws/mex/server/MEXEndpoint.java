@@ -156,7 +156,7 @@ public class MEXEndpoint implements Provider<Message> {
                 address = this.getAddressFromMexAddress(address, soapVersion);
                 writeStartEnvelope(writer, wsaVersion, soapVersion);
                 WSDLRetriever wsdlRetriever = new WSDLRetriever(ownerEndpoint);
-                wsdlRetriever.addDocuments(writer, null, address);
+                wsdlRetriever.addDocuments(writer, address);
                 writeEndEnvelope(writer);
                 writer.flush();
                 final Message responseMessage = Messages.create(buffer);
@@ -43,10 +43,9 @@ package com.sun.xml.ws.mex.server;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamWriter;
 import javax.xml.ws.WebServiceException;
 
-import com.sun.xml.stream.buffer.MutableXMLStreamBuffer;
+import com.sun.xml.stream.buffer.XMLStreamBuffer;
 import com.sun.xml.ws.api.addressing.AddressingVersion;
 import com.sun.xml.ws.api.message.AddressingUtils;
 import com.sun.xml.ws.api.message.Message;
@@ -65,9 +64,6 @@ import com.sun.xml.ws.mex.MessagesMessages;
 import static com.sun.xml.ws.mex.MetadataConstants.GET_MDATA_REQUEST;
 import static com.sun.xml.ws.mex.MetadataConstants.GET_REQUEST;
 import static com.sun.xml.ws.mex.MetadataConstants.GET_RESPONSE;
-import static com.sun.xml.ws.mex.MetadataConstants.MEX_NAMESPACE;
-import static com.sun.xml.ws.mex.MetadataConstants.MEX_PREFIX;
-import static com.sun.xml.ws.mex.MetadataConstants.WSA_PREFIX;
 
 /**
  * This pipe handles any mex requests that come through. If a
@@ -145,21 +141,16 @@ public class MetadataServerPipe extends AbstractFilterTubeImpl {
     }
 
     /*
-     * This method creates an xml stream buffer, writes the response to
-     * it, and uses it to create a response message.
+     * This method gets the response from the wsdl retriever, which
+     * writes it once per address, soap and addressing version, and
+     * uses it to create a response message.
      */
     private Packet processGetRequest(final Packet request,
         final String address, final AddressingVersion adVersion) {
         
         try {
-            final MutableXMLStreamBuffer buffer = new MutableXMLStreamBuffer();
-            final XMLStreamWriter writer = buffer.createFromXMLStreamWriter();
-
-            writeStartEnvelope(writer, adVersion);
-            wsdlRetriever.addDocuments(writer, request, address);
-            //writer.writeEndDocument();
-            writeEndEnvelope(writer);
-            writer.flush();
+            final XMLStreamBuffer buffer =
+                wsdlRetriever.getResponse(address, soapVersion, adVersion);
 
             final Message responseMessage = Messages.create(buffer);
             final Packet response = request.createServerResponse(
@@ -172,30 +163,4 @@ public class MetadataServerPipe extends AbstractFilterTubeImpl {
             throw new WebServiceException(exceptionMessage, streamE);
         }
     }
-
-    private void writeStartEnvelope(final XMLStreamWriter writer,
-        final AddressingVersion adVersion) throws XMLStreamException {
-
-        final String soapPrefix = "soapenv";
-
-        writer.writeStartDocument();
-        writer.writeStartElement(soapPrefix, "Envelope", soapVersion.nsUri);
-
-        // todo: this line should go away after bug fix - 6418039
-        writer.writeNamespace(soapPrefix, soapVersion.nsUri);
-
-        writer.writeNamespace(WSA_PREFIX, adVersion.nsUri);
-        writer.writeNamespace(MEX_PREFIX, MEX_NAMESPACE);
-
-        writer.writeStartElement(soapPrefix, "Body", soapVersion.nsUri);
-        writer.writeStartElement(MEX_PREFIX, "Metadata", MEX_NAMESPACE);
-    }
-    
-    private void writeEndEnvelope(final XMLStreamWriter writer)
-        throws XMLStreamException {
-        writer.writeEndElement();
-        writer.writeEndElement();
-        writer.writeEndElement();
-        writer.writeEndDocument();
-    }
 }
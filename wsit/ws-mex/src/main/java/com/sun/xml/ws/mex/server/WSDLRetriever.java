@@ -42,6 +42,8 @@ package com.sun.xml.ws.mex.server;
 
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,7 +51,10 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import javax.xml.ws.WebServiceException;
 
-import com.sun.xml.ws.api.message.Packet;
+import com.sun.xml.stream.buffer.MutableXMLStreamBuffer;
+import com.sun.xml.stream.buffer.XMLStreamBuffer;
+import com.sun.xml.ws.api.SOAPVersion;
+import com.sun.xml.ws.api.addressing.AddressingVersion;
 import com.sun.xml.ws.api.server.DocumentAddressResolver;
 import com.sun.xml.ws.api.server.SDDocument;
 import com.sun.xml.ws.api.server.ServiceDefinition;
@@ -60,6 +65,7 @@ import com.sun.xml.ws.mex.MessagesMessages;
 import static com.sun.xml.ws.mex.MetadataConstants.MEX_NAMESPACE;
 import static com.sun.xml.ws.mex.MetadataConstants.MEX_PREFIX;
 import static com.sun.xml.ws.mex.MetadataConstants.SCHEMA_DIALECT;
+import static com.sun.xml.ws.mex.MetadataConstants.WSA_PREFIX;
 import static com.sun.xml.ws.mex.MetadataConstants.WSDL_DIALECT;
 
 /**
@@ -70,7 +76,16 @@ import static com.sun.xml.ws.mex.MetadataConstants.WSDL_DIALECT;
  */
 public class WSDLRetriever {
 
+    /*
+     * The address is taken from the wsa:To header of the request, so
+     * only a limited number of responses is kept.
+     */
+    static final int MAX_CACHED_RESPONSES = 16;
+
     private final WSEndpoint endpoint;
+
+    private final ResponseCache responses =
+        new ResponseCache(MAX_CACHED_RESPONSES);
     
     private static final Logger logger =
         Logger.getLogger(WSDLRetriever.class.getName());
@@ -96,13 +111,54 @@ public class WSDLRetriever {
     }
     
     /*
-     * This method is called by the server pipe to write out
-     * the wsdl and schema documents to the mex response.
+     * This method is called by the server pipe to get the complete
+     * mex response. The metadata only changes when the endpoint is
+     * redeployed or reconfigured, so the response is written once and
+     * the same buffer is returned for all following requests.
      */
-    void addDocuments(final XMLStreamWriter writer, final Packet request,
-        final String address) throws XMLStreamException {
+    XMLStreamBuffer getResponse(final String address,
+        final SOAPVersion soapVersion, final AddressingVersion adVersion)
+        throws XMLStreamException {
         
         final ServiceDefinition sDef = endpoint.getServiceDefinition();
+        final String key = address + ' ' + soapVersion.nsUri + ' ' +
+            adVersion.nsUri;
+        XMLStreamBuffer response = responses.get(sDef, key);
+        if (response == null) {
+            response = createResponse(sDef, address, soapVersion, adVersion);
+            responses.put(sDef, key, response);
+        }
+        return response;
+    }
+
+    /*
+     * This method is called to write out the wsdl and schema
+     * documents to the mex response.
+     */
+    void addDocuments(final XMLStreamWriter writer, final String address)
+        throws XMLStreamException {
+        
+        writeDocs(writer, endpoint.getServiceDefinition(), address);
+    }
+
+    private XMLStreamBuffer createResponse(final ServiceDefinition sDef,
+        final String address, final SOAPVersion soapVersion,
+        final AddressingVersion adVersion) throws XMLStreamException {
+        
+        final MutableXMLStreamBuffer buffer = new MutableXMLStreamBuffer();
+        final XMLStreamWriter writer = buffer.createFromXMLStreamWriter();
+
+        writeStartEnvelope(writer, soapVersion, adVersion);
+        writeDocs(writer, sDef, address);
+        writeEndEnvelope(writer);
+        writer.flush();
+        return buffer;
+    }
+
+    private void writeDocs(final XMLStreamWriter writer,
+        final ServiceDefinition sDef, final String address)
+        throws XMLStreamException {
+        
         if (sDef == null) {
             return;
         }
@@ -111,6 +167,33 @@ public class WSDLRetriever {
             writeDoc(writer, docs.next(), address);
         }
     }
+
+    private void writeStartEnvelope(final XMLStreamWriter writer,
+        final SOAPVersion soapVersion, final AddressingVersion adVersion)
+        throws XMLStreamException {
+
+        final String soapPrefix = "soapenv";
+
+        writer.writeStartDocument();
+        writer.writeStartElement(soapPrefix, "Envelope", soapVersion.nsUri);
+
+        // todo: this line should go away after bug fix - 6418039
+        writer.writeNamespace(soapPrefix, soapVersion.nsUri);
+
+        writer.writeNamespace(WSA_PREFIX, adVersion.nsUri);
+        writer.writeNamespace(MEX_PREFIX, MEX_NAMESPACE);
+
+        writer.writeStartElement(soapPrefix, "Body", soapVersion.nsUri);
+        writer.writeStartElement(MEX_PREFIX, "Metadata", MEX_NAMESPACE);
+    }
+    
+    private void writeEndEnvelope(final XMLStreamWriter writer)
+        throws XMLStreamException {
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndDocument();
+    }
     
     /*
      * This method writes out each individual document, which
@@ -145,4 +228,53 @@ public class WSDLRetriever {
         }
     }
 
+    /*
+     * Complete Get responses by address, soap and addressing version.
+     * They are only valid for the service definition they were written
+     * from and are dropped when the endpoint gets a new one. Once full,
+     * the least recently used response is dropped.
+     */
+    static final class ResponseCache {
+
+        private final int maxEntries;
+
+        // both guarded by this
+        private Object definition;
+        private final Map<String, XMLStreamBuffer> entries;
+
+        ResponseCache(final int maxEntries) {
+            this.maxEntries = maxEntries;
+            this.entries = new LinkedHashMap<String, XMLStreamBuffer>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                    final Map.Entry<String, XMLStreamBuffer> eldest) {
+                    
+                    return size() > ResponseCache.this.maxEntries;
+                }
+            };
+        }
+
+        synchronized XMLStreamBuffer get(final Object definition,
+            final String key) {
+            
+            if (definition != this.definition) {
+                entries.clear();
+                this.definition = definition;
+                return null;
+            }
+            return entries.get(key);
+        }
+
+        synchronized void put(final Object definition, final String key,
+            final XMLStreamBuffer response) {
+            
+            if (definition == this.definition) {
+                entries.put(key, response);
+            }
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
 }
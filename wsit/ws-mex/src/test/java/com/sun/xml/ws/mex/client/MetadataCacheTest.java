@@ -0,0 +1,102 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.mex.client;
+
+import junit.framework.TestCase;
+
+import com.sun.xml.ws.mex.client.MetadataClient.Protocol;
+
+public class MetadataCacheTest extends TestCase {
+
+    public MetadataCacheTest(String testName) {
+        super(testName);
+    }
+
+    public void testEntryExpires() {
+        final MetadataCache cache = new MetadataCache(1000, 10);
+        final MetadataCache.Entry entry = new MetadataCache.Entry(
+            new byte[0], "http://host/service/mex", Protocol.SOAP_1_1, 5000);
+        cache.put("http://host/service", entry);
+
+        assertSame(entry, cache.get("http://host/service", 6000));
+        assertNull(cache.get("http://host/service", 6001));
+        assertSame(entry, cache.getExpired("http://host/service"));
+        assertNull(cache.get("http://host/other", 5000));
+    }
+
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        final MetadataCache cache = new MetadataCache(1000, 2);
+        cache.put("a", new MetadataCache.Entry(new byte[0], "a", Protocol.SOAP_1_2, 0));
+        cache.put("b", new MetadataCache.Entry(new byte[0], "b", Protocol.SOAP_1_2, 0));
+        cache.getExpired("a");
+        cache.put("c", new MetadataCache.Entry(new byte[0], "c", Protocol.SOAP_1_2, 0));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.getExpired("a"));
+        assertNull(cache.getExpired("b"));
+        assertNotNull(cache.getExpired("c"));
+    }
+
+    public void testRemove() {
+        final MetadataCache cache = new MetadataCache(1000, 2);
+        cache.put("a", new MetadataCache.Entry(new byte[0], "a", Protocol.SOAP_1_2, 0));
+        cache.remove("a");
+        assertNull(cache.getExpired("a"));
+        assertEquals(0, cache.size());
+    }
+
+    public void testZeroTimeoutDisablesCache() {
+        final MetadataCache cache = new MetadataCache(0, 2);
+        cache.put("a", new MetadataCache.Entry(new byte[0], "a", Protocol.SOAP_1_2, 0));
+        assertNull(cache.get("a", 0));
+        assertNull(cache.getExpired("a"));
+        assertEquals(0, cache.size());
+    }
+
+    public void testClear() {
+        final MetadataCache cache = new MetadataCache(1000, 2);
+        cache.put("a", new MetadataCache.Entry(new byte[0], "a", Protocol.SOAP_1_2, 0));
+        cache.put("b", new MetadataCache.Entry(new byte[0], "b", Protocol.SOAP_1_2, 0));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
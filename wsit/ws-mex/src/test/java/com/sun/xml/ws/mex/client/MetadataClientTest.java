@@ -0,0 +1,222 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.sun.xml.ws.mex.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import com.sun.xml.ws.mex.client.MetadataClient.Protocol;
+import com.sun.xml.ws.mex.client.schema.Metadata;
+
+public class MetadataClientTest extends TestCase {
+
+    private static final String MEX_NAMESPACE =
+        "http://schemas.xmlsoap.org/ws/2004/09/mex";
+
+    public MetadataClientTest(String testName) {
+        super(testName);
+    }
+
+    public void testMostPreferredSuccessfulResponseIsUsed() {
+        final String address = "http://host/preferred";
+        final CountDownLatch fallbackAnswered = new CountDownLatch(1);
+        final MetadataClient client = new MetadataClient(new FakeMetadataUtil() {
+            InputStream respond(String requestAddress, Protocol protocol)
+                throws IOException {
+                
+                if (requestAddress.equals(address)
+                    && protocol == Protocol.SOAP_1_2) {
+                    // answers only after a less preferred request did
+                    await(fallbackAnswered);
+                    return response("preferred");
+                }
+                if (requestAddress.equals(address + "/mex")
+                    && protocol == Protocol.SOAP_1_1) {
+                    fallbackAnswered.countDown();
+                    return response("fallback");
+                }
+                throw new IOException("no metadata at " + requestAddress);
+            }
+        });
+        try {
+            assertEquals("preferred",
+                identifier(client.retrieveMetadata(address)));
+        } finally {
+            MetadataClient.invalidateMetadata(address);
+        }
+    }
+
+    public void testConcurrentCallersShareOneProbe() throws Exception {
+        final String address = "http://host/shared";
+        final AtomicInteger requests = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final MetadataClient client = new MetadataClient(new FakeMetadataUtil() {
+            InputStream respond(String requestAddress, Protocol protocol)
+                throws IOException {
+                
+                requests.incrementAndGet();
+                await(release);
+                if (requestAddress.equals(address)
+                    && protocol == Protocol.SOAP_1_2) {
+                    return response("shared");
+                }
+                throw new IOException("no metadata at " + requestAddress);
+            }
+        });
+
+        final int threads = 8;
+        final List<Metadata> results = new ArrayList<Metadata>();
+        final CountDownLatch done = new CountDownLatch(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            final Metadata metadata =
+                                client.retrieveMetadata(address);
+                            synchronized (results) {
+                                results.add(metadata);
+                            }
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }).start();
+            }
+            // one probe makes four requests, give the other callers time to join it
+            for (int i = 0; i < 1000 && requests.get() < 4; i++) {
+                Thread.sleep(5);
+            }
+            Thread.sleep(50);
+            release.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            MetadataClient.invalidateMetadata(address);
+        }
+
+        assertEquals(4, requests.get());
+        assertEquals(threads, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals("shared", identifier(results.get(i)));
+            for (int j = 0; j < i; j++) {
+                assertNotSame("callers must not share modifiable metadata",
+                    results.get(j), results.get(i));
+            }
+        }
+    }
+
+    public void testInvalidatedMetadataIsFetchedAgain() {
+        final String address = "http://host/invalidated";
+        final AtomicInteger requests = new AtomicInteger();
+        final MetadataClient client = new MetadataClient(new FakeMetadataUtil() {
+            InputStream respond(String requestAddress, Protocol protocol)
+                throws IOException {
+                
+                if (requestAddress.equals(address)
+                    && protocol == Protocol.SOAP_1_2) {
+                    return response("version-" + requests.incrementAndGet());
+                }
+                throw new IOException("no metadata at " + requestAddress);
+            }
+        });
+        try {
+            assertEquals("version-1",
+                identifier(client.retrieveMetadata(address)));
+            assertEquals("version-1",
+                identifier(client.retrieveMetadata(address)));
+
+            MetadataClient.invalidateMetadata(address);
+            assertEquals("version-2",
+                identifier(client.retrieveMetadata(address)));
+        } finally {
+            MetadataClient.invalidateMetadata(address);
+        }
+    }
+
+    private static String identifier(final Metadata metadata) {
+        assertNotNull("no metadata retrieved", metadata);
+        return metadata.getMetadataSection().get(0).getIdentifier();
+    }
+
+    private static InputStream response(final String identifier)
+        throws IOException {
+        
+        final String envelope =
+            "<S:Envelope xmlns:S=\"http://www.w3.org/2003/05/soap-envelope\">"
+            + "<S:Body><mex:Metadata xmlns:mex=\"" + MEX_NAMESPACE + "\">"
+            + "<mex:MetadataSection Dialect=\"urn:test\" Identifier=\""
+            + identifier + "\"/></mex:Metadata></S:Body></S:Envelope>";
+        return new ByteArrayInputStream(envelope.getBytes("UTF-8"));
+    }
+
+    private static void await(final CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IOException("timed out");
+            }
+        } catch (InterruptedException e) {
+            throw new IOException("aborted");
+        }
+    }
+
+    /*
+     * Answers metadata requests without making any network calls.
+     */
+    private abstract static class FakeMetadataUtil extends MetadataUtil {
+
+        @Override
+        InputStream getMetadata(final String address, final Protocol protocol,
+            final ConnectionHolder holder) throws IOException {
+            
+            return respond(address, protocol);
+        }
+
+        abstract InputStream respond(String address, Protocol protocol)
+            throws IOException;
+    }
+}
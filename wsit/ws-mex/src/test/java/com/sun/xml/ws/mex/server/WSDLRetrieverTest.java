@@ -0,0 +1,95 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.ws.mex.server;
+
+import com.sun.xml.stream.buffer.MutableXMLStreamBuffer;
+import com.sun.xml.stream.buffer.XMLStreamBuffer;
+import junit.framework.TestCase;
+
+public class WSDLRetrieverTest extends TestCase {
+
+    public WSDLRetrieverTest(String testName) {
+        super(testName);
+    }
+
+    public void testLeastRecentlyUsedResponseIsDropped() {
+        final Object definition = new Object();
+        final WSDLRetriever.ResponseCache cache = new WSDLRetriever.ResponseCache(2);
+        assertNull(cache.get(definition, "a"));
+        final XMLStreamBuffer a = new MutableXMLStreamBuffer();
+        final XMLStreamBuffer b = new MutableXMLStreamBuffer();
+        cache.put(definition, "a", a);
+        cache.put(definition, "b", b);
+        assertSame(a, cache.get(definition, "a"));
+
+        cache.put(definition, "c", new MutableXMLStreamBuffer());
+        assertEquals(2, cache.size());
+        assertSame(a, cache.get(definition, "a"));
+        assertNull(cache.get(definition, "b"));
+    }
+
+    public void testCacheKeepsAcceptingNewAddresses() {
+        final Object definition = new Object();
+        final WSDLRetriever.ResponseCache cache = new WSDLRetriever.ResponseCache(2);
+        cache.get(definition, "x");
+        for (int i = 0; i < 10; i++) {
+            cache.put(definition, "address" + i, new MutableXMLStreamBuffer());
+        }
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(definition, "address9"));
+    }
+
+    public void testNewDefinitionDropsResponses() {
+        final Object oldDefinition = new Object();
+        final Object newDefinition = new Object();
+        final WSDLRetriever.ResponseCache cache = new WSDLRetriever.ResponseCache(2);
+        cache.get(oldDefinition, "a");
+        cache.put(oldDefinition, "a", new MutableXMLStreamBuffer());
+
+        assertNull(cache.get(newDefinition, "a"));
+        assertEquals(0, cache.size());
+
+        // a response written from the old definition is not kept
+        cache.put(oldDefinition, "a", new MutableXMLStreamBuffer());
+        assertEquals(0, cache.size());
+        assertNull(cache.get(newDefinition, "a"));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.ws.rx.rm.runtime;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps track of when a {@code SequenceAcknowledgement} was last sent for each inbound sequence
+ * and decides whether an acknowledgement that is merely due to the arrival of a new message
+ * may be held back until the configured acknowledgement transmission interval elapses.
+ * <p>
+ * A held back acknowledgement is not lost: the AckRequested flag of the sequence stays set, so
+ * the acknowledgement is piggybacked on the next outgoing message of the sequence, sent on the
+ * first back channel available after the interval elapses, or returned as a response to an
+ * explicit {@code AckRequested} message.
+ *
+ * @see com.sun.xml.ws.rx.rm.api.ReliableMessagingFeature#getAcknowledgementTransmissionInterval()
+ */
+final class AcknowledgementCoalescer {
+
+    private static final int MIN_PRUNE_THRESHOLD = 64;
+    //
+    private final long acknowledgementInterval;
+    private final ConcurrentMap<String, Long> lastAcknowledgementTimes;
+    private volatile int pruneThreshold = MIN_PRUNE_THRESHOLD;
+
+    /**
+     * @param acknowledgementInterval acknowledgement transmission interval in milliseconds;
+     *        a non-positive value disables coalescing and every acknowledgement is sent right away
+     */
+    AcknowledgementCoalescer(long acknowledgementInterval) {
+        this.acknowledgementInterval = acknowledgementInterval;
+        this.lastAcknowledgementTimes = new ConcurrentHashMap<String, Long>();
+    }
+
+    boolean isEnabled() {
+        return acknowledgementInterval > 0;
+    }
+
+    /**
+     * Determines whether an acknowledgement for the sequence may be held back at the given time.
+     */
+    boolean isDeferrable(String sequenceId, long now) {
+        if (!isEnabled()) {
+            return false;
+        }
+
+        final Long lastSent = lastAcknowledgementTimes.get(sequenceId);
+        return lastSent != null && now - lastSent.longValue() < acknowledgementInterval;
+    }
+
+    /**
+     * Records that an acknowledgement for the sequence has been attached to an outgoing message.
+     */
+    void acknowledgementSent(String sequenceId, long now) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        lastAcknowledgementTimes.put(sequenceId, now);
+        if (lastAcknowledgementTimes.size() > pruneThreshold) {
+            prune(now);
+        }
+    }
+
+    /**
+     * Drops the record of a sequence that is no longer acknowledged.
+     */
+    void forget(String sequenceId) {
+        lastAcknowledgementTimes.remove(sequenceId);
+    }
+
+    int size() {
+        return lastAcknowledgementTimes.size();
+    }
+
+    /**
+     * Records older than the acknowledgement interval carry no information, so they are
+     * removed whenever the number of tracked sequences grows past the last pruning threshold.
+     */
+    private void prune(long now) {
+        final Iterator<Map.Entry<String, Long>> it = lastAcknowledgementTimes.entrySet().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().getValue().longValue() >= acknowledgementInterval) {
+                it.remove();
+            }
+        }
+        pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, 2 * lastAcknowledgementTimes.size());
+    }
+}
@@ -66,9 +66,11 @@ class DestinationMessageHandler implements MessageHandler {
     private static final Logger LOGGER = Logger.getLogger(DestinationMessageHandler.class);
     //
     private volatile SequenceManager sequenceManager;
+    private final AcknowledgementCoalescer ackCoalescer;
 
-    DestinationMessageHandler(@Nullable SequenceManager sequenceManager) {
+    DestinationMessageHandler(@Nullable SequenceManager sequenceManager, @NotNull AcknowledgementCoalescer ackCoalescer) {
         this.sequenceManager = sequenceManager;
+        this.ackCoalescer = ackCoalescer;
     }
 
     void setSequenceManager(SequenceManager sequenceManager) {
@@ -137,15 +139,38 @@ class DestinationMessageHandler implements MessageHandler {
     }
 
     AcknowledgementData getAcknowledgementData(String inboundSequenceId, boolean isRespondingToAckRequested, boolean doNotClearAckRequestedFlag) throws UnknownSequenceException {
+        return getAcknowledgementData(inboundSequenceId, isRespondingToAckRequested, doNotClearAckRequestedFlag, false);
+    }
+
+    /**
+     * Retrieves acknowledgement information to be returned on the transport back channel of a one-way
+     * request. Unlike {@link #getAcknowledgementData(java.lang.String)}, the sequence acknowledgement
+     * of an open sequence is left out if another one has been sent within the configured acknowledgement
+     * transmission interval. The AckRequested flag stays set in such case, so the acknowledgement goes
+     * out with the next outgoing message once the interval elapses.
+     *
+     * @param inboundSequenceId inbound sequence identifier
+     * @return acknowledgement information for a given inbound sequence
+     * @throws UnknownSequenceException if no such sequence exits for a given sequence identifier
+     */
+    AcknowledgementData getCoalescedAcknowledgementData(String inboundSequenceId) throws UnknownSequenceException {
+        return getAcknowledgementData(inboundSequenceId, false, false, true);
+    }
+
+    private AcknowledgementData getAcknowledgementData(String inboundSequenceId, boolean isRespondingToAckRequested, boolean doNotClearAckRequestedFlag, boolean deferrable) throws UnknownSequenceException {
         assert sequenceManager != null;
 
         AcknowledgementData.Builder ackDataBuilder = AcknowledgementData.getBuilder();
         final Sequence inboundSequence = sequenceManager.getInboundSequence(inboundSequenceId);
-        if (isRespondingToAckRequested || inboundSequence.isAckRequested() || inboundSequence.isClosed()) {
-            ackDataBuilder.acknowledgements(inboundSequence.getId(), inboundSequence.getAcknowledgedMessageNumbers(), inboundSequence.isClosed());
+        final long now = ackCoalescer.isEnabled() ? sequenceManager.currentTimeInMillis() : 0L;
+        final boolean isClosed = inboundSequence.isClosed();
+        if (isRespondingToAckRequested || isClosed
+                || (inboundSequence.isAckRequested() && !(deferrable && ackCoalescer.isDeferrable(inboundSequenceId, now)))) {
+            ackDataBuilder.acknowledgements(inboundSequence.getId(), inboundSequence.getAcknowledgedMessageNumbers(), isClosed);
             if (!doNotClearAckRequestedFlag) {
                 inboundSequence.clearAckRequestedFlag();
             }
+            recordAcknowledgement(inboundSequenceId, isClosed, now);
         }
 
         // outbound sequence ack requested flag
@@ -158,6 +183,14 @@ class DestinationMessageHandler implements MessageHandler {
         return ackDataBuilder.build();
     }
 
+    private void recordAcknowledgement(String inboundSequenceId, boolean isFinal, long now) {
+        if (isFinal) {
+            ackCoalescer.forget(inboundSequenceId);
+        } else {
+            ackCoalescer.acknowledgementSent(inboundSequenceId, now);
+        }
+    }
+
     public void acknowledgeApplicationLayerDelivery(ApplicationMessage inMessage) throws UnknownSequenceException {
         assert sequenceManager != null;
 
@@ -43,8 +43,8 @@ package com.sun.xml.ws.rx.rm.runtime;
 import com.sun.istack.NotNull;
 import com.sun.xml.ws.api.message.Message;
 import com.sun.xml.ws.api.message.Packet;
-import com.sun.xml.ws.commons.xmlutil.Converter;
 import com.sun.xml.ws.rx.message.RxMessage;
+import com.sun.xml.ws.rx.message.jaxws.MessageCodecs;
 import com.sun.xml.ws.rx.message.jaxws.SerializableMessage;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
@@ -87,7 +87,7 @@ public class JaxwsApplicationMessage extends ApplicationMessageBase {
                     ",\n\tnextResendCount=" + nextResendCount + 
                     ",\n\tcorrelationId=" + correlationId + 
                     ",\n\twsaAction=" + wsaAction + 
-                    ",\n\tmessage data=\n" + Converter.messageDataToString(data, Converter.UTF_8) + 
+                    ",\n\tmessage data=\n" + MessageCodecs.toString(data) + 
                     "\n}";
         }        
     }
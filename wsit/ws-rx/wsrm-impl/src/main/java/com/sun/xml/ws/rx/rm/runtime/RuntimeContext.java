@@ -96,7 +96,8 @@ public final class RuntimeContext {
             this.communicator = communicator;
 
             this.sourceMessageHandler = new SourceMessageHandler(null);
-            this.destinationMessageHandler = new DestinationMessageHandler(null);
+            this.destinationMessageHandler = new DestinationMessageHandler(null,
+                    new AcknowledgementCoalescer(configuration.getRmFeature().getAcknowledgementTransmissionInterval()));
             this.transactionHandler = new TransactionHandlerImpl();
             this.outboundDeliveredHandler = new OutboundDeliveredHandler();
         }
@@ -118,7 +118,7 @@ class ServerDestinationDeliveryCallback implements Postman.Callback {
 
                 if (response.getMessage() == null) {
                     //was one-way request - create empty acknowledgement message if needed
-                    AcknowledgementData ackData = rc.destinationMessageHandler.getAcknowledgementData(request.getSequenceId());
+                    AcknowledgementData ackData = rc.destinationMessageHandler.getCoalescedAcknowledgementData(request.getSequenceId());
                     if (ackData.getAckReqestedSequenceId() != null || ackData.containsSequenceAcknowledgementData()) {
                         //create acknowledgement response only if there is something to send in the SequenceAcknowledgement header
                         response = rc.communicator.setEmptyResponseMessage(response, request.getPacket(), rc.rmVersion.protocolVersion.sequenceAcknowledgementAction);
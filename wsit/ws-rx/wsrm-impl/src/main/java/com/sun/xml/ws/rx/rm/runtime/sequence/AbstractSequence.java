@@ -129,15 +129,15 @@ public abstract class AbstractSequence implements Sequence {
     }
 
     public boolean isAcknowledged(long messageNumber) {
-        boolean result = false;
-        List<AckRange> listOfAckRange = getAcknowledgedMessageNumbers();
-        for (AckRange ackRange : listOfAckRange) {
-            if (messageNumber <= ackRange.upper && messageNumber >= ackRange.lower) {
-                result = true;
-                break;
-            }
+        // acknowledged ranges cover all message numbers up to the last one except the unacked ones,
+        // so there is no need to materialize the ranges just to look up a single message number
+        List<Long> values = data.getLastMessageNumberWithUnackedMessageNumbers();
+
+        final long lastMessageNumber = values.remove(0);
+        if (lastMessageNumber == Sequence.UNSPECIFIED_MESSAGE_ID || messageNumber < Sequence.MIN_MESSAGE_ID || messageNumber > lastMessageNumber) {
+            return false;
         }
-        return result;
+        return !values.contains(messageNumber);
     }
 
     public boolean hasUnacknowledgedMessages() {
@@ -70,15 +70,19 @@ import org.glassfish.ha.store.api.BackingStoreConfiguration;
 import org.glassfish.ha.store.api.BackingStoreException;
 import org.glassfish.ha.store.api.BackingStoreFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 
 /**
@@ -89,13 +93,38 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
 
     private static final Logger LOGGER = Logger.getLogger(InVmSequenceManager.class);
     /**
-     * Internal in-memory data access lock
+     * Internal in-memory data modification lock. Serializes compound updates
+     * (registration, termination, binding); sequence lookups do not take it.
      */
-    private final ReadWriteLock dataLock = new ReentrantReadWriteLock();
+    private final Lock dataLock = new ReentrantLock();
     /**
      * Internal in-memory storage of sequence data
      */
     private final HighlyAvailableMap<String, AbstractSequence> sequences;
+    /**
+     * Maximum number of sequences removed and maximum number of due sequences
+     * checked by a single maintenance run; the rest is left to the following runs
+     */
+    private static final int MAX_SEQUENCES_PER_MAINTENANCE_RUN = 1024;
+    /**
+     * Number of due expiry index entries taken from the index at once
+     */
+    private static final int MAINTENANCE_SLICE_SIZE = 64;
+    /**
+     * Sequences ordered by the earliest time they may have to be terminated
+     * due to expiration or inactivity. Guarded by its own monitor together
+     * with {@link #indexedEntries}.
+     */
+    private final Queue<ExpiryEntry> expiryIndex = new PriorityQueue<ExpiryEntry>();
+    /**
+     * The only valid expiry index entry of each indexed sequence. Entries of the
+     * index that are not found here are stale and skipped when polled.
+     */
+    private final Map<String, ExpiryEntry> indexedEntries = new HashMap<String, ExpiryEntry>();
+    /**
+     * Identifiers of terminated sequences waiting to be removed by the next maintenance run
+     */
+    private final Queue<String> terminatedSequences = new ConcurrentLinkedQueue<String>();
     /**
      * Sequence data POJo backing store
      */
@@ -182,7 +211,7 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
                 uniqueEndpointId + "_SEQUENCE_DATA_BS",
                 StickyKey.class,
                 SequenceDataPojo.class);
-        this.sequences = HighlyAvailableMap.create(uniqueEndpointId + "_SEQUENCE_DATA_MAP", this);
+        this.sequences = HighlyAvailableMap.createConcurrent(uniqueEndpointId + "_SEQUENCE_DATA_MAP", this);
 
         UnackedMessageReplicationManager unackedMsgRM = null;
         if (HighAvailabilityProvider.INSTANCE.isHaEnvironmentConfigured()) {
@@ -215,26 +244,14 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
      * {@inheritDoc}
      */
     public Map<String, Sequence> sequences() {
-        try {
-            dataLock.readLock().lock();
-
-            return new HashMap<String, Sequence>(sequences);
-        } finally {
-            dataLock.readLock().unlock();
-        }
+        return new HashMap<String, Sequence>(sequences.getLocalMapCopy());
     }
 
     /**
      * {@inheritDoc}
      */
     public Map<String, String> boundSequences() {
-        try {
-            dataLock.readLock().lock();
-
-            return boundSequences.getLocalMapCopy();
-        } finally {
-            dataLock.readLock().unlock();
-        }
+        return boundSequences.getLocalMapCopy();
     }
 
     /**
@@ -306,23 +323,16 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
             throw new UnknownSequenceException("[null-sequence-identifier]");
         }
 
-        try {
-            dataLock.readLock().lock();
-            Sequence sequence = sequences.get(sequenceId);
-            if (sequence == null) {
-                throw new UnknownSequenceException(sequenceId);
-            }
-
-            if (shouldTeminate(sequence)) {
-                dataLock.readLock().unlock();
-                tryTerminateSequence(sequenceId);
-                dataLock.readLock().lock();
-            }
+        Sequence sequence = sequences.get(sequenceId);
+        if (sequence == null) {
+            throw new UnknownSequenceException(sequenceId);
+        }
 
-            return sequence;
-        } finally {
-            dataLock.readLock().unlock();
+        if (shouldTeminate(sequence)) {
+            tryTerminateSequence(sequenceId);
         }
+
+        return sequence;
     }
 
     /**
@@ -358,13 +368,8 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
         if (sequenceId == null) {
             return false;
         }
-        try {
-            dataLock.readLock().lock();
-            Sequence s = sequences.get(sequenceId);
-            return s != null && s.getState() != Sequence.State.TERMINATING;
-        } finally {
-            dataLock.readLock().unlock();
-        }
+        Sequence s = sequences.get(sequenceId);
+        return s != null && s.getState() != Sequence.State.TERMINATING;
     }
 
     private Sequence tryTerminateSequence(String sequenceId) {
@@ -372,7 +377,7 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
             return null;
         }
         try {
-            dataLock.writeLock().lock();
+            dataLock.lock();
             final Sequence sequence = sequences.get(sequenceId);
             if (sequence == null) {
                 return null;
@@ -383,11 +388,13 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
                     actualConcurrentInboundSequences.decrementAndGet();
                 }
                 sequence.preDestroy();
+                terminatedSequences.offer(sequenceId);
+                unindex(sequenceId);
             }
 
             return sequence;
         } finally {
-            dataLock.writeLock().unlock();
+            dataLock.unlock();
         }
     }
 
@@ -408,7 +415,7 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
      */
     public void bindSequences(String referenceSequenceId, String boundSequenceId) throws UnknownSequenceException {
         try {
-            dataLock.writeLock().lock();
+            dataLock.lock();
             if (!sequences.containsKey(referenceSequenceId)) {
                 throw new UnknownSequenceException(referenceSequenceId);
             }
@@ -419,7 +426,7 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
 
             boundSequences.put(referenceSequenceId, boundSequenceId);
         } finally {
-            dataLock.writeLock().unlock();
+            dataLock.unlock();
         }
     }
 
@@ -427,16 +434,12 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
      * {@inheritDoc}
      */
     public Sequence getBoundSequence(String referenceSequenceId) throws UnknownSequenceException {
-        try {
-            dataLock.readLock().lock();
-            if (!isValid(referenceSequenceId)) {
-                throw new UnknownSequenceException(referenceSequenceId);
-            }
-
-            return (boundSequences.containsKey(referenceSequenceId)) ? sequences.get(boundSequences.get(referenceSequenceId)) : null;
-        } finally {
-            dataLock.readLock().unlock();
+        if (!isValid(referenceSequenceId)) {
+            throw new UnknownSequenceException(referenceSequenceId);
         }
+
+        final String boundSequenceId = boundSequences.get(referenceSequenceId);
+        return (boundSequenceId != null) ? sequences.get(boundSequenceId) : null;
     }
 
     /**
@@ -446,17 +449,18 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
      */
     private Sequence registerSequence(AbstractSequence sequence) throws DuplicateSequenceException {
         try {
-            dataLock.writeLock().lock();
+            dataLock.lock();
             if (sequences.containsKey(sequence.getId())) {
                 throw new DuplicateSequenceException(sequence.getId());
             } else {
                 sequences.put(sequence.getId(), sequence);
             }
-
-            return sequence;
         } finally {
-            dataLock.writeLock().unlock();
+            dataLock.unlock();
         }
+        scheduleExpiryCheck(sequence);
+
+        return sequence;
     }
 
     /**
@@ -466,34 +470,51 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
         return System.currentTimeMillis();
     }
 
+    /**
+     * Removes the sequences terminated since the previous run and terminates the
+     * sequences that have expired or have been inactive for too long.
+     * <p>
+     * Only the sequences whose deadline has passed according to the expiry index
+     * are visited, instead of the whole sequence storage, and a single run handles
+     * at most {@value #MAX_SEQUENCES_PER_MAINTENANCE_RUN} of them. Due sequences are
+     * taken from the index in small slices. No lock is held while the replicas are
+     * removed and the local IDs are marked as terminated, so the message processing
+     * threads are never blocked by the maintenance.
+     */
     public boolean onMaintenance() {
         LOGGER.entering();
         
         final boolean continueMaintenance = !this.disposed.get();
         
         try {
-            dataLock.writeLock().lock();
             if (continueMaintenance) {
-                Iterator<String> sequenceKeyIterator = sequences.keySet().iterator();
-                while (sequenceKeyIterator.hasNext()) {
-                    String key = sequenceKeyIterator.next();
-
-                    final Sequence sequence = sequences.get(key);
-                    if (shouldRemove(sequence)) {
-                        LOGGER.config(LocalizationMessages.WSRM_1152_REMOVING_SEQUENCE(sequence.getId()));
-                        sequenceKeyIterator.remove();
-                        sequences.getReplicationManager().remove(key);
-
-                        if (boundSequences.containsKey(sequence.getId())) {
-                            boundSequences.remove(sequence.getId());
+                // sequences terminated during this run are removed by the next one
+                for (int i = Math.min(terminatedSequences.size(), MAX_SEQUENCES_PER_MAINTENANCE_RUN); i > 0; i--) {
+                    final String sequenceId = terminatedSequences.poll();
+                    if (sequenceId == null) {
+                        break;
+                    }
+                    removeSequence(sequenceId);
+                }
+
+                final long now = currentTimeInMillis();
+                int remaining = MAX_SEQUENCES_PER_MAINTENANCE_RUN;
+                List<ExpiryEntry> slice;
+                while (remaining > 0 && !(slice = pollDueEntries(now, Math.min(remaining, MAINTENANCE_SLICE_SIZE))).isEmpty()) {
+                    remaining -= slice.size();
+                    for (ExpiryEntry entry : slice) {
+                        final AbstractSequence sequence = sequences.get(entry.sequenceId);
+                        if (sequence == null || sequence.getState() == Sequence.State.TERMINATING) {
+                            continue;
                         }
-                        
-                        if (localIDManager != null) {
-                            localIDManager.markSequenceTermination(sequence.getId());
+
+                        if (shouldTeminate(sequence)) {
+                            LOGGER.config(LocalizationMessages.WSRM_1153_TERMINATING_SEQUENCE(sequence.getId()));
+                            tryTerminateSequence(sequence.getId());
+                        } else {
+                            // the sequence has been active since it was indexed
+                            scheduleExpiryCheck(sequence);
                         }
-                    } else if (shouldTeminate(sequence)) {
-                        LOGGER.config(LocalizationMessages.WSRM_1153_TERMINATING_SEQUENCE(sequence.getId()));
-                        tryTerminateSequence(sequence.getId());
                     }
                 }
             }
@@ -501,11 +522,107 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
             return continueMaintenance;
 
         } finally {
-            dataLock.writeLock().unlock();
             LOGGER.exiting(continueMaintenance);
         }
     }
 
+    private void removeSequence(String sequenceId) {
+        final Sequence sequence = sequences.get(sequenceId);
+        if (sequence == null || !shouldRemove(sequence)) {
+            return;
+        }
+
+        LOGGER.config(LocalizationMessages.WSRM_1152_REMOVING_SEQUENCE(sequenceId));
+        sequences.remove(sequenceId);
+        boundSequences.remove(sequenceId);
+        unindex(sequenceId);
+
+        if (localIDManager != null) {
+            localIDManager.markSequenceTermination(sequenceId);
+        }
+    }
+
+    /**
+     * Adds the sequence to the expiry index with the earliest time at which it may
+     * need to be terminated. Activity only moves the inactivity deadline forward,
+     * so the indexed deadline is a lower bound and is re-evaluated once it passes.
+     * Any previous entry of the sequence becomes stale. Sequences that never expire
+     * and have no inactivity timeout are not indexed at all.
+     */
+    private void scheduleExpiryCheck(AbstractSequence sequence) {
+        long deadline = sequence.getLastActivityTime() + sequenceInactivityTimeout;
+        if (deadline < sequence.getLastActivityTime()) {
+            deadline = Long.MAX_VALUE; // overflow
+        }
+        final long expirationTime = sequence.getData().getExpirationTime();
+        if (expirationTime != Sequence.NO_EXPIRY && expirationTime < deadline) {
+            deadline = expirationTime;
+        }
+
+        if (deadline == Long.MAX_VALUE) {
+            unindex(sequence.getId());
+            return;
+        }
+
+        final ExpiryEntry entry = new ExpiryEntry(deadline, sequence.getId());
+        synchronized (expiryIndex) {
+            indexedEntries.put(entry.sequenceId, entry);
+            expiryIndex.offer(entry);
+            purgeStaleEntries();
+        }
+    }
+
+    /**
+     * Makes the expiry index entry of the sequence stale, if there is any.
+     */
+    private void unindex(String sequenceId) {
+        synchronized (expiryIndex) {
+            if (indexedEntries.remove(sequenceId) != null) {
+                purgeStaleEntries();
+            }
+        }
+    }
+
+    /**
+     * Stale entries normally leave the index once their deadline passes. Should
+     * they outnumber the valid ones, the index is rebuilt from the valid entries.
+     * Must be called with the expiry index monitor held.
+     */
+    private void purgeStaleEntries() {
+        if (expiryIndex.size() > 2 * indexedEntries.size() + MAINTENANCE_SLICE_SIZE) {
+            expiryIndex.clear();
+            expiryIndex.addAll(indexedEntries.values());
+        }
+    }
+
+    /**
+     * Takes up to {@code limit} valid entries whose deadline has passed from the expiry index.
+     */
+    private List<ExpiryEntry> pollDueEntries(long now, int limit) {
+        final List<ExpiryEntry> due = new ArrayList<ExpiryEntry>();
+        synchronized (expiryIndex) {
+            ExpiryEntry entry = expiryIndex.peek();
+            while (entry != null && entry.deadline < now && due.size() < limit) {
+                expiryIndex.poll();
+                if (indexedEntries.get(entry.sequenceId) == entry) {
+                    indexedEntries.remove(entry.sequenceId);
+                    due.add(entry);
+                }
+                entry = expiryIndex.peek();
+            }
+        }
+        return due;
+    }
+
+    /**
+     * @return number of entries in the expiry index, including stale ones
+     */
+    int expiryIndexSize() {
+        synchronized (expiryIndex) {
+            return expiryIndex.size();
+        }
+    }
+
     private boolean shouldTeminate(Sequence sequence) {
         return sequence.getState() != Sequence.State.TERMINATING && (sequence.isExpired() || sequence.getLastActivityTime() + sequenceInactivityTimeout < currentTimeInMillis());
     }
@@ -519,6 +636,11 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
 
     public void invalidateCache() {
         this.sequences.invalidateCache();
+        synchronized (expiryIndex) {
+            expiryIndex.clear(); // reloaded sequences are indexed again in load()
+            indexedEntries.clear();
+        }
+        this.terminatedSequences.clear();
         this.boundSequences.invalidateCache();
         this.unackedMessageStore.invalidateCache();
         if (LOGGER.isLoggable(Level.FINER)) {
@@ -528,6 +650,12 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
 
     public void dispose() {
         if (this.disposed.compareAndSet(false, true)) {        
+            synchronized (expiryIndex) {
+                expiryIndex.clear();
+                indexedEntries.clear();
+            }
+            this.terminatedSequences.clear();
+
             this.sequences.close();
             this.sequences.destroy();
 
@@ -568,6 +696,12 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
         if (LOGGER.isLoggable(Level.FINER)) {
             LOGGER.finer(loggerProlog + "Sequence state data for key [" + key + "] converted into sequence of class: " + sequence.getClass());
         }
+
+        if (sequence.getState() == Sequence.State.TERMINATING) {
+            terminatedSequences.offer(key);
+        } else {
+            scheduleExpiryCheck(sequence);
+        }
         return sequence;
     }
 
@@ -620,4 +754,19 @@ public final class InVmSequenceManager extends AbstractMOMRegistrationAware impl
             LOGGER.finer(loggerProlog + "Destroyed sequence data backing store");
         }
     }
+
+    private static final class ExpiryEntry implements Comparable<ExpiryEntry> {
+
+        private final long deadline;
+        private final String sequenceId;
+
+        ExpiryEntry(long deadline, String sequenceId) {
+            this.deadline = deadline;
+            this.sequenceId = sequenceId;
+        }
+
+        public int compareTo(ExpiryEntry other) {
+            return (deadline < other.deadline) ? -1 : ((deadline == other.deadline) ? 0 : 1);
+        }
+    }
 }
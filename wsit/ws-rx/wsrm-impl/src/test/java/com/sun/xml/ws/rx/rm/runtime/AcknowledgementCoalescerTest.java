@@ -0,0 +1,91 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.ws.rx.rm.runtime;
+
+import junit.framework.TestCase;
+
+public class AcknowledgementCoalescerTest extends TestCase {
+
+    public AcknowledgementCoalescerTest(String testName) {
+        super(testName);
+    }
+
+    public void testDisabledByDefaultInterval() {
+        AcknowledgementCoalescer coalescer = new AcknowledgementCoalescer(-1);
+
+        coalescer.acknowledgementSent("seq", 1000);
+        assertFalse(coalescer.isEnabled());
+        assertFalse(coalescer.isDeferrable("seq", 1000));
+        assertEquals(0, coalescer.size());
+    }
+
+    public void testAcknowledgementsWithinIntervalAreDeferred() {
+        AcknowledgementCoalescer coalescer = new AcknowledgementCoalescer(200);
+
+        assertFalse("first acknowledgement must not be deferred", coalescer.isDeferrable("seq", 1000));
+        coalescer.acknowledgementSent("seq", 1000);
+
+        assertTrue(coalescer.isDeferrable("seq", 1000));
+        assertTrue(coalescer.isDeferrable("seq", 1199));
+        assertFalse(coalescer.isDeferrable("seq", 1200));
+        assertFalse("other sequences must not be affected", coalescer.isDeferrable("other", 1100));
+    }
+
+    public void testForget() {
+        AcknowledgementCoalescer coalescer = new AcknowledgementCoalescer(200);
+
+        coalescer.acknowledgementSent("seq", 1000);
+        coalescer.forget("seq");
+        assertFalse(coalescer.isDeferrable("seq", 1100));
+        assertEquals(0, coalescer.size());
+    }
+
+    public void testStaleRecordsArePruned() {
+        AcknowledgementCoalescer coalescer = new AcknowledgementCoalescer(200);
+
+        for (int i = 0; i < 1000; i++) {
+            coalescer.acknowledgementSent("seq-" + i, i * 10);
+        }
+
+        assertTrue("stale records were not pruned: " + coalescer.size(), coalescer.size() < 200);
+        assertTrue(coalescer.isDeferrable("seq-999", 9990));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.ws.rx.rm.runtime.sequence;
+
+import com.sun.xml.ws.api.server.Container;
+import junit.framework.TestCase;
+
+/**
+ * Tests termination and removal of sequences done by the in-memory sequence manager maintenance.
+ */
+public class SequenceManagerMaintenanceTest extends TestCase {
+    private final SequenceManager sequenceManager = SequenceManagerFactory.INSTANCE.createSequenceManager(
+            false,
+            "maintenance-test",
+            SequenceTestUtils.getDeliveryQueueBuilder(),
+            SequenceTestUtils.getDeliveryQueueBuilder(),
+            SequenceTestUtils.getConfiguration(),
+            Container.NONE,
+            null);
+
+    public SequenceManagerMaintenanceTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        sequenceManager.dispose();
+        super.tearDown();
+    }
+
+    public void testExpiredSequenceIsTerminatedAndRemoved() throws Exception {
+        Sequence expiring = sequenceManager.createInboundSequence(
+                sequenceManager.generateSequenceUID(),
+                null,
+                sequenceManager.currentTimeInMillis() + 100);
+        Sequence permanent = sequenceManager.createInboundSequence(
+                sequenceManager.generateSequenceUID(),
+                null,
+                Sequence.NO_EXPIRY);
+
+        assertTrue(sequenceManager.onMaintenance());
+        assertEquals(Sequence.State.CREATED, expiring.getState());
+
+        Thread.sleep(200);
+        assertTrue(sequenceManager.onMaintenance());
+        assertEquals(Sequence.State.TERMINATING, expiring.getState());
+        assertFalse(sequenceManager.isValid(expiring.getId()));
+        assertEquals(1, sequenceManager.concurrentlyOpenedInboundSequencesCount());
+
+        // terminated sequences are removed by the following maintenance run
+        assertTrue(sequenceManager.onMaintenance());
+        assertFalse(sequenceManager.sequences().containsKey(expiring.getId()));
+        try {
+            sequenceManager.getSequence(expiring.getId());
+            fail("UnknownSequenceException expected");
+        } catch (UnknownSequenceException expected) {
+            // ok
+        }
+
+        assertTrue(sequenceManager.isValid(permanent.getId()));
+        assertSame(permanent, sequenceManager.getSequence(permanent.getId()));
+    }
+
+    public void testTerminatedSequenceIsRemoved() throws Exception {
+        Sequence sequence = sequenceManager.createOutboundSequence(
+                sequenceManager.generateSequenceUID(),
+                null,
+                Sequence.NO_EXPIRY);
+
+        sequenceManager.terminateSequence(sequence.getId());
+        assertTrue(sequenceManager.sequences().containsKey(sequence.getId()));
+
+        assertTrue(sequenceManager.onMaintenance());
+        assertFalse(sequenceManager.sequences().containsKey(sequence.getId()));
+    }
+
+    public void testNoMaintenanceAfterDispose() throws Exception {
+        sequenceManager.dispose();
+        assertFalse(sequenceManager.onMaintenance());
+    }
+}
@@ -60,12 +60,14 @@ import org.glassfish.gmbal.ManagedObjectManager;
  *
  * @author Marek Potociar <marek.potociar at sun.com>
  */
-final class SequenceTestUtils  {
+public final class SequenceTestUtils  {
     private SequenceTestUtils() {}
 
-    static RmConfiguration getConfiguration() {
-        final ReliableMessagingFeature rmf = new ReliableMessagingFeatureBuilder(RmProtocolVersion.WSRM200702).build();
+    public static RmConfiguration getConfiguration() {
+        return getConfiguration(new ReliableMessagingFeatureBuilder(RmProtocolVersion.WSRM200702).build());
+    }
 
+    public static RmConfiguration getConfiguration(final ReliableMessagingFeature rmf) {
         return new RmConfiguration() {
 
             public boolean isReliableMessagingEnabled() {
@@ -108,7 +110,7 @@ final class SequenceTestUtils  {
        };
     }
 
-    static DeliveryQueueBuilder getDeliveryQueueBuilder() {
+    public static DeliveryQueueBuilder getDeliveryQueueBuilder() {
 
 
         return DeliveryQueueBuilder.getBuilder(getConfiguration(), PostmanPool.INSTANCE.getPostman(), new Postman.Callback() {
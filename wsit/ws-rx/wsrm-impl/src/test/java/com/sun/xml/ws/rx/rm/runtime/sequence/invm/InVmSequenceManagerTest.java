@@ -0,0 +1,121 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.rx.rm.runtime.sequence.invm;
+
+import com.sun.xml.ws.api.server.Container;
+import com.sun.xml.ws.rx.rm.api.ReliableMessagingFeatureBuilder;
+import com.sun.xml.ws.rx.rm.api.RmProtocolVersion;
+import com.sun.xml.ws.rx.rm.runtime.RmConfiguration;
+import com.sun.xml.ws.rx.rm.runtime.sequence.Sequence;
+import com.sun.xml.ws.rx.rm.runtime.sequence.SequenceTestUtils;
+import junit.framework.TestCase;
+
+/**
+ * Tests that the expiry index of {@link InVmSequenceManager} does not keep entries
+ * of terminated, removed or never expiring sequences.
+ */
+public class InVmSequenceManagerTest extends TestCase {
+
+    private InVmSequenceManager sequenceManager;
+
+    public InVmSequenceManagerTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (sequenceManager != null) {
+            sequenceManager.dispose();
+        }
+        super.tearDown();
+    }
+
+    public void testTerminatedSequencesLeaveExpiryIndex() throws Exception {
+        sequenceManager = createSequenceManager(SequenceTestUtils.getConfiguration());
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) {
+                Sequence sequence = sequenceManager.createOutboundSequence(sequenceManager.generateSequenceUID(), null, Sequence.NO_EXPIRY);
+                sequenceManager.terminateSequence(sequence.getId());
+            }
+            assertTrue(sequenceManager.onMaintenance());
+
+            assertTrue(sequenceManager.sequences().isEmpty());
+            // stale entries are purged long before they outnumber a round of sequences
+            assertTrue(sequenceManager.expiryIndexSize() < 100);
+        }
+    }
+
+    public void testNeverExpiringSequencesAreNotIndexed() throws Exception {
+        sequenceManager = createSequenceManager(SequenceTestUtils.getConfiguration(
+                new ReliableMessagingFeatureBuilder(RmProtocolVersion.WSRM200702).sequenceInactivityTimeout(Long.MAX_VALUE).build()));
+
+        Sequence sequence = sequenceManager.createInboundSequence(sequenceManager.generateSequenceUID(), null, Sequence.NO_EXPIRY);
+
+        assertEquals(0, sequenceManager.expiryIndexSize());
+        assertTrue(sequenceManager.onMaintenance());
+        assertTrue(sequenceManager.isValid(sequence.getId()));
+    }
+
+    public void testExpiringSequenceIsIndexedOnce() throws Exception {
+        sequenceManager = createSequenceManager(SequenceTestUtils.getConfiguration());
+
+        Sequence sequence = sequenceManager.createInboundSequence(
+                sequenceManager.generateSequenceUID(), null, sequenceManager.currentTimeInMillis() + 100);
+        assertEquals(1, sequenceManager.expiryIndexSize());
+
+        Thread.sleep(200);
+        assertTrue(sequenceManager.onMaintenance());
+        assertEquals(Sequence.State.TERMINATING, sequence.getState());
+        assertEquals(0, sequenceManager.expiryIndexSize());
+    }
+
+    private static InVmSequenceManager createSequenceManager(RmConfiguration configuration) {
+        return new InVmSequenceManager(
+                "expiry-index-test",
+                SequenceTestUtils.getDeliveryQueueBuilder(),
+                SequenceTestUtils.getDeliveryQueueBuilder(),
+                configuration,
+                Container.NONE,
+                null);
+    }
+}
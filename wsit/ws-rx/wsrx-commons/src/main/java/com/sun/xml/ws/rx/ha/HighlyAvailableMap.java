@@ -47,6 +47,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.sun.xml.ws.api.ha.HaInfo;
 import com.sun.xml.ws.api.ha.HighAvailabilityProvider;
@@ -218,6 +220,10 @@ public final class HighlyAvailableMap<K extends Serializable, V> implements Map<
     }
 
     private final Map<K, V> localMap;
+    /**
+     * {@code true} if the local map may be read without holding the data lock
+     */
+    private final boolean concurrentLocalMap;
     private final ReadWriteLock dataLock = new ReentrantReadWriteLock();
     private final ReplicationManager<K, V> replicationManager;
     private final String loggerProlog;
@@ -238,9 +244,25 @@ public final class HighlyAvailableMap<K extends Serializable, V> implements Map<
         return new HighlyAvailableMap<K, V>(name, new HashMap<K, V>(), replicationManager);
     }
 
+    /**
+     * Creates a map backed by a concurrent local map: values present in the local
+     * cache are retrieved without taking the internal data lock, so lookups
+     * do not wait for writers. Neither {@code null} keys nor {@code null} values
+     * are supported. Iterators returned by the collection views are weakly
+     * consistent.
+     */
+    public static <K extends Serializable, V> HighlyAvailableMap<K, V> createConcurrent(final String name, ReplicationManager<K, V> replicationManager) {
+        if (replicationManager == null) {
+            replicationManager = new NoopReplicationManager<K, V>(name + "_MANAGER");
+        }
+
+        return new HighlyAvailableMap<K, V>(name, new ConcurrentHashMap<K, V>(), replicationManager);
+    }
+
     private HighlyAvailableMap(final String name, Map<K, V> wrappedMap, ReplicationManager<K, V> replicationManager) {
         this.loggerProlog = "[" + name + "]: ";
         this.localMap = wrappedMap;
+        this.concurrentLocalMap = wrappedMap instanceof ConcurrentMap;
         this.replicationManager = replicationManager;
     }
 
@@ -268,6 +290,10 @@ public final class HighlyAvailableMap<K extends Serializable, V> implements Map<
         @SuppressWarnings("unchecked")
         K _key = (K) key;
 
+        if (concurrentLocalMap && localMap.containsKey(_key)) {
+            return true;
+        }
+
         dataLock.readLock().lock();
         try {
             
@@ -293,6 +319,13 @@ public final class HighlyAvailableMap<K extends Serializable, V> implements Map<
         
         @SuppressWarnings("unchecked")
         K _key = (K) key;
+
+        if (concurrentLocalMap) {
+            V value = localMap.get(_key);
+            if (value != null) {
+                return value;
+            }
+        }
         
         dataLock.readLock().lock();
         try {
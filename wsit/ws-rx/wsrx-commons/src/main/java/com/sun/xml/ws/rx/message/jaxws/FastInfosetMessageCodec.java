@@ -0,0 +1,199 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.rx.message.jaxws;
+
+import com.sun.xml.fastinfoset.stax.StAXDocumentParser;
+import com.sun.xml.fastinfoset.stax.StAXDocumentSerializer;
+import com.sun.xml.fastinfoset.vocab.ParserVocabulary;
+import com.sun.xml.ws.api.message.Attachment;
+import com.sun.xml.ws.api.message.Message;
+import com.sun.xml.ws.api.message.Messages;
+import com.sun.xml.ws.message.ByteArrayAttachment;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import org.jvnet.fastinfoset.ExternalVocabulary;
+import org.jvnet.fastinfoset.Vocabulary;
+
+/**
+ * Compact binary message format. The encoded message has the following layout:
+ * <pre>
+ * byte      format version (0x01)
+ * int       length of the SOAP envelope
+ * byte[]    SOAP envelope as a Fast Infoset document
+ * int       number of attachments
+ * for each attachment:
+ *   boolean + UTF   content id (if present)
+ *   boolean + UTF   content type (if present)
+ *   int + byte[]    attachment data
+ * </pre>
+ * The envelope is encoded against an external vocabulary containing the SOAP, WS-Addressing
+ * and WS-RM names, so that these are written as small table indexes instead of literal strings.
+ * Attachments are kept out of the envelope as raw bytes rather than base64 encoded text.
+ */
+final class FastInfosetMessageCodec implements MessageCodec {
+
+    static final int FORMAT_VERSION = 0x01;
+    /**
+     * The content of the vocabulary is part of the persisted format; once data have been written
+     * with it, it must never change. Introduce a new vocabulary URI with a new format version instead.
+     */
+    private static final String VOCABULARY_URI = "urn:com.sun.xml.ws.rx:message-vocabulary:1";
+    private static final ExternalVocabulary SERIALIZER_VOCABULARY;
+    private static final Map<String, ParserVocabulary> PARSER_VOCABULARIES;
+
+    static {
+        Vocabulary vocabulary = createVocabulary();
+        SERIALIZER_VOCABULARY = new ExternalVocabulary(VOCABULARY_URI, vocabulary);
+        PARSER_VOCABULARIES = Collections.singletonMap(VOCABULARY_URI, new ParserVocabulary(vocabulary));
+    }
+
+    public int getFormatVersion() {
+        return FORMAT_VERSION;
+    }
+
+    public byte[] encode(Message message) throws XMLStreamException, IOException {
+        ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+        StAXDocumentSerializer serializer = new StAXDocumentSerializer(envelope);
+        serializer.setExternalVocabulary(SERIALIZER_VOCABULARY);
+        message.writeTo(serializer);
+        serializer.flush();
+
+        List<Attachment> attachments = new ArrayList<Attachment>();
+        for (Attachment attachment : message.getAttachments()) {
+            attachments.add(attachment);
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(envelope.size() + 16);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(FORMAT_VERSION);
+        out.writeInt(envelope.size());
+        envelope.writeTo(out);
+        out.writeInt(attachments.size());
+        for (Attachment attachment : attachments) {
+            writeOptionalString(out, attachment.getContentId());
+            writeOptionalString(out, attachment.getContentType());
+            byte[] data = attachment.asByteArray();
+            out.writeInt(data.length);
+            out.write(data);
+        }
+        out.flush();
+
+        return buffer.toByteArray();
+    }
+
+    public Message decode(InputStream data) throws XMLStreamException, IOException {
+        DataInputStream in = new DataInputStream(data);
+
+        byte[] envelope = new byte[in.readInt()];
+        in.readFully(envelope);
+        StAXDocumentParser parser = new StAXDocumentParser(new ByteArrayInputStream(envelope));
+        parser.setExternalVocabularies(PARSER_VOCABULARIES);
+        parser.setStringInterning(true);
+        Message message = Messages.create(parser);
+
+        int attachmentCount = in.readInt();
+        for (int i = 0; i < attachmentCount; i++) {
+            String contentId = readOptionalString(in);
+            String contentType = readOptionalString(in);
+            byte[] attachmentData = new byte[in.readInt()];
+            in.readFully(attachmentData);
+            message.getAttachments().add(new ByteArrayAttachment(contentId, attachmentData, contentType));
+        }
+
+        return message;
+    }
+
+    private static void writeOptionalString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readOptionalString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Vocabulary createVocabulary() {
+        Vocabulary vocabulary = new Vocabulary();
+
+        Collections.addAll(vocabulary.prefixes,
+                "S", "env", "soap", "soapenv", "wsa", "wsa5", "wsrm", "rm", "wsmc", "wsu", "xsi", "xsd");
+
+        Collections.addAll(vocabulary.namespaceNames,
+                "http://schemas.xmlsoap.org/soap/envelope/",
+                "http://www.w3.org/2003/05/soap-envelope",
+                "http://www.w3.org/2005/08/addressing",
+                "http://schemas.xmlsoap.org/ws/2004/08/addressing",
+                "http://schemas.xmlsoap.org/ws/2005/02/rm",
+                "http://docs.oasis-open.org/ws-rx/wsrm/200702",
+                "http://docs.oasis-open.org/ws-rx/wsmc/200702",
+                "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-utility-1.0.xsd",
+                "http://www.w3.org/2001/XMLSchema-instance",
+                "http://www.w3.org/2001/XMLSchema");
+
+        Collections.addAll(vocabulary.localNames,
+                // SOAP
+                "Envelope", "Header", "Body", "Fault", "mustUnderstand", "actor", "role", "relay",
+                "faultcode", "faultstring", "faultactor", "detail", "Code", "Value", "Subcode", "Reason", "Text", "Detail",
+                // WS-Addressing
+                "To", "From", "Action", "MessageID", "RelatesTo", "RelationshipType", "ReplyTo", "FaultTo",
+                "Address", "ReferenceParameters", "ReferenceProperties", "Metadata", "IsReferenceParameter",
+                // WS-ReliableMessaging and WS-MakeConnection
+                "Sequence", "Identifier", "MessageNumber", "LastMessage", "AckRequested", "SequenceAcknowledgement",
+                "AcknowledgementRange", "Upper", "Lower", "Nack", "None", "Final", "MessagePending", "pending",
+                // WS-Security utility
+                "Id");
+
+        return vocabulary;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.rx.message.jaxws;
+
+import com.sun.istack.NotNull;
+import com.sun.xml.ws.api.message.Message;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Converts JAX-WS messages into the byte form that is stored in the reliable messaging
+ * database and replicated across the cluster, and back.
+ * <p>
+ * Apart from the original XML form, every encoded message starts with a format version
+ * byte that identifies the codec able to read it again. See {@link MessageCodecs} for the
+ * available codecs and for the way the codec used for new messages is selected.
+ */
+public interface MessageCodec {
+
+    /**
+     * Returns the version byte written in front of every message encoded by this codec.
+     * Versioned formats must use values between {@code 0x01} and {@code 0x08}, which can
+     * never start an XML document, so that they can be told apart from the unversioned
+     * XML form. {@link MessageCodecs#UNVERSIONED} is returned by the XML codec only.
+     *
+     * @return format version byte of this codec
+     */
+    int getFormatVersion();
+
+    /**
+     * Encodes the message, including the leading format version byte (if any).
+     *
+     * @param message message to be encoded; the message is consumed by the call
+     * @return encoded message data
+     */
+    byte[] encode(@NotNull Message message) throws XMLStreamException, IOException;
+
+    /**
+     * Decodes a message. The format version byte has already been read from the stream.
+     *
+     * @param data encoded message data following the format version byte
+     * @return decoded message
+     */
+    Message decode(@NotNull InputStream data) throws XMLStreamException, IOException;
+}
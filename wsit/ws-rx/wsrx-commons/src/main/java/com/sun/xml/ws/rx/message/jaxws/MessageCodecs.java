@@ -0,0 +1,196 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.rx.message.jaxws;
+
+import com.sun.istack.NotNull;
+import com.sun.istack.logging.Logger;
+import com.sun.xml.ws.api.message.Message;
+import com.sun.xml.ws.commons.xmlutil.Converter;
+import com.sun.xml.ws.rx.localization.LocalizationMessages;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Registry of the {@link MessageCodec}s used to persist and replicate reliable messaging
+ * application messages.
+ * <p>
+ * New messages are encoded with the default codec, which is selected by the
+ * {@value #CODEC_PROPERTY} system property: {@code xml} (the default) keeps the original
+ * XML format, {@code fastinfoset} selects the compact binary format and any other value is
+ * taken as the class name of a custom {@link MessageCodec} implementation.
+ * <p>
+ * Decoding does not depend on the setting: the codec is chosen among the registered codecs
+ * by the format version byte at the beginning of the data, and data without a version byte
+ * are read as XML. Messages stored by older releases thus stay readable. The Fast Infoset
+ * codec is always registered, and a custom codec is registered once it is selected as the
+ * default one. Cluster members that only need to read the messages of a custom codec used
+ * by other members have to {@link #register(MessageCodec) register} it explicitly.
+ */
+public final class MessageCodecs {
+
+    private static final Logger LOGGER = Logger.getLogger(MessageCodecs.class);
+
+    public static final String CODEC_PROPERTY = "com.sun.xml.ws.rx.message.codec";
+    /**
+     * Format version of the original XML message format that carries no version byte
+     */
+    public static final int UNVERSIONED = -1;
+
+    public static final MessageCodec XML = new XmlMessageCodec();
+    public static final MessageCodec FAST_INFOSET = new FastInfosetMessageCodec();
+
+    private static final ConcurrentMap<Integer, MessageCodec> VERSIONED_CODECS = new ConcurrentHashMap<Integer, MessageCodec>();
+
+    static {
+        register(FAST_INFOSET);
+    }
+
+    private static volatile MessageCodec defaultCodec = resolve(System.getProperty(CODEC_PROPERTY));
+
+    private MessageCodecs() {
+    }
+
+    /**
+     * @return codec used to encode new messages
+     */
+    public static @NotNull MessageCodec getDefaultCodec() {
+        return defaultCodec;
+    }
+
+    /**
+     * Sets the codec used to encode new messages and registers it for decoding.
+     *
+     * @param codec new default codec
+     * @throws IllegalArgumentException if a different codec is registered for the same format version
+     */
+    public static void setDefaultCodec(@NotNull MessageCodec codec) {
+        assert codec != null;
+
+        register(codec);
+        defaultCodec = codec;
+    }
+
+    /**
+     * Registers the codec, so that data it encoded are decoded by {@link #decode(InputStream)}
+     * whether or not it is the default codec. Registering the XML codec has no effect.
+     *
+     * @param codec codec to register
+     * @throws IllegalArgumentException if a different codec is registered for the same format version
+     */
+    public static void register(@NotNull MessageCodec codec) {
+        assert codec != null;
+
+        final int version = codec.getFormatVersion();
+        if (version == UNVERSIONED) {
+            return;
+        }
+        final MessageCodec registered = VERSIONED_CODECS.putIfAbsent(version, codec);
+        if (registered != null && registered.getClass() != codec.getClass()) {
+            throw new IllegalArgumentException(LocalizationMessages.WSRX_1004_MESSAGE_CODEC_VERSION_CONFLICT(
+                    codec.getClass().getName(), version, registered.getClass().getName()));
+        }
+    }
+
+    /**
+     * Decodes message data produced by any of the known codecs.
+     *
+     * @param data encoded message data, including the format version byte (if any)
+     * @return decoded message
+     */
+    public static Message decode(@NotNull InputStream data) throws XMLStreamException, IOException {
+        PushbackInputStream in = new PushbackInputStream(data, 1);
+        int version = in.read();
+        MessageCodec codec = (version == -1) ? null : forVersion(version);
+        if (codec == null) {
+            if (version != -1) {
+                in.unread(version);
+            }
+            codec = XML;
+        }
+        return codec.decode(in);
+    }
+
+    /**
+     * Renders encoded message data as XML text for logging purposes.
+     *
+     * @param data encoded message data
+     * @return message data as text
+     */
+    public static String toString(byte[] data) {
+        if (data == null || data.length == 0 || forVersion(data[0] & 0xFF) == null) {
+            return Converter.messageDataToString(data, Converter.UTF_8);
+        }
+
+        try {
+            return Converter.messageDataToString(XML.encode(decode(new ByteArrayInputStream(data))), Converter.UTF_8);
+        } catch (Exception ex) {
+            return "[" + data.length + " bytes of undecodable message data, format version " + data[0] + "]";
+        }
+    }
+
+    private static MessageCodec forVersion(int version) {
+        return VERSIONED_CODECS.get(version);
+    }
+
+    private static MessageCodec resolve(String name) {
+        if (name == null || name.length() == 0 || "xml".equalsIgnoreCase(name)) {
+            return XML;
+        }
+        if ("fastinfoset".equalsIgnoreCase(name)) {
+            return FAST_INFOSET;
+        }
+
+        try {
+            MessageCodec codec = (MessageCodec) Class.forName(name).newInstance();
+            register(codec);
+            return codec;
+        } catch (Exception ex) {
+            LOGGER.warning(LocalizationMessages.WSRX_1003_UNABLE_TO_LOAD_MESSAGE_CODEC(name), ex);
+            return XML;
+        }
+    }
+}
@@ -45,9 +45,9 @@ import com.sun.istack.Nullable;
 import com.sun.istack.logging.Logger;
 import com.sun.xml.ws.api.message.Message;
 import com.sun.xml.ws.api.message.Packet;
-import com.sun.xml.ws.commons.xmlutil.Converter;
 import com.sun.xml.ws.rx.RxRuntimeException;
 import com.sun.xml.ws.rx.localization.LocalizationMessages;
+import java.io.IOException;
 import java.io.InputStream;
 import javax.xml.stream.XMLStreamException;
 
@@ -94,20 +94,33 @@ public final class SerializableMessage {
         return wsaAction;
     }
 
+    /**
+     * Encodes a copy of the message using the {@link MessageCodecs#getDefaultCodec() default message codec}.
+     *
+     * @return encoded message data
+     */
     public byte[] toBytes() {
         try {
-            return Converter.toBytes(message.copy(), Converter.UTF_8);
+            return MessageCodecs.getDefaultCodec().encode(message.copy());
         } catch (XMLStreamException ex) {
             throw LOGGER.logSevereException(new RxRuntimeException(LocalizationMessages.WSRX_1001_UNABLE_TO_SERIALIZE_MSG_TO_XML_STREAM(), ex));
+        } catch (IOException ex) {
+            throw LOGGER.logSevereException(new RxRuntimeException(LocalizationMessages.WSRX_1001_UNABLE_TO_SERIALIZE_MSG_TO_XML_STREAM(), ex));
         }
     }
 
+    /**
+     * Rebuilds a message from data produced by {@link #toBytes()}, regardless of the message codec
+     * that was used to encode them.
+     */
     public static SerializableMessage newInstance(@NotNull InputStream dataStream, String wsaAction) {
         Message m;
         try {
-            m = Converter.toMessage(dataStream, Converter.UTF_8);
+            m = MessageCodecs.decode(dataStream);
         } catch (XMLStreamException ex) {
             throw LOGGER.logSevereException(new RxRuntimeException(LocalizationMessages.WSRX_1002_UNABLE_TO_DESERIALIZE_MSG_FROM_XML_STREAM(), ex));
+        } catch (IOException ex) {
+            throw LOGGER.logSevereException(new RxRuntimeException(LocalizationMessages.WSRX_1002_UNABLE_TO_DESERIALIZE_MSG_FROM_XML_STREAM(), ex));
         }
         return new SerializableMessage(m, wsaAction);
     }
@@ -43,17 +43,26 @@ package com.sun.xml.ws.rx.util;
 import com.sun.istack.NotNull;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.PriorityQueue;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * TODO javadoc
+ * Collection of time-stamped registrations that can be looked up by an optional correlation
+ * identifier and removed in the order of their age.
+ * <p>
+ * The collection does not lock. Registrations are kept in a skip list ordered by timestamp,
+ * which makes removal of the oldest registration as well as removal of any registration by its
+ * correlation identifier a logarithmic operation, and the correlation identifiers are mapped to
+ * registrations by a concurrent hash map. Each registration is handed out at most once: when
+ * {@link #remove(java.lang.Object)}, {@link #removeOldest()} or a replacing
+ * {@link #register(java.lang.Object, java.lang.Object)} race for the same registration, only one
+ * of them returns its value.
  *
  * <b>
  * WARNING: This class is a private utility class used by WS-RX implementation. Any usage outside
@@ -73,31 +82,57 @@ public class TimestampedCollection<K, V> {
     private static class TimestampedRegistration<K, V> implements Comparable<TimestampedRegistration<K,V>> {
 
         private final long timestamp;
+        /**
+         * Registration order, breaks ties between registrations with the same timestamp
+         */
+        private final long sequence;
         private final K key;
         private final @NotNull V value;
+        private final AtomicBoolean removed = new AtomicBoolean(false);
 
-        public TimestampedRegistration(long timestamp, K key, @NotNull V value) {
+        public TimestampedRegistration(long timestamp, long sequence, K key, @NotNull V value) {
             this.timestamp = timestamp;
+            this.sequence = sequence;
             this.key = key;
             this.value = value;
         }
 
+        /**
+         * Claims the registration for the caller that is going to return its value.
+         *
+         * @return {@code true} if the registration has not been claimed before
+         */
+        boolean claim() {
+            return removed.compareAndSet(false, true);
+        }
+
+        boolean isRemoved() {
+            return removed.get();
+        }
+
         public int compareTo(TimestampedRegistration<K, V> other) {
-            return this.timestamp < other.timestamp ? -1 : this.timestamp == other.timestamp ? 0 : 1;
+            if (this.timestamp != other.timestamp) {
+                return this.timestamp < other.timestamp ? -1 : 1;
+            }
+            return this.sequence < other.sequence ? -1 : this.sequence == other.sequence ? 0 : 1;
         }
     }
     /**
-     * Primary registration collection
+     * Primary registration collection ordered by age
      */
-    private final PriorityQueue<TimestampedRegistration<K, V>> timestampedPriorityQueue = new PriorityQueue<TimestampedRegistration<K, V>>();
+    private final ConcurrentSkipListSet<TimestampedRegistration<K, V>> timestampedQueue = new ConcurrentSkipListSet<TimestampedRegistration<K, V>>();
     /**
      * Correlation key to registration mapping, may contain fewer elements than the whole collection.
      */
-    private final Map<K, TimestampedRegistration<K, V>> correlationMap = new HashMap<K, TimestampedRegistration<K, V>>();
+    private final ConcurrentMap<K, TimestampedRegistration<K, V>> correlationMap = new ConcurrentHashMap<K, TimestampedRegistration<K, V>>();
     /**
-     * Data access lock
+     * Source of registration order numbers
      */
-    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+    private final AtomicLong registrationCounter = new AtomicLong();
+    /**
+     * Number of registrations that have not been claimed yet
+     */
+    private final AtomicInteger size = new AtomicInteger();
 
     TimestampedCollection() { 
         // package private constructor - only classes in this package can extend this class
@@ -118,21 +153,18 @@ public class TimestampedCollection<K, V> {
      * @see #removeOldest()
      */
     public V register(@NotNull K correlationId, @NotNull V subject) {
-        try {
-            TimestampedRegistration<K, V> tr = new TimestampedRegistration<K, V>(System.currentTimeMillis(), correlationId, subject);
-            rwLock.writeLock().lock();
-            
-            timestampedPriorityQueue.offer(tr);
-            TimestampedRegistration<K, V> oldTr = correlationMap.put(tr.key, tr);
-            if (oldTr != null) {
-                removeFromQueue(oldTr);
-                return oldTr.value;
-            }
+        TimestampedRegistration<K, V> tr = add(System.currentTimeMillis(), correlationId, subject);
 
-            return null;
-        } finally {
-            rwLock.writeLock().unlock();
+        TimestampedRegistration<K, V> oldTr = correlationMap.put(correlationId, tr);
+        if (tr.isRemoved()) {
+            // removed as the oldest registration before it got mapped
+            correlationMap.remove(correlationId, tr);
         }
+        if (oldTr != null && claim(oldTr)) {
+            return oldTr.value;
+        }
+
+        return null;
     }
 
     /**
@@ -164,15 +196,9 @@ public class TimestampedCollection<K, V> {
      * @see #removeOldest()
      */
     public boolean register(long timestamp, @NotNull V subject) {
-        try {
-            TimestampedRegistration<K, V> tr = new TimestampedRegistration<K, V>(timestamp, null, subject);
-            rwLock.writeLock().lock();
-
-            return timestampedPriorityQueue.offer(tr);
-            // we don't put anything into correlationMap
-        } finally {
-            rwLock.writeLock().unlock();
-        }
+        add(timestamp, null, subject);
+        // we don't put anything into correlationMap
+        return true;
     }
     /**
      * Removes a registration from the collection based on a {@code correlationId} and returns
@@ -186,18 +212,12 @@ public class TimestampedCollection<K, V> {
      * @see #register(java.lang.Object, java.lang.Object) 
      */
     public V remove(@NotNull K correlationId) {
-        try {
-            rwLock.writeLock().lock();
-            TimestampedRegistration<K, V> tr = correlationMap.remove(correlationId);
-            if (tr == null) {
-                return null;
-            }
-            removeFromQueue(tr);
-
-            return tr.value;
-        } finally {
-            rwLock.writeLock().unlock();
+        TimestampedRegistration<K, V> tr = correlationMap.remove(correlationId);
+        if (tr == null || !claim(tr)) {
+            return null;
         }
+
+        return tr.value;
     }
 
     /**
@@ -213,48 +233,44 @@ public class TimestampedCollection<K, V> {
      * @see #register(long, java.lang.Object) 
      */
     public V removeOldest() {
-        try {
-            rwLock.writeLock().lock();
-            TimestampedRegistration<K, V> tr = timestampedPriorityQueue.poll();
-            try {
+        TimestampedRegistration<K, V> tr;
+        while ((tr = timestampedQueue.pollFirst()) != null) {
+            if (tr.claim()) {
+                size.decrementAndGet();
                 if (tr.key != null) {
-                    correlationMap.remove(tr.key);
+                    correlationMap.remove(tr.key, tr);
                 }
                 return tr.value;
-            } catch (NullPointerException cause) {
-                NoSuchElementException ex = new NoSuchElementException("The underlying collection is empty.");
-                ex.initCause(cause);
-                throw ex;
             }
-        } finally {
-            rwLock.writeLock().unlock();
+            // claimed by a concurrent removal that has not taken it off the queue yet
         }
+
+        throw new NoSuchElementException("The underlying collection is empty.");
     }
 
     /**
      * Removes all values from the time-stamped collection and returns them as an ordered FIFO 
-     * list.
+     * list. Values registered while this method runs may or may not be included.
      *
      * @return ordered FIFO list of the removed values. Returns empty list in case there are no
      *         values stored in the collection.
      */
     public List<V> removeAll() {
-        try {
-            rwLock.writeLock().lock();
-            if (timestampedPriorityQueue.isEmpty()) {
-                return Collections.emptyList();
-            }
-
-            List<V> values = new ArrayList<V>(timestampedPriorityQueue.size());
+        if (isEmpty()) {
+            return Collections.emptyList();
+        }
 
-            while (!timestampedPriorityQueue.isEmpty()) {
+        List<V> values = new ArrayList<V>(size());
+        while (!isEmpty()) {
+            try {
                 values.add(removeOldest());
+            } catch (NoSuchElementException emptied) {
+                // the remaining values have been removed concurrently
+                break;
             }
-
-            return values;
-        } finally {
-            rwLock.writeLock().unlock();
         }
+
+        return values;
     }
 
     /**
@@ -263,12 +279,8 @@ public class TimestampedCollection<K, V> {
      * @return {@code true} if the collection is empty, {@code false} otherwise
      */
     public boolean isEmpty() {
-        try {
-            rwLock.readLock().lock();            
-            return timestampedPriorityQueue.isEmpty();
-        } finally {
-            rwLock.readLock().unlock();
-        }
+        // a registration claimed before its addition got counted makes the counter negative for a moment
+        return size.get() <= 0;
     }
 
     /**
@@ -279,12 +291,7 @@ public class TimestampedCollection<K, V> {
      * @return the number of elements in this collection.
      */
     public int size() {
-        try {
-            rwLock.readLock().lock();
-            return timestampedPriorityQueue.size();
-        } finally {
-            rwLock.readLock().unlock();
-        }
+        return Math.max(size.get(), 0);
     }
 
     /**
@@ -297,28 +304,29 @@ public class TimestampedCollection<K, V> {
      * @see #removeOldest()
      */
     public long getOldestRegistrationTimestamp() {
-        try {
-            rwLock.readLock().lock();
-            try {
-                return timestampedPriorityQueue.peek().timestamp;
-            } catch (NullPointerException cause) {
-                NoSuchElementException ex = new NoSuchElementException("The underlying collection is empty.");
-                ex.initCause(cause);
-                throw ex;
+        for (TimestampedRegistration<K, V> tr : timestampedQueue) {
+            if (!tr.isRemoved()) {
+                return tr.timestamp;
             }
-        } finally {
-            rwLock.readLock().unlock();
         }
+
+        throw new NoSuchElementException("The underlying collection is empty.");
     }
 
-    private void removeFromQueue(TimestampedRegistration<K, V> tr) {
-        Iterator<TimestampedRegistration<K, V>> it = timestampedPriorityQueue.iterator();
-        while (it.hasNext()) {
-            if (it.next() == tr) {
-                // this must be the same instance
-                it.remove();
-                break;
-            }
+    private TimestampedRegistration<K, V> add(long timestamp, K key, V value) {
+        TimestampedRegistration<K, V> tr = new TimestampedRegistration<K, V>(timestamp, registrationCounter.incrementAndGet(), key, value);
+        timestampedQueue.add(tr);
+        size.incrementAndGet();
+        return tr;
+    }
+
+    private boolean claim(TimestampedRegistration<K, V> tr) {
+        if (!tr.claim()) {
+            return false;
         }
+
+        size.decrementAndGet();
+        timestampedQueue.remove(tr);
+        return true;
     }
 }
@@ -0,0 +1,183 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.rx.message.jaxws;
+
+import com.sun.xml.ws.api.message.Attachment;
+import com.sun.xml.ws.api.message.Message;
+import com.sun.xml.ws.message.ByteArrayAttachment;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import javax.xml.stream.XMLStreamException;
+import junit.framework.TestCase;
+
+/**
+ * Tests that messages survive a round trip through the message codecs and that data stored
+ * in the original, unversioned XML format remain readable.
+ */
+public class MessageCodecsTest extends TestCase {
+
+    private static final String ENVELOPE =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<S:Envelope xmlns:S=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+            + "<S:Header>"
+            + "<To xmlns=\"http://www.w3.org/2005/08/addressing\">http://localhost:8080/echo</To>"
+            + "<Action xmlns=\"http://www.w3.org/2005/08/addressing\">urn:echo</Action>"
+            + "<MessageID xmlns=\"http://www.w3.org/2005/08/addressing\">uuid:0a6f3a1e-7c0f-4f4e-9c4b-1d2f3e4a5b6c</MessageID>"
+            + "<wsrm:Sequence xmlns:wsrm=\"http://docs.oasis-open.org/ws-rx/wsrm/200702\" S:mustUnderstand=\"1\">"
+            + "<wsrm:Identifier>uuid:5b2c7e1d-3a4f-4b6c-8d9e-0f1a2b3c4d5e</wsrm:Identifier>"
+            + "<wsrm:MessageNumber>42</wsrm:MessageNumber>"
+            + "</wsrm:Sequence>"
+            + "</S:Header>"
+            + "<S:Body><echo xmlns=\"urn:test\"><text>Hello reliable world</text></echo></S:Body>"
+            + "</S:Envelope>";
+
+    public MessageCodecsTest(String testName) {
+        super(testName);
+    }
+
+    public void testFastInfosetRoundTrip() throws Exception {
+        byte[] data = MessageCodecs.FAST_INFOSET.encode(createMessage());
+
+        assertEquals(FastInfosetMessageCodec.FORMAT_VERSION, data[0]);
+
+        Message decoded = MessageCodecs.decode(new ByteArrayInputStream(data));
+        assertEquals(toXml(createMessage()), toXml(decoded));
+    }
+
+    public void testFastInfosetIsSmallerThanXml() throws Exception {
+        byte[] xml = MessageCodecs.XML.encode(createMessage());
+        byte[] fastInfoset = MessageCodecs.FAST_INFOSET.encode(createMessage());
+
+        assertTrue(fastInfoset.length < xml.length);
+    }
+
+    public void testFastInfosetPreservesAttachments() throws Exception {
+        byte[] content = new byte[] {0, 1, 2, (byte) 0xFF};
+        Message message = createMessage();
+        message.getAttachments().add(new ByteArrayAttachment("part1@example.org", content, "application/octet-stream"));
+
+        Message decoded = MessageCodecs.decode(new ByteArrayInputStream(MessageCodecs.FAST_INFOSET.encode(message)));
+
+        Attachment attachment = decoded.getAttachments().get("part1@example.org");
+        assertNotNull(attachment);
+        assertEquals("application/octet-stream", attachment.getContentType());
+        assertTrue(Arrays.equals(content, attachment.asByteArray()));
+    }
+
+    public void testUnversionedXmlDataRemainReadable() throws Exception {
+        Message decoded = MessageCodecs.decode(new ByteArrayInputStream(ENVELOPE.getBytes("UTF-8")));
+
+        assertEquals("echo", decoded.getPayloadLocalPart());
+        assertEquals(toXml(createMessage()), toXml(decoded));
+    }
+
+    public void testSerializableMessageUsesDefaultCodec() throws Exception {
+        MessageCodec original = MessageCodecs.getDefaultCodec();
+        try {
+            MessageCodecs.setDefaultCodec(MessageCodecs.FAST_INFOSET);
+            byte[] data = new SerializableMessage(createMessage(), "urn:echo").toBytes();
+            assertEquals(FastInfosetMessageCodec.FORMAT_VERSION, data[0]);
+
+            MessageCodecs.setDefaultCodec(MessageCodecs.XML);
+            SerializableMessage rebuilt = SerializableMessage.newInstance(new ByteArrayInputStream(data), "urn:echo");
+            assertEquals(toXml(createMessage()), toXml(rebuilt.getMessage()));
+        } finally {
+            MessageCodecs.setDefaultCodec(original);
+        }
+    }
+
+    public void testRegisteredCustomCodecIsReadableWhenNotDefault() throws Exception {
+        MessageCodecs.register(new CustomCodec());
+        assertNotSame(CustomCodec.class, MessageCodecs.getDefaultCodec().getClass());
+
+        byte[] data = new CustomCodec().encode(createMessage());
+        assertEquals(CustomCodec.FORMAT_VERSION, data[0]);
+        assertEquals(toXml(createMessage()), toXml(MessageCodecs.decode(new ByteArrayInputStream(data))));
+    }
+
+    public void testConflictingFormatVersionIsRejected() throws Exception {
+        try {
+            MessageCodecs.register(new CustomCodec() {
+                @Override
+                public int getFormatVersion() {
+                    return FastInfosetMessageCodec.FORMAT_VERSION;
+                }
+            });
+            fail("codec taking the Fast Infoset format version was registered");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static Message createMessage() throws Exception {
+        return MessageCodecs.XML.decode(new ByteArrayInputStream(ENVELOPE.getBytes("UTF-8")));
+    }
+
+    private static String toXml(Message message) throws Exception {
+        return new String(MessageCodecs.XML.encode(message), "UTF-8");
+    }
+
+    /**
+     * XML form behind a version byte of its own
+     */
+    private static class CustomCodec implements MessageCodec {
+
+        static final int FORMAT_VERSION = 0x07;
+
+        public int getFormatVersion() {
+            return FORMAT_VERSION;
+        }
+
+        public byte[] encode(Message message) throws XMLStreamException, IOException {
+            byte[] xml = MessageCodecs.XML.encode(message);
+            byte[] data = new byte[xml.length + 1];
+            data[0] = (byte) getFormatVersion();
+            System.arraycopy(xml, 0, data, 1, xml.length);
+            return data;
+        }
+
+        public Message decode(InputStream data) throws XMLStreamException, IOException {
+            return MessageCodecs.XML.decode(data);
+        }
+    }
+}
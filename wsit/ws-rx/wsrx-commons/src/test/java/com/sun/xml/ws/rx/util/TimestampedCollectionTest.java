@@ -0,0 +1,193 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.rx.util;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/**
+ * Tests ordering and correlation of registrations in {@link TimestampedCollection} and
+ * that concurrent removals hand out every registered value exactly once.
+ */
+public class TimestampedCollectionTest extends TestCase {
+
+    private final TimestampedCollection<String, Integer> collection = TimestampedCollection.newInstance();
+
+    public TimestampedCollectionTest(String testName) {
+        super(testName);
+    }
+
+    public void testRemoveOldestFollowsTimestampAndRegistrationOrder() {
+        collection.register(30L, 3);
+        collection.register(10L, 1);
+        collection.register(20L, 2);
+        collection.register(10L, 11);
+
+        assertEquals(4, collection.size());
+        assertEquals(10L, collection.getOldestRegistrationTimestamp());
+        assertEquals(Integer.valueOf(1), collection.removeOldest());
+        assertEquals(Integer.valueOf(11), collection.removeOldest());
+        assertEquals(20L, collection.getOldestRegistrationTimestamp());
+        assertEquals(Arrays.asList(2, 3), collection.removeAll());
+        assertTrue(collection.isEmpty());
+    }
+
+    public void testRemoveByCorrelationId() {
+        collection.register("a", 1);
+        collection.register("b", 2);
+        collection.register(3);
+
+        assertEquals(Integer.valueOf(2), collection.remove("b"));
+        assertNull(collection.remove("b"));
+        assertNull(collection.remove("unknown"));
+        assertEquals(2, collection.size());
+
+        assertEquals(Integer.valueOf(1), collection.removeOldest());
+        assertNull("removed as the oldest registration", collection.remove("a"));
+        assertEquals(Integer.valueOf(3), collection.removeOldest());
+        assertTrue(collection.isEmpty());
+    }
+
+    public void testRegisterReplacesCorrelatedRegistration() {
+        assertNull(collection.register("a", 1));
+        assertEquals(Integer.valueOf(1), collection.register("a", 2));
+
+        assertEquals(1, collection.size());
+        assertEquals(Integer.valueOf(2), collection.remove("a"));
+        assertTrue(collection.isEmpty());
+    }
+
+    public void testEmptyCollection() {
+        assertTrue(collection.isEmpty());
+        assertEquals(0, collection.size());
+        assertTrue(collection.removeAll().isEmpty());
+        try {
+            collection.removeOldest();
+            fail("NoSuchElementException expected");
+        } catch (NoSuchElementException expected) {
+            // ok
+        }
+        try {
+            collection.getOldestRegistrationTimestamp();
+            fail("NoSuchElementException expected");
+        } catch (NoSuchElementException expected) {
+            // ok
+        }
+    }
+
+    public void testConcurrentRemovalsHandOutEachValueOnce() throws Exception {
+        final int threads = 4;
+        final int registrationsPerThread = 20000;
+        final Set<Integer> handedOut = ConcurrentHashMap.<Integer>newKeySet();
+        final AtomicInteger duplicates = new AtomicInteger();
+        final AtomicBoolean correlating = new AtomicBoolean(true);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < registrationsPerThread; i++) {
+                            final int value = thread * registrationsPerThread + i;
+                            final String correlationId = String.valueOf(value % 64 == 0 ? thread : value);
+                            Integer replaced = collection.register(correlationId, value);
+                            if (replaced != null && !handedOut.add(replaced)) {
+                                duplicates.incrementAndGet();
+                            }
+                            if (i % 3 != 0) {
+                                Integer removed = collection.remove(correlationId);
+                                if (removed != null && !handedOut.add(removed)) {
+                                    duplicates.incrementAndGet();
+                                }
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        Thread sweeper = new Thread() {
+            @Override
+            public void run() {
+                while (correlating.get()) {
+                    try {
+                        Integer removed = collection.removeOldest();
+                        if (!handedOut.add(removed)) {
+                            duplicates.incrementAndGet();
+                        }
+                    } catch (NoSuchElementException empty) {
+                        Thread.yield();
+                    }
+                }
+            }
+        };
+        sweeper.start();
+        start.countDown();
+        done.await();
+        correlating.set(false);
+        sweeper.join();
+
+        for (Integer value : collection.removeAll()) {
+            if (!handedOut.add(value)) {
+                duplicates.incrementAndGet();
+            }
+        }
+
+        assertEquals(0, duplicates.get());
+        assertEquals(threads * registrationsPerThread, handedOut.size());
+        assertTrue(collection.isEmpty());
+    }
+}
@@ -75,8 +75,14 @@ public class Exc14nCanonicalizer extends TransformService {
             LogDomainConstants.IMPL_OPT_SIGNATURE_DOMAIN_BUNDLE);
     
     
-    StAXEXC14nCanonicalizerImpl _canonicalizer = new StAXEXC14nCanonicalizerImpl();
-    UnsyncByteArrayOutputStream baos = new UnsyncByteArrayOutputStream();
+    /**
+     * Canonicalizer reused by the transforms running on a thread. A transform
+     * started while the thread's instance is in use, e.g. one triggered from
+     * within the data being canonicalized, gets one of its own.
+     */
+    private static final ThreadLocal<StAXEXC14nCanonicalizerImpl> pooledCanonicalizer =
+            new ThreadLocal<StAXEXC14nCanonicalizerImpl>();
+    
     TransformParameterSpec _transformParameterSpec;
     /** Creates a new instance of Exc14nCanonicalizer */
     public Exc14nCanonicalizer() {
@@ -96,45 +102,47 @@ public class Exc14nCanonicalizer extends TransformService {
         return _transformParameterSpec;
     }
     
+    static StAXEXC14nCanonicalizerImpl acquireCanonicalizer(OutputStream stream){
+        StAXEXC14nCanonicalizerImpl canonicalizer = pooledCanonicalizer.get();
+        if(canonicalizer == null){
+            canonicalizer = new StAXEXC14nCanonicalizerImpl();
+        }else{
+            pooledCanonicalizer.set(null);
+        }
+        canonicalizer.reset();
+        canonicalizer.setStream(stream);
+        return canonicalizer;
+    }
+    
+    static void releaseCanonicalizer(StAXEXC14nCanonicalizerImpl canonicalizer){
+        canonicalizer.setStream(null);
+        canonicalizer.setInclusivePrefixList(null);
+        canonicalizer.forceDefaultNS(false);
+        pooledCanonicalizer.set(canonicalizer);
+    }
+    
     public Data transform(Data data, XMLCryptoContext xMLCryptoContext) throws TransformException {
-        _canonicalizer.setStream(baos);
-        _canonicalizer.reset();
-        
-        if(data instanceof StreamWriterData ){
-            StreamWriterData swd = (StreamWriterData)data;
-            NamespaceContextEx nc  = swd.getNamespaceContext();
-            Iterator<NamespaceContextEx.Binding> itr = nc.iterator();
-            
-            while(itr.hasNext()){
-                final NamespaceContextEx.Binding nd = itr.next();
-                try {
-                    _canonicalizer.writeNamespace(nd.getPrefix(),nd.getNamespaceURI());
-                } catch (XMLStreamException ex) {
-                    throw new TransformException(ex);
-                }
-            }
-            try {
-                ExcC14NParameterSpec spec = (ExcC14NParameterSpec)_transformParameterSpec;
-                if(spec != null){
-                    _canonicalizer.setInclusivePrefixList(spec.getPrefixList());
-                }
-                swd.write(_canonicalizer);
-                _canonicalizer.flush();
-            } catch (XMLStreamException ex) {
-                logger.log(Level.SEVERE, LogStringsMessages.WSS_1759_TRANSFORM_ERROR(ex.getMessage()),ex);
-                throw new TransformException(ex);
-            }
-            
-            
-            return new OctetStreamData(new ByteArrayInputStream(baos.getBytes(),0,baos.getLength()));
+        UnsyncByteArrayOutputStream baos = new UnsyncByteArrayOutputStream();
+        StAXEXC14nCanonicalizerImpl _canonicalizer = acquireCanonicalizer(baos);
+        try{
+            canonicalize(data, _canonicalizer);
+        }finally{
+            releaseCanonicalizer(_canonicalizer);
         }
-        throw new UnsupportedOperationException("Data type"+data+" not yet supported");
+        return new OctetStreamData(new ByteArrayInputStream(baos.getBytes(),0,baos.getLength()));
     }
     
     public Data transform(Data data, XMLCryptoContext xMLCryptoContext, OutputStream outputStream) throws TransformException {
-        _canonicalizer.setStream(outputStream);
-        _canonicalizer.reset();
-        
+        StAXEXC14nCanonicalizerImpl _canonicalizer = acquireCanonicalizer(outputStream);
+        try{
+            canonicalize(data, _canonicalizer);
+        }finally{
+            releaseCanonicalizer(_canonicalizer);
+        }
+        return null;
+    }
+    
+    private void canonicalize(Data data, StAXEXC14nCanonicalizerImpl _canonicalizer) throws TransformException {
         if(data instanceof StreamWriterData){
             StreamWriterData swd = (StreamWriterData)data;
             NamespaceContextEx nc  = swd.getNamespaceContext();
@@ -145,7 +153,6 @@ public class Exc14nCanonicalizer extends TransformService {
                 try {
                     _canonicalizer.writeNamespace(nd.getPrefix(),nd.getNamespaceURI());
                 } catch (XMLStreamException ex) {
-                    logger.log(Level.SEVERE, LogStringsMessages.WSS_1759_TRANSFORM_ERROR(ex.getMessage()),ex);
                     throw new TransformException(ex);
                 }
             }
@@ -161,7 +168,7 @@ public class Exc14nCanonicalizer extends TransformService {
                 throw new TransformException(ex);
             }
             
-            return null;
+            return;
         }else if(data instanceof JAXBData){
             JAXBData jd =(JAXBData)data;
             NamespaceContextEx nc  = jd.getNamespaceContext();
@@ -191,7 +198,7 @@ public class Exc14nCanonicalizer extends TransformService {
                 throw new TransformException(ex);
             }
             
-            return null;
+            return;
         }
         throw new UnsupportedOperationException("Data type "+data+" not yet supported");
     }
@@ -139,11 +139,10 @@ public class Transform extends com.sun.xml.security.core.dsig.TransformType impl
                     CanonicalizationMethod cm = (CanonicalizationMethod) tp.getAny().get(0);
                     String algo = cm.getAlgorithm();
                     if(javax.xml.crypto.dsig.CanonicalizationMethod.EXCLUSIVE.equals(algo)){
-                        _canonicalizer = new StAXEXC14nCanonicalizerImpl();
                         if (!logger.isLoggable(Level.FINEST)){
-                            _canonicalizer.setStream(outputStream);
+                            _canonicalizer = Exc14nCanonicalizer.acquireCanonicalizer(outputStream);
                         }else{
-                            _canonicalizer.setStream(fis);
+                            _canonicalizer = Exc14nCanonicalizer.acquireCanonicalizer(fis);
                         }
                     }
                 }
@@ -154,6 +153,10 @@ public class Transform extends com.sun.xml.security.core.dsig.TransformType impl
                 strWriter.write(_canonicalizer);
             }catch(XMLStreamException ex){
                 throw new TransformException(ex);
+            }finally{
+                if(_canonicalizer != null){
+                    Exc14nCanonicalizer.releaseCanonicalizer(_canonicalizer);
+                }
             }
             
             if (logger.isLoggable(Level.FINEST)){                
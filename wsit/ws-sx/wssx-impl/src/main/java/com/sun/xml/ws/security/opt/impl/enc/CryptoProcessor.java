@@ -49,6 +49,7 @@ import com.sun.xml.wss.impl.c14n.StAXEXC14nCanonicalizerImpl;
 import com.sun.xml.wss.logging.LogDomainConstants;
 import com.sun.xml.wss.logging.impl.opt.crypto.LogStringsMessages;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -65,6 +66,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.KeyGenerator;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import com.sun.xml.ws.security.opt.crypto.JAXBData;
@@ -98,6 +100,7 @@ public class CryptoProcessor {
     private byte[] ed = null;
     private IvParameterSpec ivSpec = null;
     private byte[] encryptedDataCV = null;
+    private int encryptedDataCVLength = 0;
     
     public CryptoProcessor(){}
     /** Creates a new instance of EncryptionProcessor */
@@ -223,6 +226,21 @@ public class CryptoProcessor {
     
     public void setEncryptedDataCV(byte [] cv){
         encryptedDataCV = cv;
+        encryptedDataCVLength = (cv != null) ? cv.length : 0;
+    }
+
+    /**
+     * encrypts the data once and keeps the cipher value, so that the same bytes
+     * can be canonicalized for the signature and later written to the transport.
+     * The buffer the cipher output was written into is retained as is, avoiding
+     * a second copy of the whole payload.
+     * @throws IOException
+     */
+    public void computeEncryptedDataCV() throws IOException{
+        CipherValueStream cvs = new CipherValueStream();
+        encryptData(cvs);
+        encryptedDataCV = cvs.getBuffer();
+        encryptedDataCVLength = cvs.size();
     }
     
     /**
@@ -236,11 +254,16 @@ public class CryptoProcessor {
                 initCipher();    
             }
             
-            byte[] cipherOutput = cipher.doFinal(cipherInput);
+            // IV and cipher output go into a single array, no intermediate copy
             byte[] iv = cipher.getIV();
-            byte[] encryptedBytes = new byte[iv.length + cipherOutput.length];
+            byte[] encryptedBytes = new byte[iv.length + cipher.getOutputSize(cipherInput.length)];
             System.arraycopy(iv, 0, encryptedBytes, 0, iv.length);
-            System.arraycopy(cipherOutput, 0, encryptedBytes, iv.length, cipherOutput.length);
+            int len = iv.length + cipher.doFinal(cipherInput, 0, cipherInput.length, encryptedBytes, iv.length);
+            if(len < encryptedBytes.length){
+                byte[] trimmed = new byte[len];
+                System.arraycopy(encryptedBytes, 0, trimmed, 0, len);
+                return trimmed;
+            }
             return encryptedBytes;
         } catch (NoSuchAlgorithmException ex) {
             logger.log(Level.SEVERE, LogStringsMessages.WSS_1909_UNSUPPORTED_DATAENCRYPTION_ALGORITHM(getAlgorithm()), ex);
@@ -257,6 +280,9 @@ public class CryptoProcessor {
         } catch (BadPaddingException bpe) {
             logger.log(Level.SEVERE, LogStringsMessages.WSS_1915_INVALID_ALGORITHM_PARAMETERS(getAlgorithm()), bpe);
             throw new XWSSecurityRuntimeException(bpe);
+        } catch (ShortBufferException sbe) {
+            logger.log(Level.SEVERE, LogStringsMessages.WSS_1915_INVALID_ALGORITHM_PARAMETERS(getAlgorithm()), sbe);
+            throw new XWSSecurityRuntimeException(sbe);
         }
     }
     /**
@@ -268,7 +294,7 @@ public class CryptoProcessor {
         try{
             OutputStreamWrapper outputStream = new OutputStreamWrapper(eos);
             if(encryptedDataCV != null){
-                outputStream.write(encryptedDataCV);
+                outputStream.write(encryptedDataCV, 0, encryptedDataCVLength);
                 return;
             }
             //  Thread.dumpStack();
@@ -278,12 +304,17 @@ public class CryptoProcessor {
             //Base64OutputStream bos = new Base64OutputStream(outputStream);
             //TODO :: Wrap outputstream with base64 encoder
             CipherOutputStream cos = new CipherOutputStream(outputStream,cipher);
-            //BufferedStreamWriter bsw = new BufferedStreamWriter(cos);
+            // the canonicalizer emits many small writes, each of which would cost a
+            // Cipher.update call and a fresh output array, so feed the cipher in blocks.
+            // A private buffer is used on purpose: xmlsec's UnsyncBufferedOutputStream
+            // shares one buffer per thread, and a digest stream of the enclosing
+            // signature is already using it while the cipher value is computed
+            OutputStream bos = new BufferedOutputStream(cos);
             byte [] iv = cipher.getIV();
             outputStream.write(iv);
             outputStream.flush();
             if(data instanceof JAXBData){
-                ((JAXBData)data).writeTo(cos);// write in chucks
+                ((JAXBData)data).writeTo(bos);// write in chucks
             }else if(data instanceof StreamWriterData){
                 StAXC14nCanonicalizerImpl exc14n = new StAXEXC14nCanonicalizerImpl();
                 //((StAXEXC14nCanonicalizerImpl)exc14n).setInclusivePrefixList(new ArrayList());
@@ -296,21 +327,21 @@ public class CryptoProcessor {
                 if(logger.isLoggable(Level.FINEST)){
                     exc14n.setStream(new ByteArrayOutputStream());
                 }else{
-                    exc14n.setStream(cos);
+                    exc14n.setStream(bos);
                 }
                 try {
                     ((StreamWriterData)data).write(exc14n);
                     if(logger.isLoggable(Level.FINEST)){
                         byte [] cd=((ByteArrayOutputStream)exc14n.getOutputStream()).toByteArray();
                         logger.log(Level.FINEST, LogStringsMessages.WSS_1951_ENCRYPTED_DATA_VALUE(new String(cd)));
-                        cos.write(cd);
+                        bos.write(cd);
                     }
                 } catch (javax.xml.stream.XMLStreamException ex) {
                     logger.log(Level.SEVERE, LogStringsMessages.WSS_1908_ERROR_WRITING_ENCRYPTEDDATA(),ex);
                 }
             }
             
-            cos.flush();
+            bos.flush();
             cos.close();
         } catch (NoSuchAlgorithmException ex) {
             logger.log(Level.SEVERE, LogStringsMessages.WSS_1909_UNSUPPORTED_DATAENCRYPTION_ALGORITHM(getAlgorithm()), ex);
@@ -446,4 +477,19 @@ public class CryptoProcessor {
             throw new XWSSecurityRuntimeException(bpe);
         }
     }
+
+    /**
+     * ByteArrayOutputStream giving access to its internal buffer, so the cipher
+     * value does not have to be copied once more after encryption.
+     */
+    private static final class CipherValueStream extends ByteArrayOutputStream {
+
+        CipherValueStream() {
+            super(1024);
+        }
+
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
 }
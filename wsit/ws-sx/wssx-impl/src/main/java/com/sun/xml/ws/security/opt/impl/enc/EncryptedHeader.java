@@ -52,7 +52,6 @@ import com.sun.xml.wss.impl.MessageConstants;
 import com.sun.xml.wss.impl.c14n.AttributeNS;
 import com.sun.xml.wss.impl.c14n.StAXEXC14nCanonicalizerImpl;
 import com.sun.xml.wss.logging.LogDomainConstants;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.security.Key;
@@ -166,15 +165,12 @@ public class EncryptedHeader
                 dep = new CryptoProcessor(Cipher.ENCRYPT_MODE, eht.getEncryptedData().getEncryptionMethod().getAlgorithm(), data, key);
                 
                 if(streamWriter instanceof StAXEXC14nCanonicalizerImpl){
-                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
                     try{
-                        dep.encryptData(bos);
-                        
+                        dep.computeEncryptedDataCV();
                     }catch(IOException ie){
                         logger.log(Level.SEVERE, LogStringsMessages.WSS_1920_ERROR_CALCULATING_CIPHERVALUE(),ie);
                         throw new XMLStreamException("Error occurred while calculating Cipher Value");
                     }
-                    dep.setEncryptedDataCV(bos.toByteArray());
                 }
             }
             CVAdapter adapter = new CVAdapter(dep);
@@ -61,7 +61,6 @@ import com.sun.xml.wss.impl.c14n.AttributeNS;
 import com.sun.xml.wss.impl.c14n.StAXEXC14nCanonicalizerImpl;
 import com.sun.xml.wss.logging.LogDomainConstants;
 import com.sun.xml.wss.logging.impl.opt.crypto.LogStringsMessages;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.security.Key;
@@ -171,15 +170,12 @@ public class JAXBEncryptedData implements EncryptedData,
                 dep = new CryptoProcessor(Cipher.ENCRYPT_MODE, edt.getEncryptionMethod().getAlgorithm(), data, key);
                 
                 if(streamWriter instanceof StAXEXC14nCanonicalizerImpl){
-                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
                     try{
-                        dep.encryptData(bos);
-                        
+                        dep.computeEncryptedDataCV();
                     }catch(IOException ie){
                         logger.log(Level.SEVERE, LogStringsMessages.WSS_1920_ERROR_CALCULATING_CIPHERVALUE(),ie);
                         throw new XMLStreamException("Error occurred while calculating Cipher Value");
                     }
-                    dep.setEncryptedDataCV(bos.toByteArray());
                 }
             }
             CVAdapter adapter = new CVAdapter(dep);
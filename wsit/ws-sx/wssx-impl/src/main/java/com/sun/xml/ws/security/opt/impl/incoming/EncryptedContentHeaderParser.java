@@ -45,14 +45,14 @@ import com.sun.xml.wss.XWSSecurityException;
 import com.sun.xml.wss.impl.MessageConstants;
 import com.sun.xml.wss.impl.c14n.AttributeNS;
 import com.sun.xml.wss.impl.c14n.StAXAttr;
+import com.sun.xml.ws.api.streaming.XMLStreamReaderFactory;
+import com.sun.xml.ws.api.streaming.XMLStreamWriterFactory;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.util.HashMap;
 import java.util.Vector;
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
@@ -84,40 +84,28 @@ import javax.xml.stream.XMLStreamWriter;
         }
 
         XMLStreamReader getDecryptedElement(InputStream decryptedIS) throws XMLStreamException, XWSSecurityException{
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            XMLOutputFactory factory = XMLOutputFactory.newInstance();
-            XMLStreamWriter writer = factory.createXMLStreamWriter(out);
-            writeStartElement(writer);
-            writeEndElement(writer);
-            writer.flush();
-            writer.close();
+            // serialize the (small) enclosing element once and stream the decrypted
+            // content in between its start and end tags, without buffering the content
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            XMLStreamWriter writer = XMLStreamWriterFactory.create(out);
+            int startElemLength;
             try {
-                out.close();
-            } catch (IOException ex) {
-                ex.printStackTrace();
+                writeStartElement(writer);
+                // forces the start tag to be closed
+                writer.writeCharacters("");
+                writer.flush();
+                startElemLength = out.size();
+                writeEndElement(writer);
+                writer.flush();
+            } finally {
+                XMLStreamWriterFactory.recycle(writer);
             }
+            byte[] element = out.toByteArray();
 
-            ByteArrayOutputStream tmpOut = new ByteArrayOutputStream();
-            String outStr = out.toString();
-            int pos = outStr.indexOf('>');
-            String startElem = outStr.substring(0, pos+1);
-            String endElem = outStr.substring(pos+1);
-            try {
-                tmpOut.write(startElem.getBytes());
-                byte[] buf = new byte[4096];
-
-                for(int len=-1;(len=decryptedIS.read(buf))!=-1;)
-                    tmpOut.write(buf,0,len);
-
-                tmpOut.write(endElem.getBytes());
-            } catch (IOException ex) {
-                ex.printStackTrace();
-            }
-
-            InputStream finalContent = new ByteArrayInputStream(tmpOut.toByteArray());
-            XMLInputFactory xif = XMLInputFactory.newInstance();
-            XMLStreamReader reader = xif.createXMLStreamReader(finalContent);
-            return reader;
+            InputStream finalContent = new SequenceInputStream(
+                    new SequenceInputStream(new ByteArrayInputStream(element, 0, startElemLength), decryptedIS),
+                    new ByteArrayInputStream(element, startElemLength, element.length - startElemLength));
+            return XMLStreamReaderFactory.create(null, finalContent, true);
         }
 
         void writeStartElement(XMLStreamWriter xsw) throws XMLStreamException, XWSSecurityException{
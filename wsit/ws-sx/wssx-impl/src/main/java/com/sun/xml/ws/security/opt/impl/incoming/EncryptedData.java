@@ -40,6 +40,7 @@
 
 package com.sun.xml.ws.security.opt.impl.incoming;
 
+import com.sun.xml.ws.api.streaming.XMLStreamReaderFactory;
 import com.sun.xml.ws.security.opt.api.SecurityElementWriter;
 import com.sun.xml.ws.security.opt.api.SecurityHeaderElement;
 import com.sun.xml.ws.security.opt.impl.JAXBFilterProcessingContext;
@@ -66,7 +67,6 @@ import javax.xml.crypto.KeySelector.Purpose;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
-import javax.xml.stream.XMLInputFactory;
 import com.sun.xml.wss.logging.impl.opt.crypto.LogStringsMessages;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -262,9 +262,9 @@ public class EncryptedData implements SecurityHeaderElement, SecurityElementWrit
             throw new XWSSecurityException(ioe);
         }
         
+        // the cipher stream is parsed as it is decrypted, the plain text is never buffered
         DecryptedInputStream decryptedStream = new DecryptedInputStream(ccin, parentNS);
-        XMLInputFactory xif = XMLInputFactory.newInstance();
-        XMLStreamReader reader = xif.createXMLStreamReader(decryptedStream);
+        XMLStreamReader reader = XMLStreamReaderFactory.create(null, decryptedStream, true);
         
         return new FilteredXMLStreamReader(reader);
     }
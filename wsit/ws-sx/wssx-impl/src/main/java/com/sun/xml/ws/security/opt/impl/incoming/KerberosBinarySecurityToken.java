@@ -59,7 +59,6 @@ import com.sun.xml.ws.security.opt.api.PolicyBuilder;
 import com.sun.xml.ws.security.opt.api.SecurityElementWriter;
 import com.sun.xml.ws.security.opt.api.SecurityHeaderElement;
 import com.sun.xml.ws.security.opt.api.TokenValidator;
-import com.sun.xml.ws.security.opt.impl.util.StreamUtil;
 import com.sun.xml.wss.ProcessingContext;
 import com.sun.xml.wss.XWSSecurityException;
 import com.sun.xml.wss.impl.MessageConstants;
@@ -197,7 +196,7 @@ public class KerberosBinarySecurityToken implements com.sun.xml.ws.security.opt.
                 }
             }
             try {
-                bstValue = Base64.decode(StreamUtil.getCV(reader));
+                bstValue = Base64.decode(reader);
                 
             } catch (Base64DecodingException ex) {
                 logger.log(Level.SEVERE, LogStringsMessages.WSS_1604_ERROR_DECODING_BASE_64_DATA(ex));
@@ -228,7 +228,7 @@ public class Signature implements SecurityHeaderElement,NamespaceContextInfo, Se
                                 if(charSeq instanceof Base64Data){
                                     Base64Data bd = (Base64Data) ((XMLStreamReaderEx)reader).getPCDATA();
                                     signatureValue = bd.getExact();
-                                    canonWriter.writeCharacters(Base64.encode(signatureValue));
+                                    Base64.encode(signatureValue, canonWriter);
                                 } else{
                                     if(sb == null){
                                         sb = new StringBuffer();
@@ -64,7 +64,6 @@ import com.sun.xml.wss.impl.SecurableSoapMessage;
 
 
 
-import com.sun.xml.ws.security.opt.impl.util.StreamUtil;
 import com.sun.xml.wss.impl.XWSSecurityRuntimeException;
 import com.sun.xml.wss.logging.LogDomainConstants;
 import java.io.ByteArrayInputStream;
@@ -228,7 +227,7 @@ public class X509BinarySecurityToken implements com.sun.xml.ws.security.opt.api.
             }
             
             try {
-                bstValue = Base64.decode(StreamUtil.getCV(reader));
+                bstValue = Base64.decode(reader);
                 buildCertificate(new ByteArrayInputStream(bstValue));
                 
             } catch (Base64DecodingException ex) {
@@ -101,7 +101,7 @@ public class CipherDataProcessor {
                                 bd = (Base64Data) charSeq;
                             }else{
                                 try {
-                                    cipherValue = Base64.decode(StreamUtil.getCV((XMLStreamReaderEx)reader));
+                                    cipherValue = Base64.decode(reader);
                                 } catch (Base64DecodingException ex) {
                                     logger.log(Level.SEVERE, LogStringsMessages.WSS_1922_ERROR_DECODING_CIPHERVAL(ex),ex);
                                     throw SOAPUtil.newSOAPFaultException(MessageConstants.WSSE_FAILED_CHECK, LogStringsMessages.WSS_1922_ERROR_DECODING_CIPHERVAL(ex), ex);
@@ -112,7 +112,7 @@ public class CipherDataProcessor {
                         
                         try {
                             //cipherValue = Base64.decode(reader.getElementText());
-                            cipherValue = Base64.decode(StreamUtil.getCV(reader));
+                            cipherValue = Base64.decode(reader);
                         } catch (Base64DecodingException ex) {
                             logger.log(Level.SEVERE, LogStringsMessages.WSS_1922_ERROR_DECODING_CIPHERVAL(ex),ex);
                             throw SOAPUtil.newSOAPFaultException(MessageConstants.WSSE_FAILED_CHECK, LogStringsMessages.WSS_1922_ERROR_DECODING_CIPHERVAL(ex), ex);
@@ -203,8 +203,7 @@ public class KeyInfoProcessor {
                             Base64Data bd = (Base64Data) ((XMLStreamReaderEx)reader).getPCDATA();
                             value = bd.getExact();
                             if(canonWriter != null){
-                                String ev = Base64.encode(value);
-                                canonWriter.writeCharacters(ev);
+                                Base64.encode(value, canonWriter);
                             }
                         }else {
                             sb = new StringBuffer();
@@ -269,8 +268,7 @@ public class KeyInfoProcessor {
                     Base64Data bd = (Base64Data) ((XMLStreamReaderEx)reader).getPCDATA();
                     value = bd.getExact();
                     if(canonWriter != null){
-                        String ev = Base64.encode(value);
-                        canonWriter.writeCharacters(ev);
+                        Base64.encode(value, canonWriter);
                     }
                 }else{
                     String dv = readCharacters(reader);
@@ -162,8 +162,7 @@ public class KeyValueProcessor {
                         value = bd.getExact();
                         modulus = new BigInteger(1,value);
                         if(canonWriter != null){
-                            String ev = Base64.encode(value);
-                            canonWriter.writeCharacters(ev);
+                            Base64.encode(value, canonWriter);
                         }
                     }else {
                         sb = new StringBuffer();
@@ -207,8 +206,7 @@ public class KeyValueProcessor {
                         value = bd.getExact();
                         exponent = new BigInteger(1,value);
                         if(canonWriter != null){
-                            String ev = Base64.encode(value);
-                            canonWriter.writeCharacters(ev);
+                            Base64.encode(value, canonWriter);
                         }
                     }else {
                         sb = new StringBuffer();
@@ -139,7 +139,7 @@ public class CertificateRetriever {
                             }
                         }
                         try {
-                            bstValue = Base64.decode(StreamUtil.getCV(reader));
+                            bstValue = Base64.decode(reader);
                         } catch (Base64DecodingException ex) {
                             log.log(Level.WARNING, LogStringsMessages.WSS_0819_ERROR_GETTING_CERTIFICATE_EPRIDENTITY(),ex);
                         //throw new RuntimeException(ex);
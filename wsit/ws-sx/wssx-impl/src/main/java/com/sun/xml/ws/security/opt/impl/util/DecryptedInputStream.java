@@ -40,127 +40,157 @@
 
 package com.sun.xml.ws.security.opt.impl.util;
 
-import java.io.ByteArrayInputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 
 /**
+ * Wraps decrypted content into a dummy <code>StartElement</code> element declaring the
+ * namespaces in scope of the encrypted element, so that the decrypted content can be
+ * handed over to a StAX parser while it is being decrypted, without buffering it.
  *
  * @author Ashutosh.Shahi@sun.com
  */
 public class DecryptedInputStream extends FilterInputStream{
     
-    private static final int SKIP_BUFFER_SIZE = 2048;
-    // skipBuffer is initialized in skip(long), if needed.
-    private static byte[] skipBuffer;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final byte[] END_ELEMENT = "</StartElement>".getBytes(UTF_8);
     
-    private StringBuilder startElement = new StringBuilder("<StartElement");
-    private static final String endElement = "</StartElement>";
-    private InputStream startIS = null;
-    private InputStream endIS = new ByteArrayInputStream(endElement.getBytes());
+    private final byte[] startElement;
+    private int startPos = 0;
+    private int endPos = 0;
+    private boolean contentDone = false;
     
     /** Creates a new instance of DecryptedInputStream */
     public DecryptedInputStream(InputStream is, HashMap<String,String> parentNS) {
         super(is);
-        Set<Map.Entry<String, String>> set = parentNS.entrySet(); 
-        Iterator<Map.Entry<String, String>> iter = set.iterator();
-        while(iter.hasNext()){
-           Map.Entry<String, String> entry = iter.next();
-           if(!"".equals(entry.getKey())){
-               startElement.append(" xmlns:"+entry.getKey()+"=\""+entry.getValue()+"\"");
-           } else{
-               startElement.append(" xmlns=\"" + entry.getValue()+"\"");
-           }
+        startElement = createStartElement(parentNS);
+    }
+    
+    private static byte[] createStartElement(Map<String,String> parentNS) {
+        StringBuilder sb = new StringBuilder(64 + parentNS.size() * 64);
+        sb.append("<StartElement");
+        for (Map.Entry<String, String> entry : parentNS.entrySet()) {
+            if (!"".equals(entry.getKey())) {
+                sb.append(" xmlns:").append(entry.getKey()).append("=\"");
+            } else {
+                sb.append(" xmlns=\"");
+            }
+            appendAttributeValue(sb, entry.getValue());
+            sb.append('"');
+        }
+        sb.append(" >");
+        return sb.toString().getBytes(UTF_8);
+    }
+    
+    private static void appendAttributeValue(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&': sb.append("&amp;"); break;
+                case '<': sb.append("&lt;"); break;
+                case '"': sb.append("&quot;"); break;
+                default: sb.append(c);
+            }
         }
-        startElement.append(" >");
-        String startElem = startElement.toString();
-        startIS = new ByteArrayInputStream(startElem.getBytes());
     }
     
     public int read() throws IOException{
-        int readVal = startIS.read();
-        if(readVal != -1){
-            return readVal;
+        if (startPos < startElement.length) {
+            return startElement[startPos++] & 0xff;
+        }
+        if (!contentDone) {
+            int readVal = in.read();
+            if (readVal != -1) {
+                return readVal;
+            }
+            contentDone = true;
         }
-        readVal = in.read();
-        if(readVal != -1){
-            return readVal;
+        if (endPos < END_ELEMENT.length) {
+            return END_ELEMENT[endPos++] & 0xff;
         }
-        return endIS.read();
+        return -1;
     }
     
     public int read(byte [] b) throws IOException{
-        return read(b,0,b.length-1);
+        return read(b,0,b.length);
     }
     
     public int read(byte[] b , int off, int len) throws IOException{
         if (b == null) {
-	    throw new NullPointerException();
-	} else if ((off < 0) || (off > b.length) || (len < 0) ||
-		   ((off + len) > b.length) || ((off + len) < 0)) {
-	    throw new IndexOutOfBoundsException();
-	} else if (len == 0) {
-	    return 0;
-	}
-        int readVal = read();
-        if(readVal == -1){
-            return -1;
+            throw new NullPointerException();
+        } else if ((off < 0) || (len < 0) || (len > b.length - off)) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return 0;
         }
-        b[off] = (byte)readVal;
-        int i = 1;
-        for(; i < len; i++){
-            readVal = read();
-            if(readVal == -1){
-                break;
-            }
-            if(b != null){
-                b[off+i] = (byte)readVal;
+        if (startPos < startElement.length) {
+            int n = Math.min(len, startElement.length - startPos);
+            System.arraycopy(startElement, startPos, b, off, n);
+            startPos += n;
+            return n;
+        }
+        if (!contentDone) {
+            int n = in.read(b, off, len);
+            if (n != -1) {
+                return n;
             }
+            contentDone = true;
+        }
+        if (endPos < END_ELEMENT.length) {
+            int n = Math.min(len, END_ELEMENT.length - endPos);
+            System.arraycopy(END_ELEMENT, endPos, b, off, n);
+            endPos += n;
+            return n;
         }
-        return i;
+        return -1;
     }
     
     public long skip(long n) throws IOException {
-        long remaining = n;
-	int nr;
-	if (skipBuffer == null)
-	    skipBuffer = new byte[SKIP_BUFFER_SIZE];
-
-	byte[] localSkipBuffer = skipBuffer;
-        
         if (n <= 0) {
-	    return 0;
-	}
-
-	while (remaining > 0) {
-	    nr = read(localSkipBuffer, 0,
-		      (int) Math.min(SKIP_BUFFER_SIZE, remaining));
-	    if (nr < 0) {
-		break;
-	    }
-	    remaining -= nr;
-	}
-	
-	return n - remaining;
+            return 0;
+        }
+        byte[] skipBuffer = new byte[(int) Math.min(2048, n)];
+        long remaining = n;
+        while (remaining > 0) {
+            int nr = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
+            if (nr < 0) {
+                break;
+            }
+            remaining -= nr;
+        }
+        return n - remaining;
+    }
+    
+    public int available() throws IOException {
+        if (startPos < startElement.length) {
+            return startElement.length - startPos;
+        }
+        if (!contentDone) {
+            return in.available();
+        }
+        return END_ELEMENT.length - endPos;
     }
     
     public boolean markSupported() {
-	return false;
+        return false;
+    }
+    
+    public synchronized void mark(int readlimit) {
     }
     
     public synchronized void reset() throws IOException {
-	throw new IOException("mark/reset not supported");
+        throw new IOException("mark/reset not supported");
     }
     
     public void close() throws IOException{
-        startIS.close();
         in.close();
-        endIS.close();
     }
     
 }
@@ -179,6 +179,12 @@ public class DefaultSCTokenConfiguration extends SCTokenConfiguration{
         
     }
 
+    public DefaultSCTokenConfiguration(DefaultSCTokenConfiguration that, Tube securityTube, Tube nextTube) {
+        this(that, that.tokenId);
+        this.clientSecurityTube = securityTube;
+        this.nextTube = nextTube;
+    }
+
     private void parseAssertions(SecureConversationToken scToken, PolicyAssertion localToken){
 
         final AssertionSet assertions = scToken.getBootstrapPolicy().getAssertionSet();
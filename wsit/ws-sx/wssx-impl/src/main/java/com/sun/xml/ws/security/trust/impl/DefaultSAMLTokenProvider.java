@@ -79,7 +79,6 @@ import org.apache.xml.security.keys.content.X509Data;
 import org.apache.xml.security.keys.KeyInfo;
 import com.sun.xml.bind.v2.runtime.JAXBContextImpl;
 import com.sun.xml.bind.v2.util.XmlFactory;
-import com.sun.xml.wss.WSITXMLFactory;
 
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
@@ -95,7 +94,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.namespace.QName;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
@@ -471,11 +469,9 @@ public class DefaultSAMLTokenProvider implements STSTokenProvider {
                 throw new WSTrustException(LogStringsMessages.WST_0034_UNABLE_GET_CLIENT_CERT(), ex);
             }
         }
-        final DocumentBuilderFactory docFactory = WSITXMLFactory.createDocumentBuilderFactory(WSITXMLFactory.DISABLE_SECURE_PROCESSING);
-        
         Document doc = null;
         try{
-            doc = docFactory.newDocumentBuilder().newDocument();
+            doc = WSTrustUtil.getDocumentBuilder().newDocument();
         }catch(ParserConfigurationException ex){
             log.log(Level.SEVERE, 
                     LogStringsMessages.WST_0039_ERROR_CREATING_DOCFACTORY(), ex);
@@ -109,7 +109,6 @@ import com.sun.xml.wss.impl.misc.Base64;
 
 import javax.xml.namespace.QName;
 
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.*;
@@ -118,7 +117,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import com.sun.xml.ws.security.trust.logging.LogDomainConstants;
 import com.sun.xml.ws.security.trust.logging.LogStringsMessages;
-import com.sun.xml.wss.WSITXMLFactory;
 import java.util.TimeZone;
 
 public  class IssueSamlTokenContractImpl extends IssueSamlTokenContract {
@@ -196,12 +194,7 @@ public  class IssueSamlTokenContractImpl extends IssueSamlTokenContract {
         EncryptedKey encKey = null;
         try{
             final PublicKey pubKey = cert.getPublicKey();
-            final XMLCipher cipher;
-            if(keyWrapAlgorithm != null){
-                cipher = XMLCipher.getInstance(keyWrapAlgorithm);
-            }else{
-                cipher = XMLCipher.getInstance(XMLCipher.RSA_OAEP);
-            }
+            final XMLCipher cipher = XMLCipher.getInstance(keyWrapAlgorithm != null ? keyWrapAlgorithm : XMLCipher.RSA_OAEP);
             cipher.init(XMLCipher.WRAP_MODE, pubKey);
 
             encKey = cipher.encryptKey(doc, new SecretKeySpec(encryptedKey, "AES"));
@@ -241,12 +234,7 @@ public  class IssueSamlTokenContractImpl extends IssueSamlTokenContract {
         Element encDataEle = null;
         // Create the encryption key
         try{
-            final XMLCipher cipher;
-            if(encryptionAlgorithm != null){
-                cipher = XMLCipher.getInstance(encryptionAlgorithm);  
-            }else{
-                cipher = XMLCipher.getInstance(XMLCipher.AES_256);
-            }
+            final XMLCipher cipher = XMLCipher.getInstance(encryptionAlgorithm != null ? encryptionAlgorithm : XMLCipher.AES_256);
             final int keysizeInBytes = 32;
             final byte[] skey = WSTrustUtil.generateRandomSecret(keysizeInBytes);
             cipher.init(XMLCipher.ENCRYPT_MODE, new SecretKeySpec(skey, "AES"));
@@ -371,10 +359,9 @@ public  class IssueSamlTokenContractImpl extends IssueSamlTokenContract {
                 throw new WSTrustException(LogStringsMessages.WST_0034_UNABLE_GET_CLIENT_CERT(), ex);
             }
         }
-        final DocumentBuilderFactory docFactory = WSITXMLFactory.createDocumentBuilderFactory(WSITXMLFactory.DISABLE_SECURE_PROCESSING);
         Document doc = null;
         try{
-            doc = docFactory.newDocumentBuilder().newDocument();
+            doc = WSTrustUtil.getDocumentBuilder().newDocument();
         }catch(ParserConfigurationException ex){
             log.log(Level.SEVERE, 
                     LogStringsMessages.WST_0039_ERROR_CREATING_DOCFACTORY(), ex);
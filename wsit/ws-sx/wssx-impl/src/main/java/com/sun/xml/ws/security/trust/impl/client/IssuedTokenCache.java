@@ -0,0 +1,390 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.security.trust.impl.client;
+
+import com.sun.xml.ws.api.security.trust.WSTrustException;
+import com.sun.xml.ws.security.IssuedTokenContext;
+import com.sun.xml.ws.security.impl.IssuedTokenContextImpl;
+import com.sun.xml.ws.security.trust.logging.LogDomainConstants;
+import com.sun.xml.ws.security.trust.logging.LogStringsMessages;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Client side cache of tokens issued by an STS.
+ * <p>
+ * At most one RST is in flight per key: threads that miss while a token is
+ * being issued wait for that issuance instead of sending their own request.
+ * Tokens that are about to expire are renewed on a background thread while the
+ * current token keeps being served. The number of cached keys is bounded, least
+ * recently used keys are evicted first.
+ * <p>
+ * A cache holds the tokens of a single requester; callers keep one cache per
+ * requester Subject so that tokens never cross identities. All caches share a
+ * small, bounded pool of renewal threads.
+ */
+final class IssuedTokenCache {
+
+    private static final Logger log =
+            Logger.getLogger(
+            LogDomainConstants.TRUST_IMPL_DOMAIN,
+            LogDomainConstants.TRUST_IMPL_DOMAIN_BUNDLE);
+
+    static final int DEFAULT_MAX_ENTRIES = 256;
+    static final int MAX_RENEWAL_THREADS = 4;
+    static final int MAX_QUEUED_RENEWALS = 256;
+
+    private static final Executor SHARED_RENEWAL_EXECUTOR = createRenewalExecutor();
+
+    /**
+     * Performs the actual RST/RSTR exchange for a context.
+     */
+    interface Issuer {
+        void issue(IssuedTokenContext ctx) throws WSTrustException;
+    }
+
+    private final int maxEntries;
+    private final Executor renewalExecutor;
+    // guarded by itself; access ordered so that the eldest entry is the least recently used one
+    private final Map<Key, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong issues = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong renewals = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    IssuedTokenCache() {
+        this(DEFAULT_MAX_ENTRIES, SHARED_RENEWAL_EXECUTOR);
+    }
+
+    IssuedTokenCache(final int maxEntries, final Executor renewalExecutor) {
+        this.maxEntries = maxEntries;
+        this.renewalExecutor = renewalExecutor;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > IssuedTokenCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the token currently cached for the key, or <code>null</code>.
+     * The caller decides whether the token is still usable.
+     */
+    IssuedTokenContext get(final Key key) {
+        final Entry entry = entry(key, false);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            if (entry.token != null) {
+                hits.incrementAndGet();
+            }
+            return entry.token;
+        }
+    }
+
+    /**
+     * Drops the token from the cache unless it has been replaced already.
+     */
+    void invalidate(final Key key, final IssuedTokenContext token) {
+        final Entry entry = entry(key, false);
+        if (entry != null) {
+            synchronized (entry) {
+                if (entry.token == token) {
+                    entry.token = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtains a token for the key. If no issuance is in flight for the key the
+     * calling thread issues the token into <code>ctx</code>, otherwise it waits
+     * for the result of the pending issuance, which is returned instead.
+     */
+    IssuedTokenContext issue(final Key key, final IssuedTokenContext ctx, final Issuer issuer) throws WSTrustException {
+        final Entry entry = entry(key, true);
+        final FutureTask<IssuedTokenContext> task;
+        boolean owner = false;
+        synchronized (entry) {
+            if (entry.pending == null) {
+                entry.pending = newTask(entry, ctx, issuer, false);
+                owner = true;
+            }
+            task = entry.pending;
+        }
+        if (owner) {
+            issues.incrementAndGet();
+            task.run();
+        } else {
+            coalesced.incrementAndGet();
+        }
+
+        return await(task);
+    }
+
+    /**
+     * Starts a background issuance replacing <code>current</code> unless one
+     * is in flight already. Request threads keep using <code>current</code>
+     * until the new token is available.
+     * <p>
+     * The new context only carries the policy, endpoint and issuer of
+     * <code>current</code> and is issued on a renewal thread; the issuer must
+     * establish anything else the issuance needs, such as the requester Subject.
+     * If all renewal threads are busy the renewal is skipped and retried by the
+     * next request in the renewal window.
+     */
+    void renew(final Key key, final IssuedTokenContext current, final Issuer issuer) {
+        final Entry entry = entry(key, false);
+        if (entry == null) {
+            return;
+        }
+        final FutureTask<IssuedTokenContext> task;
+        synchronized (entry) {
+            if (entry.pending != null || entry.token != current) {
+                return;
+            }
+            final IssuedTokenContext ctx = new IssuedTokenContextImpl();
+            ctx.getSecurityPolicy().addAll(current.getSecurityPolicy());
+            ctx.setEndpointAddress(current.getEndpointAddress());
+            ctx.setTokenIssuer(current.getTokenIssuer());
+            task = newTask(entry, ctx, issuer, true);
+            entry.pending = task;
+        }
+        try {
+            renewalExecutor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            synchronized (entry) {
+                if (entry.pending == task) {
+                    entry.pending = null;
+                }
+            }
+            log.log(Level.FINE, "Renewal of an issued token has been rejected, it will be retried", ex);
+            return;
+        }
+        renewals.incrementAndGet();
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getIssueCount() {
+        return issues.get();
+    }
+
+    long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    long getRenewalCount() {
+        return renewals.get();
+    }
+
+    long getFailureCount() {
+        return failures.get();
+    }
+
+    long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "IssuedTokenCache[size=" + size() + ", hits=" + hits + ", issues=" + issues
+                + ", coalesced=" + coalesced + ", renewals=" + renewals + ", failures=" + failures
+                + ", evictions=" + evictions + "]";
+    }
+
+    private Entry entry(final Key key, final boolean create) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null && create) {
+                entry = new Entry();
+                entries.put(key, entry);
+            }
+            return entry;
+        }
+    }
+
+    private FutureTask<IssuedTokenContext> newTask(final Entry entry, final IssuedTokenContext ctx, final Issuer issuer, final boolean background) {
+        return new FutureTask<IssuedTokenContext>(new Callable<IssuedTokenContext>() {
+            public IssuedTokenContext call() throws Exception {
+                try {
+                    issuer.issue(ctx);
+                } catch (Exception ex) {
+                    synchronized (entry) {
+                        entry.pending = null;
+                    }
+                    failures.incrementAndGet();
+                    if (background) {
+                        // the current token stays in use, the next request in the renewal window retries
+                        log.log(Level.WARNING, LogStringsMessages.WST_0016_PROBLEM_IT_CTX(ctx.getTokenIssuer(), ctx.getEndpointAddress()), ex);
+                    }
+                    throw ex;
+                }
+                synchronized (entry) {
+                    entry.token = ctx;
+                    entry.pending = null;
+                }
+                return ctx;
+            }
+        });
+    }
+
+    private static IssuedTokenContext await(final FutureTask<IssuedTokenContext> task) throws WSTrustException {
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new WSTrustException(ex.getMessage(), ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof WSTrustException) {
+                throw (WSTrustException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new WSTrustException(cause.getMessage(), cause);
+        }
+    }
+
+    private static Executor createRenewalExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                MAX_RENEWAL_THREADS, MAX_RENEWAL_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(MAX_QUEUED_RENEWALS),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    public Thread newThread(Runnable r) {
+                        final Thread thread = new Thread(r, "IssuedTokenRenewal-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class Entry {
+        // both guarded by this entry
+        private IssuedTokenContext token;
+        private FutureTask<IssuedTokenContext> pending;
+    }
+
+    /**
+     * Identifies tokens of a requester that are interchangeable: same STS, same
+     * target service, same requested token and same STS user name.
+     */
+    static final class Key {
+        private final String stsEndpoint;
+        private final String appliesTo;
+        private final String request;
+        private final String userName;
+
+        Key(final String stsEndpoint, final String appliesTo, final String request, final String userName) {
+            this.stsEndpoint = stsEndpoint;
+            this.appliesTo = appliesTo;
+            this.request = request;
+            this.userName = userName;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return equal(stsEndpoint, other.stsEndpoint) && equal(appliesTo, other.appliesTo)
+                    && equal(request, other.request) && equal(userName, other.userName);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 7;
+            hash = 31 * hash + (stsEndpoint != null ? stsEndpoint.hashCode() : 0);
+            hash = 31 * hash + (appliesTo != null ? appliesTo.hashCode() : 0);
+            hash = 31 * hash + (request != null ? request.hashCode() : 0);
+            hash = 31 * hash + (userName != null ? userName.hashCode() : 0);
+            return hash;
+        }
+
+        private static boolean equal(final Object a, final Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
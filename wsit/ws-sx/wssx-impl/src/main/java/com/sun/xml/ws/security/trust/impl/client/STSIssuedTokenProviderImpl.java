@@ -40,18 +40,21 @@
 
 package com.sun.xml.ws.security.trust.impl.client;
 
+import com.sun.xml.ws.api.security.trust.Claims;
 import com.sun.xml.ws.security.IssuedTokenContext;
 import com.sun.xml.ws.security.trust.TrustPlugin;
 import com.sun.xml.ws.security.trust.WSTrustFactory;
 import com.sun.xml.ws.api.security.trust.WSTrustException;
 import com.sun.xml.ws.api.security.trust.client.IssuedTokenProvider;
 import com.sun.xml.ws.api.security.trust.client.STSIssuedTokenConfiguration;
+import com.sun.xml.ws.api.security.trust.client.SecondaryIssuedTokenParameters;
 import com.sun.xml.wss.SubjectAccessor;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.Set;
 import javax.security.auth.Subject;
+import javax.xml.ws.BindingProvider;
 
 import com.sun.xml.ws.security.trust.logging.LogDomainConstants;
 import com.sun.xml.ws.security.trust.logging.LogStringsMessages;
@@ -59,6 +62,9 @@ import com.sun.xml.ws.security.trust.logging.LogStringsMessages;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
 /**
  *
  * @author Jiandong Guo
@@ -69,6 +75,16 @@ public class STSIssuedTokenProviderImpl implements IssuedTokenProvider {
             Logger.getLogger(
             LogDomainConstants.TRUST_IMPL_DOMAIN,
             LogDomainConstants.TRUST_IMPL_DOMAIN_BUNDLE);
+
+    // renew once less than a fifth of the token lifetime is left
+    private static final long RENEWAL_WINDOW_DIVISOR = 5;
+
+    private static final IssuedTokenCache.Issuer issuer = new IssuedTokenCache.Issuer() {
+        public void issue(IssuedTokenContext ctx) throws WSTrustException {
+            TrustPlugin tp = WSTrustFactory.newTrustPlugin();
+            tp.process(ctx);
+        }
+    };
     
     public void issue(IssuedTokenContext ctx)throws WSTrustException{
         getIssuedTokenContext(ctx);
@@ -104,50 +120,164 @@ public class STSIssuedTokenProviderImpl implements IssuedTokenProvider {
         boolean shareToken = "true".equals(config.getOtherOptions().get(STSIssuedTokenConfiguration.SHARE_TOKEN));
         boolean renewExpiredToken = "true".equals(config.getOtherOptions().get(STSIssuedTokenConfiguration.RENEW_EXPIRED_TOKEN));
         String maxClockSkew = (String)config.getOtherOptions().get(STSIssuedTokenConfiguration.MAX_CLOCK_SKEW);
+
+        // Tokens issued on behalf of or acting as another party are specific to the request
+        if (!shareToken || config.getOBOToken() != null || config.getOtherOptions().get(STSIssuedTokenConfiguration.ACT_AS) != null){
+            issuer.issue(ctx);
+            return;
+        }
+
+        // Shared tokens are kept with the requester Subject, so they never cross identities
         Subject subject = SubjectAccessor.getRequesterSubject();
-        if (shareToken && subject != null){
-            Set pcs = subject.getPrivateCredentials(IssuedTokenContext.class);
-            for (Object obj : pcs){
-                IssuedTokenContext cached = (IssuedTokenContext)obj;
-
-                // Check if the token is expired
-                Calendar c = new GregorianCalendar();
-                long offset = c.get(Calendar.ZONE_OFFSET);
-                if (c.getTimeZone().inDaylightTime(c.getTime())) {
-                    offset += c.getTimeZone().getDSTSavings();
-                }
-                long beforeTime = c.getTimeInMillis();
-                long currentTime = beforeTime - offset;
-                if (maxClockSkew != null){
-                    currentTime = currentTime - Long.parseLong(maxClockSkew);
+        if (subject == null){
+            subject = new Subject();
+            SubjectAccessor.setRequesterSubject(subject);
+        }
+        if (subject.isReadOnly()){
+            issuer.issue(ctx);
+            return;
+        }
+        IssuedTokenCache tokenCache = getTokenCache(subject);
+
+        IssuedTokenCache.Key key = createKey(config, ctx);
+        IssuedTokenContext cached = tokenCache.get(key);
+        if (cached != null){
+            Date currentTimeInDateFormat = getCurrentTime(maxClockSkew);
+            if(cached.getExpirationTime() != null && currentTimeInDateFormat.after(cached.getExpirationTime())){
+                // Remove the expired context
+                tokenCache.invalidate(key, cached);
+
+                //if renewExpiredToke="true" is not set
+                if (!renewExpiredToken){
+                    log.log(Level.SEVERE,
+                    LogStringsMessages.WST_0046_TOKEN_EXPIRED(cached.getCreationTime(), cached.getExpirationTime(), currentTimeInDateFormat));
+                    throw new WSTrustException(LogStringsMessages.WST_0046_TOKEN_EXPIRED(cached.getCreationTime(), cached.getExpirationTime(), currentTimeInDateFormat));
                 }
-                c.setTimeInMillis(currentTime);
-                Date currentTimeInDateFormat = c.getTime();
-                if(cached.getExpirationTime() != null && currentTimeInDateFormat.after(cached.getExpirationTime())){
-                    // Remove the expired context
-                    subject.getPrivateCredentials().remove(cached);
-
-                    //if renewExpiredToke="true" is not set
-                    if (!renewExpiredToken){
-                        log.log(Level.SEVERE,
-                        LogStringsMessages.WST_0046_TOKEN_EXPIRED(cached.getCreationTime(), cached.getExpirationTime(), currentTimeInDateFormat));
-                        throw new WSTrustException(LogStringsMessages.WST_0046_TOKEN_EXPIRED(cached.getCreationTime(), cached.getExpirationTime(), currentTimeInDateFormat));
-                    }
-                } else if (cached.getTokenIssuer().equals(ctx.getTokenIssuer())){
-                    updateContext(cached, ctx);
-                    return;
+            } else {
+                if (renewExpiredToken && isInRenewalWindow(cached, currentTimeInDateFormat)){
+                    tokenCache.renew(key, cached, new RequesterSubjectIssuer(subject));
                 }
+                updateContext(cached, ctx);
+                return;
             }
         }
-        
-        TrustPlugin tp = WSTrustFactory.newTrustPlugin();
-        tp.process(ctx);
-        if (shareToken){
-            if (subject == null){
-                 subject = new Subject();
+
+        IssuedTokenContext issued = tokenCache.issue(key, ctx, issuer);
+        if (issued != ctx){
+            updateContext(issued, ctx);
+        }
+    }
+
+    private static IssuedTokenCache.Key createKey(STSIssuedTokenConfiguration config, IssuedTokenContext ctx){
+        StringBuilder request = new StringBuilder();
+        request.append(config.getTokenType()).append('|').append(config.getKeyType()).append('|');
+        appendClaims(request, config.getClaims());
+        SecondaryIssuedTokenParameters sitp = config.getSecondaryIssuedTokenParameters();
+        if (sitp != null){
+            request.append('|').append(sitp.getTokenType()).append('|').append(sitp.getKeyType()).append('|');
+            appendClaims(request, sitp.getClaims());
+        }
+        return new IssuedTokenCache.Key(config.getSTSEndpoint(), ctx.getEndpointAddress(), request.toString(),
+                (String)config.getOtherOptions().get(BindingProvider.USERNAME_PROPERTY));
+    }
+
+    /**
+     * Returns the token cache kept among the private credentials of the Subject,
+     * adding a new one if there is none yet.
+     */
+    static IssuedTokenCache getTokenCache(Subject subject){
+        Set<Object> credentials = subject.getPrivateCredentials();
+        synchronized (credentials){
+            Set<IssuedTokenCache> caches = subject.getPrivateCredentials(IssuedTokenCache.class);
+            if (!caches.isEmpty()){
+                return caches.iterator().next();
+            }
+            IssuedTokenCache cache = new IssuedTokenCache();
+            credentials.add(cache);
+            return cache;
+        }
+    }
+
+    private static void appendClaims(StringBuilder sb, Claims claims){
+        if (claims == null){
+            return;
+        }
+        sb.append(claims.getDialect());
+        for (Object obj : claims.getAny()){
+            if (obj instanceof Node){
+                appendNode(sb, (Node)obj);
+            } else {
+                sb.append(obj);
+            }
+        }
+    }
+
+    private static void appendNode(StringBuilder sb, Node node){
+        if (node.getNodeType() == Node.ELEMENT_NODE){
+            sb.append("<{").append(node.getNamespaceURI()).append('}').append(node.getLocalName());
+            NamedNodeMap attrs = node.getAttributes();
+            for (int i = 0; i < attrs.getLength(); i++){
+                Node attr = attrs.item(i);
+                sb.append(' ').append(attr.getNodeName()).append("=\"").append(attr.getNodeValue()).append('"');
+            }
+            sb.append('>');
+            for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()){
+                appendNode(sb, child);
             }
-            subject.getPrivateCredentials().add(ctx);
+            sb.append("</>");
+        } else if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE){
+            sb.append(node.getNodeValue());
+        }
+    }
+
+    private static Date getCurrentTime(String maxClockSkew){
+        Calendar c = new GregorianCalendar();
+        long offset = c.get(Calendar.ZONE_OFFSET);
+        if (c.getTimeZone().inDaylightTime(c.getTime())) {
+            offset += c.getTimeZone().getDSTSavings();
+        }
+        long beforeTime = c.getTimeInMillis();
+        long currentTime = beforeTime - offset;
+        if (maxClockSkew != null){
+            currentTime = currentTime - Long.parseLong(maxClockSkew);
+        }
+        c.setTimeInMillis(currentTime);
+        return c.getTime();
+    }
+
+    /**
+     * A token is renewed in the background once most of its lifetime has passed,
+     * so that request threads keep finding a valid token in the cache.
+     */
+    private static boolean isInRenewalWindow(IssuedTokenContext cached, Date currentTime){
+        Date created = cached.getCreationTime();
+        Date expires = cached.getExpirationTime();
+        if (created == null || expires == null){
+            return false;
+        }
+        long lifetime = expires.getTime() - created.getTime();
+        return currentTime.getTime() >= expires.getTime() - lifetime / RENEWAL_WINDOW_DIVISOR;
+    }
+
+    /**
+     * Issues on behalf of a requester Subject from a thread other than the
+     * requesting one, as background renewals are.
+     */
+    private static final class RequesterSubjectIssuer implements IssuedTokenCache.Issuer {
+        private final Subject subject;
+
+        RequesterSubjectIssuer(Subject subject){
+            this.subject = subject;
+        }
+
+        public void issue(IssuedTokenContext ctx) throws WSTrustException {
+            Subject previous = SubjectAccessor.getRequesterSubject();
             SubjectAccessor.setRequesterSubject(subject);
+            try {
+                issuer.issue(ctx);
+            } finally {
+                SubjectAccessor.setRequesterSubject(previous);
+            }
         }
     }
 }
@@ -64,6 +64,8 @@ import com.sun.xml.wss.SubjectAccessor;
 import com.sun.xml.wss.XWSSecurityException;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import javax.xml.namespace.QName;
 
 import javax.xml.transform.TransformerException;
@@ -75,15 +77,9 @@ import javax.xml.ws.handler.MessageContext;
 //import javax.xml.ws.RespectBinding;
 
 import com.sun.xml.ws.policy.impl.bindings.AppliesTo;
-import com.sun.xml.wss.WSITXMLFactory;
 import com.sun.xml.wss.impl.MessageConstants;
 import javax.xml.XMLConstants;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMResult;
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 /**
@@ -169,6 +165,11 @@ public abstract class BaseSTSImpl implements BaseSTS {
 
     protected WSTrustVersion wstVer = WSTrustVersion.WS_TRUST_10;
 
+    /**
+     * STS configuration compiled from the endpoint policy, shared by all requests
+     */
+    private volatile CompiledConfiguration compiledConfig;
+
 
   /** Implementation of the invoke method of the Provider interface
    *
@@ -233,8 +234,10 @@ public abstract class BaseSTSImpl implements BaseSTS {
         //Get Runtime STSConfiguration
         STSConfiguration rtConfig = WSTrustFactory.getRuntimeSTSConfiguration();
         if (rtConfig != null){
+            // the runtime configuration is shared - per request values go to the request scoped view
+            final STSConfiguration config = new RequestScopedSTSConfiguration(rtConfig, null);
             if (rtConfig.getCallbackHandler() == null){
-                rtConfig.getOtherOptions().put(WSTrustConstants.SECURITY_ENVIRONMENT, secEnv);
+                config.getOtherOptions().put(WSTrustConstants.SECURITY_ENVIRONMENT, secEnv);
             }
             if (wstVersion == null){
                 wstVersion = (WSTrustVersion)rtConfig.getOtherOptions().get(WSTrustConstants.WST_VERSION);
@@ -243,12 +246,23 @@ public abstract class BaseSTSImpl implements BaseSTS {
                 }
             }
            
-            rtConfig.getOtherOptions().put(WSTrustConstants.WST_VERSION, wstVer);
+            config.getOtherOptions().put(WSTrustConstants.WST_VERSION, wstVer);
             
-            return rtConfig;
+            return config;
         }
         
-        // Get default STSConfiguration
+        // Get default STSConfiguration, compiled once per endpoint
+        CompiledConfiguration compiled = this.compiledConfig;
+        if (compiled == null || !compiled.isCompiledFor(secEnv, wstVer, authnCtxClass)){
+            compiled = new CompiledConfiguration(secEnv, wstVer, authnCtxClass, compileConfiguration(msgCtx, secEnv, authnCtxClass));
+            this.compiledConfig = compiled;
+        }
+
+        // message context properties are visible through the request scoped view
+        return new RequestScopedSTSConfiguration(compiled.config, msgCtx);
+    }
+
+    private DefaultSTSConfiguration compileConfiguration(final MessageContext msgCtx, final SecurityEnvironment secEnv, final String authnCtxClass) {
         DefaultSTSConfiguration config = new DefaultSTSConfiguration();
         config.getOtherOptions().put(WSTrustConstants.SECURITY_ENVIRONMENT, secEnv);
         //config.setCallbackHandler(handler);
@@ -316,7 +330,6 @@ public abstract class BaseSTSImpl implements BaseSTS {
         if(authnCtxClass != null){
             config.getOtherOptions().put(WSTrustConstants.AUTHN_CONTEXT_CLASS, authnCtxClass);
         }
-        config.getOtherOptions().putAll(msgCtx);
       
         return config;
     }
@@ -379,33 +392,116 @@ public abstract class BaseSTSImpl implements BaseSTS {
     }
 
     private RequestSecurityToken parseRST(Source source, STSConfiguration config) throws WSTrustException{
-        Element ele = null;
+        return parseRST(source, wstVer, config.getOtherOptions());
+    }
+
+    /**
+     * Unmarshals the RST and exposes a SAML assertion it carries to the contracts under
+     * {@link WSTrustConstants#SAML_ASSERTION_ELEMENT_IN_RST}.
+     */
+    static RequestSecurityToken parseRST(final Source source, final WSTrustVersion wstVer, final Map<String, Object> otherOptions) throws WSTrustException{
+        // unmarshal the request straight from the incoming source using the cached
+        // WS-Trust JAXB context - no intermediate DOM is built for the whole request
+        final WSTrustElementFactory fact = WSTrustElementFactory.newInstance(wstVer);
+        final RequestSecurityToken rst;
         try{
-            DOMResult result = new DOMResult();
-            TransformerFactory tfactory = WSITXMLFactory.createTransformerFactory(WSITXMLFactory.DISABLE_SECURE_PROCESSING);
-            Transformer tf = tfactory.newTransformer();
-            tf.transform(source, result);
-
-            Node node = result.getNode();
-            if (node instanceof Document){
-                ele = ((Document)node).getDocumentElement();
-            } else if (node instanceof Element){
-                ele = (Element)node;
-            }
+            rst = fact.createRSTFrom(source);
         }catch(Exception xe){
             throw new WSTrustException("Error occurred while trying to parse RST stream", xe);
         }
-        WSTrustElementFactory fact = WSTrustElementFactory.newInstance(wstVer);
-        RequestSecurityToken rst = fact.createRSTFrom(ele);
 
         // handling SAML assertion in RST; assume there is one one
-        // in it fro OnBehalfOf, ActAs or ValidateTarget.
-        NodeList list = ele.getElementsByTagNameNS("*", "Assertion");
-        if (list.getLength() > 0){
-            Element assertion = (Element)list.item(0);
-            config.getOtherOptions().put(WSTrustConstants.SAML_ASSERTION_ELEMENT_IN_RST, assertion);
+        // in it fro OnBehalfOf, ActAs, ValidateTarget, RenewTarget or Claims.
+        final Element assertion = findSAMLAssertion(rst, wstVer);
+        if (assertion != null){
+            otherOptions.put(WSTrustConstants.SAML_ASSERTION_ELEMENT_IN_RST, assertion);
         }
 
         return rst;
     }
+
+    /**
+     * Looks for a SAML assertion among the token carrying parts of the RST. Their content is
+     * not bound by the WS-Trust JAXB context, so it is unmarshalled as DOM fragments and can be
+     * searched without converting the whole request back to DOM.
+     */
+    private static Element findSAMLAssertion(final RequestSecurityToken rst, final WSTrustVersion wstVer){
+        Element assertion = null;
+        if (rst.getOnBehalfOf() != null){
+            assertion = findSAMLAssertion(rst.getOnBehalfOf().getAny());
+        }
+        if (assertion == null && !WSTrustVersion.WS_TRUST_10_NS_URI.equals(wstVer.getNamespaceURI())){
+            if (rst.getActAs() != null){
+                assertion = findSAMLAssertion(rst.getActAs().getAny());
+            }
+            if (assertion == null && rst.getValidateTarget() != null){
+                assertion = findSAMLAssertion(rst.getValidateTarget().getAny());
+            }
+        }
+        if (assertion == null && rst.getRenewTarget() != null){
+            assertion = findSAMLAssertion(rst.getRenewTarget().getAny());
+        }
+        if (assertion == null && rst.getClaims() != null){
+            assertion = findSAMLAssertion(rst.getClaims().getAny());
+            if (assertion == null){
+                assertion = findSAMLAssertion(rst.getClaims().getSupportingProperties());
+            }
+        }
+        if (assertion == null){
+            assertion = findSAMLAssertion(rst.getExtensionElements());
+        }
+        if (assertion == null){
+            assertion = findSAMLAssertion(rst.getAny());
+        }
+
+        return assertion;
+    }
+
+    private static Element findSAMLAssertion(final List<Object> tokens){
+        if (tokens != null){
+            for (Object token : tokens){
+                final Element assertion = findSAMLAssertion(token);
+                if (assertion != null){
+                    return assertion;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Element findSAMLAssertion(final Object token){
+        if (!(token instanceof Element)){
+            return null;
+        }
+        final Element ele = (Element)token;
+        if ("Assertion".equals(ele.getLocalName())){
+            return ele;
+        }
+        NodeList list = ele.getElementsByTagNameNS("*", "Assertion");
+        return (list.getLength() > 0) ? (Element)list.item(0) : null;
+    }
+
+    /**
+     * STS configuration compiled from the endpoint policy together with the values it has been
+     * compiled for. The configuration is never modified once compiled; requests see it through
+     * a {@link RequestScopedSTSConfiguration}.
+     */
+    private static final class CompiledConfiguration {
+        private final SecurityEnvironment secEnv;
+        private final WSTrustVersion wstVer;
+        private final String authnCtxClass;
+        private final DefaultSTSConfiguration config;
+
+        CompiledConfiguration(final SecurityEnvironment secEnv, final WSTrustVersion wstVer, final String authnCtxClass, final DefaultSTSConfiguration config) {
+            this.secEnv = secEnv;
+            this.wstVer = wstVer;
+            this.authnCtxClass = authnCtxClass;
+            this.config = config;
+        }
+
+        boolean isCompiledFor(final SecurityEnvironment secEnv, final WSTrustVersion wstVer, final String authnCtxClass) {
+            return this.secEnv == secEnv && this.wstVer == wstVer
+                    && (this.authnCtxClass == null ? authnCtxClass == null : this.authnCtxClass.equals(authnCtxClass));
+        }
+    }
 }
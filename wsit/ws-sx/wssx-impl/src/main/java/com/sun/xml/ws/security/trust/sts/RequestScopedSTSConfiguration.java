@@ -0,0 +1,207 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.ws.security.trust.sts;
+
+import com.sun.xml.ws.api.security.trust.config.STSConfiguration;
+import com.sun.xml.ws.api.security.trust.config.TrustSPMetadata;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.security.auth.callback.CallbackHandler;
+
+/**
+ * Per-request view of an STS configuration shared by all requests of an endpoint.
+ * <p>
+ * Typed properties and service provider metadata are read from the shared configuration.
+ * Values put into {@link #getOtherOptions()} or set through the mutators of this class stay
+ * local to the request, so the shared configuration is never modified by request processing.
+ * Lookups in the options map resolve request local values first, then the properties of the
+ * request message context (if any) and finally the options of the shared configuration.
+ */
+final class RequestScopedSTSConfiguration implements STSConfiguration {
+
+    private final STSConfiguration shared;
+    private final OverlayMap otherOptions;
+    private Map<String, TrustSPMetadata> localSPMetadata;
+    private CallbackHandler callbackHandler;
+
+    RequestScopedSTSConfiguration(final STSConfiguration shared, final Map<String, Object> requestProperties) {
+        this.shared = shared;
+        this.otherOptions = new OverlayMap(requestProperties, shared.getOtherOptions());
+        this.callbackHandler = shared.getCallbackHandler();
+    }
+
+    public String getType() {
+        return shared.getType();
+    }
+
+    public String getIssuer() {
+        return shared.getIssuer();
+    }
+
+    public boolean getEncryptIssuedToken() {
+        return shared.getEncryptIssuedToken();
+    }
+
+    public boolean getEncryptIssuedKey() {
+        return shared.getEncryptIssuedKey();
+    }
+
+    public long getIssuedTokenTimeout() {
+        return shared.getIssuedTokenTimeout();
+    }
+
+    public void setCallbackHandler(final CallbackHandler callbackHandler) {
+        this.callbackHandler = callbackHandler;
+    }
+
+    public CallbackHandler getCallbackHandler() {
+        return this.callbackHandler;
+    }
+
+    public Map<String, Object> getOtherOptions() {
+        return this.otherOptions;
+    }
+
+    public void addTrustSPMetadata(final TrustSPMetadata data, final String spEndpoint) {
+        if (localSPMetadata == null) {
+            localSPMetadata = new HashMap<String, TrustSPMetadata>();
+        }
+        localSPMetadata.put(spEndpoint, data);
+    }
+
+    public TrustSPMetadata getTrustSPMetadata(final String spEndpoint) {
+        if (localSPMetadata != null) {
+            final TrustSPMetadata data = localSPMetadata.get(spEndpoint);
+            if (data != null) {
+                return data;
+            }
+        }
+        return shared.getTrustSPMetadata(spEndpoint);
+    }
+
+    /**
+     * Layered map: writes go to the request local layer; reads fall through the request local
+     * layer, the request properties and the shared options, in that order. Removal records the key
+     * as removed in the request local layer, hiding any value of the underlying layers.
+     */
+    static final class OverlayMap extends AbstractMap<String, Object> {
+
+        private final Map<String, Object> local = new HashMap<String, Object>();
+        private final Set<Object> removed = new HashSet<Object>();
+        private final Map<String, Object> requestProperties;
+        private final Map<String, Object> sharedOptions;
+
+        OverlayMap(final Map<String, Object> requestProperties, final Map<String, Object> sharedOptions) {
+            this.requestProperties = requestProperties;
+            this.sharedOptions = sharedOptions;
+        }
+
+        @Override
+        public Object get(final Object key) {
+            if (removed.contains(key)) {
+                return null;
+            }
+
+            Object value = local.get(key);
+            if (value == null && !local.containsKey(key)) {
+                if (requestProperties != null && requestProperties.containsKey(key)) {
+                    value = requestProperties.get(key);
+                } else {
+                    value = sharedOptions.get(key);
+                }
+            }
+            return value;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            if (removed.contains(key)) {
+                return false;
+            }
+
+            return local.containsKey(key)
+                    || (requestProperties != null && requestProperties.containsKey(key))
+                    || sharedOptions.containsKey(key);
+        }
+
+        @Override
+        public Object put(final String key, final Object value) {
+            final Object previous = get(key);
+            removed.remove(key);
+            local.put(key, value);
+            return previous;
+        }
+
+        @Override
+        public Object remove(final Object key) {
+            final Object previous = get(key);
+            local.remove(key);
+            removed.add(key);
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            for (Map.Entry<String, Object> entry : entrySet()) {
+                removed.add(entry.getKey());
+            }
+            local.clear();
+        }
+
+        /**
+         * Materializes the merged view; only used by callers that iterate over all options.
+         */
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            final Map<String, Object> merged = new HashMap<String, Object>(sharedOptions);
+            if (requestProperties != null) {
+                merged.putAll(requestProperties);
+            }
+            merged.putAll(local);
+            merged.keySet().removeAll(removed);
+            return merged.entrySet();
+        }
+    }
+}
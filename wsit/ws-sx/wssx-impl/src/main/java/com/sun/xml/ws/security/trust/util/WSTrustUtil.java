@@ -110,6 +110,7 @@ import javax.xml.bind.JAXBElement;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.soap.SOAPFault;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
@@ -127,7 +128,13 @@ import org.w3c.dom.Text;
  * @author ws-trust-implementation-team
  */
 public class WSTrustUtil {
-    
+
+    /**
+     * DocumentBuilder is not thread safe, but costly to create (factory lookup),
+     * so each issuing thread keeps its own instance and resets it for every token.
+     */
+    private static final ThreadLocal<DocumentBuilder> documentBuilder = new ThreadLocal<DocumentBuilder>();
+
     private WSTrustUtil(){
         //private constructor
     }
@@ -415,12 +422,7 @@ public class WSTrustUtil {
     
     public static EncryptedKey encryptKey(final Document doc, final byte[] encryptedKey, final X509Certificate cert, final String keyWrapAlgorithm) throws Exception{
         final PublicKey pubKey = cert.getPublicKey();
-        final XMLCipher cipher;
-        if(keyWrapAlgorithm != null){
-            cipher = XMLCipher.getInstance(keyWrapAlgorithm);
-        }else{
-            cipher = XMLCipher.getInstance(XMLCipher.RSA_OAEP);
-        }
+        final XMLCipher cipher = XMLCipher.getInstance(keyWrapAlgorithm != null ? keyWrapAlgorithm : XMLCipher.RSA_OAEP);
         cipher.init(XMLCipher.WRAP_MODE, pubKey);
 
         EncryptedKey encKey = cipher.encryptKey(doc, new SecretKeySpec(encryptedKey, "AES"));
@@ -547,14 +549,29 @@ public class WSTrustUtil {
     public static Document newDocument(){
         Document doc;
         try {
-            DocumentBuilderFactory dbf = WSITXMLFactory.createDocumentBuilderFactory(WSITXMLFactory.DISABLE_SECURE_PROCESSING);
-            dbf.setNamespaceAware(true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            doc = db.newDocument();
+            doc = getDocumentBuilder().newDocument();
         } catch (Exception ex) {
             throw new RuntimeException(ex.getMessage(), ex);
         }
 
         return doc;
     }
+
+    /**
+     * Returns the namespace aware DocumentBuilder owned by the calling thread.
+     * The builder must not be handed over to other threads.
+     */
+    public static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException{
+        DocumentBuilder db = documentBuilder.get();
+        if (db == null){
+            DocumentBuilderFactory dbf = WSITXMLFactory.createDocumentBuilderFactory(WSITXMLFactory.DISABLE_SECURE_PROCESSING);
+            dbf.setNamespaceAware(true);
+            db = dbf.newDocumentBuilder();
+            documentBuilder.set(db);
+        }else{
+            db.reset();
+        }
+
+        return db;
+    }
 }
@@ -155,5 +155,6 @@ public class AttributeNS implements Cloneable , Comparable {
         prefix = null;
         written = false;
         uri = null;
+        code = 0;
     }
 }
@@ -63,12 +63,10 @@ import com.sun.xml.wss.impl.misc.UnsyncByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.Stack;
 import javax.xml.XMLConstants;
 import org.xml.sax.Attributes;
 
@@ -116,6 +114,10 @@ public abstract class BaseCanonicalizer {
     //List _parentNamespaces = null;
     String _elementPrefix = "";
     private static boolean debug = false;
+    /* escaped text is encoded here and handed to the stream in bulk */
+    private static final int TEXT_CHUNK = 1024;
+    private byte[] _textBuffer = null;
+    private char[] _textChars = null;
     /** Creates a new instance of BaseCanonicalizer */
     public BaseCanonicalizer() {
     }
@@ -124,9 +126,11 @@ public abstract class BaseCanonicalizer {
         _nsResult.clear();
         _attrResult.clear();
         _attrPos =0;
+        _attrNSPos =0;
         _depth =0;
         _parentNamespacesAdded = false;
-        
+        _defURI = null;
+        _elementPrefix = "";
     }
     
     public void setStream(OutputStream os){
@@ -197,57 +201,80 @@ public abstract class BaseCanonicalizer {
     
     
     void outputTextToWriter(char [] text , int start, int length, final OutputStream writer) throws IOException {
-        
-        byte []toWrite = null;
+        outputTextToWriter(text, start, length, false, writer);
+    }
+    
+    /**
+     * Escapes and UTF-8 encodes the characters into a reusable buffer which is
+     * written to the stream in bulk, instead of one byte at a time.
+     * A carriage return is held back until the next character shows whether it
+     * is the first half of a CRLF pair, which is written as a single line feed.
+     *
+     * @param pendingCR whether a carriage return preceded the characters
+     * @return whether a carriage return is still held back
+     */
+    private boolean outputTextToWriter(char [] text , int start, int length, boolean pendingCR, final OutputStream writer) throws IOException {
+        if(_textBuffer == null){
+            _textBuffer = new byte[TEXT_CHUNK*4];
+        }
+        final byte [] buffer = _textBuffer;
+        final int limit = buffer.length - 10;
+        int pos = 0;
         for (int i = start; i < start+length; i++) {
+            if(pos > limit){
+                writer.write(buffer, 0, pos);
+                pos = 0;
+            }
             char c = text[i];
-            
+            if(c == 0xA){
+                pendingCR = false;
+                buffer[pos++] = (byte)c;
+                continue;
+            }
+            if(pendingCR){
+                pos = copy(__XD_, buffer, pos);
+                pendingCR = false;
+            }
             switch (c) {
                 
                 case '&' :
-                    if(Arrays.equals(toWrite, __XD_))
-                        writer.write(toWrite);
-                    toWrite=_AMP_;
-                    //writer.write(_AMP_);
+                    pos = copy(_AMP_, buffer, pos);
                     break;
                     
                 case '<' :
-                    if(Arrays.equals(toWrite, __XD_))
-                        writer.write(toWrite);
-                    toWrite=_LT_;
-                    //writer.write(_LT_);
+                    pos = copy(_LT_, buffer, pos);
                     break;
                     
                 case '>' :
-                    if(Arrays.equals(toWrite, __XD_))
-                        writer.write(toWrite);
-                    toWrite=_GT_;
-                    //writer.write(_GT_);
+                    pos = copy(_GT_, buffer, pos);
                     break;
                     
                 case 0xD :
-                    if(Arrays.equals(toWrite, __XD_))
-                        writer.write(toWrite);
-                    toWrite=__XD_;
-                    //writer.write(__XD_);
-                    break;
-                    
-                case 0xA :
-                    toWrite = null;
-                    writeCharToUtf8(c,writer);
+                    pendingCR = true;
                     break;
                     
                 default :
-                    if(Arrays.equals(toWrite, __XD_)){
-                       writer.write(toWrite);
-                       toWrite = null;
+                    if (c <= 0x007F) {
+                        buffer[pos++] = (byte)c;
+                    } else if (c > 0x07FF) {
+                        buffer[pos++] = (byte)(0xE0 | (c >>> 12));
+                        buffer[pos++] = (byte)(0x80 | ((c >>> 6) & 0x3F));
+                        buffer[pos++] = (byte)(0x80 | (c & 0x3F));
+                    } else {
+                        buffer[pos++] = (byte)(0xC0 | (c >>> 6));
+                        buffer[pos++] = (byte)(0x80 | (c & 0x3F));
                     }
-                    writeCharToUtf8(c,writer);
-                    continue;
             }
-            if(toWrite != null && !Arrays.equals(toWrite, __XD_))
-                writer.write(toWrite);
         }
+        if(pos > 0){
+            writer.write(buffer, 0, pos);
+        }
+        return pendingCR;
+    }
+    
+    private static int copy(byte [] src, byte [] buffer, int pos){
+        System.arraycopy(src, 0, buffer, pos, src.length);
+        return pos + src.length;
     }
     
     final static void outputAttrToWriter(final String name, final String value, final OutputStream writer) throws IOException {
@@ -516,55 +543,15 @@ public abstract class BaseCanonicalizer {
     
     
     void outputTextToWriter(String text, OutputStream writer) throws IOException{
-        byte []toWrite = null;
-        for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
-            
-            switch (c) {
-                
-                case '&' :
-                    if(Arrays.equals(toWrite, __XD_))
-                        writer.write(toWrite);
-                    toWrite=_AMP_;
-                    //writer.write(_AMP_);
-                    break;
-                    
-                case '<' :
-                    if(Arrays.equals(toWrite, __XD_))
-                        writer.write(toWrite);
-                    toWrite=_LT_;
-                    //writer.write(_LT_);
-                    break;
-                    
-                case '>' :
-                    if(Arrays.equals(toWrite, __XD_))
-                        writer.write(toWrite);
-                    toWrite=_GT_;
-                    //writer.write(_GT_);
-                    break;
-                    
-                case 0xD :
-                    if(Arrays.equals(toWrite, __XD_))
-                        writer.write(toWrite);
-                    toWrite=__XD_;
-                    //writer.write(__XD_);
-                    break;
-                    
-                case 0xA :
-                    toWrite = null;
-                    writeCharToUtf8(c,writer);
-                    break;
-                    
-                default :
-                    if(Arrays.equals(toWrite, __XD_)){
-                       writer.write(toWrite);
-                       toWrite = null;
-                    }
-                    writeCharToUtf8(c,writer);
-                    continue;
-            }
-            if(toWrite != null && !Arrays.equals(toWrite, __XD_))
-                writer.write(toWrite);
+        if(_textChars == null){
+            _textChars = new char[TEXT_CHUNK];
+        }
+        final int length = text.length();
+        boolean pendingCR = false;
+        for (int start = 0; start < length; start += TEXT_CHUNK) {
+            int end = Math.min(length, start + TEXT_CHUNK);
+            text.getChars(start, end, _textChars, 0);
+            pendingCR = outputTextToWriter(_textChars, 0, end - start, pendingCR, writer);
         }
     }
     
@@ -606,8 +593,10 @@ public abstract class BaseCanonicalizer {
     public static class NamespaceContextImpl implements javax.xml.namespace.NamespaceContext{
         
         AttributeNS nsDecl = new AttributeNS();
-        HashMap prefixMappings = new HashMap();
+        HashMap<String,PrefixStack> prefixMappings = new HashMap<String,PrefixStack>();
         ArrayList clearDepth  = new ArrayList(10);
+        /* declarations popped off a prefix stack, kept for the next declareNamespace */
+        private final ArrayList<AttributeNS> freeDecls = new ArrayList<AttributeNS>();
         
         int nsDepth;
         int resizeBy = 10;
@@ -621,18 +610,18 @@ public abstract class BaseCanonicalizer {
         }
         @SuppressWarnings("unchecked")
         public AttributeNS getNamespaceDeclaration(String prefix){
-            Stack stack = (Stack)prefixMappings.get(prefix);
+            PrefixStack stack = prefixMappings.get(prefix);
             if(stack == null || stack.empty() ){
                 return null;
             }
-            AttributeNS attrNS  = (AttributeNS)stack.peek();
+            AttributeNS attrNS  = stack.peek();
             if(attrNS.isWritten()){
                 if(debug){
                     System.out.println("depth "+nsDepth +" did not return prefix "+prefix);
                 }
                 return null;
             }
-            if (attrNS != null && !attrNS.isWritten() && !isPrefixRedefined(stack, attrNS)) {
+            if (attrNS != null && !attrNS.isWritten() && !stack.isRedefined(attrNS)) {
                  //now check if at output parents it was written
                 int tmp = nsDepth -1;
                 while (tmp >=0) {
@@ -661,31 +650,19 @@ public abstract class BaseCanonicalizer {
         
         @SuppressWarnings("unchecked")
         public void declareNamespace(String prefix, String uri){
-            Stack nsDecls = (Stack)prefixMappings.get(prefix);
+            PrefixStack nsDecls = prefixMappings.get(prefix);
             nsDecl.setPrefix(prefix);
             nsDecl.setUri(uri);
             if(nsDecls == null){
-                nsDecls = new Stack();
-                try {
-                    nsDecls.add(nsDecl.clone());
-                    prefixMappings.put(prefix,nsDecls);
-                } catch (CloneNotSupportedException ex) {
-                    throw new RuntimeException(ex);
-                }
+                nsDecls = new PrefixStack();
+                nsDecls.push(newDeclaration(prefix,uri));
+                prefixMappings.put(prefix,nsDecls);
             }else if(!nsDecls.contains(nsDecl)){
-                try {
-                    nsDecls.add(nsDecl.clone());
-                } catch (CloneNotSupportedException ex) {
-                    throw new RuntimeException(ex);
-                }
-            } else if (nsDecls.contains(nsDecl) && "".equals(prefix)) {
-                AttributeNS top = (AttributeNS)nsDecls.peek();
+                nsDecls.push(newDeclaration(prefix,uri));
+            } else if ("".equals(prefix)) {
+                AttributeNS top = nsDecls.peek();
                 if (!nsDecl.equals(top)) {
-                    try {
-                        nsDecls.add(nsDecl.clone());
-                    } catch (CloneNotSupportedException ex) {
-                        throw new RuntimeException(ex);
-                    }
+                    nsDecls.push(newDeclaration(prefix,uri));
                 }
             }else{
                 return;
@@ -732,12 +709,12 @@ public abstract class BaseCanonicalizer {
             ArrayList pList  = ul.getPopList();
             for(int i=0;i<pList.size();i++){
                 String prefix = (String)pList.get(i);
-                Stack stack = (Stack)prefixMappings.get(prefix);
+                PrefixStack stack = prefixMappings.get(prefix);
                 if(debug){
                     System.out.println("clear prefix"+prefix);
                 }
-                if(!stack.isEmpty()){
-                    stack.pop();
+                if(!stack.empty()){
+                    releaseDeclaration(stack.pop());
                 }
             }
             
@@ -747,12 +724,12 @@ public abstract class BaseCanonicalizer {
                 if(pList.contains(prefix)){
                     continue;
                 }
-                Stack stack = (Stack)prefixMappings.get(prefix);
+                PrefixStack stack = prefixMappings.get(prefix);
                 if(debug){
                     System.out.println("reset written prefix"+prefix);
                 }
-                if(!stack.isEmpty()){
-                    AttributeNS attrNS = (AttributeNS)stack.peek();
+                if(!stack.empty()){
+                    AttributeNS attrNS = stack.peek();
                     attrNS.setWritten(false);
                 }
             }
@@ -760,6 +737,10 @@ public abstract class BaseCanonicalizer {
             rList.clear();
         }
         
+        /**
+         * Forgets every declaration, including the ones made before the first
+         * push, so that a reset context can be reused for another document.
+         */
         public void reset(){
             nsDepth =0;
             for(int i=0;i<clearDepth.size();i++){
@@ -769,14 +750,19 @@ public abstract class BaseCanonicalizer {
                 }
                 ul.clear();
             }
+            for(PrefixStack stack : prefixMappings.values()){
+                while(!stack.empty()){
+                    releaseDeclaration(stack.pop());
+                }
+            }
         }
         
         public String getNamespaceURI(String prefix) {
-            Stack stack = (Stack)prefixMappings.get(prefix);
+            PrefixStack stack = prefixMappings.get(prefix);
             if(stack == null || stack.empty() ){
                 return XMLConstants.NULL_NS_URI;
             }
-            AttributeNS attrNS  = (AttributeNS)stack.peek();
+            AttributeNS attrNS  = stack.peek();
             return attrNS.getUri();
         }
 
@@ -787,11 +773,11 @@ public abstract class BaseCanonicalizer {
             Iterator<String> itr = keys.iterator();
             while(itr.hasNext()){
                 String key = itr.next();
-                Stack stack = (Stack)prefixMappings.get(key);
+                PrefixStack stack = prefixMappings.get(key);
                 if(stack == null || stack.empty() ){
                     continue;
                 }
-                AttributeNS attrNS  = (AttributeNS)stack.peek();
+                AttributeNS attrNS  = stack.peek();
                 if(namespaceURI.equals(attrNS.getUri())){
                     return key;
                 }
@@ -806,11 +792,11 @@ public abstract class BaseCanonicalizer {
             Iterator<String> itr = keys.iterator();
             while(itr.hasNext()){
                 String key = itr.next();
-                Stack stack = (Stack)prefixMappings.get(key);
+                PrefixStack stack = prefixMappings.get(key);
                 if(stack == null || stack.empty() ){
                     continue;
                 }
-                AttributeNS attrNS  = (AttributeNS)stack.peek();
+                AttributeNS attrNS  = stack.peek();
                 if(namespaceURI.equals(attrNS.getUri())){
                     list.add(key);
                 }
@@ -820,15 +806,69 @@ public abstract class BaseCanonicalizer {
             
         }
 
-        private boolean isPrefixRedefined(Stack stack, AttributeNS attrNS) {
-           Iterator it = stack.iterator();
-           while (it.hasNext()) {
-               AttributeNS aNS = (AttributeNS)it.next();
-               if (!attrNS.getUri().equals(aNS.getUri())) {
-                   return true;
-               }
-           }
-           return false;
+        private AttributeNS newDeclaration(String prefix, String uri) {
+            int free = freeDecls.size();
+            AttributeNS attrNS = free > 0 ? freeDecls.remove(free - 1) : new AttributeNS();
+            attrNS.setPrefix(prefix);
+            attrNS.setUri(uri);
+            return attrNS;
+        }
+
+        private void releaseDeclaration(AttributeNS attrNS) {
+            attrNS.reset();
+            freeDecls.add(attrNS);
+        }
+    }
+    
+    /**
+     * Array backed stack of the declarations in scope for one prefix, the
+     * innermost last. Stacks stay in the context map once created and are
+     * emptied rather than dropped.
+     */
+    static final class PrefixStack {
+        private AttributeNS [] decls = new AttributeNS[4];
+        private int size = 0;
+        
+        void push(AttributeNS attrNS){
+            if(size == decls.length){
+                AttributeNS [] tmp = new AttributeNS[size * 2];
+                System.arraycopy(decls, 0, tmp, 0, size);
+                decls = tmp;
+            }
+            decls[size++] = attrNS;
+        }
+        
+        AttributeNS pop(){
+            AttributeNS attrNS = decls[--size];
+            decls[size] = null;
+            return attrNS;
+        }
+        
+        AttributeNS peek(){
+            return decls[size - 1];
+        }
+        
+        boolean empty(){
+            return size == 0;
+        }
+        
+        boolean contains(AttributeNS attrNS){
+            for(int i = 0; i < size; i++){
+                if(attrNS.equals(decls[i])){
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        /* whether a declaration in the stack binds the prefix to another uri */
+        boolean isRedefined(AttributeNS attrNS){
+            for(int i = 0; i < size; i++){
+                if(!attrNS.getUri().equals(decls[i].getUri())){
+                    return true;
+                }
+            }
+            return false;
         }
     }
     
@@ -91,6 +91,20 @@ public class StAXC14nCanonicalizerImpl extends BaseCanonicalizer implements XMLS
         }
         elemBuffer = new UnsyncByteArrayOutputStream();
     }
+    /**
+     * Also drops what an interrupted document left behind, the pending start
+     * tag and the names of the elements still open, so that the instance can
+     * be reused.
+     */
+    public void reset(){
+        super.reset();
+        closeStartTag = false;
+        for(int i=0;i<elementNames.length;i++){
+            elementNames[i].getUtf8Data().reset();
+        }
+        nsContext.reset();
+    }
+    
     /**
      * This method has not effect when called.
      * 
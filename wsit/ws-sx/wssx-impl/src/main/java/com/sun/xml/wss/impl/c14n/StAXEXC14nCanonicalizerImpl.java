@@ -116,6 +116,7 @@ public class StAXEXC14nCanonicalizerImpl extends StAXC14nCanonicalizerImpl  {
 
     public void reset(){
         super.reset();
+        visiblyUtilized.clear();
         exC14NContext.reset();
     }
 
@@ -359,7 +360,8 @@ public class StAXEXC14nCanonicalizerImpl extends StAXC14nCanonicalizerImpl  {
         for ( int i=0; i<size; i++) {
             attr = (AttributeNS) itr.get(i);
             tmpBuffer.reset();
-            _stream.write(attr.getUTF8Data(tmpBuffer));
+            outputAttrToWriter("xmlns",attr.getPrefix(),attr.getUri(),tmpBuffer);
+            _stream.write(tmpBuffer.getBytes(),0,tmpBuffer.getLength());
         }
     }
 
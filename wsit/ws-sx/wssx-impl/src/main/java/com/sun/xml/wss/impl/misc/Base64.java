@@ -58,10 +58,15 @@
  */
 package com.sun.xml.wss.impl.misc;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.xml.security.exceptions.Base64DecodingException;
 
 
@@ -103,6 +108,8 @@ public class Base64 {
     static private final boolean fDebug          = false;
     static final private byte [] base64Alphabet        = new byte[BASELENGTH];
     static final private char [] lookUpBase64Alphabet  = new char[LOOKUPLENGTH];
+    /** characters handed to an XMLStreamWriter or taken from an XMLStreamReader per call */
+    static private final int  CHUNK_CHARS        = 1024;
     
     static {
         
@@ -427,6 +434,83 @@ public class Base64 {
         return encode(binaryData, 2048);
     }
     
+    /**
+     * Encodes the data and writes the characters to the stream writer in
+     * fixed size chunks, without building the intermediate <code>char[]</code>
+     * and <code>String</code> of {@link #encode(byte[])}. The characters written,
+     * line breaks included, are the same as the ones returned by
+     * {@link #encode(byte[])}.
+     *
+     * @param binaryData data to encode
+     * @param writer the writer receiving the characters
+     * @throws XMLStreamException
+     */
+    public static void encode(byte[] binaryData, XMLStreamWriter writer) throws XMLStreamException {
+        if (binaryData == null)
+            return;
+        encode(binaryData, 0, binaryData.length, 2048, writer);
+    }
+    
+    /**
+     * Encodes <code>len</code> bytes of the data starting at <code>offset</code>
+     * and writes the characters to the stream writer in fixed size chunks. Line
+     * breaks are placed as {@link #encode(byte[],int)} places them.
+     *
+     * @param binaryData data to encode
+     * @param offset offset of the first byte to encode
+     * @param len number of bytes to encode
+     * @param length line length, see {@link #encode(byte[],int)}
+     * @param writer the writer receiving the characters
+     * @throws XMLStreamException
+     */
+    public static void encode(byte[] binaryData, int offset, int len, int length, XMLStreamWriter writer) throws XMLStreamException {
+        if (length<4) {
+            length=Integer.MAX_VALUE;
+        }
+        if (binaryData == null || len == 0)
+            return;
+        
+        int      fewerThan24bits   = (len*EIGHTBIT)%TWENTYFOURBITGROUP;
+        int      numberTriplets    = len/3;
+        int      numberQuartet     = fewerThan24bits != 0 ? numberTriplets+1 : numberTriplets;
+        int      wrappedQuartets   = ((numberQuartet-1)/(length/4))*19;
+        
+        char[] chunk = new char[CHUNK_CHARS];
+        int chunkIndex = 0;
+        int dataIndex = offset;
+        for (int i = 0; i < numberTriplets; i++) {
+            if (chunkIndex > CHUNK_CHARS - 5) {
+                writer.writeCharacters(chunk, 0, chunkIndex);
+                chunkIndex = 0;
+            }
+            int bits = (binaryData[dataIndex++] & 0xff) << 16
+                    | (binaryData[dataIndex++] & 0xff) << 8
+                    | (binaryData[dataIndex++] & 0xff);
+            chunk[chunkIndex++] = lookUpBase64Alphabet[bits >>> 18];
+            chunk[chunkIndex++] = lookUpBase64Alphabet[(bits >>> 12) & 0x3f];
+            chunk[chunkIndex++] = lookUpBase64Alphabet[(bits >>> 6) & 0x3f];
+            chunk[chunkIndex++] = lookUpBase64Alphabet[bits & 0x3f];
+            if (i < wrappedQuartets && (i+1)%19 == 0) {
+                chunk[chunkIndex++] = 0xa;
+            }
+        }
+        if (fewerThan24bits != 0) {
+            if (chunkIndex > CHUNK_CHARS - 4) {
+                writer.writeCharacters(chunk, 0, chunkIndex);
+                chunkIndex = 0;
+            }
+            int bits = (binaryData[dataIndex] & 0xff) << 16;
+            if (fewerThan24bits == SIXTEENBIT) {
+                bits |= (binaryData[dataIndex+1] & 0xff) << 8;
+            }
+            chunk[chunkIndex++] = lookUpBase64Alphabet[bits >>> 18];
+            chunk[chunkIndex++] = lookUpBase64Alphabet[(bits >>> 12) & 0x3f];
+            chunk[chunkIndex++] = fewerThan24bits == SIXTEENBIT ? lookUpBase64Alphabet[(bits >>> 6) & 0x3f] : PAD;
+            chunk[chunkIndex++] = PAD;
+        }
+        writer.writeCharacters(chunk, 0, chunkIndex);
+    }
+    
     public static void encodeToStream(byte[] binaryData,int length,OutputStream stream) throws IOException {
         encodeToStream(binaryData,0,length,stream);
     }
@@ -982,6 +1066,118 @@ public class Base64 {
         
         return ;
     }
+    /**
+     * Decodes the Base64 character content of the current element. Character
+     * events are read up to the end tag of the element, where the reader is left,
+     * as <code>StreamUtil.getCV</code> reads them. The characters are passed to the
+     * <code>java.util.Base64</code> decoder in the chunks the reader reports, so no
+     * <code>String</code> or byte copy of the whole encoded value is built. White
+     * space is skipped; any other character outside of the alphabet is rejected.
+     *
+     * @param reader reader positioned on the content of the element
+     * @return the decoded octets
+     * @throws XMLStreamException
+     * @throws Base64DecodingException
+     */
+    public static byte[] decode(XMLStreamReader reader) throws XMLStreamException, Base64DecodingException {
+        ElementTextInputStream text = new ElementTextInputStream(reader);
+        InputStream is = java.util.Base64.getDecoder().wrap(text);
+        ByteArrayOutputStream os = new ByteArrayOutputStream(CHUNK_CHARS);
+        byte[] chunk = new byte[CHUNK_CHARS];
+        try {
+            int len;
+            while ((len = is.read(chunk, 0, chunk.length)) != -1) {
+                os.write(chunk, 0, len);
+            }
+            // the decoder stops at the padding, nothing but white space may follow it
+            if (text.read(chunk, 0, chunk.length) != -1) {
+                throw new Base64DecodingException("decoding.general");
+            }
+        } catch (IOException ex) {
+            if (text.readerException != null) {
+                throw text.readerException;
+            }
+            throw new Base64DecodingException("decoding.general", ex);
+        }
+        return os.toByteArray();
+    }
+    
+    /**
+     * Character content of an element as US-ASCII octets, without white space.
+     * Characters outside of US-ASCII are mapped to a character the decoder rejects.
+     */
+    private static final class ElementTextInputStream extends InputStream {
+        
+        private final XMLStreamReader reader;
+        private final char[] chars = new char[CHUNK_CHARS];
+        private int pos = 0;
+        private int limit = 0;
+        private int textOffset = 0;
+        XMLStreamException readerException;
+        
+        ElementTextInputStream(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+        
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return (read(b, 0, 1) == -1) ? -1 : (b[0] & 0xff);
+        }
+        
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int n = 0;
+            while (n < len) {
+                if (pos == limit && !fill()) {
+                    break;
+                }
+                char c = chars[pos++];
+                if (c == 0x20 || c == 0xd || c == 0xa || c == 0x9) {
+                    continue;
+                }
+                b[off + n++] = (c < 0x80) ? (byte) c : (byte) '*';
+            }
+            return (n == 0) ? -1 : n;
+        }
+        
+        private boolean fill() throws IOException {
+            try {
+                int eventType = reader.getEventType();
+                while (eventType != XMLStreamReader.END_ELEMENT) {
+                    if (eventType == XMLStreamReader.CHARACTERS
+                            || eventType == XMLStreamReader.CDATA
+                            || eventType == XMLStreamReader.SPACE) {
+                        int n = reader.getTextCharacters(textOffset, chars, 0, chars.length);
+                        if (n > 0) {
+                            textOffset += n;
+                            pos = 0;
+                            limit = n;
+                            return true;
+                        }
+                    } else if (eventType == XMLStreamReader.ENTITY_REFERENCE) {
+                        String text = reader.getText();
+                        if (textOffset < text.length()) {
+                            int n = Math.min(chars.length, text.length() - textOffset);
+                            text.getChars(textOffset, textOffset + n, chars, 0);
+                            textOffset += n;
+                            pos = 0;
+                            limit = n;
+                            return true;
+                        }
+                    }
+                    textOffset = 0;
+                    eventType = reader.next();
+                }
+                return false;
+            } catch (XMLStreamException ex) {
+                readerException = ex;
+                throw new IOException(ex);
+            }
+        }
+    }
+    
     /**
      * remove WhiteSpace from MIME containing encoded Base64 data.
      *
@@ -92,6 +92,8 @@ import java.util.logging.Logger;
 public class MessagePolicyVerifier implements PolicyVerifier{
     private ProcessingContext ctx = null;
     private TargetResolver targetResolver;
+    // records the current verification run so that it can be replayed for similar messages
+    private VerificationPlan.Recorder recorder = null;
     
     private static Logger log = Logger.getLogger(
             LogDomainConstants.WSS_API_DOMAIN,
@@ -138,6 +140,15 @@ public class MessagePolicyVerifier implements PolicyVerifier{
             throw new PolicyViolationException("ERROR: No security header found in the message");
         } else{ // verify policy now
             try{
+                String fingerprint = VerificationPlan.fingerprint(actualPolicy, inferredSecurityPolicy);
+                VerificationPlan plan = fingerprint == null ? null : VerificationPlan.get(actualPolicy, fingerprint);
+                if (plan != null) {
+                    plan.replay(this, actualPolicy, inferredSecurityPolicy);
+                    return;
+                }
+                if (fingerprint != null) {
+                    recorder = new VerificationPlan.Recorder(actualPolicy, inferredSecurityPolicy);
+                }
                 for(int i = 0; i < actualPolicy.size(); i++) {
                     WSSPolicy actualPol = (WSSPolicy)actualPolicy.get(i);
                     if(PolicyTypeUtil.isSecondaryPolicy(actualPol)){
@@ -146,9 +157,16 @@ public class MessagePolicyVerifier implements PolicyVerifier{
                         processPrimaryPolicy(actualPol, inferredSecurityPolicy);
                     }
                 }
-                
+                if (recorder != null) {
+                    plan = recorder.toPlan();
+                    if (plan != null) {
+                        VerificationPlan.put(actualPolicy, fingerprint, plan);
+                    }
+                }
             } catch(Exception e){
                 throw new PolicyViolationException(e);
+            } finally {
+                recorder = null;
             }
         }
     }
@@ -180,7 +198,7 @@ public class MessagePolicyVerifier implements PolicyVerifier{
                 for(int j = 0; j < inferredSecurityPolicy.size(); j++) {
                     WSSPolicy pol = (WSSPolicy)inferredSecurityPolicy.get(j);
                     if(PolicyTypeUtil.timestampPolicy(pol)){
-                        inferredSecurityPolicy.remove(pol);
+                        consume(inferredSecurityPolicy, pol);
                         found = true;
                         break;
                     }
@@ -223,7 +241,7 @@ public class MessagePolicyVerifier implements PolicyVerifier{
                                     null, true);
                         }
                         
-                        inferredSecurityPolicy.remove(pol);
+                        consume(inferredSecurityPolicy, pol);
                         found = true;
                         break;
                     }
@@ -241,7 +259,7 @@ public class MessagePolicyVerifier implements PolicyVerifier{
                     if (PolicyTypeUtil.samlTokenPolicy(pol)) {
                         //AuthenticationTokenPolicy.SAMLAssertionBinding actual = (SAMLAssertionBinding) actualPol.getFeatureBinding();
                         //AuthenticationTokenPolicy.SAMLAssertionBinding inferred = (SAMLAssertionBinding) pol;
-                        inferredSecurityPolicy.remove(pol);
+                        consume(inferredSecurityPolicy, pol);
                         found = true;
                         break;
                     }
@@ -261,7 +279,7 @@ public class MessagePolicyVerifier implements PolicyVerifier{
                                 (SAMLAssertionBinding) actualPol.getFeatureBinding().getKeyBinding();
                         AuthenticationTokenPolicy.SAMLAssertionBinding inferred =
                                 (SAMLAssertionBinding) pol;
-                        inferredSecurityPolicy.remove(pol);
+                        consume(inferredSecurityPolicy, pol);
                         found = true;
                         break;
                     }
@@ -327,7 +345,7 @@ public class MessagePolicyVerifier implements PolicyVerifier{
                 boolean isTBTrue = verifySignTargetBinding((SignaturePolicy.FeatureBinding)actualSignPolicy.getFeatureBinding(),
                         (SignaturePolicy.FeatureBinding)inferredPol.getFeatureBinding());
                 
-                inferredSecurityPolicy.remove(pol);
+                consume(inferredSecurityPolicy, pol);
                 if(!isKBTrue){
                     log.log(Level.SEVERE, LogStringsMessages.WSS_0206_POLICY_VIOLATION_EXCEPTION());
                     throw new XWSSecurityException("Policy verification error: " +
@@ -350,7 +368,7 @@ public class MessagePolicyVerifier implements PolicyVerifier{
                         throw new XWSSecurityException("Signature Policy verification error: Looking for a Signature Element " + " in Security header, but found " + pol + ".");
                     }
                 } else {
-                    inferredSecurityPolicy.remove(pol);
+                    consume(inferredSecurityPolicy, pol);
                 }
             }
         } else if(PolicyTypeUtil.encryptionPolicy(actualPol)){
@@ -371,7 +389,7 @@ public class MessagePolicyVerifier implements PolicyVerifier{
                 boolean isTBTrue = verifyEncTargetBinding((EncryptionPolicy.FeatureBinding)actualEncryptionPolicy.getFeatureBinding(),
                         (EncryptionPolicy.FeatureBinding)inferredPol.getFeatureBinding());
                 
-                inferredSecurityPolicy.remove(pol);
+                consume(inferredSecurityPolicy, pol);
                 if(!isKBTrue){
                     log.log(Level.SEVERE, LogStringsMessages.WSS_0206_POLICY_VIOLATION_EXCEPTION());
                     throw new XWSSecurityException("Encryption Policy verification error: " +
@@ -400,11 +418,14 @@ public class MessagePolicyVerifier implements PolicyVerifier{
                             for(Target moreTarget : moreTargets){
                                 ((EncryptionPolicy.FeatureBinding)inferredPol.getFeatureBinding()).addTargetBinding(moreTarget);
                             }
+                            if (recorder != null) {
+                                recorder.mergeTargets(inferredPol2, inferredPol);
+                            }
                             if(actualList.size() == inferredList.size()){
-                                inferredSecurityPolicy.remove(inferredPol2);
+                                consume(inferredSecurityPolicy, inferredPol2);
                                 break;
                             }
-                            inferredSecurityPolicy.remove(inferredPol2);
+                            consume(inferredSecurityPolicy, inferredPol2);
                             nthEncrypt++;
                             inferredPol2 = getNthEncryptionPolicy(inferredSecurityPolicy, nthEncrypt);
                         }
@@ -424,8 +445,18 @@ public class MessagePolicyVerifier implements PolicyVerifier{
         }
         
     }
+    private void consume(MessagePolicy inferredSecurityPolicy, WSSPolicy inferredPol) {
+        inferredSecurityPolicy.remove(inferredPol);
+        if (recorder != null) {
+            recorder.consume(inferredPol);
+        }
+    }
+
      @SuppressWarnings("unchecked")
-    private void checkTargets(WSSPolicy actualPol, WSSPolicy inferredPol) throws XWSSecurityException{
+    void checkTargets(WSSPolicy actualPol, WSSPolicy inferredPol) throws XWSSecurityException{
+        if (recorder != null) {
+            recorder.checkTargets(actualPol, inferredPol);
+        }
         
         List<Target> inferredTargets = null;
         List<Target> actualTargets = null;
@@ -827,6 +858,10 @@ public class MessagePolicyVerifier implements PolicyVerifier{
 
      @SuppressWarnings("unchecked")
     private boolean checkTargetPresence(WSSPolicy actualPol) throws XWSSecurityException{
+        // the outcome depends on the message content, not on its security header
+        if (recorder != null) {
+            recorder.notReplayable();
+        }
         List<Target> actualTargets = null;
         if(PolicyTypeUtil.signaturePolicy(actualPol)){
             SignaturePolicy.FeatureBinding actualFeatureBinding =
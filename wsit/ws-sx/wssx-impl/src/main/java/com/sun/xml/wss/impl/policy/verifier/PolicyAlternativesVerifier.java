@@ -50,7 +50,9 @@ import com.sun.xml.wss.impl.policy.spi.PolicyVerifier;
 import com.sun.xml.wss.logging.LogDomainConstants;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.WeakHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -63,6 +65,10 @@ public class PolicyAlternativesVerifier implements PolicyVerifier {
     private static final  Logger log = Logger.getLogger(
             LogDomainConstants.WSS_API_DOMAIN,
             LogDomainConstants.WSS_API_DOMAIN_BUNDLE);
+
+    // the selector only depends on the configured alternatives, avoid a ServiceLoader lookup per request
+    private static final Map<PolicyAlternatives, AlternativeSelector> selectors =
+            new WeakHashMap<PolicyAlternatives, AlternativeSelector>();
     
     /** Creates a new instance of MessagePolicyVerifier */
     public PolicyAlternativesVerifier(ProcessingContext ctx, TargetResolver targetResolver) {
@@ -85,7 +91,7 @@ public class PolicyAlternativesVerifier implements PolicyVerifier {
            //do policy verification 
            // try with an AlternativeSelector first
            //AlternativeSelector selector = new  DefaultAlternativeSelector();
-           AlternativeSelector selector = findAlternativesSelector(mps);
+           AlternativeSelector selector = getAlternativesSelector(confPolicies, mps);
            MessagePolicy toVerify = selector.selectAlternative(ctx, mps, recvdPolicy);
            //TODO: the PolicyVerifier.verifyPolicy() method expects the toVerify argument to be
            //passed again. since that interface is a legacy interface,  not changing it
@@ -107,6 +113,17 @@ public class PolicyAlternativesVerifier implements PolicyVerifier {
 
     }
     
+    private AlternativeSelector getAlternativesSelector(PolicyAlternatives confPolicies, List<MessagePolicy> alternatives) {
+        synchronized (selectors) {
+            AlternativeSelector selector = selectors.get(confPolicies);
+            if (selector == null) {
+                selector = findAlternativesSelector(alternatives);
+                selectors.put(confPolicies, selector);
+            }
+            return selector;
+        }
+    }
+
     private AlternativeSelector findAlternativesSelector(List<MessagePolicy> alternatives) {
         ServiceLoader<AlternativeSelector> alternativeSelectorLoader = ServiceLoader.load(AlternativeSelector.class);
         //not clear from javadoc if null is returned ever or an RT exception thrown when it does not find
@@ -0,0 +1,295 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.wss.impl.policy.verifier;
+
+import com.sun.xml.wss.XWSSecurityException;
+import com.sun.xml.wss.impl.PolicyTypeUtil;
+import com.sun.xml.wss.impl.policy.MLSPolicy;
+import com.sun.xml.wss.impl.policy.PolicyGenerationException;
+import com.sun.xml.wss.impl.policy.mls.AuthenticationTokenPolicy.UsernameTokenBinding;
+import com.sun.xml.wss.impl.policy.mls.DerivedTokenKeyBinding;
+import com.sun.xml.wss.impl.policy.mls.EncryptionPolicy;
+import com.sun.xml.wss.impl.policy.mls.MessagePolicy;
+import com.sun.xml.wss.impl.policy.mls.SignaturePolicy;
+import com.sun.xml.wss.impl.policy.mls.SymmetricKeyBinding;
+import com.sun.xml.wss.impl.policy.mls.Target;
+import com.sun.xml.wss.impl.policy.mls.WSSPolicy;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The steps a successful {@link MessagePolicyVerifier} run took to match an inferred
+ * security policy against a configured {@link MessagePolicy}.
+ * <p>
+ * Matching the inferred policy against the configured one only depends on the shape of
+ * the security header (token and key types, algorithms, number of targets), which is
+ * captured by {@link #fingerprint(MessagePolicy, MessagePolicy)}. Messages with the same
+ * fingerprint replay the recorded steps, only the targets are still resolved against
+ * each message.
+ */
+final class VerificationPlan {
+
+    private static final int MAX_PLANS_PER_POLICY = 16;
+    private static final String SIGNATURE_TARGET = "{http://www.w3.org/2000/09/xmldsig#}Signature";
+
+    private static final int CONSUME = 0;
+    private static final int MERGE_TARGETS = 1;
+    private static final int CHECK_TARGETS = 2;
+
+    // configured policies are long lived, the plans go away with them
+    private static final Map<MessagePolicy, Map<String, VerificationPlan>> plans =
+            new WeakHashMap<MessagePolicy, Map<String, VerificationPlan>>();
+
+    // triples of operation, first and second argument
+    private final int[] steps;
+
+    private VerificationPlan(int[] steps) {
+        this.steps = steps;
+    }
+
+    static VerificationPlan get(MessagePolicy actualPolicy, String fingerprint) {
+        synchronized (plans) {
+            Map<String, VerificationPlan> policyPlans = plans.get(actualPolicy);
+            return policyPlans == null ? null : policyPlans.get(fingerprint);
+        }
+    }
+
+    static void put(MessagePolicy actualPolicy, String fingerprint, VerificationPlan plan) {
+        synchronized (plans) {
+            Map<String, VerificationPlan> policyPlans = plans.get(actualPolicy);
+            if (policyPlans == null) {
+                policyPlans = new LinkedHashMap<String, VerificationPlan>(16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, VerificationPlan> eldest) {
+                        return size() > MAX_PLANS_PER_POLICY;
+                    }
+                };
+                plans.put(actualPolicy, policyPlans);
+            }
+            policyPlans.put(fingerprint, plan);
+        }
+    }
+
+    /**
+     * Replays the recorded steps against a message with the same fingerprint.
+     */
+    @SuppressWarnings("unchecked")
+    void replay(MessagePolicyVerifier verifier, MessagePolicy actualPolicy,
+            MessagePolicy inferredPolicy) throws Exception {
+        WSSPolicy[] actual = snapshot(actualPolicy);
+        WSSPolicy[] inferred = snapshot(inferredPolicy);
+        for (int i = 0; i < steps.length; i += 3) {
+            switch (steps[i]) {
+                case CONSUME:
+                    inferredPolicy.remove(inferred[steps[i + 1]]);
+                    break;
+                case MERGE_TARGETS:
+                    EncryptionPolicy.FeatureBinding from =
+                            (EncryptionPolicy.FeatureBinding) inferred[steps[i + 1]].getFeatureBinding();
+                    EncryptionPolicy.FeatureBinding to =
+                            (EncryptionPolicy.FeatureBinding) inferred[steps[i + 2]].getFeatureBinding();
+                    for (Target target : (List<Target>) from.getTargetBindings()) {
+                        to.addTargetBinding(target);
+                    }
+                    break;
+                case CHECK_TARGETS:
+                    verifier.checkTargets(actual[steps[i + 1]], inferred[steps[i + 2]]);
+                    break;
+                default:
+                    throw new XWSSecurityException("Unknown policy verification step " + steps[i]);
+            }
+        }
+    }
+
+    /**
+     * Computes the fingerprint of everything policy verification depends on apart from the
+     * targets themselves, or <code>null</code> if the policies can't be fingerprinted.
+     */
+    static String fingerprint(MessagePolicy actualPolicy, MessagePolicy inferredPolicy) {
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < inferredPolicy.size(); i++) {
+                appendPolicy(sb, (WSSPolicy) inferredPolicy.get(i));
+                sb.append(';');
+            }
+            sb.append('|');
+            // verification also depends on the number of configured targets
+            for (int i = 0; i < actualPolicy.size(); i++) {
+                sb.append(targetCount((WSSPolicy) actualPolicy.get(i))).append(';');
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static void appendPolicy(StringBuilder sb, WSSPolicy pol) throws PolicyGenerationException {
+        sb.append(pol.getType());
+        if (PolicyTypeUtil.signaturePolicy(pol)) {
+            SignaturePolicy.FeatureBinding fb = (SignaturePolicy.FeatureBinding) pol.getFeatureBinding();
+            sb.append(',').append(fb.getCanonicalizationAlgorithm());
+            sb.append(',').append(fb.getTargetBindings().size());
+            for (Object target : fb.getTargetBindings()) {
+                if (SIGNATURE_TARGET.equals(((Target) target).getValue())) {
+                    sb.append(",endorsing");
+                    break;
+                }
+            }
+            appendKeyBinding(sb, pol.getKeyBinding());
+        } else if (PolicyTypeUtil.encryptionPolicy(pol)) {
+            EncryptionPolicy.FeatureBinding fb = (EncryptionPolicy.FeatureBinding) pol.getFeatureBinding();
+            sb.append(',').append(fb.getDataEncryptionAlgorithm());
+            sb.append(',').append(fb.getTargetBindings().size());
+            sb.append(',').append(fb.encryptsIssuedToken());
+            sb.append(',').append(fb.encryptsSignature());
+            appendKeyBinding(sb, pol.getKeyBinding());
+        } else if (PolicyTypeUtil.usernameTokenPolicy(pol)) {
+            appendUsernameToken(sb, (UsernameTokenBinding) pol);
+            sb.append(',').append(((UsernameTokenBinding) pol).hasNoPassword());
+        }
+    }
+
+    private static void appendKeyBinding(StringBuilder sb, MLSPolicy keyBinding) throws PolicyGenerationException {
+        sb.append('[');
+        if (keyBinding != null) {
+            sb.append(keyBinding.getType());
+            if (PolicyTypeUtil.usernameTokenBinding(keyBinding)) {
+                appendUsernameToken(sb, (UsernameTokenBinding) keyBinding);
+            } else if (PolicyTypeUtil.symmetricKeyBinding(keyBinding)) {
+                sb.append(',').append(((SymmetricKeyBinding) keyBinding).usesEKSHA1KeyBinding());
+                appendKeyBinding(sb, keyBinding.getKeyBinding());
+            } else if (PolicyTypeUtil.derivedTokenKeyBinding(keyBinding)) {
+                appendKeyBinding(sb, ((DerivedTokenKeyBinding) keyBinding).getOriginalKeyBinding());
+            }
+        }
+        sb.append(']');
+    }
+
+    private static void appendUsernameToken(StringBuilder sb, UsernameTokenBinding binding) {
+        sb.append(',').append(binding.getUseCreated()).append(',').append(binding.getUseNonce());
+    }
+
+    private static int targetCount(WSSPolicy pol) {
+        if (PolicyTypeUtil.signaturePolicy(pol)) {
+            return ((SignaturePolicy.FeatureBinding) pol.getFeatureBinding()).getTargetBindings().size();
+        } else if (PolicyTypeUtil.encryptionPolicy(pol)) {
+            return ((EncryptionPolicy.FeatureBinding) pol.getFeatureBinding()).getTargetBindings().size();
+        }
+        return 0;
+    }
+
+    static WSSPolicy[] snapshot(MessagePolicy policy) throws Exception {
+        WSSPolicy[] policies = new WSSPolicy[policy.size()];
+        for (int i = 0; i < policies.length; i++) {
+            policies[i] = (WSSPolicy) policy.get(i);
+        }
+        return policies;
+    }
+
+    /**
+     * Records the steps of a verification run in terms of positions in the configured
+     * and inferred policies as they were before verification started.
+     */
+    static final class Recorder {
+
+        private final WSSPolicy[] actual;
+        private final WSSPolicy[] inferred;
+        private int[] steps = new int[24];
+        private int length = 0;
+        private boolean replayable = true;
+
+        Recorder(MessagePolicy actualPolicy, MessagePolicy inferredPolicy) throws Exception {
+            this.actual = snapshot(actualPolicy);
+            this.inferred = snapshot(inferredPolicy);
+        }
+
+        void consume(WSSPolicy inferredPol) {
+            record(CONSUME, indexOf(inferred, inferredPol), 0);
+        }
+
+        void mergeTargets(WSSPolicy from, WSSPolicy to) {
+            record(MERGE_TARGETS, indexOf(inferred, from), indexOf(inferred, to));
+        }
+
+        void checkTargets(WSSPolicy actualPol, WSSPolicy inferredPol) {
+            record(CHECK_TARGETS, indexOf(actual, actualPol), indexOf(inferred, inferredPol));
+        }
+
+        /**
+         * Marks the run as depending on the message content beyond its fingerprint.
+         */
+        void notReplayable() {
+            replayable = false;
+        }
+
+        VerificationPlan toPlan() {
+            return replayable ? new VerificationPlan(Arrays.copyOf(steps, length)) : null;
+        }
+
+        private void record(int step, int first, int second) {
+            if (first < 0 || second < 0) {
+                replayable = false;
+                return;
+            }
+            if (length + 3 > steps.length) {
+                steps = Arrays.copyOf(steps, steps.length * 2);
+            }
+            steps[length++] = step;
+            steps[length++] = first;
+            steps[length++] = second;
+        }
+
+        private static int indexOf(WSSPolicy[] policies, WSSPolicy pol) {
+            for (int i = 0; i < policies.length; i++) {
+                if (policies[i] == pol) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
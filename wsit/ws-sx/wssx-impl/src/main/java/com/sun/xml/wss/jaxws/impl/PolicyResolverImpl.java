@@ -76,6 +76,7 @@ import com.sun.xml.ws.security.trust.WSTrustVersion;
 import com.sun.xml.wss.impl.ProcessingContextImpl;
 import com.sun.xml.wss.impl.policy.SecurityPolicy;
 import com.sun.xml.wss.jaxws.impl.logging.LogDomainConstants;
+import com.sun.xml.wss.provider.wsit.ActionOperationIndex;
 import java.util.logging.Logger;
 
 /**
@@ -92,6 +93,7 @@ public class PolicyResolverImpl implements PolicyResolver {
     private WSDLBoundOperation cachedOperation = null;
     private HashMap<WSDLBoundOperation, SecurityPolicyHolder> inMessagePolicyMap = null;
     private HashMap<String, SecurityPolicyHolder> inProtocolPM = null;
+    private ActionOperationIndex actionIndex = null;
     //private PolicyAttributes pa = null;
     private AddressingVersion addVer = null;
     private RmProtocolVersion rmVer = null;
@@ -108,8 +110,18 @@ public class PolicyResolverImpl implements PolicyResolver {
      * Creates a new instance of OperationResolverImpl
      */
     public PolicyResolverImpl(HashMap<WSDLBoundOperation, SecurityPolicyHolder> inMessagePolicyMap, HashMap<String, SecurityPolicyHolder> ip, WSDLBoundOperation cachedOperation, TubeConfiguration tubeConfig, AddressingVersion addVer, boolean isClient, RmProtocolVersion rmVer, McProtocolVersion mcVer) {
+        this(inMessagePolicyMap, ip, ActionOperationIndex.forOperations(inMessagePolicyMap.keySet()),
+                cachedOperation, tubeConfig, addVer, isClient, rmVer, mcVer);
+    }
+
+    /**
+     * Creates a new instance of OperationResolverImpl resolving operations through
+     * the given wsa:Action index
+     */
+    public PolicyResolverImpl(HashMap<WSDLBoundOperation, SecurityPolicyHolder> inMessagePolicyMap, HashMap<String, SecurityPolicyHolder> ip, ActionOperationIndex actionIndex, WSDLBoundOperation cachedOperation, TubeConfiguration tubeConfig, AddressingVersion addVer, boolean isClient, RmProtocolVersion rmVer, McProtocolVersion mcVer) {
         this.inMessagePolicyMap = inMessagePolicyMap;
         this.inProtocolPM = ip;
+        this.actionIndex = actionIndex;
         this.cachedOperation = cachedOperation;
         this.tubeConfig = tubeConfig;
         this.addVer = addVer;
@@ -325,25 +337,8 @@ public class PolicyResolverImpl implements PolicyResolver {
         return false;
     }
 
-    private String getAction(WSDLOperation operation) {
-        if (!isClient) {
-            return operation.getInput().getAction();
-        } else {
-            return operation.getOutput().getAction();
-        }
-    }
-
     private WSDLBoundOperation getWSDLOpFromAction() {
-        Set<WSDLBoundOperation> keys = inMessagePolicyMap.keySet();
-        for (WSDLBoundOperation wbo : keys) {
-            WSDLOperation wo = wbo.getOperation();
-            // WsaWSDLOperationExtension extensions = wo.getExtension(WsaWSDLOperationExtension.class);
-            String confAction = getAction(wo);
-            if (confAction != null && confAction.equals(action)) {
-                return wbo;
-            }
-        }
-        return null;
+        return actionIndex.getOperation(action, !isClient);
     }
 }
 
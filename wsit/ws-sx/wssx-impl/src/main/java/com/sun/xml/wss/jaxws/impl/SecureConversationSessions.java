@@ -0,0 +1,195 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 1997-2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.wss.jaxws.impl;
+
+import com.sun.xml.ws.security.IssuedTokenContext;
+import com.sun.xml.wss.jaxws.impl.logging.LogDomainConstants;
+import com.sun.xml.wss.jaxws.impl.logging.LogStringsMessages;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.ws.WebServiceException;
+
+/**
+ * Secure conversations of all copies of a client security tube, keyed by SC policy id.
+ * <p>
+ * Only one handshake per SC policy is in flight, concurrent callers wait for its result.
+ * When a renewal percentage is set, a replacement of each security context is established
+ * in the background once that share of its lifetime has passed.
+ */
+class SecureConversationSessions {
+
+    private static final Logger log =
+            Logger.getLogger(
+            LogDomainConstants.WSS_JAXWS_IMPL_DOMAIN,
+            LogDomainConstants.WSS_JAXWS_IMPL_DOMAIN_BUNDLE);
+
+    /**
+     * Runs the handshake that establishes a secure conversation.
+     */
+    interface Handshake {
+
+        IssuedTokenContext establish() throws Exception;
+    }
+
+    /**
+     * Replaces a security context that is about to expire.
+     */
+    interface Renewal {
+
+        /**
+         * Establishes a replacement of the given context, puts it in use and cancels the given one.
+         * Does nothing if the given context is no longer in use.
+         */
+        void renew(IssuedTokenContext current) throws Exception;
+    }
+
+    private final int renewalPercent;
+    private final ScheduledExecutorService executor;
+    private final ConcurrentMap<String, FutureTask<IssuedTokenContext>> pendingEstablishments =
+            new ConcurrentHashMap<String, FutureTask<IssuedTokenContext>>();
+    private final ConcurrentMap<String, ScheduledFuture<?>> scheduledRenewals =
+            new ConcurrentHashMap<String, ScheduledFuture<?>>();
+    private volatile boolean closed;
+
+    /**
+     * @param renewalPercent percentage of the lifetime of a security context after which it is
+     *        replaced, renewal is disabled unless it is between 1 and 99
+     * @param executor runs the renewals, may be {@code null} if renewal is disabled
+     */
+    SecureConversationSessions(int renewalPercent, ScheduledExecutorService executor) {
+        this.renewalPercent = (renewalPercent > 0 && renewalPercent < 100 && executor != null) ? renewalPercent : 0;
+        this.executor = executor;
+    }
+
+    /**
+     * Establishes the secure conversation for the given SC policy with the handshake unless
+     * another caller is doing so already, in which case its result is returned.
+     */
+    IssuedTokenContext establish(final String policyId, final Handshake handshake) {
+        final FutureTask<IssuedTokenContext> task = new FutureTask<IssuedTokenContext>(new Callable<IssuedTokenContext>() {
+            public IssuedTokenContext call() throws Exception {
+                return handshake.establish();
+            }
+        });
+        FutureTask<IssuedTokenContext> pending = pendingEstablishments.putIfAbsent(policyId, task);
+        if (pending == null) {
+            pending = task;
+            try {
+                task.run();
+            } finally {
+                pendingEstablishments.remove(policyId, task);
+            }
+        }
+        try {
+            return pending.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new WebServiceException(LogStringsMessages.WSSTUBE_0035_ERROR_ISSUEDTOKEN_CREATION(), ie);
+        } catch (ExecutionException ee) {
+            final Throwable cause = ee.getCause();
+            if (cause instanceof WebServiceException) {
+                throw (WebServiceException) cause;
+            }
+            log.log(Level.SEVERE,
+                    LogStringsMessages.WSSTUBE_0035_ERROR_ISSUEDTOKEN_CREATION(), cause);
+            throw new WebServiceException(LogStringsMessages.WSSTUBE_0035_ERROR_ISSUEDTOKEN_CREATION(), cause);
+        }
+    }
+
+    /**
+     * Schedules the replacement of the given security context, which has just been put in use
+     * for the given SC policy. A replacement scheduled for an earlier context is cancelled.
+     */
+    void scheduleRenewal(final String policyId, final IssuedTokenContext current, final Renewal renewal) {
+        final Date created = current.getCreationTime();
+        final Date expires = current.getExpirationTime();
+        if (renewalPercent == 0 || closed || created == null || expires == null) {
+            return;
+        }
+        final long delay = (expires.getTime() - created.getTime()) / 100 * renewalPercent;
+        final ScheduledFuture<?> scheduled;
+        try {
+            scheduled = executor.schedule(new Runnable() {
+                public void run() {
+                    if (closed) {
+                        return;
+                    }
+                    try {
+                        renewal.renew(current);
+                    } catch (Exception e) {
+                        // the current context stays in use and is renewed when it expires
+                        log.log(Level.WARNING,
+                                LogStringsMessages.WSSTUBE_0035_ERROR_ISSUEDTOKEN_CREATION(), e);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ree) {
+            log.log(Level.WARNING,
+                    LogStringsMessages.WSSTUBE_0035_ERROR_ISSUEDTOKEN_CREATION(), ree);
+            return;
+        }
+        final ScheduledFuture<?> previous = scheduledRenewals.put(policyId, scheduled);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    /**
+     * Cancels all scheduled renewals, no new ones are scheduled afterwards.
+     */
+    void close() {
+        closed = true;
+        for (ScheduledFuture<?> renewal : scheduledRenewals.values()) {
+            renewal.cancel(false);
+        }
+        scheduledRenewals.clear();
+    }
+}
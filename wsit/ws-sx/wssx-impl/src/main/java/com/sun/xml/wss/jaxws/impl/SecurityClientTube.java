@@ -127,6 +127,12 @@ import com.sun.xml.wss.provider.wsit.PolicyResolverFactory;
 import java.security.cert.X509Certificate;
 import java.util.Hashtable;
 import java.util.ListIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
@@ -141,6 +147,19 @@ public class SecurityClientTube extends SecurityTubeBase implements SecureConver
     //private static TrustPlugin trustPlugin = WSTrustFactory.newTrustPlugin(null);
     private IssuedTokenManager itm = IssuedTokenManager.getInstance();
     private Hashtable<String, String> scPolicyIDtoSctIdMap = new Hashtable<String, String>();
+    /**
+     * Percentage of the lifetime of a security context token after which a new
+     * secure conversation is established in the background, 0 disables it.
+     */
+    private static final int SC_RENEWAL_PERCENT = Integer.getInteger("com.sun.xml.wss.jaxws.impl.SC_RENEWAL_PERCENT", 0);
+    private static final int SC_RENEWAL_THREADS = 4;
+    private static ScheduledExecutorService scRenewalExecutor;
+    // shared by all copies of this tube
+    private SecureConversationSessions scSessions = new SecureConversationSessions(SC_RENEWAL_PERCENT,
+            SC_RENEWAL_PERCENT > 0 ? getSCRenewalExecutor() : null);
+    // private tubelines holding the contexts established by renewals, per SC policy id
+    private ConcurrentMap<String, SecurityClientTube> scRenewalTubes =
+            new ConcurrentHashMap<String, SecurityClientTube>();
     //private WSSCPlugin  scPlugin;
     private Set trustConfig = null;
     private Set wsscConfig = null;
@@ -195,6 +214,8 @@ public class SecurityClientTube extends SecurityTubeBase implements SecureConver
         trustConfig = that.trustConfig;
         wsscConfig = that.wsscConfig;
         scPolicyIDtoSctIdMap = that.scPolicyIDtoSctIdMap;
+        scSessions = that.scSessions;
+        scRenewalTubes = that.scRenewalTubes;
     //scPlugin = that.scPlugin;
     }
 
@@ -407,7 +428,7 @@ public class SecurityClientTube extends SecurityTubeBase implements SecureConver
 
         ((ProcessingContextImpl) ctx).setIssuedTokenContextMap(issuedTokenContextMap);
         ((ProcessingContextImpl) ctx).setSCPolicyIDtoSctIdMap(scPolicyIDtoSctIdMap);
-        PolicyResolver pr = PolicyResolverFactory.createPolicyResolver(this.policyAlternatives, cachedOperation, tubeConfig, addVer, true, rmVer, mcVer);
+        PolicyResolver pr = PolicyResolverFactory.createPolicyResolver(this.policyAlternatives, actionIndex, cachedOperation, tubeConfig, addVer, true, rmVer, mcVer);
         ctx.setExtraneousProperty(ProcessingContext.OPERATION_RESOLVER, pr);
         Message msg = null;
         try {
@@ -480,22 +501,7 @@ public class SecurityClientTube extends SecurityTubeBase implements SecureConver
         for (PolicyAssertion scAssertion : policies) {
             Token scToken = (Token) scAssertion;
             if (issuedTokenContextMap.get(scToken.getTokenId()) == null) {
-                try {
-                    SCTokenConfiguration config = new DefaultSCTokenConfiguration(wsscVer.getNamespaceURI(),
-                            (SecureConversationToken) scToken, tubeConfig.getWSDLPort(), tubeConfig.getBinding(),
-                            this, packet, addVer, scClientAssertion, super.next);
-                    IssuedTokenContext ctx = itm.createIssuedTokenContext(config, packet.endpointAddress.toString());
-                    itm.getIssuedToken(ctx);
-                    issuedTokenContextMap.put(
-                            scToken.getTokenId(), ctx);
-                    //PolicyID to sctID map
-                    SCTokenConfiguration sctConfig = (SCTokenConfiguration) ctx.getSecurityPolicy().get(0);
-                    scPolicyIDtoSctIdMap.put(scToken.getTokenId(), sctConfig.getTokenId());
-                } catch (WSTrustException se) {
-                    log.log(Level.SEVERE,
-                            LogStringsMessages.WSSTUBE_0035_ERROR_ISSUEDTOKEN_CREATION(), se);
-                    throw new WebServiceException(LogStringsMessages.WSSTUBE_0035_ERROR_ISSUEDTOKEN_CREATION(), se);
-                }
+                establishSecureConversation(scToken, packet, scClientAssertion);
             }
         }
     }
@@ -548,22 +554,7 @@ public class SecurityClientTube extends SecurityTubeBase implements SecureConver
         }
 
         if (ctx == null) {
-            try {
-                SCTokenConfiguration config = new DefaultSCTokenConfiguration(wsscVer.getNamespaceURI(),
-                        (SecureConversationToken) tok, tubeConfig.getWSDLPort(), tubeConfig.getBinding(),
-                        this, packet, addVer, scClientAssertion, super.next);
-
-                ctx = itm.createIssuedTokenContext(config, packet.endpointAddress.toString());
-                itm.getIssuedToken(ctx);
-                issuedTokenContextMap.put(tok.getTokenId(), ctx);
-                //PolicyID to sctID map
-                SCTokenConfiguration sctConfig = (SCTokenConfiguration) ctx.getSecurityPolicy().get(0);
-                scPolicyIDtoSctIdMap.put(tok.getTokenId(), sctConfig.getTokenId());
-            } catch (WSTrustException se) {
-                log.log(Level.SEVERE,
-                        LogStringsMessages.WSSTUBE_0035_ERROR_ISSUEDTOKEN_CREATION(), se);
-                throw new WebServiceException(LogStringsMessages.WSSTUBE_0035_ERROR_ISSUEDTOKEN_CREATION(), se);
-            }
+            ctx = establishSecureConversation(tok, packet, scClientAssertion);
         }
 
         SecurityTokenReference str = (SecurityTokenReference) ctx.getUnAttachedSecurityTokenReference();
@@ -571,6 +562,156 @@ public class SecurityClientTube extends SecurityTubeBase implements SecureConver
         return WSTrustElementFactory.newInstance().toJAXBElement(str);
     }
 
+    /**
+     * Establishes the secure conversation for the given SC policy unless it exists already.
+     * Only one handshake per policy is in flight, concurrent callers wait for its result.
+     */
+    private IssuedTokenContext establishSecureConversation(final Token scToken, final Packet packet,
+            final PolicyAssertion scClientAssertion) {
+        final String policyId = scToken.getTokenId();
+        return scSessions.establish(policyId, new SecureConversationSessions.Handshake() {
+            public IssuedTokenContext establish() throws WSTrustException {
+                IssuedTokenContext ctx = issuedTokenContextMap.get(policyId);
+                if (ctx == null) {
+                    ctx = createSecureConversation(scToken, SecurityClientTube.this, packet, scClientAssertion, next);
+                    publishSecureConversation(scToken, packet, scClientAssertion, ctx);
+                }
+                return ctx;
+            }
+        });
+    }
+
+    private IssuedTokenContext createSecureConversation(final Token scToken, final SecurityClientTube clientTube,
+            final Packet packet, final PolicyAssertion scClientAssertion, final Tube nextTube) throws WSTrustException {
+        SCTokenConfiguration config = new DefaultSCTokenConfiguration(wsscVer.getNamespaceURI(),
+                (SecureConversationToken) scToken, tubeConfig.getWSDLPort(), tubeConfig.getBinding(),
+                clientTube, packet, addVer, scClientAssertion, nextTube);
+        IssuedTokenContext ctx = itm.createIssuedTokenContext(config, packet.endpointAddress.toString());
+        itm.getIssuedToken(ctx);
+        return ctx;
+    }
+
+    private void publishSecureConversation(final Token scToken, final Packet packet,
+            final PolicyAssertion scClientAssertion, final IssuedTokenContext ctx) {
+        //PolicyID to sctID map
+        SCTokenConfiguration sctConfig = (SCTokenConfiguration) ctx.getSecurityPolicy().get(0);
+        scPolicyIDtoSctIdMap.put(scToken.getTokenId(), sctConfig.getTokenId());
+        issuedTokenContextMap.put(scToken.getTokenId(), ctx);
+        // only a copy of the request without its message is kept for the renewal
+        final Packet template = packet.copy(false);
+        scSessions.scheduleRenewal(scToken.getTokenId(), ctx, new SecureConversationSessions.Renewal() {
+            public void renew(IssuedTokenContext current) throws WSTrustException {
+                renewSecureConversation(scToken, template, scClientAssertion, current);
+            }
+        });
+    }
+
+    /**
+     * Establishes a new secure conversation in place of the current one and cancels the
+     * current one. Both handshakes run through a private copy of the tubeline, which is
+     * kept to cancel the new context later on.
+     */
+    private void renewSecureConversation(final Token scToken, final Packet template,
+            final PolicyAssertion scClientAssertion, final IssuedTokenContext current) throws WSTrustException {
+        final String policyId = scToken.getTokenId();
+        if (issuedTokenContextMap.get(policyId) != current) {
+            // cancelled or replaced meanwhile
+            return;
+        }
+        final SecurityClientTube tube = createSCRenewalTube();
+        IssuedTokenContext ctx = null;
+        try {
+            ctx = createSecureConversation(scToken, tube, template.copy(false), scClientAssertion, tube.next);
+        } finally {
+            if (ctx == null) {
+                destroySCRenewalTube(tube);
+            }
+        }
+        final boolean replaced;
+        synchronized (issuedTokenContextMap) {
+            replaced = issuedTokenContextMap.get(policyId) == current;
+            if (replaced) {
+                publishSecureConversation(scToken, template, scClientAssertion, ctx);
+            }
+        }
+        if (replaced) {
+            cancelSecureConversation(tube, policyId, current);
+            bindSCRenewalTube(tube, policyId, ctx);
+            final SecurityClientTube previous = scRenewalTubes.put(policyId, tube);
+            if (previous != null) {
+                destroySCRenewalTube(previous);
+            }
+        } else {
+            cancelSecureConversation(tube, policyId, ctx);
+            destroySCRenewalTube(tube);
+        }
+    }
+
+    /**
+     * Creates a copy of the tubeline with its own token maps, so that the messages it sends
+     * are secured with the contexts bound to it rather than the ones in use by this tube.
+     */
+    private SecurityClientTube createSCRenewalTube() {
+        final SecurityClientTube tube = (SecurityClientTube) TubeCloner.clone(this);
+        tube.issuedTokenContextMap = new Hashtable<String, IssuedTokenContext>(issuedTokenContextMap);
+        tube.scPolicyIDtoSctIdMap = new Hashtable<String, String>(scPolicyIDtoSctIdMap);
+        tube.scSessions = new SecureConversationSessions(0, null);
+        tube.scRenewalTubes = new ConcurrentHashMap<String, SecurityClientTube>();
+        return tube;
+    }
+
+    private static void bindSCRenewalTube(final SecurityClientTube tube, final String policyId,
+            final IssuedTokenContext ctx) {
+        final DefaultSCTokenConfiguration config = (DefaultSCTokenConfiguration) ctx.getSecurityPolicy().get(0);
+        if (config.getClientTube() != tube) {
+            // the context is cancelled through the tubeline it is bound to
+            ctx.getSecurityPolicy().set(0, new DefaultSCTokenConfiguration(config, tube, tube.next));
+        }
+        tube.issuedTokenContextMap.put(policyId, ctx);
+        tube.scPolicyIDtoSctIdMap.put(policyId, config.getTokenId());
+    }
+
+    private void cancelSecureConversation(final SecurityClientTube tube, final String policyId,
+            final IssuedTokenContext ctx) {
+        if (!(ctx.getSecurityToken() instanceof SecurityContextToken)) {
+            return;
+        }
+        bindSCRenewalTube(tube, policyId, ctx);
+        try {
+            itm.cancelIssuedToken(ctx);
+        } catch (Exception e) {
+            // the server drops the context when it expires
+            log.log(Level.WARNING,
+                    LogStringsMessages.WSSTUBE_0035_ERROR_ISSUEDTOKEN_CREATION(), e);
+        }
+    }
+
+    private static void destroySCRenewalTube(final SecurityClientTube tube) {
+        // the contexts bound to it are cancelled or bound to another tubeline by now
+        tube.issuedTokenContextMap.clear();
+        tube.scPolicyIDtoSctIdMap.clear();
+        tube.preDestroy();
+    }
+
+    private static synchronized ScheduledExecutorService getSCRenewalExecutor() {
+        if (scRenewalExecutor == null) {
+            // renewals block on handshakes, so a few of them may run at the same time
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(SC_RENEWAL_THREADS,
+                    new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "SecureConversationRenewal");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.setKeepAliveTime(60, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            executor.setRemoveOnCancelPolicy(true);
+            scRenewalExecutor = executor;
+        }
+        return scRenewalExecutor;
+    }
+
     private void cancelSecurityContextToken() {
         Enumeration keys = issuedTokenContextMap.keys();
         while (keys.hasMoreElements()) {
@@ -594,7 +735,15 @@ public class SecurityClientTube extends SecurityTubeBase implements SecureConver
 
     @Override
     public void preDestroy() {
-        cancelSecurityContextToken();
+        scSessions.close();
+        try {
+            cancelSecurityContextToken();
+        } finally {
+            for (SecurityClientTube tube : scRenewalTubes.values()) {
+                destroySCRenewalTube(tube);
+            }
+            scRenewalTubes.clear();
+        }
         super.preDestroy();
     //issuedTokenContextMap.clear();
     //scPolicyIDtoSctIdMap.clear();
@@ -736,6 +885,10 @@ public class SecurityClientTube extends SecurityTubeBase implements SecureConver
         }
     }
 
+    protected boolean isInputAction(boolean inComming) {
+        return !inComming;
+    }
+
     protected void populateKerberosContext(Packet packet, ProcessingContextImpl ctx, boolean isSCMessage) throws XWSSecurityException {
         List toks = getOutBoundKTP(packet, isSCMessage);
         if (toks.isEmpty()) {
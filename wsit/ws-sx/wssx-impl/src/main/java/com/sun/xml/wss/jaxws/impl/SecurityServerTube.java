@@ -282,7 +282,7 @@ public class SecurityServerTube extends SecurityTubeBase {
             //---------------INBOUND SECURITY VERIFICATION----------
             ProcessingContext ctx = initializeInboundProcessingContext(packet/*, isSCIssueMessage, isTrustMessage*/);
 
-            PolicyResolver pr = PolicyResolverFactory.createPolicyResolver(policyAlternatives,
+            PolicyResolver pr = PolicyResolverFactory.createPolicyResolver(policyAlternatives, actionIndex,
                     cachedOperation, tubeConfig, addVer, false, rmVer, mcVer);
             ctx.setExtraneousProperty(ProcessingContext.OPERATION_RESOLVER, pr);
             ctx.setExtraneousProperty("SessionManager", sessionManager);
@@ -845,6 +845,10 @@ public class SecurityServerTube extends SecurityTubeBase {
         }
     }
 
+    protected boolean isInputAction(boolean inComming) {
+        return inComming;
+    }
+
     private Packet addAddressingHeaders(Packet packet, Message retMsg, String action) {
         Packet retPacket = packet.createServerResponse(retMsg, addVer, soapVersion, action);
 
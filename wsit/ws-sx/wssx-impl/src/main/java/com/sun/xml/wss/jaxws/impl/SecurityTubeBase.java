@@ -114,6 +114,7 @@ import com.sun.xml.wss.impl.filter.DumpFilter;
 import com.sun.xml.wss.impl.policy.spi.PolicyVerifier;
 import com.sun.xml.wss.jaxws.impl.logging.LogDomainConstants;
 import com.sun.xml.wss.jaxws.impl.logging.LogStringsMessages;
+import com.sun.xml.wss.provider.wsit.ActionOperationIndex;
 import com.sun.xml.wss.provider.wsit.PolicyAlternativeHolder;
 import static com.sun.xml.wss.jaxws.impl.Constants.SC_ASSERTION;
 import static com.sun.xml.wss.jaxws.impl.Constants.bsOperationName;
@@ -218,6 +219,8 @@ public abstract class SecurityTubeBase extends AbstractFilterTubeImpl {
     protected boolean isEPREnabled = false;
     protected boolean isCertValidityVerified = false;
     protected List<PolicyAlternativeHolder> policyAlternatives = new ArrayList<PolicyAlternativeHolder>();
+    // wsa:Action to WSDL operation lookup, built along with policyAlternatives
+    protected ActionOperationIndex actionIndex = ActionOperationIndex.EMPTY;
     /**
      * Constants for RM Security Processing
      */
@@ -317,6 +320,7 @@ public abstract class SecurityTubeBase extends AbstractFilterTubeImpl {
         this.encRMLifecycleMsg = that.encRMLifecycleMsg;
         wsPolicyMap = that.wsPolicyMap;
         this.policyAlternatives = that.policyAlternatives;
+        this.actionIndex = that.actionIndex;
         bindingLevelAlgSuite = that.bindingLevelAlgSuite;
         this.hasIssuedTokens = that.hasIssuedTokens;
         this.hasKerberosToken = that.hasKerberosToken;
@@ -777,6 +781,7 @@ public abstract class SecurityTubeBase extends AbstractFilterTubeImpl {
                 PolicyAlternativeHolder ph = new PolicyAlternativeHolder(null, spVersion, bpMSP);
                 alternatives.add(ph);
                 collectOperationAndMessageLevelPolicies(wsPolicyMap, null, policyList, ph);
+                actionIndex = ActionOperationIndex.create(alternatives);
                 return;
             }
             Iterator<AssertionSet> policiesIter = endpointPolicy.iterator();
@@ -797,6 +802,7 @@ public abstract class SecurityTubeBase extends AbstractFilterTubeImpl {
                 //}
                 collectOperationAndMessageLevelPolicies(wsPolicyMap, singleAlternative, policyList, ph);
             }
+            actionIndex = ActionOperationIndex.create(alternatives);
         } catch (PolicyException pe) {
             throw generateInternalError(pe);
         }
@@ -1293,42 +1299,14 @@ public abstract class SecurityTubeBase extends AbstractFilterTubeImpl {
     }
 
     protected WSDLBoundOperation getWSDLOpFromAction(Packet packet, boolean isIncomming) {
-        String uriValue = getAction(packet);
-        for (PolicyAlternativeHolder p : policyAlternatives) {
-            Set<WSDLBoundOperation> keys = p.getOutMessagePolicyMap().keySet();
-            for (WSDLBoundOperation wbo : keys) {
-                WSDLOperation wo = wbo.getOperation();
-                // WsaWSDLOperationExtension extensions = wo.getExtension(WsaWSDLOperationExtension.class);
-                String action = getAction(wo, isIncomming);
-                if (action != null && action.equals(uriValue)) {
-                    return wbo;
-                }
-            }
-        }
-        return null;
-
+        return actionIndex.getOperation(getAction(packet), isInputAction(isIncomming));
     }
 
     protected WSDLBoundOperation getWSDLOpFromAction(Packet packet, boolean isIncomming, boolean isFault) {
-        String uriValue = getAction(packet);
-        for (PolicyAlternativeHolder p : policyAlternatives) {
-            Set<WSDLBoundOperation> keys = p.getOutMessagePolicyMap().keySet();
-            for (WSDLBoundOperation wbo : keys) {
-                WSDLOperation wo = wbo.getOperation();
-                // WsaWSDLOperationExtension extensions = wo.getExtension(WsaWSDLOperationExtension.class);
-                String action = getAction(wo, isIncomming);
-                if(isFault) {
-                    if(action != null) {
-                        return wbo;
-                    }
-                }
-                else if(action != null && action.equals(uriValue)) {
-                    return wbo;
-                }
-            }
+        if (isFault) {
+            return actionIndex.getFaultOperation(getAction(packet), isInputAction(isIncomming));
         }
-        return null;
-
+        return getWSDLOpFromAction(packet, isIncomming);
     }
 
     protected void buildProtocolPolicy(Policy endpointPolicy, PolicyAlternativeHolder ph) throws PolicyException {
@@ -1807,6 +1785,12 @@ public abstract class SecurityTubeBase extends AbstractFilterTubeImpl {
 
     protected abstract String getAction(WSDLOperation operation, boolean isIncomming);
 
+    /**
+     * @return true if {@link #getAction(WSDLOperation, boolean)} returns the wsdl:input
+     *         action for the given direction, false if it returns the wsdl:output action
+     */
+    protected abstract boolean isInputAction(boolean isIncomming);
+
     private void setPolicyCredentials(Policy policy) {
 
         if (policy != null) {
@@ -0,0 +1,211 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.wss.provider.wsit;
+
+import com.sun.xml.ws.api.model.wsdl.WSDLBoundOperation;
+import com.sun.xml.ws.api.model.wsdl.WSDLFault;
+import com.sun.xml.ws.api.model.wsdl.WSDLInput;
+import com.sun.xml.ws.api.model.wsdl.WSDLOperation;
+import com.sun.xml.ws.api.model.wsdl.WSDLOutput;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable index of the WSDL bound operations of a port keyed by the
+ * wsa:Action of their input, output and fault messages.
+ *
+ * The index is built once, when the security policies of the port are collected,
+ * so that resolving the operation of a message which carries only a wsa:Action
+ * does not require to walk all the operations of all the policy alternatives.
+ *
+ * When several operations declare the same action the first one found wins, which
+ * preserves the lookup order of the linear search this index replaces.
+ */
+public final class ActionOperationIndex {
+
+    public static final ActionOperationIndex EMPTY = new ActionOperationIndex(
+            Collections.<String, WSDLBoundOperation>emptyMap(),
+            Collections.<String, WSDLBoundOperation>emptyMap(),
+            Collections.<String, WSDLBoundOperation>emptyMap(),
+            null, null);
+
+    private final Map<String, WSDLBoundOperation> inputActions;
+    private final Map<String, WSDLBoundOperation> outputActions;
+    private final Map<String, WSDLBoundOperation> faultActions;
+    private final WSDLBoundOperation firstInputOperation;
+    private final WSDLBoundOperation firstOutputOperation;
+
+    private ActionOperationIndex(Map<String, WSDLBoundOperation> inputActions,
+            Map<String, WSDLBoundOperation> outputActions,
+            Map<String, WSDLBoundOperation> faultActions,
+            WSDLBoundOperation firstInputOperation, WSDLBoundOperation firstOutputOperation) {
+        this.inputActions = inputActions;
+        this.outputActions = outputActions;
+        this.faultActions = faultActions;
+        this.firstInputOperation = firstInputOperation;
+        this.firstOutputOperation = firstOutputOperation;
+    }
+
+    /**
+     * Builds the index from the operations present in the message policy maps of the
+     * given policy alternatives. Operations of the outgoing message policy maps are
+     * visited first.
+     *
+     * @param alternatives the policy alternatives collected for the port
+     * @return the index, never {@code null}
+     */
+    public static ActionOperationIndex create(List<PolicyAlternativeHolder> alternatives) {
+        if (alternatives == null || alternatives.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder();
+        for (PolicyAlternativeHolder p : alternatives) {
+            builder.addAll(p.getOutMessagePolicyMap().keySet());
+        }
+        for (PolicyAlternativeHolder p : alternatives) {
+            builder.addAll(p.getInMessagePolicyMap().keySet());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builds the index from the given operations.
+     *
+     * @param operations the operations to index
+     * @return the index, never {@code null}
+     */
+    public static ActionOperationIndex forOperations(Collection<WSDLBoundOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder();
+        builder.addAll(operations);
+        return builder.build();
+    }
+
+    /**
+     * @param action the wsa:Action of the message
+     * @param input {@code true} to match the action of the wsdl:input, {@code false} to match the wsdl:output
+     * @return the operation declaring the action or {@code null} if there is none
+     */
+    public WSDLBoundOperation getOperation(String action, boolean input) {
+        if (action == null) {
+            return null;
+        }
+        return input ? inputActions.get(action) : outputActions.get(action);
+    }
+
+    /**
+     * Resolves the operation of a fault message. The operation declaring the wsdl:fault
+     * action is returned when there is one, otherwise the first operation having an
+     * action for the requested direction is returned.
+     *
+     * @param action the wsa:Action of the fault message
+     * @param input {@code true} to fall back on operations with a wsdl:input action, {@code false} for wsdl:output
+     * @return the operation or {@code null} if the port has no operation with an action
+     */
+    public WSDLBoundOperation getFaultOperation(String action, boolean input) {
+        WSDLBoundOperation operation = (action == null) ? null : faultActions.get(action);
+        if (operation != null) {
+            return operation;
+        }
+        return input ? firstInputOperation : firstOutputOperation;
+    }
+
+    private static final class Builder {
+
+        private final Map<String, WSDLBoundOperation> inputActions = new HashMap<String, WSDLBoundOperation>();
+        private final Map<String, WSDLBoundOperation> outputActions = new HashMap<String, WSDLBoundOperation>();
+        private final Map<String, WSDLBoundOperation> faultActions = new HashMap<String, WSDLBoundOperation>();
+        private WSDLBoundOperation firstInputOperation;
+        private WSDLBoundOperation firstOutputOperation;
+
+        void addAll(Collection<WSDLBoundOperation> operations) {
+            for (WSDLBoundOperation wbo : operations) {
+                add(wbo);
+            }
+        }
+
+        void add(WSDLBoundOperation wbo) {
+            WSDLOperation wo = wbo.getOperation();
+            if (wo == null) {
+                return;
+            }
+            WSDLInput input = wo.getInput();
+            String inputAction = (input == null) ? null : input.getAction();
+            if (inputAction != null) {
+                if (firstInputOperation == null) {
+                    firstInputOperation = wbo;
+                }
+                if (!inputActions.containsKey(inputAction)) {
+                    inputActions.put(inputAction, wbo);
+                }
+            }
+            WSDLOutput output = wo.getOutput();
+            String outputAction = (output == null) ? null : output.getAction();
+            if (outputAction != null) {
+                if (firstOutputOperation == null) {
+                    firstOutputOperation = wbo;
+                }
+                if (!outputActions.containsKey(outputAction)) {
+                    outputActions.put(outputAction, wbo);
+                }
+            }
+            for (WSDLFault fault : wo.getFaults()) {
+                String faultAction = fault.getAction();
+                if (faultAction != null && !faultActions.containsKey(faultAction)) {
+                    faultActions.put(faultAction, wbo);
+                }
+            }
+        }
+
+        ActionOperationIndex build() {
+            return new ActionOperationIndex(
+                    Collections.unmodifiableMap(inputActions),
+                    Collections.unmodifiableMap(outputActions),
+                    Collections.unmodifiableMap(faultActions),
+                    firstInputOperation, firstOutputOperation);
+        }
+    }
+}
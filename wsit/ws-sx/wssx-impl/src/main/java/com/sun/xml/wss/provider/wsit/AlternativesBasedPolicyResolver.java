@@ -110,15 +110,17 @@ class AlternativesBasedPolicyResolver implements PolicyResolver {
     private WSTrustVersion wstVer = WSTrustVersion.WS_TRUST_10;
     private WSSCVersion wsscVer = WSSCVersion.WSSC_10;
     private List<PolicyAlternativeHolder> policyAlternatives = null;
+    private ActionOperationIndex actionIndex = null;
 
     /**
      * Creates a new instance of OperationResolverImpl
      */
      public AlternativesBasedPolicyResolver(List<PolicyAlternativeHolder> alternatives,
-            WSDLBoundOperation cachedOperation, TubeConfiguration tubeConfig,
+            ActionOperationIndex actionIndex, WSDLBoundOperation cachedOperation, TubeConfiguration tubeConfig,
             AddressingVersion addVer, boolean client, RmProtocolVersion rmVer, McProtocolVersion mcVer) {
 
         this.policyAlternatives = alternatives;
+        this.actionIndex = actionIndex;
         this.cachedOperation = cachedOperation;
         this.tubeConfig = tubeConfig;
         this.addVer = addVer;
@@ -333,27 +335,8 @@ class AlternativesBasedPolicyResolver implements PolicyResolver {
         return false;
     }
 
-    private String getAction(WSDLOperation operation) {
-        if (!isClient) {
-            return operation.getInput().getAction();
-        } else {
-            return operation.getOutput().getAction();
-        }
-    }
-
     private WSDLBoundOperation getWSDLOpFromAction() {
-        for (PolicyAlternativeHolder p : this.policyAlternatives) {
-        Set<WSDLBoundOperation> keys = p.getInMessagePolicyMap().keySet();
-        for (WSDLBoundOperation wbo : keys) {
-            WSDLOperation wo = wbo.getOperation();
-            // WsaWSDLOperationExtension extensions = wo.getExtension(WsaWSDLOperationExtension.class);
-            String confAction = getAction(wo);
-            if (confAction != null && confAction.equals(action)) {
-                return wbo;
-            }
-        }
-        }
-        return null;
+        return actionIndex.getOperation(action, !isClient);
     }
 
     private SecurityPolicy getProtocolPolicy(String protocol) {
@@ -49,8 +49,7 @@ import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -83,8 +82,8 @@ public abstract class ConfigHelper /*implements RegistrationListener*/ {
     private static String handlerClassName = null;
     protected AuthConfigFactory factory = null;
 
-    private ReadWriteLock rwLock;
-    private Lock rLock;
+    // only serializes the lookup of the provider, the enabled flag and
+    // the ConfigData of the registration wrapper are read without locking
     private Lock wLock;
 
    
@@ -107,9 +106,7 @@ public abstract class ConfigHelper /*implements RegistrationListener*/ {
             this.cbh = getCallbackHandler();
         }
 
-	this.rwLock = new ReentrantReadWriteLock(true);
-        this.rLock = rwLock.readLock();
-        this.wLock = rwLock.writeLock();
+        this.wLock = new ReentrantLock();
         
         listenerWrapper =  new  AuthConfigRegistrationWrapper(this.layer, this.appCtxt);
         
@@ -189,23 +186,17 @@ public abstract class ConfigHelper /*implements RegistrationListener*/ {
 	boolean disabled = false;
 	AuthConfigProvider lastP = null;
 
-	try {
-	    rLock.lock();
-	    disabled = (!listenerWrapper.isEnabled());
-	    if (!disabled) {
-                d = listenerWrapper.getConfigData();
-		if (d != null) {
-		    c = (isServer ? d.sConfig : d.cConfig);
-		    lastP = d.provider;
-		}
-	    }
-	    
-	} finally {
-	    rLock.unlock();
-	    if (disabled || c != null || (d != null && lastP == null)) {
-		return c;
+	disabled = (!listenerWrapper.isEnabled());
+	if (!disabled) {
+            d = listenerWrapper.getConfigData();
+	    if (d != null) {
+		c = (isServer ? d.sConfig : d.cConfig);
+		lastP = d.provider;
 	    }
-	} 
+	}
+	if (disabled || c != null || (d != null && lastP == null)) {
+	    return c;
+	}
 
 
 	// d == null || (d != null && lastP != null && c == null)
@@ -395,11 +386,10 @@ public abstract class ConfigHelper /*implements RegistrationListener*/ {
         private String layer;
         private String appCtxt;
         private String jmacProviderRegisID = null;
-        private boolean enabled;
-        private ConfigData data;
+        private volatile boolean enabled;
+        private volatile ConfigData data;
         
         private Lock wLock;
-        private ReadWriteLock rwLock;
         
         AuthConfigRegistrationListener listener;
         int referenceCount = 1;
@@ -407,8 +397,7 @@ public abstract class ConfigHelper /*implements RegistrationListener*/ {
         public AuthConfigRegistrationWrapper(String layer, String appCtxt) {
             this.layer = layer;
             this.appCtxt = appCtxt;
-            this.rwLock = new ReentrantReadWriteLock(true);
-	    this.wLock = rwLock.writeLock();
+	    this.wLock = new ReentrantLock();
             enabled = (factory != null);
             listener = new AuthConfigRegistrationListener(layer, appCtxt);
         }
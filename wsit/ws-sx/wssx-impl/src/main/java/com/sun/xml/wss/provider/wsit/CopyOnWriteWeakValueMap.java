@@ -0,0 +1,110 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.wss.provider.wsit;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Map of weakly referenced values, read without locking.
+ * <p>
+ * The entries are held in an immutable snapshot published through a volatile
+ * reference, so a lookup never blocks. Modifications are serialized on this
+ * instance and replace the snapshot by a modified copy, dropping the entries
+ * whose value has been garbage collected on the way. Callers needing to create
+ * a value at most once may synchronize on the map and re-check with {@link #get}.
+ * <p>
+ * Meant for the per-request lookups of the JSR-196 auth config objects, which
+ * are read very often and registered rarely.
+ *
+ * @param <K> key type, {@code null} is a valid key
+ * @param <V> value type
+ */
+final class CopyOnWriteWeakValueMap<K, V> {
+
+    private volatile Map<K, WeakReference<V>> snapshot = Collections.emptyMap();
+
+    /**
+     * @return the value mapped to the key, or {@code null} if there is none or
+     * it has already been garbage collected
+     */
+    V get(K key) {
+        WeakReference<V> ref = snapshot.get(key);
+        return (ref != null) ? ref.get() : null;
+    }
+
+    synchronized void put(K key, V value) {
+        Map<K, WeakReference<V>> copy = liveCopy();
+        copy.put(key, new WeakReference<V>(value));
+        snapshot = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * @return the value which was mapped to the key, or {@code null}
+     */
+    synchronized V remove(K key) {
+        if (!snapshot.containsKey(key)) {
+            return null;
+        }
+        V value = get(key);
+        Map<K, WeakReference<V>> copy = liveCopy();
+        copy.remove(key);
+        snapshot = Collections.unmodifiableMap(copy);
+        return value;
+    }
+
+    int size() {
+        return snapshot.size();
+    }
+
+    private Map<K, WeakReference<V>> liveCopy() {
+        Map<K, WeakReference<V>> current = snapshot;
+        Map<K, WeakReference<V>> copy = new HashMap<K, WeakReference<V>>(current.size() + 1);
+        for (Map.Entry<K, WeakReference<V>> entry : current.entrySet()) {
+            if (entry.getValue().get() != null) {
+                copy.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return copy;
+    }
+}
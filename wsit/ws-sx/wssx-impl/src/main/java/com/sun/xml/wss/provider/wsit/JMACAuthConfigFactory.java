@@ -55,8 +55,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -76,26 +75,17 @@ public class JMACAuthConfigFactory extends AuthConfigFactory {
             LogDomainConstants.WSIT_PVD_DOMAIN_BUNDLE);
 
 
-    // locks are used to protect existence of maps 
-    // not concurrent access within maps
     private static final  String AUTH_CONFIG_PROVIDER_PROP="META-INF/services/javax.security.auth.message.config.AuthConfigProvider";
-    private static ReadWriteLock rwLock;
-    private static Lock rLock;
-    private static Lock wLock;
-
-    private static Map<String, AuthConfigProvider> id2ProviderMap;
-    private static Map<String, RegistrationContext> id2RegisContextMap;
-    private static Map<String, List<RegistrationListener>> id2RegisListenersMap;
-    private static Map<AuthConfigProvider, List<String>> provider2IdsMap;
+
+    // the registrations are published as an immutable snapshot, so that
+    // lookups done for every request never lock; wLock only serializes
+    // the (rare) writers, which copy the snapshot, modify and republish it
+    private static final Lock wLock = new ReentrantLock();
+    private static volatile Registry registry = new Registry();
     
     private static final String CONF_FILE_NAME = "auth.conf";
     private static  RegStoreFileParser regStore;
     private ClassLoader loader;
-    static {
-	rwLock = new ReentrantReadWriteLock(true);
-	rLock = rwLock.readLock();
-	wLock = rwLock.writeLock();   
-    }
 
     // XXX read declarative persistent repository construct an
     // register AuthConfigProviders as appropriate.
@@ -158,47 +148,36 @@ public class JMACAuthConfigFactory extends AuthConfigFactory {
 
 	AuthConfigProvider provider = null;
         String regisID = getRegistrationID(layer, appContext);
-        rLock.lock();
-	try {
-	    provider = id2ProviderMap.get(regisID);
-            if (provider == null) {
-                provider = id2ProviderMap.get(getRegistrationID(null, appContext));
-            }
-	    if (provider == null) {
-		provider = id2ProviderMap.get(getRegistrationID(layer, null));
-	    }
-	    if (provider == null) {
-		provider = id2ProviderMap.get(getRegistrationID(null, null));
-	    }
-	} finally {
-	    rLock.unlock();
+        Registry r = registry;
+	provider = r.id2ProviderMap.get(regisID);
+        if (provider == null) {
+            provider = r.id2ProviderMap.get(getRegistrationID(null, appContext));
+        }
+	if (provider == null) {
+	    provider = r.id2ProviderMap.get(getRegistrationID(layer, null));
+	}
+	if (provider == null) {
+	    provider = r.id2ProviderMap.get(getRegistrationID(null, null));
 	}
 
         if (listener != null) {
             // do this check first to try to optimize the multiple thread env
-            boolean lregister = false;
-            rLock.lock();
-            try {
-                List<RegistrationListener> listeners =
-                    id2RegisListenersMap.get(regisID);
-                if (listeners != null) {
-                    lregister = listeners.contains(listener);
-                }
-            } finally {
-                rLock.unlock();
-            }
+            List<RegistrationListener> listeners =
+                r.id2RegisListenersMap.get(regisID);
+            boolean lregister = (listeners != null && listeners.contains(listener));
 
             if (!lregister) {
                 wLock.lock();
                 try {
-                    List<RegistrationListener> listeners =
-                        id2RegisListenersMap.get(regisID);
+                    Registry copy = new Registry(registry);
+                    listeners = copy.id2RegisListenersMap.get(regisID);
                     if (listeners == null) {
                         listeners = new ArrayList<RegistrationListener>();
-                        id2RegisListenersMap.put(regisID, listeners);
+                        copy.id2RegisListenersMap.put(regisID, listeners);
                     }
                     if (!listeners.contains(listener)) {
                         listeners.add(listener);
+                        registry = copy;
                     }
                 } finally {
                     wLock.unlock();
@@ -329,10 +308,12 @@ public class JMACAuthConfigFactory extends AuthConfigFactory {
         wLock.lock();
         try {   
             RegistrationListener ler = null;
+            Registry copy = new Registry(registry);
             List<RegistrationListener> listeners =
-                id2RegisListenersMap.get(regisID);
+                copy.id2RegisListenersMap.get(regisID);
             if (listeners != null && listeners.remove(listener)) {
                    ler = listener;
+                   registry = copy;
             }
             return (ler != null)? new String[]{ regisID } : new String[0];
         } finally {
@@ -355,28 +336,25 @@ public class JMACAuthConfigFactory extends AuthConfigFactory {
      * factory for the identified provider.
      */
     public String[] getRegistrationIDs(AuthConfigProvider provider) {
-        rLock.lock();
-        try {
-            Collection<String> regisIDs = null;
-            if (provider != null) {
-                regisIDs = provider2IdsMap.get(provider);
-            } else {
-                Collection<List<String>> collList = provider2IdsMap.values();
-                if (collList != null) {
-                    regisIDs = new HashSet<String>();
-                    for (List<String> listIds : collList) {
-                         if (listIds != null) {
-                             regisIDs.addAll(listIds);
-                         }
-                    }
+        Map<AuthConfigProvider, List<String>> provider2IdsMap =
+            registry.provider2IdsMap;
+        Collection<String> regisIDs = null;
+        if (provider != null) {
+            regisIDs = provider2IdsMap.get(provider);
+        } else {
+            Collection<List<String>> collList = provider2IdsMap.values();
+            if (collList != null) {
+                regisIDs = new HashSet<String>();
+                for (List<String> listIds : collList) {
+                     if (listIds != null) {
+                         regisIDs.addAll(listIds);
+                     }
                 }
             }
-            return ((regisIDs != null)?
-                regisIDs.toArray(new String[regisIDs.size()]) :
-                new String[0]);
-        } finally {
-            rLock.unlock();
         }
+        return ((regisIDs != null)?
+            regisIDs.toArray(new String[regisIDs.size()]) :
+            new String[0]);
     }
 
     /**
@@ -391,12 +369,7 @@ public class JMACAuthConfigFactory extends AuthConfigFactory {
      * not correpond to an active registration
       */
     public RegistrationContext getRegistrationContext(String registrationID) {
-        rLock.lock();
-	try {
-	    return id2RegisContextMap.get(registrationID);
-	} finally {
-	    rLock.unlock();
-	}
+	return registry.id2RegisContextMap.get(registrationID);
     }
 
    /**
@@ -571,30 +544,32 @@ public class JMACAuthConfigFactory extends AuthConfigFactory {
         List<RegistrationListener> listeners = null;
         wLock.lock();
 	try {
-	    prevRegisContext = id2RegisContextMap.get(regisID);
-            AuthConfigProvider prevProvider = id2ProviderMap.get(regisID);
-	    id2ProviderMap.put(regisID, provider);
-	    id2RegisContextMap.put(regisID, rc);
+            Registry copy = new Registry(registry);
+	    prevRegisContext = copy.id2RegisContextMap.get(regisID);
+            AuthConfigProvider prevProvider = copy.id2ProviderMap.get(regisID);
+	    copy.id2ProviderMap.put(regisID, provider);
+	    copy.id2RegisContextMap.put(regisID, rc);
 
             if (prevProvider != null) {
-                List<String> prevRegisIDs = provider2IdsMap.get(prevProvider);
+                List<String> prevRegisIDs = copy.provider2IdsMap.get(prevProvider);
                 prevRegisIDs.remove(regisID);
                 if ((!prevProvider.equals(provider)) &&
                         prevRegisIDs.size() == 0) { // cleanup
-                    provider2IdsMap.remove(prevProvider);
+                    copy.provider2IdsMap.remove(prevProvider);
                 }
             }
-            List<String> regisIDs = provider2IdsMap.get(provider);
+            List<String> regisIDs = copy.provider2IdsMap.get(provider);
             if (regisIDs == null) {
                 regisIDs = new ArrayList<String>();
-                provider2IdsMap.put(provider, regisIDs);
+                copy.provider2IdsMap.put(provider, regisIDs);
             }
             regisIDs.add(regisID);
 
             if ((provider != null && (!provider.equals(prevProvider))) ||
                     (provider == null && prevProvider != null)) {
-                listeners = id2RegisListenersMap.get(regisID);
+                listeners = copy.id2RegisListenersMap.get(regisID);
             }
+            registry = copy;
 	} finally {
 	    wLock.unlock();
 	    if (persist) {
@@ -622,18 +597,20 @@ public class JMACAuthConfigFactory extends AuthConfigFactory {
         String[] dIds = decomposeRegisID(regisID);
         wLock.lock();
 	try {   
-	    rc = id2RegisContextMap.remove(regisID);
-	    AuthConfigProvider provider = id2ProviderMap.remove(regisID);
-            List<String> regisIDs = provider2IdsMap.get(provider);
+            Registry copy = new Registry(registry);
+	    rc = copy.id2RegisContextMap.remove(regisID);
+	    AuthConfigProvider provider = copy.id2ProviderMap.remove(regisID);
+            List<String> regisIDs = copy.provider2IdsMap.get(provider);
             if (regisIDs != null) {
                 regisIDs.remove(regisID);
             }
             if (regisIDs == null || regisIDs.size() == 0) {
-                provider2IdsMap.remove(provider);
+                copy.provider2IdsMap.remove(provider);
             }
 
-            listeners = id2RegisListenersMap.remove(regisID);
+            listeners = copy.id2RegisListenersMap.remove(regisID);
 	    rvalue = (provider != null);
+            registry = copy;
 	} finally {
 	    wLock.unlock();
 	    if (rc != null && rc.isPersistent()) {
@@ -659,11 +636,7 @@ public class JMACAuthConfigFactory extends AuthConfigFactory {
     private void _loadFactory() {
         wLock.lock();
 	try {
-	    id2ProviderMap = new HashMap<String, AuthConfigProvider>();
-	    id2RegisContextMap = new HashMap<String, RegistrationContext>();
-            id2RegisListenersMap =
-                new HashMap<String, List<RegistrationListener>>();
-            provider2IdsMap = new HashMap<AuthConfigProvider, List<String>>();
+	    registry = new Registry();
 	} finally {
 	    wLock.unlock();
 	}
@@ -709,4 +682,38 @@ public class JMACAuthConfigFactory extends AuthConfigFactory {
         }
     }
     
+
+    /**
+     * Snapshot of the factory registrations. A published instance is never
+     * modified; writers work on a copy made with the copy constructor
+     * (lists included) and publish it when done.
+     */
+    private static final class Registry {
+        final Map<String, AuthConfigProvider> id2ProviderMap;
+        final Map<String, RegistrationContext> id2RegisContextMap;
+        final Map<String, List<RegistrationListener>> id2RegisListenersMap;
+        final Map<AuthConfigProvider, List<String>> provider2IdsMap;
+
+        Registry() {
+            id2ProviderMap = new HashMap<String, AuthConfigProvider>();
+            id2RegisContextMap = new HashMap<String, RegistrationContext>();
+            id2RegisListenersMap =
+                new HashMap<String, List<RegistrationListener>>();
+            provider2IdsMap = new HashMap<AuthConfigProvider, List<String>>();
+        }
+
+        Registry(Registry r) {
+            id2ProviderMap = new HashMap<String, AuthConfigProvider>(r.id2ProviderMap);
+            id2RegisContextMap = new HashMap<String, RegistrationContext>(r.id2RegisContextMap);
+            id2RegisListenersMap =
+                new HashMap<String, List<RegistrationListener>>(r.id2RegisListenersMap.size());
+            for (Map.Entry<String, List<RegistrationListener>> e : r.id2RegisListenersMap.entrySet()) {
+                id2RegisListenersMap.put(e.getKey(), new ArrayList<RegistrationListener>(e.getValue()));
+            }
+            provider2IdsMap = new HashMap<AuthConfigProvider, List<String>>(r.provider2IdsMap.size());
+            for (Map.Entry<AuthConfigProvider, List<String>> e : r.provider2IdsMap.entrySet()) {
+                provider2IdsMap.put(e.getKey(), new ArrayList<String>(e.getValue()));
+            }
+        }
+    }
 }
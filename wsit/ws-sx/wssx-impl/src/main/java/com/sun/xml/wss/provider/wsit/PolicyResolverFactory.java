@@ -65,10 +65,22 @@ public class PolicyResolverFactory {
     public static PolicyResolver createPolicyResolver(List<PolicyAlternativeHolder>
             alternatives, WSDLBoundOperation cachedOperation, TubeConfiguration tubeConfig, 
             AddressingVersion addVer, boolean isClient, RmProtocolVersion rmVer, McProtocolVersion mcVer) {
+        return createPolicyResolver(alternatives, ActionOperationIndex.create(alternatives),
+                cachedOperation, tubeConfig, addVer, isClient, rmVer, mcVer);
+    }
+
+    /**
+     * Creates the resolver using the action index precomputed for the alternatives,
+     * so that no per message walk of the operations is needed.
+     */
+    public static PolicyResolver createPolicyResolver(List<PolicyAlternativeHolder>
+            alternatives, ActionOperationIndex actionIndex, WSDLBoundOperation cachedOperation,
+            TubeConfiguration tubeConfig, AddressingVersion addVer, boolean isClient,
+            RmProtocolVersion rmVer, McProtocolVersion mcVer) {
         if (alternatives.size() == 1) {
-            return new PolicyResolverImpl(alternatives.get(0).getInMessagePolicyMap(), alternatives.get(0).getInProtocolPM(), cachedOperation,tubeConfig,addVer, isClient, rmVer,mcVer);
+            return new PolicyResolverImpl(alternatives.get(0).getInMessagePolicyMap(), alternatives.get(0).getInProtocolPM(), actionIndex, cachedOperation,tubeConfig,addVer, isClient, rmVer,mcVer);
         } else {
-            return new AlternativesBasedPolicyResolver(alternatives,cachedOperation,tubeConfig,addVer, isClient, rmVer,mcVer);
+            return new AlternativesBasedPolicyResolver(alternatives,actionIndex,cachedOperation,tubeConfig,addVer, isClient, rmVer,mcVer);
         }
     }
 
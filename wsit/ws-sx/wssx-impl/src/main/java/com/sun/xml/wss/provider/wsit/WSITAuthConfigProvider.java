@@ -59,8 +59,6 @@ import com.sun.xml.ws.security.policy.SecurityPolicyVersion;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.WeakHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import javax.security.auth.callback.CallbackHandler;
 import javax.security.auth.message.AuthException;
 import javax.security.auth.message.config.AuthConfigFactory;
@@ -80,12 +78,11 @@ public class WSITAuthConfigProvider implements AuthConfigProvider {
     
     //ClientAuthConfig clientConfig = null;
     //ServerAuthConfig serverConfig = null;
-    WeakHashMap clientConfigMap = new WeakHashMap();
-    WeakHashMap serverConfigMap = new WeakHashMap();
-    
-    private ReentrantReadWriteLock rwLock;
-    private ReentrantReadWriteLock.ReadLock rLock;
-    private ReentrantReadWriteLock.WriteLock wLock;
+    // looked up for every request, see CopyOnWriteWeakValueMap
+    private final CopyOnWriteWeakValueMap<String, ClientAuthConfig> clientConfigMap =
+            new CopyOnWriteWeakValueMap<String, ClientAuthConfig>();
+    private final CopyOnWriteWeakValueMap<String, ServerAuthConfig> serverConfigMap =
+            new CopyOnWriteWeakValueMap<String, ServerAuthConfig>();
     
     /** Creates a new instance of WSITAuthConfigProvider */
     public WSITAuthConfigProvider(Map props, AuthConfigFactory factory) {
@@ -94,64 +91,39 @@ public class WSITAuthConfigProvider implements AuthConfigProvider {
         if (factory != null) {
             factory.registerConfigProvider(this, "SOAP", null,description);
         }
-        this.rwLock = new ReentrantReadWriteLock(true);
-        this.rLock = rwLock.readLock();
-        this.wLock = rwLock.writeLock(); 
     }
 
-    @SuppressWarnings("unchecked")
     public  ClientAuthConfig getClientAuthConfig(String layer, String appContext, CallbackHandler callbackHandler) throws AuthException {
         
-        ClientAuthConfig clientConfig = null;
-        this.rLock.lock();
-        try {
-            clientConfig = (ClientAuthConfig)this.clientConfigMap.get(appContext);
-            if (clientConfig != null) {
-                    return clientConfig;
-            }
-        } finally {
-            this.rLock.unlock();
+        ClientAuthConfig clientConfig = this.clientConfigMap.get(appContext);
+        if (clientConfig != null) {
+            return clientConfig;
         }
-        // make sure you don't hold the rlock when you request the wlock
-        // or you will encounter dealock
-        this.wLock.lock();
-        try {
-            // recheck the precondition, since the rlock was released.
+        synchronized (this.clientConfigMap) {
+            // recheck the precondition, another thread may have created it meanwhile
+            clientConfig = this.clientConfigMap.get(appContext);
             if (clientConfig == null) {
                 clientConfig = new WSITClientAuthConfig(layer, appContext, callbackHandler);
                 this.clientConfigMap.put(appContext, clientConfig);
             }
             return clientConfig;
-        } finally {
-            this.wLock.unlock();
         }
     }
     
-    @SuppressWarnings("unchecked")
     public  ServerAuthConfig getServerAuthConfig(String layer, String appContext, CallbackHandler callbackHandler) throws AuthException {
-        ServerAuthConfig serverConfig = null;
-        this.rLock.lock();
-         try {
-             serverConfig = (ServerAuthConfig)this.serverConfigMap.get(appContext);
-             if (serverConfig != null) {
-                 return serverConfig;
-             }
-         } finally {
-             this.rLock.unlock();
-         }
-        // make sure you don't hold the rlock when you request the wlock
-        // or you will encounter dealock
-         this.wLock.lock();
-         try {
-             // recheck the precondition, since the rlock was released.
-             if (serverConfig == null) {
-                 serverConfig = new WSITServerAuthConfig(layer, appContext, callbackHandler);
-                 this.serverConfigMap.put(appContext,serverConfig);
-             }
-             return serverConfig;
-         } finally {
-             this.wLock.unlock();
-         }
+        ServerAuthConfig serverConfig = this.serverConfigMap.get(appContext);
+        if (serverConfig != null) {
+            return serverConfig;
+        }
+        synchronized (this.serverConfigMap) {
+            // recheck the precondition, another thread may have created it meanwhile
+            serverConfig = this.serverConfigMap.get(appContext);
+            if (serverConfig == null) {
+                serverConfig = new WSITServerAuthConfig(layer, appContext, callbackHandler);
+                this.serverConfigMap.put(appContext, serverConfig);
+            }
+            return serverConfig;
+        }
     }
 
     public void refresh() {
@@ -246,6 +246,8 @@ public abstract class WSITAuthContextBase  {
 
     protected List<PolicyAlternativeHolder> policyAlternatives =
             new ArrayList<PolicyAlternativeHolder>();
+    // wsa:Action to WSDL operation lookup, built along with policyAlternatives
+    protected ActionOperationIndex actionIndex = ActionOperationIndex.EMPTY;
 
     protected Policy bpMSP = null;
     //protected WSDLBoundOperation cachedOperation = null;
@@ -389,6 +391,7 @@ public abstract class WSITAuthContextBase  {
                 PolicyAlternativeHolder ph = new PolicyAlternativeHolder(null, spVersion, bpMSP);
                 alternatives.add(ph);
                 collectOperationAndMessageLevelPolicies(wsPolicyMap, null, policyList,ph);
+                actionIndex = ActionOperationIndex.create(alternatives);
                 return;
             }
 
@@ -410,6 +413,7 @@ public abstract class WSITAuthContextBase  {
                 //}
                 collectOperationAndMessageLevelPolicies(wsPolicyMap, singleAlternative, policyList, ph);
             }
+            actionIndex = ActionOperationIndex.create(alternatives);
         } catch (PolicyException pe) {
             throw generateInternalError(pe);
         }
@@ -1000,20 +1004,7 @@ public abstract class WSITAuthContextBase  {
     }
     
     protected WSDLBoundOperation getWSDLOpFromAction(Packet packet ,boolean isIncomming){
-        String uriValue = getAction(packet);
-        for (PolicyAlternativeHolder p : policyAlternatives) {
-            Set<WSDLBoundOperation> keys = p.getOutMessagePolicyMap().keySet();
-            for (WSDLBoundOperation wbo : keys) {
-                WSDLOperation wo = wbo.getOperation();
-                // WsaWSDLOperationExtension extensions = wo.getExtension(WsaWSDLOperationExtension.class);
-                String action = getAction(wo, isIncomming);
-                if (action != null && action.equals(uriValue)) {
-                    return wbo;
-                }
-            }
-        }
-        return null;
-
+        return actionIndex.getOperation(getAction(packet), isInputAction(isIncomming));
     }
     
     protected void buildProtocolPolicy(Policy endpointPolicy, PolicyAlternativeHolder ph)throws PolicyException{
@@ -1892,6 +1883,12 @@ TR/SCT"))) && this.bootStrapAlgoSuite != null){            ctx.setAlgorithmSuite
     
     protected abstract String getAction(WSDLOperation operation, boolean isIncomming) ;
 
+    /**
+     * @return true if {@link #getAction(WSDLOperation, boolean)} returns the wsdl:input
+     *         action for the given direction, false if it returns the wsdl:output action
+     */
+    protected abstract boolean isInputAction(boolean isIncomming);
+
     protected PolicyAlternativeHolder resolveAlternative(Packet packet, boolean isSCMessage) {
         if (this.policyAlternatives.size() == 1) {
             return this.policyAlternatives.get(0);
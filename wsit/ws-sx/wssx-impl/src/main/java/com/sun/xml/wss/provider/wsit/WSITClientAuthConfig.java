@@ -60,14 +60,11 @@ import javax.security.auth.message.MessageInfo;
 import javax.security.auth.message.config.ClientAuthConfig;
 import javax.security.auth.message.config.ClientAuthContext;
 import javax.xml.bind.JAXBElement;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import com.sun.xml.wss.provider.wsit.logging.LogDomainConstants;
 import com.sun.xml.wss.provider.wsit.logging.LogStringsMessages;
-import java.util.Collections;
-import java.util.WeakHashMap;
 
 /**
  *
@@ -83,19 +80,15 @@ public class WSITClientAuthConfig implements ClientAuthConfig {
     private String appContext = null;
     private CallbackHandler callbackHandler = null;    
     //private PolicyMap policyMap = null;
-    private ReentrantReadWriteLock rwLock;
-    private ReentrantReadWriteLock.ReadLock rLock;
-    private ReentrantReadWriteLock.WriteLock wLock;
-    private volatile boolean secEnabled;
-    private Map<Integer, WSITClientAuthContext> tubetoClientAuthContextHash = Collections.synchronizedMap(new WeakHashMap<Integer, WSITClientAuthContext>());
+    // the context is referenced by its tube, entries go away with the tube
+    // or with cleanupAuthContext; lookups do not lock
+    private final CopyOnWriteWeakValueMap<Integer, WSITClientAuthContext> tubetoClientAuthContextHash =
+            new CopyOnWriteWeakValueMap<Integer, WSITClientAuthContext>();
     /** Creates a new instance of WSITClientAuthConfig */
     public WSITClientAuthConfig(String layer, String appContext, CallbackHandler callbackHandler) {
         this.layer = layer;
         this.appContext = appContext;
         this.callbackHandler = callbackHandler;
-        this.rwLock = new ReentrantReadWriteLock(true);
-        this.rLock = rwLock.readLock();
-        this.wLock = rwLock.writeLock();
     }
 
     public ClientAuthContext getAuthContext(String operation, Subject subject, Map rawMap) throws AuthException {
@@ -117,46 +110,18 @@ public class WSITClientAuthConfig implements ClientAuthConfig {
         }*/
         //now check if security is enabled
         //if the policy has changed due to redeploy recheck if security is enabled
-        try {
-            rLock.lock(); // acquire read lock
-            if (!secEnabled || !tubetoClientAuthContextHash.containsKey( hashCode)) {
-                rLock.unlock(); // must unlock read, before acquiring write lock
-                wLock.lock(); // acquire write lock
-                try {
-                    if (!secEnabled || !tubetoClientAuthContextHash.containsKey( hashCode)) { //re-check
-                        if (!WSITAuthConfigProvider.isSecurityEnabled(pMap, port)) {
-                            return null;
-                        }
-                        secEnabled = true;
-                    }
-                } finally {
-                    rLock.lock(); // reacquire read before releasing write lock
-                    wLock.unlock(); //release write lock
-                }
-            }
-        } finally {
-            rLock.unlock(); // release read lock
-        }
-        WSITClientAuthContext clientAuthContext = null;
-        this.rLock.lock();
-        try {
-            if (tubetoClientAuthContextHash.containsKey(hashCode)) {                
-                clientAuthContext = (WSITClientAuthContext) tubetoClientAuthContextHash.get(hashCode);
-            }
-        } finally {
-            this.rLock.unlock();
-        }
-
+        WSITClientAuthContext clientAuthContext = tubetoClientAuthContextHash.get(hashCode);
         if (clientAuthContext == null) {
-            this.wLock.lock();
-            try {
-                // recheck the precondition, since the rlock was released.                
-                if (!tubetoClientAuthContextHash.containsKey( hashCode)) {
+            synchronized (tubetoClientAuthContextHash) {
+                // recheck the precondition, another thread may have created it meanwhile
+                clientAuthContext = tubetoClientAuthContextHash.get(hashCode);
+                if (clientAuthContext == null) {
+                    if (!WSITAuthConfigProvider.isSecurityEnabled(pMap, port)) {
+                        return null;
+                    }
                     clientAuthContext = new WSITClientAuthContext(operation, subject, map, callbackHandler);
-                    tubetoClientAuthContextHash.put( hashCode, clientAuthContext);
+                    tubetoClientAuthContextHash.put(hashCode, clientAuthContext);
                 }
-            } finally {
-                this.wLock.unlock();
             }
         }
 
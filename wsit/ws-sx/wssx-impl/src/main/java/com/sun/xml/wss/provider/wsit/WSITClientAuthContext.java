@@ -455,7 +455,7 @@ public class WSITClientAuthContext extends WSITAuthContextBase
         
         ((ProcessingContextImpl) ctx).setIssuedTokenContextMap(issuedTokenContextMap);
         ((ProcessingContextImpl)ctx).setSCPolicyIDtoSctIdMap(scPolicyIDtoSctIdMap);
-        PolicyResolver pr = PolicyResolverFactory.createPolicyResolver(this.policyAlternatives,cachedOperation(req), pipeConfig, addVer, true, rmVer, mcVer);
+        PolicyResolver pr = PolicyResolverFactory.createPolicyResolver(this.policyAlternatives,actionIndex,cachedOperation(req), pipeConfig, addVer, true, rmVer, mcVer);
         ctx.setExtraneousProperty(ProcessingContext.OPERATION_RESOLVER,pr);
         Message msg = req.getInternalMessage();
 
@@ -635,6 +635,10 @@ public class WSITClientAuthContext extends WSITAuthContextBase
         }
     }
 
+    protected boolean isInputAction(boolean inComming) {
+        return !inComming;
+    }
+
      JAXBElement startSecureConversation(Packet packet)
             throws WSSecureConversationException {
 
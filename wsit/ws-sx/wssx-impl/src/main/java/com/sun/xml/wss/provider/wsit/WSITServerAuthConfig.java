@@ -57,7 +57,6 @@ import javax.security.auth.message.AuthException;
 import javax.security.auth.message.MessageInfo;
 import javax.security.auth.message.config.ServerAuthConfig;
 import javax.security.auth.message.config.ServerAuthContext;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  *
@@ -68,21 +67,15 @@ public class WSITServerAuthConfig implements ServerAuthConfig {
     private String layer = null;
     private String appContext = null;
     private CallbackHandler callbackHandler = null;
-    private WSITServerAuthContext serverAuthContext = null;
-    private PolicyMap policyMap = null;
-    private boolean secEnabled;
-    private ReentrantReadWriteLock rwLock;
-    private ReentrantReadWriteLock.ReadLock rLock;
-    private ReentrantReadWriteLock.WriteLock wLock;
+    // context together with the policyMap it was created for, replaced
+    // as a whole so that request threads can read it without locking
+    private volatile ContextHolder holder = null;
 
     /** Creates a new instance of WSITServerAuthConfig */
     public WSITServerAuthConfig(String layer, String appContext, CallbackHandler callbackHandler) {
         this.layer = layer;
         this.appContext = appContext;
         this.callbackHandler = callbackHandler;
-        this.rwLock = new ReentrantReadWriteLock(true);
-        this.rLock = rwLock.readLock();
-        this.wLock = rwLock.writeLock();
     }
 
     public ServerAuthContext getAuthContext(String operation, Subject subject, Map rawMap) throws AuthException {
@@ -94,52 +87,25 @@ public class WSITServerAuthConfig implements ServerAuthConfig {
             return null;
         }
 
-        //check if security is enabled
-        //if policy has changed due to redeploy, check if security is enabled
-        try {
-            rLock.lock(); // acquire read lock
-            if (!secEnabled || policyMap != pMap) {
-                rLock.unlock(); // must unlock read, before acquiring write lock
-                wLock.lock(); // acquire write lock
-                try {
-                    if (!secEnabled || policyMap != pMap) { //re-check
-                        if (!WSITAuthConfigProvider.isSecurityEnabled(pMap, port)) {
-                            return null;
-                        }
-                        secEnabled = true;
-                    }
-                } finally {
-                    rLock.lock(); // reacquire read before releasing write lock
-                    wLock.unlock(); //release write lock
-                }
-            }
-        } finally {
-            rLock.unlock(); // release read lock
+        //return the cached one only if the same policyMap was passed in
+        ContextHolder h = holder;
+        if (h != null && h.policyMap == pMap) {
+            return h.serverAuthContext;
         }
-
-        this.rLock.lock();
-        try {
-            if (serverAuthContext != null) {
-                //return the cached one only if the same policyMap was passed in
-                if (policyMap == pMap) {
-                    return serverAuthContext;
-                }
+        synchronized (this) {
+            // recheck the precondition, another thread may have created it meanwhile
+            h = holder;
+            if (h != null && h.policyMap == pMap) {
+                return h.serverAuthContext;
             }
-        } finally {
-            this.rLock.unlock();
-        }
-        // make sure you don't hold the rlock when you request the wlock
-        // or you will encounter dealock
-        this.wLock.lock();
-        try {
-            // recheck the precondition, since the rlock was released.
-            if ((serverAuthContext == null) || (policyMap != pMap)) {
-                serverAuthContext = new WSITServerAuthContext(operation, subject, map, callbackHandler);
-                policyMap = pMap;
+            //check if security is enabled
+            //if policy has changed due to redeploy, check if security is enabled
+            if (!WSITAuthConfigProvider.isSecurityEnabled(pMap, port)) {
+                return null;
             }
-            return serverAuthContext;
-        } finally {
-            this.wLock.unlock();
+            h = new ContextHolder(pMap, new WSITServerAuthContext(operation, subject, map, callbackHandler));
+            holder = h;
+            return h.serverAuthContext;
         }
     }
 
@@ -165,4 +131,14 @@ public class WSITServerAuthConfig implements ServerAuthConfig {
     public boolean isProtected() {
         return true;
     }
+
+    private static final class ContextHolder {
+        final PolicyMap policyMap;
+        final WSITServerAuthContext serverAuthContext;
+
+        ContextHolder(PolicyMap policyMap, WSITServerAuthContext serverAuthContext) {
+            this.policyMap = policyMap;
+            this.serverAuthContext = serverAuthContext;
+        }
+    }
 }
@@ -350,7 +350,7 @@ public class WSITServerAuthContext extends WSITAuthContextBase implements Server
         
         //update the client subject passed to the AuthModule itself.
         ctx.setExtraneousProperty(MessageConstants.AUTH_SUBJECT, clientSubject);
-        PolicyResolver pr = PolicyResolverFactory.createPolicyResolver(policyAlternatives,
+        PolicyResolver pr = PolicyResolverFactory.createPolicyResolver(policyAlternatives, actionIndex,
                 cachedOperation(packet),pipeConfig,addVer,false, rmVer, mcVer);
         ctx.setExtraneousProperty(ProcessingContext.OPERATION_RESOLVER, pr);
 
@@ -921,6 +921,10 @@ public class WSITServerAuthContext extends WSITAuthContextBase implements Server
             return operation.getOutput().getAction();
         }
     }
+
+    protected boolean isInputAction(boolean inComming){
+        return inComming;
+    }
     
     @SuppressWarnings("unchecked")
     private RealmAuthenticationAdapter getRealmAuthenticationAdapter(WSEndpoint wSEndpoint) {
@@ -0,0 +1,152 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.ws.security.opt.impl.enc;
+
+import com.sun.xml.ws.security.opt.crypto.StreamWriterData;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Iterator;
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import junit.framework.TestCase;
+import org.apache.xml.security.utils.UnsyncBufferedOutputStream;
+import org.jvnet.staxex.NamespaceContextEx;
+
+public class CryptoProcessorTest extends TestCase {
+
+    private static final String AES_128 = "http://www.w3.org/2001/04/xmlenc#aes128-cbc";
+
+    private final SecretKeySpec key = new SecretKeySpec(new byte[] {
+        1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16}, "AES");
+
+    public CryptoProcessorTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        org.apache.xml.security.Init.init();
+    }
+
+    public void testCipherValueDecryptsToCanonicalPayload() throws Exception {
+        String text = text(40000);
+        CryptoProcessor encryptor = new CryptoProcessor(Cipher.ENCRYPT_MODE, AES_128, payload(text), key);
+        encryptor.computeEncryptedDataCV();
+
+        ByteArrayOutputStream cv = new ByteArrayOutputStream();
+        encryptor.encryptData(cv);
+
+        assertEquals("<Payload>" + text + "</Payload>", decrypt(cv.toByteArray()));
+    }
+
+    /**
+     * The cipher value is computed while the digest stream of the enclosing
+     * signature is open on the same thread, as when an encrypted part is signed.
+     */
+    public void testCipherValueComputedWhileSigning() throws Exception {
+        String text = text(40000);
+        CryptoProcessor encryptor = new CryptoProcessor(Cipher.ENCRYPT_MODE, AES_128, payload(text), key);
+
+        MessageDigest signing = MessageDigest.getInstance("SHA-256");
+        OutputStream os = new UnsyncBufferedOutputStream(
+                new DigestOutputStream(new ByteArrayOutputStream(), signing));
+        byte[] prefix = "<EncryptedData><CipherValue>".getBytes("UTF-8");
+        byte[] suffix = "</CipherValue></EncryptedData>".getBytes("UTF-8");
+        os.write(prefix);
+        encryptor.computeEncryptedDataCV();
+        ByteArrayOutputStream cv = new ByteArrayOutputStream();
+        encryptor.encryptData(cv);
+        os.write(cv.toByteArray());
+        os.write(suffix);
+        os.flush();
+
+        MessageDigest expected = MessageDigest.getInstance("SHA-256");
+        expected.update(prefix);
+        expected.update(cv.toByteArray());
+        expected.update(suffix);
+        assertTrue(MessageDigest.isEqual(expected.digest(), signing.digest()));
+        assertEquals("<Payload>" + text + "</Payload>", decrypt(cv.toByteArray()));
+    }
+
+    private String decrypt(byte[] cipherValue) throws Exception {
+        CryptoProcessor decryptor = new CryptoProcessor(Cipher.DECRYPT_MODE, AES_128, key);
+        return new String(decryptor.decryptData(cipherValue), "UTF-8");
+    }
+
+    private static String text(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        return sb.toString();
+    }
+
+    private static StreamWriterData payload(final String text) {
+        return new StreamWriterData() {
+            public NamespaceContextEx getNamespaceContext() {
+                return new NamespaceContextEx() {
+                    public Iterator<Binding> iterator() {
+                        return Collections.<Binding>emptyList().iterator();
+                    }
+                    public String getNamespaceURI(String prefix) {
+                        return null;
+                    }
+                    public String getPrefix(String namespaceURI) {
+                        return null;
+                    }
+                    public Iterator getPrefixes(String namespaceURI) {
+                        return Collections.emptyList().iterator();
+                    }
+                };
+            }
+            public void write(XMLStreamWriter writer) throws XMLStreamException {
+                writer.writeStartElement("Payload");
+                writer.writeCharacters(text);
+                writer.writeEndElement();
+            }
+        };
+    }
+}
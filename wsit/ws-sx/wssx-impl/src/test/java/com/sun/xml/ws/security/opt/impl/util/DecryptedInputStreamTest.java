@@ -0,0 +1,117 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.ws.security.opt.impl.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import junit.framework.TestCase;
+
+public class DecryptedInputStreamTest extends TestCase {
+
+    public DecryptedInputStreamTest(String testName) {
+        super(testName);
+    }
+
+    public void testWrapsContentWithNamespaces() throws Exception {
+        HashMap<String, String> ns = new LinkedHashMap<String, String>();
+        ns.put("S", "http://schemas.xmlsoap.org/soap/envelope/");
+        ns.put("", "urn:default");
+
+        String wrapped = readFully(new DecryptedInputStream(stream("<S:Body/>"), ns), 3);
+        assertEquals("<StartElement xmlns:S=\"http://schemas.xmlsoap.org/soap/envelope/\""
+                + " xmlns=\"urn:default\" ><S:Body/></StartElement>", wrapped);
+    }
+
+    public void testEscapesNamespaceValues() throws Exception {
+        HashMap<String, String> ns = new HashMap<String, String>();
+        ns.put("p", "urn:a&\"b");
+
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(
+                new DecryptedInputStream(stream("<p:e/>"), ns));
+        reader.nextTag();
+        assertEquals("StartElement", reader.getLocalName());
+        reader.nextTag();
+        assertEquals("urn:a&\"b", reader.getNamespaceURI());
+        assertEquals("e", reader.getLocalName());
+    }
+
+    public void testBulkReadDoesNotLoseBytes() throws Exception {
+        StringBuilder content = new StringBuilder("<a>");
+        for (int i = 0; i < 10000; i++) {
+            content.append("<b>").append(i).append("</b>");
+        }
+        content.append("</a>");
+        HashMap<String, String> ns = new HashMap<String, String>();
+
+        String wrapped = readFully(new DecryptedInputStream(stream(content.toString()), ns), 1000);
+        assertEquals("<StartElement >" + content + "</StartElement>", wrapped);
+
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(
+                new DecryptedInputStream(stream(content.toString()), ns));
+        int elements = 0;
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                elements++;
+            }
+        }
+        assertEquals(10002, elements);
+    }
+
+    private static InputStream stream(String content) throws Exception {
+        return new ByteArrayInputStream(content.getBytes("UTF-8"));
+    }
+
+    private static String readFully(InputStream in, int bufferSize) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[bufferSize];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return new String(out.toByteArray(), "UTF-8");
+    }
+}
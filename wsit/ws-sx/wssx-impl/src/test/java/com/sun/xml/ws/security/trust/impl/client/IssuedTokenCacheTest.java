@@ -0,0 +1,223 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.security.trust.impl.client;
+
+import com.sun.xml.ws.api.security.trust.WSTrustException;
+import com.sun.xml.ws.security.IssuedTokenContext;
+import com.sun.xml.ws.security.impl.IssuedTokenContextImpl;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.security.auth.Subject;
+import junit.framework.TestCase;
+
+public class IssuedTokenCacheTest extends TestCase {
+
+    private static final Executor DIRECT = new Executor() {
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    public IssuedTokenCacheTest(String testName) {
+        super(testName);
+    }
+
+    public void testConcurrentMissesIssueOnce() throws Exception {
+        final IssuedTokenCache cache = new IssuedTokenCache(16, DIRECT);
+        final IssuedTokenCache.Key key = key("http://service");
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final IssuedTokenCache.Issuer issuer = new IssuedTokenCache.Issuer() {
+            public void issue(IssuedTokenContext ctx) throws WSTrustException {
+                calls.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    throw new WSTrustException(ex.getMessage(), ex);
+                }
+            }
+        };
+
+        final int threads = 8;
+        final List<IssuedTokenContext> results = new ArrayList<IssuedTokenContext>();
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        IssuedTokenContext token = cache.issue(key, new IssuedTokenContextImpl(), issuer);
+                        synchronized (results) {
+                            results.add(token);
+                        }
+                    } catch (WSTrustException ex) {
+                        // counted as a missing result
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        while (cache.getIssueCount() + cache.getCoalescedCount() < threads) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(1, calls.get());
+        assertEquals(threads, results.size());
+        for (IssuedTokenContext token : results) {
+            assertSame(results.get(0), token);
+        }
+        assertSame(results.get(0), cache.get(key));
+    }
+
+    public void testFailedIssuanceIsNotCached() throws Exception {
+        IssuedTokenCache cache = new IssuedTokenCache(16, DIRECT);
+        IssuedTokenCache.Key key = key("http://service");
+        try {
+            cache.issue(key, new IssuedTokenContextImpl(), new IssuedTokenCache.Issuer() {
+                public void issue(IssuedTokenContext ctx) throws WSTrustException {
+                    throw new WSTrustException("sts down");
+                }
+            });
+            fail();
+        } catch (WSTrustException ex) {
+            assertEquals("sts down", ex.getMessage());
+        }
+        assertNull(cache.get(key));
+        assertEquals(1, cache.getFailureCount());
+
+        IssuedTokenContext ctx = new IssuedTokenContextImpl();
+        assertSame(ctx, cache.issue(key, ctx, new CountingIssuer()));
+        assertSame(ctx, cache.get(key));
+    }
+
+    public void testRenewalReplacesCurrentToken() throws Exception {
+        IssuedTokenCache cache = new IssuedTokenCache(16, DIRECT);
+        IssuedTokenCache.Key key = key("http://service");
+        CountingIssuer issuer = new CountingIssuer();
+        IssuedTokenContext current = new IssuedTokenContextImpl();
+        current.setEndpointAddress("http://service");
+        cache.issue(key, current, issuer);
+
+        cache.renew(key, current, issuer);
+        IssuedTokenContext renewed = cache.get(key);
+        assertNotSame(current, renewed);
+        assertEquals("http://service", renewed.getEndpointAddress());
+
+        // a stale token does not trigger another renewal
+        cache.renew(key, current, issuer);
+        assertSame(renewed, cache.get(key));
+        assertEquals(2, issuer.calls);
+        assertEquals(1, cache.getRenewalCount());
+    }
+
+    public void testRejectedRenewalIsRetried() throws Exception {
+        final AtomicInteger executions = new AtomicInteger();
+        IssuedTokenCache cache = new IssuedTokenCache(16, new Executor() {
+            public void execute(Runnable command) {
+                if (executions.incrementAndGet() == 1) {
+                    throw new RejectedExecutionException("busy");
+                }
+                command.run();
+            }
+        });
+        IssuedTokenCache.Key key = key("http://service");
+        CountingIssuer issuer = new CountingIssuer();
+        IssuedTokenContext current = new IssuedTokenContextImpl();
+        cache.issue(key, current, issuer);
+
+        cache.renew(key, current, issuer);
+        assertSame(current, cache.get(key));
+        assertEquals(0, cache.getRenewalCount());
+
+        cache.renew(key, current, issuer);
+        assertNotSame(current, cache.get(key));
+        assertEquals(1, cache.getRenewalCount());
+        assertEquals(2, issuer.calls);
+    }
+
+    public void testCachesAreScopedToSubject() throws Exception {
+        Subject first = new Subject();
+        Subject second = new Subject();
+
+        IssuedTokenCache cache = STSIssuedTokenProviderImpl.getTokenCache(first);
+        assertSame(cache, STSIssuedTokenProviderImpl.getTokenCache(first));
+        assertNotSame(cache, STSIssuedTokenProviderImpl.getTokenCache(second));
+
+        IssuedTokenContext token = new IssuedTokenContextImpl();
+        cache.issue(key("http://service"), token, new CountingIssuer());
+        assertSame(token, STSIssuedTokenProviderImpl.getTokenCache(first).get(key("http://service")));
+        assertNull(STSIssuedTokenProviderImpl.getTokenCache(second).get(key("http://service")));
+    }
+
+    public void testSizeIsBounded() throws Exception {
+        IssuedTokenCache cache = new IssuedTokenCache(2, DIRECT);
+        CountingIssuer issuer = new CountingIssuer();
+        cache.issue(key("http://a"), new IssuedTokenContextImpl(), issuer);
+        cache.issue(key("http://b"), new IssuedTokenContextImpl(), issuer);
+        cache.get(key("http://a"));
+        cache.issue(key("http://c"), new IssuedTokenContextImpl(), issuer);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get(key("http://a")));
+        assertNull(cache.get(key("http://b")));
+    }
+
+    private static IssuedTokenCache.Key key(String appliesTo) {
+        return new IssuedTokenCache.Key("http://sts", appliesTo, "tokenType|keyType|", null);
+    }
+
+    private static final class CountingIssuer implements IssuedTokenCache.Issuer {
+        private int calls;
+
+        public void issue(IssuedTokenContext ctx) {
+            calls++;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.ws.security.trust.sts;
+
+import com.sun.xml.ws.api.security.trust.config.STSConfiguration;
+import com.sun.xml.ws.security.trust.impl.DefaultSTSConfiguration;
+import com.sun.xml.ws.security.trust.impl.DefaultTrustSPMetadata;
+import java.util.HashMap;
+import java.util.Map;
+import junit.framework.TestCase;
+
+public class RequestScopedSTSConfigurationTest extends TestCase {
+
+    private DefaultSTSConfiguration shared;
+
+    public RequestScopedSTSConfigurationTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        shared = new DefaultSTSConfiguration();
+        shared.setIssuer("issuer");
+        shared.setIssuedTokenTimeout(1000);
+        shared.getOtherOptions().put("version", "shared");
+        shared.getOtherOptions().put("sharedOnly", "shared");
+        shared.addTrustSPMetadata(new DefaultTrustSPMetadata("http://sp"), "http://sp");
+    }
+
+    public void testTypedPropertiesAreShared() {
+        STSConfiguration config = new RequestScopedSTSConfiguration(shared, null);
+
+        assertEquals("issuer", config.getIssuer());
+        assertEquals(1000, config.getIssuedTokenTimeout());
+        assertSame(shared.getTrustSPMetadata("http://sp"), config.getTrustSPMetadata("http://sp"));
+        assertNull(config.getTrustSPMetadata("http://unknown"));
+    }
+
+    public void testOptionLookupOrder() {
+        Map<String, Object> requestProperties = new HashMap<String, Object>();
+        requestProperties.put("version", "request");
+        requestProperties.put("requestOnly", "request");
+        STSConfiguration config = new RequestScopedSTSConfiguration(shared, requestProperties);
+
+        assertEquals("request", config.getOtherOptions().get("version"));
+        assertEquals("request", config.getOtherOptions().get("requestOnly"));
+        assertEquals("shared", config.getOtherOptions().get("sharedOnly"));
+        assertNull(config.getOtherOptions().get("missing"));
+
+        config.getOtherOptions().put("version", "local");
+        assertEquals("local", config.getOtherOptions().get("version"));
+        assertTrue(config.getOtherOptions().containsKey("requestOnly"));
+        assertEquals(3, config.getOtherOptions().size());
+    }
+
+    public void testRemovalHidesUnderlyingValues() {
+        Map<String, Object> requestProperties = new HashMap<String, Object>();
+        requestProperties.put("requestOnly", "request");
+        STSConfiguration config = new RequestScopedSTSConfiguration(shared, requestProperties);
+        Map<String, Object> options = config.getOtherOptions();
+
+        options.put("version", "local");
+        assertEquals("local", options.remove("version"));
+        assertNull("shared value must not show through a removed key", options.get("version"));
+        assertFalse(options.containsKey("version"));
+
+        assertEquals("request", options.remove("requestOnly"));
+        assertFalse(options.containsKey("requestOnly"));
+        assertEquals(1, options.size());
+        assertFalse(options.entrySet().iterator().next().getKey().equals("version"));
+
+        options.put("version", "again");
+        assertEquals("again", options.get("version"));
+        assertEquals(2, options.size());
+
+        options.clear();
+        assertTrue(options.isEmpty());
+        assertNull(options.get("sharedOnly"));
+
+        assertEquals("shared", shared.getOtherOptions().get("version"));
+        assertEquals("request", requestProperties.get("requestOnly"));
+    }
+
+    public void testRequestValuesDoNotLeakIntoSharedConfiguration() {
+        STSConfiguration first = new RequestScopedSTSConfiguration(shared, null);
+        STSConfiguration second = new RequestScopedSTSConfiguration(shared, null);
+
+        first.getOtherOptions().put("assertion", "first");
+        first.addTrustSPMetadata(new DefaultTrustSPMetadata("http://local"), "http://local");
+
+        assertEquals("first", first.getOtherOptions().get("assertion"));
+        assertNull(second.getOtherOptions().get("assertion"));
+        assertFalse(shared.getOtherOptions().containsKey("assertion"));
+        assertNotNull(first.getTrustSPMetadata("http://local"));
+        assertNull(shared.getTrustSPMetadata("http://local"));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package com.sun.xml.ws.security.trust.util;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import junit.framework.TestCase;
+import org.apache.xml.security.encryption.XMLCipher;
+import org.apache.xml.security.utils.EncryptionConstants;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class WSTrustUtilTest extends TestCase {
+
+    public WSTrustUtilTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        org.apache.xml.security.Init.init();
+    }
+
+    public void testBackToBackDecryptionsOnOneThread() throws Exception {
+        final SecretKey key = new SecretKeySpec(WSTrustUtil.generateRandomSecret(16), "AES");
+
+        final Document first = encrypt(token("first"), key);
+        final Document second = encrypt(token("second"), key);
+
+        assertEquals("first", decrypt(first, key));
+        assertEquals("second", decrypt(second, key));
+        assertEquals("first", decrypt(encrypt(token("first"), key), key));
+    }
+
+    private static Document token(String value) {
+        final Document doc = WSTrustUtil.newDocument();
+        final Element token = doc.createElementNS("urn:test", "t:token");
+        final Element content = doc.createElementNS("urn:test", "t:value");
+        content.appendChild(doc.createTextNode(value));
+        token.appendChild(content);
+        doc.appendChild(token);
+        return doc;
+    }
+
+    private static Document encrypt(Document doc, SecretKey key) throws Exception {
+        final XMLCipher cipher = XMLCipher.getInstance(XMLCipher.AES_128);
+        cipher.init(XMLCipher.ENCRYPT_MODE, key);
+        return cipher.doFinal(doc, doc.getDocumentElement(), true);
+    }
+
+    private static String decrypt(Document doc, SecretKey key) throws Exception {
+        final Element encryptedData = (Element) doc.getElementsByTagNameNS(EncryptionConstants.EncryptionSpecNS, EncryptionConstants._TAG_ENCRYPTEDDATA).item(0);
+        assertNotNull("token content has not been encrypted", encryptedData);
+
+        final XMLCipher cipher = XMLCipher.getInstance(XMLCipher.AES_128);
+        cipher.init(XMLCipher.DECRYPT_MODE, key);
+        return cipher.doFinal(doc, encryptedData).getDocumentElement().getTextContent();
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.wss.impl.c14n;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Arrays;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+import junit.framework.TestCase;
+
+/**
+ * Canonicalizes the exclusive c14n examples of the W3C recommendation and a
+ * few documents exercising the c14n rules, feeding the canonicalizer the way
+ * the optimized security path does. The expected forms are the ones the
+ * canonicalizer produced before it was made reusable; they must not change
+ * byte for byte, whether an instance is fresh or reused.
+ */
+public class StAXEXC14nCanonicalizerImplTest extends TestCase {
+
+    private static final String W3C_EXC_C14N_DOC = "<n1:elem2 xmlns:n1=\"http://example.net\" xml:lang=\"en\">\n"
+            + "    <n3:stuff xmlns:n3=\"ftp://example.org\"/>\n"
+            + "  </n1:elem2>";
+
+    /* name, in-scope bindings of the parent, inclusive prefixes, document, canonical form */
+    private static final String[][] VECTORS = {
+        {"w3c-exc-c14n-example-1", "n0=foo:bar n3=ftp://example.org", "", W3C_EXC_C14N_DOC,
+            "<n1:elem2 xmlns:n1=\"http://example.net\" xml:lang=\"en\">\n    <n3:stuff xmlns:n3=\"ftp://example.org\"></n3:stuff>\n  </n1:elem2>"},
+        {"w3c-exc-c14n-example-2", "n1=http://example.com n2=http://foo.example", "", W3C_EXC_C14N_DOC,
+            "<n1:elem2 xmlns:n1=\"http://example.net\" xml:lang=\"en\">\n    <n3:stuff xmlns:n3=\"ftp://example.org\"></n3:stuff>\n  </n1:elem2>"},
+        {"w3c-exc-c14n-inclusive-prefix", "n0=foo:bar n3=ftp://example.org", "n0", W3C_EXC_C14N_DOC,
+            "<n1:elem2 xmlns:n0=\"foo:bar\" xmlns:n1=\"http://example.net\" xml:lang=\"en\">\n    <n3:stuff xmlns:n3=\"ftp://example.org\"></n3:stuff>\n  </n1:elem2>"},
+        {"c14n-start-and-end-tags", "", "",
+            "<doc>\n   <e1   />\n   <e2   ></e2>\n   <e3   name = \"elem3\"   id=\"elem3\"   />\n   <e4   name=\"elem4\"   id=\"elem4\"   ></e4>\n"
+            + "   <e5 a:attr=\"out\" b:attr=\"sorted\" attr2=\"all\" attr=\"I'm\"\n      xmlns:b=\"http://www.ietf.org\"\n      xmlns:a=\"http://www.w3.org\"\n      xmlns=\"http://example.org\"/>\n"
+            + "   <e6 xmlns=\"\" xmlns:a=\"http://www.w3.org\">\n      <e7 xmlns=\"http://www.ietf.org\">\n         <e8 xmlns=\"\" xmlns:a=\"http://www.w3.org\">\n"
+            + "            <e9 xmlns=\"\" xmlns:a=\"http://www.ietf.org\"/>\n         </e8>\n      </e7>\n   </e6>\n</doc>",
+            "<doc>\n   <e1></e1>\n   <e2></e2>\n   <e3 id=\"elem3\" name=\"elem3\"></e3>\n   <e4 id=\"elem4\" name=\"elem4\"></e4>\n"
+            + "   <e5 xmlns=\"http://example.org\" xmlns:a=\"http://www.w3.org\" xmlns:b=\"http://www.ietf.org\" attr=\"I'm\" attr2=\"all\" b:attr=\"sorted\" a:attr=\"out\"></e5>\n"
+            + "   <e6 xmlns=\"\">\n      <e7 xmlns=\"http://www.ietf.org\">\n         <e8 xmlns=\"\">\n            <e9></e9>\n         </e8>\n      </e7>\n   </e6>\n</doc>"},
+        {"c14n-character-modifications", "", "",
+            "<doc attr=\"&quot;&amp;&lt;&#9;&#10;&#13;'&gt;\">text &amp; &lt; &gt; \"quoted\" &#13;&#10;crlf &#13;cr-only &#13;&#13;&amp; &#169; &#x6F22;<![CDATA[ cdata <&> ]]></doc>",
+            "<doc attr=\"&quot;&amp;&lt;&#x9;&#xA;&#xD;'>\">text &amp; &lt; &gt; \"quoted\" \ncrlf &#xD;cr-only &#xD;&#xD;&amp; \u00a9 \u6f22 cdata &lt;&amp;&gt; </doc>"},
+        {"default-namespace", "", "",
+            "<a:root xmlns:a=\"urn:a\" xmlns=\"urn:d\"><child attr=\"1\"><a:leaf/></child><b:x xmlns:b=\"urn:b\" b:att=\"v\"/></a:root>",
+            "<a:root xmlns:a=\"urn:a\"><child xmlns=\"urn:d\" attr=\"1\"><a:leaf></a:leaf></child><b:x xmlns:b=\"urn:b\" b:att=\"v\"></b:x></a:root>"},
+        {"redeclared-prefix", "", "",
+            "<p:a xmlns:p=\"urn:1\"><p:b xmlns:p=\"urn:2\"><p:c/></p:b><p:d/></p:a>",
+            "<p:a xmlns:p=\"urn:1\"><p:b xmlns:p=\"urn:2\"><p:c></p:c></p:b><p:d></p:d></p:a>"},
+        {"inherited-bindings", "p=urn:1 q=urn:q", "",
+            "<p:a><q:b p:attr=\"x\">text</q:b><p:c/></p:a>",
+            "<p:a xmlns:p=\"urn:1\"><q:b xmlns:q=\"urn:q\" p:attr=\"x\">text</q:b><p:c></p:c></p:a>"},
+        {"text-longer-than-a-chunk", "", "", longText("&amp;&#13;"), longText("&amp;&#xD;")},
+    };
+
+    public StAXEXC14nCanonicalizerImplTest(String testName) {
+        super(testName);
+    }
+
+    public void testVectorsWithFreshCanonicalizers() throws Exception {
+        for (String[] vector : VECTORS) {
+            assertEquals(vector[0], vector[4], canonicalize(new StAXEXC14nCanonicalizerImpl(), vector, false));
+            assertEquals(vector[0], vector[4], canonicalize(new StAXEXC14nCanonicalizerImpl(), vector, true));
+        }
+    }
+
+    public void testVectorsWithReusedCanonicalizer() throws Exception {
+        StAXEXC14nCanonicalizerImpl canonicalizer = new StAXEXC14nCanonicalizerImpl();
+        for (int run = 0; run < 3; run++) {
+            for (String[] vector : VECTORS) {
+                assertEquals(vector[0], vector[4], canonicalize(canonicalizer, vector, run == 1));
+            }
+        }
+    }
+
+    public void testResetDropsInterruptedDocument() throws Exception {
+        StAXEXC14nCanonicalizerImpl canonicalizer = new StAXEXC14nCanonicalizerImpl();
+        for (String[] vector : VECTORS) {
+            canonicalizer.setStream(new ByteArrayOutputStream());
+            canonicalizer.reset();
+            canonicalizer.writeNamespace("n1", "urn:stale");
+            canonicalizer.writeStartElement("p", "a", "urn:1");
+            canonicalizer.writeNamespace("p", "urn:1");
+            canonicalizer.writeStartElement("n1", "b", "urn:stale");
+            canonicalizer.writeAttribute("attr", "v");
+
+            assertEquals(vector[0], vector[4], canonicalize(canonicalizer, vector, false));
+        }
+    }
+
+    private static String longText(String escapedCarriageReturn) {
+        StringBuilder text = new StringBuilder("<t:text xmlns:t=\"urn:t\">");
+        for (int i = 0; i < 600; i++) {
+            text.append("chunk ").append(i).append(" \u00e9").append(escapedCarriageReturn);
+        }
+        return text.append("end</t:text>").toString();
+    }
+
+    private static String canonicalize(StAXEXC14nCanonicalizerImpl canonicalizer, String[] vector, boolean textAsStrings) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        canonicalizer.setStream(out);
+        canonicalizer.reset();
+
+        String document = vector[3];
+        boolean wrapped = vector[1].length() > 0;
+        if (wrapped) {
+            // the bindings are declared on a parent that is not canonicalized
+            StringBuilder parent = new StringBuilder("<parent");
+            for (String binding : vector[1].split(" ")) {
+                int eq = binding.indexOf('=');
+                canonicalizer.writeNamespace(binding.substring(0, eq), binding.substring(eq + 1));
+                parent.append(" xmlns:").append(binding.substring(0, eq)).append("=\"").append(binding.substring(eq + 1)).append('"');
+            }
+            document = parent.append('>').append(document).append("</parent>").toString();
+        }
+        canonicalizer.setInclusivePrefixList(vector[2].length() > 0 ? Arrays.asList(vector[2].split(" ")) : null);
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        XMLStreamReader reader = factory.createXMLStreamReader(new StringReader(document));
+        int depth = 0;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamReader.START_ELEMENT && depth++ == 0 && wrapped) {
+                continue;
+            }
+            if (event == XMLStreamReader.END_ELEMENT && --depth == 0 && wrapped) {
+                continue;
+            }
+            switch (event) {
+                case XMLStreamReader.START_ELEMENT:
+                    writeStartElement(reader, canonicalizer);
+                    break;
+                case XMLStreamReader.END_ELEMENT:
+                    canonicalizer.writeEndElement();
+                    break;
+                case XMLStreamReader.CHARACTERS:
+                case XMLStreamReader.CDATA:
+                case XMLStreamReader.SPACE:
+                    if (textAsStrings) {
+                        canonicalizer.writeCharacters(reader.getText());
+                    } else {
+                        canonicalizer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return out.toString("UTF-8");
+    }
+
+    /* mirrors StreamUtil.writeStartElement */
+    private static void writeStartElement(XMLStreamReader reader, StAXEXC14nCanonicalizerImpl canonicalizer) throws Exception {
+        String prefix = reader.getPrefix();
+        canonicalizer.writeStartElement(prefix == null ? "" : prefix, reader.getLocalName(), reader.getNamespaceURI());
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String nsPrefix = reader.getNamespacePrefix(i);
+            String nsURI = reader.getNamespaceURI(i);
+            canonicalizer.writeNamespace(nsPrefix == null ? "" : nsPrefix, nsURI == null ? "" : nsURI);
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String attrPrefix = reader.getAttributePrefix(i);
+            if (attrPrefix == null || attrPrefix.length() == 0) {
+                canonicalizer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            } else {
+                canonicalizer.writeAttribute(attrPrefix, reader.getAttributeNamespace(i), reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+        }
+    }
+}
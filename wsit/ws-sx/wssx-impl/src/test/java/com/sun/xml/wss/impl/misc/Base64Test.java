@@ -0,0 +1,113 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.wss.impl.misc;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import junit.framework.TestCase;
+import org.apache.xml.security.exceptions.Base64DecodingException;
+
+public class Base64Test extends TestCase {
+
+    private static final int[] SIZES = {0, 1, 2, 3, 4, 56, 57, 58, 255, 256, 1533, 1534, 1536, 4096, 10000};
+
+    public Base64Test(String testName) {
+        super(testName);
+    }
+
+    public void testStreamWriterEncodingMatchesStringEncoding() throws Exception {
+        Random random = new Random(45);
+        for (int size : SIZES) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+
+            StringWriter chars = new StringWriter();
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(chars);
+            Base64.encode(data, writer);
+            writer.flush();
+            assertEquals("size " + size, Base64.encode(data), chars.toString());
+        }
+    }
+
+    public void testStreamReaderDecodingMatchesStringDecoding() throws Exception {
+        Random random = new Random(45);
+        for (int size : SIZES) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+
+            XMLStreamReader reader = valueReader(Base64.encode(data) + "</v><next/></a>");
+            assertTrue("size " + size, Arrays.equals(data, Base64.decode(reader)));
+            assertEquals(XMLStreamReader.END_ELEMENT, reader.getEventType());
+            assertEquals("v", reader.getLocalName());
+            reader.nextTag();
+            assertEquals("next", reader.getLocalName());
+        }
+    }
+
+    public void testStreamReaderDecodingSkipsWhiteSpaceAndComments() throws Exception {
+        assertEquals("abcdef", new String(Base64.decode(valueReader("YW\n Jj<!-- c -->ZG<![CDATA[Vm]]>\n</v></a>")), "US-ASCII"));
+    }
+
+    public void testStreamReaderDecodingRejectsMalformedData() throws Exception {
+        for (String value : new String[] {"YW!j", "YWI=YWI=", "YWI=x"}) {
+            try {
+                Base64.decode(valueReader(value + "</v></a>"));
+                fail(value);
+            } catch (Base64DecodingException expected) {
+            }
+        }
+    }
+
+    private static XMLStreamReader valueReader(String rest) throws Exception {
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader("<a><v>" + rest));
+        reader.nextTag();
+        reader.nextTag();
+        reader.next();
+        return reader;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.wss.impl.policy.verifier;
+
+import com.sun.xml.wss.XWSSecurityException;
+import com.sun.xml.wss.impl.MessageConstants;
+import com.sun.xml.wss.impl.PolicyViolationException;
+import com.sun.xml.wss.impl.policy.mls.AuthenticationTokenPolicy;
+import com.sun.xml.wss.impl.policy.mls.EncryptionPolicy;
+import com.sun.xml.wss.impl.policy.mls.EncryptionTarget;
+import com.sun.xml.wss.impl.policy.mls.MessagePolicy;
+import com.sun.xml.wss.impl.policy.mls.SignaturePolicy;
+import com.sun.xml.wss.impl.policy.mls.SignatureTarget;
+import com.sun.xml.wss.impl.policy.mls.Target;
+import com.sun.xml.wss.impl.policy.mls.WSSPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+public class VerificationPlanTest extends TestCase {
+
+    private static final String INCLUSIVE_C14N = "http://www.w3.org/TR/2001/REC-xml-c14n-20010315";
+
+    public VerificationPlanTest(String testName) {
+        super(testName);
+    }
+
+    public void testReplayResolvesTargetsOfEachMessage() throws Exception {
+        MessagePolicy actual = createPolicy(MessageConstants.TRANSFORM_C14N_EXCL_OMIT_COMMENTS);
+
+        RecordingTargetResolver resolver = new RecordingTargetResolver();
+        MessagePolicy first = createPolicy(MessageConstants.TRANSFORM_C14N_EXCL_OMIT_COMMENTS);
+        new MessagePolicyVerifier(null, resolver).verifyPolicy(first, actual);
+        assertEquals(0, first.size());
+        assertEquals(2, resolver.inferredTargets.size());
+
+        String fingerprint = VerificationPlan.fingerprint(actual,
+                createPolicy(MessageConstants.TRANSFORM_C14N_EXCL_OMIT_COMMENTS));
+        assertNotNull(VerificationPlan.get(actual, fingerprint));
+
+        resolver = new RecordingTargetResolver();
+        MessagePolicy second = createPolicy(MessageConstants.TRANSFORM_C14N_EXCL_OMIT_COMMENTS);
+        List<?> signed = ((SignaturePolicy.FeatureBinding) ((WSSPolicy) second.get(0)).getFeatureBinding()).getTargetBindings();
+        List<?> encrypted = ((EncryptionPolicy.FeatureBinding) ((WSSPolicy) second.get(1)).getFeatureBinding()).getTargetBindings();
+        new MessagePolicyVerifier(null, resolver).verifyPolicy(second, actual);
+        assertEquals(0, second.size());
+        assertEquals(2, resolver.inferredTargets.size());
+        assertSame(signed, resolver.inferredTargets.get(0));
+        assertSame(encrypted, resolver.inferredTargets.get(1));
+    }
+
+    public void testDifferentShapeIsVerifiedAgain() throws Exception {
+        MessagePolicy actual = createPolicy(MessageConstants.TRANSFORM_C14N_EXCL_OMIT_COMMENTS);
+        new MessagePolicyVerifier(null, new RecordingTargetResolver()).verifyPolicy(
+                createPolicy(MessageConstants.TRANSFORM_C14N_EXCL_OMIT_COMMENTS), actual);
+
+        MessagePolicy inclusive = createPolicy(INCLUSIVE_C14N);
+        assertFalse(VerificationPlan.fingerprint(actual, inclusive).equals(VerificationPlan.fingerprint(actual,
+                createPolicy(MessageConstants.TRANSFORM_C14N_EXCL_OMIT_COMMENTS))));
+        try {
+            new MessagePolicyVerifier(null, new RecordingTargetResolver()).verifyPolicy(inclusive, actual);
+            fail("canonicalization algorithm mismatch not detected");
+        } catch (PolicyViolationException expected) {
+        }
+    }
+
+    public void testFailedVerificationIsNotCached() throws Exception {
+        MessagePolicy actual = createPolicy(MessageConstants.TRANSFORM_C14N_EXCL_OMIT_COMMENTS);
+        RecordingTargetResolver resolver = new RecordingTargetResolver();
+        resolver.fail = true;
+        try {
+            new MessagePolicyVerifier(null, resolver).verifyPolicy(
+                    createPolicy(MessageConstants.TRANSFORM_C14N_EXCL_OMIT_COMMENTS), actual);
+            fail("target verification failure not reported");
+        } catch (PolicyViolationException expected) {
+        }
+        assertNull(VerificationPlan.get(actual, VerificationPlan.fingerprint(actual,
+                createPolicy(MessageConstants.TRANSFORM_C14N_EXCL_OMIT_COMMENTS))));
+    }
+
+    private static MessagePolicy createPolicy(String canonicalization) throws Exception {
+        MessagePolicy policy = new MessagePolicy();
+
+        SignaturePolicy signature = new SignaturePolicy();
+        SignaturePolicy.FeatureBinding sfb = (SignaturePolicy.FeatureBinding) signature.getFeatureBinding();
+        sfb.setCanonicalizationAlgorithm(canonicalization);
+        sfb.addTargetBinding(new SignatureTarget(new Target(Target.TARGET_TYPE_VALUE_URI, "#body")));
+        signature.setKeyBinding(new AuthenticationTokenPolicy.X509CertificateBinding());
+        policy.append(signature);
+
+        EncryptionPolicy encryption = new EncryptionPolicy();
+        EncryptionPolicy.FeatureBinding efb = (EncryptionPolicy.FeatureBinding) encryption.getFeatureBinding();
+        efb.addTargetBinding(new EncryptionTarget(new Target(Target.TARGET_TYPE_VALUE_URI, "#body")));
+        encryption.setKeyBinding(new AuthenticationTokenPolicy.X509CertificateBinding());
+        policy.append(encryption);
+
+        return policy;
+    }
+
+    private static class RecordingTargetResolver implements TargetResolver {
+
+        private final List<List<Target>> inferredTargets = new ArrayList<List<Target>>();
+        private boolean fail = false;
+
+        public void resolveAndVerifyTargets(List<Target> actualTargets, List<Target> inferredTargets,
+                WSSPolicy actualPolicy) throws XWSSecurityException {
+            if (fail) {
+                throw new XWSSecurityException("target not found");
+            }
+            this.inferredTargets.add(inferredTargets);
+        }
+
+        public boolean isTargetPresent(List<Target> actualTargets) throws XWSSecurityException {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.wss.jaxws.impl;
+
+import com.sun.xml.ws.security.IssuedTokenContext;
+import com.sun.xml.ws.security.impl.IssuedTokenContextImpl;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.ws.WebServiceException;
+import junit.framework.TestCase;
+
+public class SecureConversationSessionsTest extends TestCase {
+
+    private ScheduledThreadPoolExecutor executor;
+
+    public SecureConversationSessionsTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        executor = new ScheduledThreadPoolExecutor(2);
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+        super.tearDown();
+    }
+
+    public void testConcurrentCallersShareOneHandshake() throws Exception {
+        final SecureConversationSessions sessions = new SecureConversationSessions(0, null);
+        final AtomicInteger handshakes = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IssuedTokenContext established = new IssuedTokenContextImpl();
+        final SecureConversationSessions.Handshake handshake = new SecureConversationSessions.Handshake() {
+            public IssuedTokenContext establish() throws Exception {
+                handshakes.incrementAndGet();
+                started.countDown();
+                release.await();
+                return established;
+            }
+        };
+
+        final List<IssuedTokenContext> results = Collections.synchronizedList(new ArrayList<IssuedTokenContext>());
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    results.add(sessions.establish("sc-policy", handshake));
+                }
+            };
+            threads.add(thread);
+            thread.start();
+            if (i == 0) {
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+            }
+        }
+        // give the other callers time to join the pending handshake
+        Thread.sleep(100);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        assertEquals(1, handshakes.get());
+        assertEquals(4, results.size());
+        for (IssuedTokenContext result : results) {
+            assertSame(established, result);
+        }
+    }
+
+    public void testFailedHandshakeIsRetried() {
+        final SecureConversationSessions sessions = new SecureConversationSessions(0, null);
+        final AtomicInteger handshakes = new AtomicInteger();
+        final SecureConversationSessions.Handshake failing = new SecureConversationSessions.Handshake() {
+            public IssuedTokenContext establish() throws Exception {
+                handshakes.incrementAndGet();
+                throw new IllegalStateException("STS unavailable");
+            }
+        };
+        for (int i = 0; i < 2; i++) {
+            try {
+                sessions.establish("sc-policy", failing);
+                fail("Expected a WebServiceException");
+            } catch (WebServiceException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+        assertEquals(2, handshakes.get());
+    }
+
+    public void testContextIsRenewedAfterShareOfLifetime() throws Exception {
+        final SecureConversationSessions sessions = new SecureConversationSessions(50, executor);
+        final IssuedTokenContext ctx = context(200);
+        final List<IssuedTokenContext> renewed = Collections.synchronizedList(new ArrayList<IssuedTokenContext>());
+        final CountDownLatch done = new CountDownLatch(1);
+        final long scheduledAt = System.currentTimeMillis();
+        sessions.scheduleRenewal("sc-policy", ctx, new SecureConversationSessions.Renewal() {
+            public void renew(IssuedTokenContext current) {
+                renewed.add(current);
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - scheduledAt >= 90);
+        assertEquals(1, renewed.size());
+        assertSame(ctx, renewed.get(0));
+    }
+
+    public void testRenewalOfReplacedContextIsCancelled() throws Exception {
+        final SecureConversationSessions sessions = new SecureConversationSessions(50, executor);
+        final IssuedTokenContext replaced = context(400);
+        final IssuedTokenContext current = context(200);
+        final List<IssuedTokenContext> renewed = Collections.synchronizedList(new ArrayList<IssuedTokenContext>());
+        final SecureConversationSessions.Renewal renewal = new SecureConversationSessions.Renewal() {
+            public void renew(IssuedTokenContext ctx) {
+                renewed.add(ctx);
+            }
+        };
+        sessions.scheduleRenewal("sc-policy", replaced, renewal);
+        sessions.scheduleRenewal("sc-policy", current, renewal);
+
+        Thread.sleep(500);
+        assertEquals(1, renewed.size());
+        assertSame(current, renewed.get(0));
+    }
+
+    public void testCloseCancelsRenewals() throws Exception {
+        final SecureConversationSessions sessions = new SecureConversationSessions(50, executor);
+        final AtomicInteger renewals = new AtomicInteger();
+        final SecureConversationSessions.Renewal renewal = new SecureConversationSessions.Renewal() {
+            public void renew(IssuedTokenContext ctx) {
+                renewals.incrementAndGet();
+            }
+        };
+        sessions.scheduleRenewal("sc-policy", context(100), renewal);
+        sessions.close();
+        sessions.scheduleRenewal("other-sc-policy", context(100), renewal);
+
+        Thread.sleep(200);
+        assertEquals(0, renewals.get());
+        assertEquals(0, executor.getQueue().size());
+    }
+
+    public void testRenewalIsDisabledByDefault() {
+        final SecureConversationSessions sessions = new SecureConversationSessions(0, executor);
+        sessions.scheduleRenewal("sc-policy", context(100), new SecureConversationSessions.Renewal() {
+            public void renew(IssuedTokenContext ctx) {
+                fail("Renewal is disabled");
+            }
+        });
+        assertEquals(0, executor.getQueue().size());
+    }
+
+    private static IssuedTokenContext context(long lifetime) {
+        final IssuedTokenContext ctx = new IssuedTokenContextImpl();
+        final long now = System.currentTimeMillis();
+        ctx.setCreationTime(new Date(now));
+        ctx.setExpirationTime(new Date(now + lifetime));
+        return ctx;
+    }
+}
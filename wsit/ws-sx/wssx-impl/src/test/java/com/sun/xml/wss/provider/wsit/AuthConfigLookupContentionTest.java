@@ -0,0 +1,154 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package com.sun.xml.wss.provider.wsit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.security.auth.callback.CallbackHandler;
+import javax.security.auth.message.AuthException;
+import javax.security.auth.message.config.AuthConfigProvider;
+import javax.security.auth.message.config.ClientAuthConfig;
+import javax.security.auth.message.config.ServerAuthConfig;
+import junit.framework.TestCase;
+
+/**
+ * Contention test for the JSR-196 lookup path: request threads look up
+ * the provider while registrations keep changing, and the lookups must always
+ * see a consistent registration.
+ */
+public class AuthConfigLookupContentionTest extends TestCase {
+
+    private static final String LAYER = "HttpServlet";
+    private static final String APP_CONTEXT = "localhost /contention";
+    private static final int READERS = 8;
+    private static final long DURATION_MILLIS = 1000;
+
+    /**
+     * Keeps the registered providers and map values strongly reachable for the
+     * duration of a test, as the maps under test only hold them weakly.
+     */
+    private final List<Object> retained = new ArrayList<Object>();
+
+    public AuthConfigLookupContentionTest(String testName) {
+        super(testName);
+    }
+
+    public void testProviderLookupUnderContention() throws Exception {
+        final JMACAuthConfigFactory factory = new JMACAuthConfigFactory(getClass().getClassLoader());
+        final AuthConfigProvider first = new StubProvider();
+        final AuthConfigProvider second = new StubProvider();
+        retained.add(first);
+        retained.add(second);
+        factory.registerConfigProvider(first, LAYER, APP_CONTEXT, "first");
+
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final AtomicBoolean inconsistent = new AtomicBoolean(false);
+        final AtomicLong lookups = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(READERS);
+        for (int i = 0; i < READERS; i++) {
+            Thread reader = new Thread(new Runnable() {
+                public void run() {
+                    long count = 0;
+                    while (!stop.get()) {
+                        AuthConfigProvider p = factory.getConfigProvider(LAYER, APP_CONTEXT, null);
+                        if (p != first && p != second) {
+                            inconsistent.set(true);
+                        }
+                        count++;
+                    }
+                    lookups.addAndGet(count);
+                    done.countDown();
+                }
+            });
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        long writes = 0;
+        long end = System.currentTimeMillis() + DURATION_MILLIS;
+        while (System.currentTimeMillis() < end) {
+            // replacing a registration keeps the layer/appContext pair registered
+            factory.registerConfigProvider((writes % 2 == 0) ? second : first, LAYER, APP_CONTEXT, "replaced");
+            String id = factory.registerConfigProvider(second, LAYER, APP_CONTEXT + writes, "other");
+            factory.removeRegistration(id);
+            writes++;
+        }
+        stop.set(true);
+        done.await();
+
+        assertFalse("a lookup did not find the registered provider", inconsistent.get());
+        assertTrue(lookups.get() > 0);
+        assertTrue(writes > 0);
+    }
+
+    public void testWeakValueMap() {
+        CopyOnWriteWeakValueMap<Integer, Object> map = new CopyOnWriteWeakValueMap<Integer, Object>();
+        Object value = new Object();
+        retained.add(value);
+        assertNull(map.get(null));
+        map.put(null, value);
+        map.put(Integer.valueOf(1000), value);
+        // a key equal to, but not identical with, the one used for put
+        assertSame(value, map.get(Integer.valueOf(1000)));
+        assertSame(value, map.get(null));
+        assertSame(value, map.remove(Integer.valueOf(1000)));
+        assertNull(map.get(Integer.valueOf(1000)));
+        assertNull(map.remove(Integer.valueOf(1000)));
+        assertEquals(1, map.size());
+    }
+
+    private static final class StubProvider implements AuthConfigProvider {
+
+        public ClientAuthConfig getClientAuthConfig(String layer, String appContext, CallbackHandler handler) throws AuthException {
+            return null;
+        }
+
+        public ServerAuthConfig getServerAuthConfig(String layer, String appContext, CallbackHandler handler) throws AuthException {
+            return null;
+        }
+
+        public void refresh() {
+        }
+    }
+}
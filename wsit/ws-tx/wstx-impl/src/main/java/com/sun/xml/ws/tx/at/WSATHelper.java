@@ -63,10 +63,13 @@ import javax.xml.soap.SOAPException;
 import javax.xml.ws.EndpointReference;
 import javax.xml.ws.WebServiceContext;
 import javax.xml.ws.WebServiceException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.transaction.Transaction;
 
 /**
@@ -106,23 +109,15 @@ public class WSATHelper<T> {
         }
     }.WSATVersion(WSATVersion.v11);
 
-    //BranchXidImpl wrapper is used for caching mechanism as equals method considers branchqual where XidImpl equals method does/may not
-    private Map<WSATXAResource, ParticipantIF<T>> m_durableParticipantPortMap = new HashMap<WSATXAResource, ParticipantIF<T>>();
-    private final Object m_durableParticipantPortMapLock = new Object();
-    private Map<Xid, WSATXAResource> m_durableParticipantXAResourceMap = new HashMap<Xid, WSATXAResource>();
- 
-    private final Object m_durableParticipantXAResourceMapLock = new Object();
-
-    private Map<Xid, ParticipantIF<T>> m_volatileParticipantPortMap = new HashMap<Xid, ParticipantIF<T>>();
-    private final Object m_volatileParticipantPortMapLock = new Object();
-    private Map<Xid, WSATSynchronization> m_volatileParticipantSynchronizationMap = new HashMap<Xid, WSATSynchronization>();
-    private final Object m_volatileParticipantSynchronizationMapLock = new Object();
+    //participants of each transaction are kept together, keyed by global transaction id, so that
+    //callbacks for unrelated transactions do not contend with each other
+    private final ConcurrentMap<TransactionKey, TransactionState<T>> m_transactionStates =
+            new ConcurrentHashMap<TransactionKey, TransactionState<T>>();
     private final int m_waitForReplyTimeout =
             new Integer(System.getProperty("com.sun.xml.ws.tx.at.reply.timeout", "120"));
     private final boolean m_isUseLocalServerAddress =
             Boolean.valueOf(System.getProperty("com.sun.xml.ws.tx.at.use.local.server.address", "false"));
     protected WSATVersion<T> builderFactory;
-    private Map<Xid, Transaction> m_xidToTransactionMap = new HashMap<Xid, Transaction>();
 
     WSATHelper WSATVersion(WSATVersion builderFactory) {
         this.builderFactory = builderFactory;
@@ -176,10 +171,9 @@ public class WSATHelper<T> {
      * @return boolean true if the status was set successfully
      */
     public boolean setDurableParticipantStatus(Xid xid, String status) {
-        WSATXAResource wsatXAResourceLock;
-        synchronized (m_durableParticipantXAResourceMapLock) {
-            wsatXAResourceLock = getDurableParticipantXAResourceMap().get(new BranchXidImpl(xid));
-        }
+        TransactionState<T> state = m_transactionStates.get(new TransactionKey(xid));
+        WSATXAResource wsatXAResourceLock =
+                state == null ? null : state.durableParticipantXAResources.get(new BranchXidImpl(xid));
         if (wsatXAResourceLock == null) {
             return false;
         }
@@ -198,10 +192,9 @@ public class WSATHelper<T> {
      * @return boolean true if the status was set successfully
      */
     boolean setVolatileParticipantStatus(Xid xid, String status) {
-        WSATSynchronization wsatSynchronization;
-        synchronized (m_volatileParticipantSynchronizationMapLock) {
-            wsatSynchronization = m_volatileParticipantSynchronizationMap.get(xid);
-        }
+        TransactionState<T> state = m_transactionStates.get(new TransactionKey(xid));
+        WSATSynchronization wsatSynchronization =
+                state == null ? null : state.volatileParticipantSynchronizations.get(new BranchXidImpl(xid));
         if (wsatSynchronization == null) {
             if (isDebugEnabled())
                 LOGGER.info(LocalizationMessages.WSAT_4581_XID_NOT_IN_DURABLE_RESOURCE_MAP(xid, status));
@@ -220,17 +213,19 @@ public class WSATHelper<T> {
      * @param wsatXAResource WSATXAResource
      */
     void removeDurableParticipant(WSATXAResource wsatXAResource) {
-        synchronized (m_durableParticipantPortMapLock) {
-            if (getDurableParticipantPortMap().containsKey(wsatXAResource)) {
-                m_durableParticipantPortMap.remove(wsatXAResource);
+        TransactionKey key = new TransactionKey(wsatXAResource.getXid());
+        TransactionState<T> state = m_transactionStates.get(key);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            if (state.durableParticipantPorts.remove(wsatXAResource) != null) {
                 if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4583_DURABLE_PORT_REMOVED(wsatXAResource));
             }
-        }
-        synchronized (m_durableParticipantXAResourceMapLock) {
-            if (getDurableParticipantXAResourceMap().containsKey(wsatXAResource.getXid())) {
-                getDurableParticipantXAResourceMap().remove(wsatXAResource.getXid());
+            if (state.durableParticipantXAResources.remove(getDurableParticipantBranchXid(wsatXAResource.getXid())) != null) {
                 if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4584_DURABLE_XARESOURCE_REMOVED(wsatXAResource));
             }
+            releaseIfUnused(key, state);
         }
     }
 
@@ -240,17 +235,19 @@ public class WSATHelper<T> {
      * @param xid Xid
      */
     void removeVolatileParticipant(Xid xid) {
-        synchronized (m_volatileParticipantPortMapLock) {
-            if (m_volatileParticipantPortMap.containsKey(new BranchXidImpl(xid))) {
-                m_volatileParticipantPortMap.remove(new BranchXidImpl(xid));
+        TransactionKey key = new TransactionKey(xid);
+        TransactionState<T> state = m_transactionStates.get(key);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            if (state.volatileParticipantPorts.remove(new BranchXidImpl(xid)) != null) {
                 if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4585_VOLATILE_PORT_REMOVED(new BranchXidImpl(xid)));
             }
-        }
-        synchronized (m_volatileParticipantSynchronizationMapLock) {
-            if (m_volatileParticipantSynchronizationMap.containsKey(new BranchXidImpl(xid))) {
-                m_volatileParticipantSynchronizationMap.remove(new BranchXidImpl(xid));
+            if (state.volatileParticipantSynchronizations.remove(new BranchXidImpl(xid)) != null) {
                 if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4586_VOLATILE_SYNCHRONIZATION_REMOVED(xid));
             }
+            releaseIfUnused(key, state);
         }
     }
 
@@ -265,9 +262,7 @@ public class WSATHelper<T> {
     public void prepare(EndpointReference epr, Xid xid,WSATXAResource wsatXAResource)
             throws XAException {
         if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4587_ABOUT_TO_SEND_PREPARE(xid, Thread.currentThread()));
-        synchronized (m_durableParticipantXAResourceMapLock) {
-            putInDurableParticipantXAResourceMap(wsatXAResource, xid);
-        }
+        putInDurableParticipantXAResourceMap(wsatXAResource, xid);
         if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4589_DURABLE_PARTICIPANT_XARESOURCE_PLACED_IN_CACHE_FROM_PREPARE(xid));
         ParticipantIF<T> port = getDurableParticipantPort(epr, xid, wsatXAResource);
         T notification = builderFactory.newNotificationBuilder().build();
@@ -275,15 +270,26 @@ public class WSATHelper<T> {
         if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4588_PREPARE_SENT(xid, Thread.currentThread()));
     }
 
-    private void putInDurableParticipantXAResourceMap(WSATXAResource wsatXAResource, Xid xid) {
+    private void putInDurableParticipantXAResourceMap(final WSATXAResource wsatXAResource, Xid xid) {
+        final BranchXidImpl branchXid = getDurableParticipantBranchXid(xid);
+        new TransactionStateUpdate(xid) {
+            void update(TransactionState<T> state) {
+                state.durableParticipantXAResources.put(branchXid, wsatXAResource); //place in map first
+            }
+        }.run();
+    }
+
+    private BranchXidImpl getDurableParticipantBranchXid(Xid xid) {
         //todo this is GF specific to strip trailing pad
         byte[] xidBqual = xid.getBranchQualifier();
+        if (xidBqual.length == 0) {
+            return new BranchXidImpl(xid);
+        }
         byte[] bqual  = new byte[xidBqual.length - 1];
         System.arraycopy(xidBqual, 0, bqual, 0, bqual.length);
 
         Xid xidImpl = new XidImpl(xid.getFormatId(), xid.getGlobalTransactionId(), bqual);
-        BranchXidImpl branchXid = new BranchXidImpl(xidImpl);
-        getDurableParticipantXAResourceMap().put(branchXid, wsatXAResource); //place in map first
+        return new BranchXidImpl(xidImpl);
     }
 
     /**
@@ -315,9 +321,7 @@ public class WSATHelper<T> {
     public void rollback(EndpointReference epr, Xid xid,WSATXAResource wsatXAResource)
             throws XAException {
       if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4592_ABOUT_TO_SEND_ROLLBACK(xid, Thread.currentThread()));
-        synchronized (m_durableParticipantXAResourceMapLock) {
-            putInDurableParticipantXAResourceMap(wsatXAResource, xid);
-        }
+        putInDurableParticipantXAResourceMap(wsatXAResource, xid);
         if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4594_ROLLBACK_PARTICIPANT_XARESOURCE_PLACED_IN_CACHE(xid));
         T notification = builderFactory.newNotificationBuilder().build();
         getDurableParticipantPort(epr, xid, wsatXAResource).rollback(notification); //place in map first
@@ -333,16 +337,18 @@ public class WSATHelper<T> {
      * @throws SOAPException soapException
      */
     public void beforeCompletion(
-            EndpointReference epr, Xid xid, WSATSynchronization wsatSynchronization)
+            EndpointReference epr, final Xid xid, final WSATSynchronization wsatSynchronization)
             throws SOAPException {
         if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4595_ABOUT_TO_SEND_PREPARE_VOLATILE(
             xid, Thread.currentThread()));
         T notification = builderFactory.newNotificationBuilder().build();
         getVolatileParticipantPort(epr, xid).prepare(notification);
         if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4596_PREPARE_VOLATILE_SENT(xid, Thread.currentThread()));
-        synchronized (m_volatileParticipantSynchronizationMapLock) {
-            m_volatileParticipantSynchronizationMap.put(new BranchXidImpl(xid), wsatSynchronization);
-        }
+        new TransactionStateUpdate(xid) {
+            void update(TransactionState<T> state) {
+                state.volatileParticipantSynchronizations.put(new BranchXidImpl(xid), wsatSynchronization);
+            }
+        }.run();
         if (isDebugEnabled())
             LOGGER.info(LocalizationMessages.WSAT_4597_PREPARE_PARTICIPANT_SYNCHRONIZATION_PLACED_IN_CACHE(xid));
     }
@@ -355,22 +361,23 @@ public class WSATHelper<T> {
      * @return ParticipantPortType created
      * @throws SOAPException if there is any issue/SOAPException while creating the (communication) ParticipantPortType
      */
-    private ParticipantIF<T> getVolatileParticipantPort(EndpointReference epr, Xid xid)
+    private ParticipantIF<T> getVolatileParticipantPort(EndpointReference epr, final Xid xid)
             throws SOAPException {
-        ParticipantIF<T> participantPort;
-        synchronized (m_volatileParticipantPortMapLock) {
-            participantPort = m_volatileParticipantPortMap.get(new BranchXidImpl(xid));
-        }
+        TransactionState<T> state = m_transactionStates.get(new TransactionKey(xid));
+        ParticipantIF<T> participantPort =
+                state == null ? null : state.volatileParticipantPorts.get(new BranchXidImpl(xid));
         if (participantPort != null) {
             if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4598_VOLATILE_PARTICIPANT_RETRIEVED_FROM_CACHE(xid));
             return participantPort;
         }
-        participantPort = getParticipantPort(epr, xid, null);
-        synchronized (m_volatileParticipantPortMapLock) {
-            m_volatileParticipantPortMap.put(new BranchXidImpl(xid), participantPort);
-        }
+        final ParticipantIF<T> newParticipantPort = getParticipantPort(epr, xid, null);
+        new TransactionStateUpdate(xid) {
+            void update(TransactionState<T> state) {
+                state.volatileParticipantPorts.put(new BranchXidImpl(xid), newParticipantPort);
+            }
+        }.run();
         if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4599_VOLATILE_PARTICIPANT_PORT_PLACED_IN_CACHE(xid));
-        return participantPort;
+        return newParticipantPort;
     }
 
     /**
@@ -382,12 +389,11 @@ public class WSATHelper<T> {
      * @return ParticipantPortType created
      * @throws XAException XAException.XAER_RMFAIL if there is any issue/SOAPException while creating the (communication) ParticipantPortType
      */
-    private ParticipantIF<T> getDurableParticipantPort(EndpointReference epr, Xid xid, WSATXAResource wsatXAResource)
+    private ParticipantIF<T> getDurableParticipantPort(EndpointReference epr, Xid xid, final WSATXAResource wsatXAResource)
             throws XAException {
-        ParticipantIF<T> participantPort;
-        synchronized (m_durableParticipantPortMapLock) {
-            participantPort = getDurableParticipantPortMap().get(wsatXAResource);
-        }
+        TransactionState<T> state = m_transactionStates.get(new TransactionKey(xid));
+        ParticipantIF<T> participantPort =
+                state == null ? null : state.durableParticipantPorts.get(wsatXAResource);
         if (participantPort != null) {
             if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4600_DURABLE_PARTICIPANT_PORT_RETREIVED_FROM_CACHE(xid));
             return participantPort;
@@ -402,12 +408,13 @@ public class WSATHelper<T> {
             xaException.errorCode = XAException.XAER_RMFAIL;
             throw xaException;
         }
-        synchronized (m_durableParticipantXAResourceMapLock) { //redundant for runtime case, required for recovery
-            putInDurableParticipantXAResourceMap(wsatXAResource, xid);
-        }
-	    synchronized (m_durableParticipantPortMapLock) {
-            getDurableParticipantPortMap().put(wsatXAResource, participantPort);
-        }
+        putInDurableParticipantXAResourceMap(wsatXAResource, xid); //redundant for runtime case, required for recovery
+        final ParticipantIF<T> newParticipantPort = participantPort;
+        new TransactionStateUpdate(xid) {
+            void update(TransactionState<T> state) {
+                state.durableParticipantPorts.put(wsatXAResource, newParticipantPort);
+            }
+        }.run();
         if (isDebugEnabled()) LOGGER.info(LocalizationMessages.WSAT_4602_DURABLE_PARTICIPANT_PORT_PLACED_IN_CACHE(xid));
         return participantPort;
     }
@@ -534,20 +541,48 @@ public class WSATHelper<T> {
         return true;
     }
 
+    /**
+     * @return snapshot of the durable participant ports of all transactions
+     */
     public Map<WSATXAResource, ParticipantIF<T>>  getDurableParticipantPortMap() {
-        return m_durableParticipantPortMap;
+        Map<WSATXAResource, ParticipantIF<T>> ports = new HashMap<WSATXAResource, ParticipantIF<T>>();
+        for (TransactionState<T> state : m_transactionStates.values()) {
+            ports.putAll(state.durableParticipantPorts);
+        }
+        return ports;
     }
 
+    /**
+     * @return snapshot of the durable participant XAResources of all transactions
+     */
     Map<Xid, WSATXAResource> getDurableParticipantXAResourceMap() {
-        return m_durableParticipantXAResourceMap;
+        Map<Xid, WSATXAResource> resources = new HashMap<Xid, WSATXAResource>();
+        for (TransactionState<T> state : m_transactionStates.values()) {
+            resources.putAll(state.durableParticipantXAResources);
+        }
+        return resources;
     }
 
+    /**
+     * @return snapshot of the volatile participant synchronizations of all transactions
+     */
     public Map<Xid, WSATSynchronization> getVolatileParticipantSynchronizationMap() {
-        return m_volatileParticipantSynchronizationMap;
+        Map<Xid, WSATSynchronization> synchronizations = new HashMap<Xid, WSATSynchronization>();
+        for (TransactionState<T> state : m_transactionStates.values()) {
+            synchronizations.putAll(state.volatileParticipantSynchronizations);
+        }
+        return synchronizations;
     }
 
+    /**
+     * @return snapshot of the volatile participant ports of all transactions
+     */
     public Map<Xid, ParticipantIF<T>> getVolatileParticipantPortMap() {
-        return m_volatileParticipantPortMap;
+        Map<Xid, ParticipantIF<T>> ports = new HashMap<Xid, ParticipantIF<T>>();
+        for (TransactionState<T> state : m_transactionStates.values()) {
+            ports.putAll(state.volatileParticipantPorts);
+        }
+        return ports;
     }
 
     /**
@@ -555,8 +590,12 @@ public class WSATHelper<T> {
      * @param xid
      * @param transaction
      */
-    public void putToXidToTransactionMap(Xid xid, Transaction transaction) {
-        m_xidToTransactionMap.put(new XidImpl(xid), transaction);
+    public void putToXidToTransactionMap(final Xid xid, final Transaction transaction) {
+        new TransactionStateUpdate(xid) {
+            void update(TransactionState<T> state) {
+                state.transactions.put(new XidImpl(xid), transaction);
+            }
+        }.run();
     }
 
     /**
@@ -565,12 +604,124 @@ public class WSATHelper<T> {
      * @return Transaction associated with Xid
      */
     public Transaction getFromXidToTransactionMap(Xid xid) {
-        Transaction transaction = m_xidToTransactionMap.get(xid);
-        return transaction;
+        TransactionState<T> state = m_transactionStates.get(new TransactionKey(xid));
+        return state == null ? null : state.transactions.get(new XidImpl(xid));
     }
 
     public void removeFromXidToTransactionMap(Xid xid) {
-        m_xidToTransactionMap.remove(xid);
+        TransactionKey key = new TransactionKey(xid);
+        TransactionState<T> state = m_transactionStates.get(key);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            state.transactions.remove(new XidImpl(xid));
+            releaseIfUnused(key, state);
+        }
+    }
+
+    /**
+     * @return number of transactions with registered participants or suspended transactions
+     */
+    int getTransactionStateCount() {
+        return m_transactionStates.size();
+    }
+
+    /**
+     * Drops the state of a transaction once nothing is registered for it any more.
+     * Must be called while holding the lock of the state.
+     */
+    private void releaseIfUnused(TransactionKey key, TransactionState<T> state) {
+        if (state.isUnused()) {
+            state.released = true;
+            m_transactionStates.remove(key, state);
+        }
+    }
+
+    /**
+     * Applies an update to the state of the transaction of an Xid, creating the state if needed.
+     * Updates of one transaction are serialized on its state, other transactions are not affected.
+     */
+    private abstract class TransactionStateUpdate {
+        private final TransactionKey key;
+
+        TransactionStateUpdate(Xid xid) {
+            this.key = new TransactionKey(xid);
+        }
+
+        abstract void update(TransactionState<T> state);
+
+        void run() {
+            while (true) {
+                TransactionState<T> state = m_transactionStates.get(key);
+                if (state == null) {
+                    TransactionState<T> newState = new TransactionState<T>();
+                    state = m_transactionStates.putIfAbsent(key, newState);
+                    if (state == null) {
+                        state = newState;
+                    }
+                }
+                synchronized (state) {
+                    // the state may have been released since it was looked up
+                    if (!state.released) {
+                        update(state);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Participants and suspended transactions registered for one global transaction.
+     * BranchXidImpl wrapper is used for the keys as its equals method considers branchqual where XidImpl equals method does/may not
+     */
+    static final class TransactionState<T> {
+        final ConcurrentMap<WSATXAResource, ParticipantIF<T>> durableParticipantPorts =
+                new ConcurrentHashMap<WSATXAResource, ParticipantIF<T>>(4);
+        final ConcurrentMap<Xid, WSATXAResource> durableParticipantXAResources =
+                new ConcurrentHashMap<Xid, WSATXAResource>(4);
+        final ConcurrentMap<Xid, ParticipantIF<T>> volatileParticipantPorts =
+                new ConcurrentHashMap<Xid, ParticipantIF<T>>(4);
+        final ConcurrentMap<Xid, WSATSynchronization> volatileParticipantSynchronizations =
+                new ConcurrentHashMap<Xid, WSATSynchronization>(4);
+        final ConcurrentMap<Xid, Transaction> transactions = new ConcurrentHashMap<Xid, Transaction>(4);
+        // guarded by this
+        boolean released = false;
+
+        boolean isUnused() {
+            return durableParticipantPorts.isEmpty() && durableParticipantXAResources.isEmpty()
+                    && volatileParticipantPorts.isEmpty() && volatileParticipantSynchronizations.isEmpty()
+                    && transactions.isEmpty();
+        }
+    }
+
+    /**
+     * Format id and global transaction id of an Xid, shared by all branches of the transaction
+     */
+    static final class TransactionKey {
+        private final int formatId;
+        private final byte[] globalTransactionId;
+        private final int hashCode;
+
+        TransactionKey(Xid xid) {
+            this.formatId = xid.getFormatId();
+            this.globalTransactionId = xid.getGlobalTransactionId();
+            this.hashCode = 31 * formatId + Arrays.hashCode(globalTransactionId);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof TransactionKey)) return false;
+            TransactionKey that = (TransactionKey) obj;
+            return formatId == that.formatId && Arrays.equals(globalTransactionId, that.globalTransactionId);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
     }
 
     private void debug(String msg) {
@@ -0,0 +1,240 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+
+package com.sun.xml.ws.tx.at;
+
+import com.sun.xml.ws.tx.at.common.ParticipantIF;
+import com.sun.xml.ws.tx.at.common.WSATVersionStub;
+import com.sun.xml.ws.tx.at.internal.XidImpl;
+import com.sun.xml.ws.tx.at.v10.types.Notification;
+import com.sun.xml.ws.tx.coord.common.EndpointReferenceBuilder;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.transaction.Transaction;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+import javax.xml.soap.SOAPException;
+import javax.xml.ws.EndpointReference;
+import junit.framework.TestCase;
+
+/**
+ * Runs many transactions concurrently through WSATHelper with in-VM participants replying
+ * synchronously, the way the Coordinator endpoint would.
+ */
+public class WSATHelperConcurrencyTest extends TestCase {
+    private static final int THREADS = 16;
+    private static final int TRANSACTIONS = 4000;
+
+    private Level rootLevel;
+
+    public WSATHelperConcurrencyTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        // every step is logged at info level
+        rootLevel = Logger.getLogger("").getLevel();
+        Logger.getLogger("").setLevel(Level.WARNING);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Logger.getLogger("").setLevel(rootLevel);
+    }
+
+    public void testConcurrentTransactions() throws Exception {
+        final InVMWSATHelper helper = new InVMWSATHelper();
+        final EndpointReference epr =
+                EndpointReferenceBuilder.MemberSubmission().address("http://localhost/wsat/participant").build();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (int i = 0; i < TRANSACTIONS; i++) {
+                final int txNumber = i;
+                results.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        runTransaction(helper, epr, txNumber);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(TRANSACTIONS * 2, helper.durableReplies.get());
+        assertEquals(0, helper.getTransactionStateCount());
+        assertTrue(helper.getDurableParticipantPortMap().isEmpty());
+        assertTrue(helper.getDurableParticipantXAResourceMap().isEmpty());
+        assertTrue(helper.getVolatileParticipantPortMap().isEmpty());
+        assertTrue(helper.getVolatileParticipantSynchronizationMap().isEmpty());
+    }
+
+    public void testStateIsSharedByBranches() throws Exception {
+        InVMWSATHelper helper = new InVMWSATHelper();
+        Xid first = newXid(1, (byte) 1);
+        Xid second = newXid(1, (byte) 2);
+        Transaction transaction = newTransaction();
+
+        helper.putToXidToTransactionMap(first, transaction);
+        helper.putToXidToTransactionMap(second, transaction);
+        assertEquals(1, helper.getTransactionStateCount());
+        assertSame(transaction, helper.getFromXidToTransactionMap(second));
+
+        helper.removeFromXidToTransactionMap(first);
+        assertNull(helper.getFromXidToTransactionMap(first));
+        assertSame(transaction, helper.getFromXidToTransactionMap(second));
+        helper.removeFromXidToTransactionMap(second);
+        assertEquals(0, helper.getTransactionStateCount());
+    }
+
+    private void runTransaction(InVMWSATHelper helper, EndpointReference epr, int txNumber) throws Exception {
+        Xid xid = newXid(txNumber, (byte) 1);
+        helper.putToXidToTransactionMap(xid, newTransaction());
+        assertNotNull(helper.getFromXidToTransactionMap(xid));
+
+        // volatile participant, the reply is delivered after beforeCompletion registered the synchronization
+        Xid volatileXid = newXid(txNumber, (byte) 2);
+        WSATSynchronization synchronization = new WSATSynchronization(epr, volatileXid);
+        helper.beforeCompletion(epr, volatileXid, synchronization);
+        assertTrue(helper.setVolatileParticipantStatus(volatileXid, WSATConstants.PREPARED));
+        helper.removeVolatileParticipant(volatileXid);
+
+        // durable participant, replies arrive while prepare and commit are sent
+        final InVMWSATHelper xaHelper = helper;
+        WSATXAResource resource = new WSATXAResource(epr, xid) {
+            @Override
+            WSATHelper getWSATHelper() {
+                return xaHelper;
+            }
+        };
+        assertEquals(XAResource.XA_OK, resource.prepare(xid));
+        resource.commit(xid, false);
+
+        helper.removeFromXidToTransactionMap(xid);
+    }
+
+    /**
+     * Xid of transaction txNumber with a GF style padded branch qualifier
+     */
+    private static Xid newXid(int txNumber, byte branch) {
+        byte[] gtrid = ByteBuffer.allocate(16).putLong(0x5753415454455354L).putLong(txNumber).array();
+        return new XidImpl(4660, gtrid, new byte[]{'b', branch, 0});
+    }
+
+    private static Transaction newTransaction() {
+        return (Transaction) Proxy.newProxyInstance(Transaction.class.getClassLoader(),
+                new Class<?>[]{Transaction.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                } else if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                }
+                return null;
+            }
+        });
+    }
+
+    private static class InVMWSATHelper extends WSATHelper<Notification> {
+        private final AtomicInteger durableReplies = new AtomicInteger();
+
+        InVMWSATHelper() {
+            WSATVersion(new WSATVersionStub());
+        }
+
+        @Override
+        public ParticipantIF<Notification> getParticipantPort(EndpointReference epr, final Xid xid, String bqual)
+                throws SOAPException {
+            if (bqual == null) {
+                // volatile participant, replies are sent by the test
+                return new InVMParticipant(null);
+            }
+            // the Coordinator receives the branch qualifier without the trailing pad
+            byte[] branchQualifier = xid.getBranchQualifier();
+            return new InVMParticipant(new XidImpl(xid.getFormatId(), xid.getGlobalTransactionId(),
+                    Arrays.copyOf(branchQualifier, branchQualifier.length - 1)));
+        }
+
+        private class InVMParticipant implements ParticipantIF<Notification> {
+            private final Xid replyXid;
+
+            InVMParticipant(Xid replyXid) {
+                this.replyXid = replyXid;
+            }
+
+            public void prepare(Notification parameters) {
+                reply(WSATConstants.PREPARED);
+            }
+
+            public void commit(Notification parameters) {
+                reply(WSATConstants.COMMITTED);
+            }
+
+            public void rollback(Notification parameters) {
+                reply(WSATConstants.ABORTED);
+            }
+
+            private void reply(String status) {
+                if (replyXid != null) {
+                    assertTrue(setDurableParticipantStatus(replyXid, status));
+                    durableReplies.incrementAndGet();
+                }
+            }
+        }
+    }
+}